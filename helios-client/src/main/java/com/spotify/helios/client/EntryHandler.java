@@ -0,0 +1,39 @@
+/*-
+ * -\-\-
+ * Helios Client
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.client;
+
+/**
+ * Receives the entries of a large listing from the master one at a time, as they are parsed, so
+ * that the whole listing does not have to be held in memory.
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ */
+public interface EntryHandler<K, V> {
+
+  /**
+   * Called once for every entry, in the order the master sent them.
+   *
+   * @param key   The key of the entry.
+   * @param value The value of the entry.
+   */
+  void entry(K key, V value);
+}
@@ -24,6 +24,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Strings.isNullOrEmpty;
 import static com.google.common.util.concurrent.Futures.catching;
+import static com.google.common.util.concurrent.Futures.getUnchecked;
 import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static com.google.common.util.concurrent.Futures.transform;
 import static com.google.common.util.concurrent.Futures.transformAsync;
@@ -34,13 +35,17 @@ import static java.net.HttpURLConnection.HTTP_BAD_METHOD;
 import static java.net.HttpURLConnection.HTTP_BAD_REQUEST;
 import static java.net.HttpURLConnection.HTTP_FORBIDDEN;
 import static java.net.HttpURLConnection.HTTP_NOT_FOUND;
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
 import static java.net.HttpURLConnection.HTTP_OK;
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.type.TypeFactory;
 import com.google.auth.oauth2.AccessToken;
 import com.google.common.base.Function;
@@ -48,6 +53,9 @@ import com.google.common.base.Optional;
 import com.google.common.base.Strings;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
@@ -74,6 +82,8 @@ import com.spotify.helios.common.descriptors.HostStatus;
 import com.spotify.helios.common.descriptors.Job;
 import com.spotify.helios.common.descriptors.JobId;
 import com.spotify.helios.common.descriptors.JobStatus;
+import com.spotify.helios.common.descriptors.JobStatusSummary;
+import com.spotify.helios.common.descriptors.Resources;
 import com.spotify.helios.common.descriptors.RolloutOptions;
 import com.spotify.helios.common.protocol.CreateDeploymentGroupResponse;
 import com.spotify.helios.common.protocol.CreateJobResponse;
@@ -118,6 +128,8 @@ public class HeliosClient implements Closeable {
 
   private static final Logger log = LoggerFactory.getLogger(HeliosClient.class);
 
+  private static final long TAGGED_ENTITY_CACHE_WEIGHT = 16 * 1024 * 1024;
+
   private final String user;
   private final RequestDispatcher dispatcher;
   private final AtomicBoolean versionWarningLogged = new AtomicBoolean();
@@ -125,6 +137,17 @@ public class HeliosClient implements Closeable {
   private final TypeReference<Map<JobId, Job>> jobIdMap = new TypeReference<Map<JobId, Job>>() {
   };
 
+  // The last tagged response to each GET, revalidated with If-None-Match
+  private final Cache<URI, TaggedEntity> taggedEntities = CacheBuilder.newBuilder()
+      .maximumWeight(TAGGED_ENTITY_CACHE_WEIGHT)
+      .weigher(new Weigher<URI, TaggedEntity>() {
+        @Override
+        public int weigh(final URI uri, final TaggedEntity entity) {
+          return entity.payload.length;
+        }
+      })
+      .build();
+
   public HeliosClient(final String user, final RequestDispatcher dispatcher) {
     this.user = checkNotNull(user);
     this.dispatcher = checkNotNull(dispatcher);
@@ -183,7 +206,13 @@ public class HeliosClient implements Closeable {
 
   private ListenableFuture<Response> request(final URI uri, final String method,
                                              final Object entity) {
-    final Map<String, List<String>> headers = Maps.newHashMap();
+    return request(uri, method, entity, Collections.<String, List<String>>emptyMap());
+  }
+
+  private ListenableFuture<Response> request(final URI uri, final String method,
+                                             final Object entity,
+                                             final Map<String, List<String>> extraHeaders) {
+    final Map<String, List<String>> headers = Maps.newHashMap(extraHeaders);
     final byte[] entityBytes;
     headers.put(VersionCompatibility.HELIOS_VERSION_HEADER,
         Collections.singletonList(Version.POM_VERSION));
@@ -239,7 +268,22 @@ public class HeliosClient implements Closeable {
   }
 
   private <T> ListenableFuture<T> get(final URI uri, final JavaType javaType) {
-    return transformAsync(request(uri, "GET"), new ConvertResponseToPojo<T>(javaType));
+    final TaggedEntity cached = taggedEntities.getIfPresent(uri);
+    if (cached == null) {
+      return transformAsync(request(uri, "GET"), new ConvertTaggedResponseToPojo<T>(uri, javaType));
+    }
+    final Map<String, List<String>> headers =
+        ImmutableMap.of("If-None-Match", singletonList(cached.etag));
+    return transformAsync(request(uri, "GET", null, headers),
+        new AsyncFunction<Response, T>() {
+          @Override
+          public ListenableFuture<T> apply(@NotNull final Response reply) throws HeliosException {
+            if (reply.status() == HTTP_NOT_MODIFIED) {
+              return immediateFuture(cached.<T>value(javaType));
+            }
+            return new ConvertTaggedResponseToPojo<T>(uri, javaType).apply(reply);
+          }
+        });
   }
 
   private ListenableFuture<Integer> put(final URI uri) {
@@ -314,6 +358,23 @@ public class HeliosClient implements Closeable {
     return transformAsync(request(uri("/hosts/statuses", queryParams), "POST", hosts), converter);
   }
 
+  /**
+   * Passes the statuses of the hosts to the handler one at a time as they are parsed, instead of
+   * collecting them in a map. Use this for large numbers of hosts.
+   *
+   * @param hosts       the hosts
+   * @param queryParams query parameters such as the status filter
+   * @param handler     receives each host name and its status
+   *
+   * @return the number of statuses passed to the handler
+   */
+  public ListenableFuture<Integer> hostStatuses(final List<String> hosts,
+                                                final Map<String, String> queryParams,
+                                                final EntryHandler<String, HostStatus> handler) {
+    return transformAsync(request(uri("/hosts/statuses", queryParams), "POST", hosts),
+        ConvertResponseToEntries.create(String.class, HostStatus.class, handler));
+  }
+
   public ListenableFuture<Integer> registerHost(final String host, final String id) {
     return put(uri(path("/hosts/%s", host), ImmutableMap.of("id", id)));
   }
@@ -399,6 +460,42 @@ public class HeliosClient implements Closeable {
     return listHosts(query);
   }
 
+  /**
+   * Returns the UP hosts that match the given hostname pattern and set of host selectors, ordered
+   * by free capacity, most first. Hosts that do not have the memory requested in
+   * {@code resources} free are left out. The future completes with null if the master does not
+   * support placement: older masters have no GET handler under /hosts/ for a single path segment,
+   * so they answer 405 Method Not Allowed rather than 404.
+   *
+   * @see #listHosts(String, Set)
+   */
+  public ListenableFuture<List<String>> hostPlacement(final String namePattern,
+                                                     final Set<String> unparsedHostSelectors,
+                                                     @Nullable final Resources resources) {
+    final Multimap<String, String> query = HashMultimap.create();
+    if (namePattern != null) {
+      query.put("namePattern", namePattern);
+    }
+    query.putAll("selector", unparsedHostSelectors);
+    if (resources != null && resources.getMemory() != null) {
+      query.put("memory", String.valueOf(resources.getMemory()));
+    }
+
+    return transformAsync(request(uri("/hosts/placement", query), "GET"),
+        new AsyncFunction<Response, List<String>>() {
+          @Override
+          public ListenableFuture<List<String>> apply(@NotNull final Response reply)
+              throws HeliosException {
+            if (reply.status() == HTTP_BAD_METHOD) {
+              return immediateFuture(null);
+            }
+            return ConvertResponseToPojo.<List<String>>create(
+                Json.type(new TypeReference<List<String>>() {
+                }), ImmutableSet.of(HTTP_OK)).apply(reply);
+          }
+        });
+  }
+
   private ListenableFuture<List<String>> listHosts(final Multimap<String, String> query) {
     return get(uri("/hosts/", query), new TypeReference<List<String>>() {
     });
@@ -480,6 +577,30 @@ public class HeliosClient implements Closeable {
     return get(uri("/jobs", params), jobIdMap);
   }
 
+  /**
+   * Passes the jobs listed as by {@link #jobs(String, String)} to the handler one at a time as
+   * they are parsed, instead of collecting them in a map.
+   *
+   * @param jobQuery        job name filter
+   * @param hostNamePattern hostname filter
+   * @param handler         receives each job id and its job
+   *
+   * @return the number of jobs passed to the handler
+   */
+  public ListenableFuture<Integer> jobs(@Nullable final String jobQuery,
+                                        @Nullable final String hostNamePattern,
+                                        final EntryHandler<JobId, Job> handler) {
+    final Map<String, String> params = new HashMap<>();
+    if (!Strings.isNullOrEmpty(jobQuery)) {
+      params.put("q", jobQuery);
+    }
+    if (!Strings.isNullOrEmpty(hostNamePattern)) {
+      params.put("hostPattern", hostNamePattern);
+    }
+    return transformAsync(request(uri("/jobs", params), "GET"),
+        ConvertResponseToEntries.create(JobId.class, Job.class, handler));
+  }
+
   public ListenableFuture<TaskStatusEvents> jobHistory(final JobId jobId) {
     return transformAsync(
         request(uri(path("/history/jobs/%s", jobId.toString())), "GET"),
@@ -499,6 +620,37 @@ public class HeliosClient implements Closeable {
     return transformAsync(request(uri("/jobs/statuses"), "POST", jobs), converter);
   }
 
+  /**
+   * Passes the statuses of the jobs to the handler one at a time as they are parsed, instead of
+   * collecting them in a map. Use this for large numbers of jobs.
+   *
+   * @param jobs    the jobs
+   * @param handler receives each job id and its status
+   *
+   * @return the number of statuses passed to the handler
+   */
+  public ListenableFuture<Integer> jobStatuses(final Set<JobId> jobs,
+                                               final EntryHandler<JobId, JobStatus> handler) {
+    return transformAsync(request(uri("/jobs/statuses"), "POST", jobs),
+        ConvertResponseToEntries.create(JobId.class, JobStatus.class, handler));
+  }
+
+  /**
+   * Returns the number of tasks of each job by state, goal and throttle state. This is much
+   * smaller than the full {@link #jobStatuses(Set)} of jobs deployed to many hosts.
+   *
+   * @param jobs the jobs to summarize
+   *
+   * @return the summaries by job id, or null if the master does not support summaries
+   */
+  public ListenableFuture<Map<JobId, JobStatusSummary>> jobStatusSummaries(final Set<JobId> jobs) {
+    final ConvertResponseToPojo<Map<JobId, JobStatusSummary>> converter =
+        ConvertResponseToPojo.create(TypeFactory.defaultInstance().constructMapType(
+            Map.class, JobId.class, JobStatusSummary.class), ImmutableSet.of(HTTP_OK));
+
+    return transformAsync(request(uri("/jobs/statuses/summary"), "POST", jobs), converter);
+  }
+
   public ListenableFuture<DeploymentGroup> deploymentGroup(final String name) {
     return get(uri("/deployment-group/" + name), new TypeReference<DeploymentGroup>() {
     });
@@ -591,6 +743,116 @@ public class HeliosClient implements Closeable {
     }
   }
 
+  /**
+   * Decodes a response that is a JSON object entry by entry and passes each entry to a handler,
+   * so that neither the tree of the object nor a map of all its entries is built. Entries before
+   * a malformed or truncated part of the reply have already been handled when it fails.
+   */
+  private static final class ConvertResponseToEntries<K, V>
+      implements AsyncFunction<Response, Integer> {
+
+    private final Class<K> keyType;
+    private final ObjectReader valueReader;
+    private final EntryHandler<K, V> handler;
+
+    private ConvertResponseToEntries(final Class<K> keyType, final Class<V> valueType,
+                                     final EntryHandler<K, V> handler) {
+      this.keyType = keyType;
+      this.valueReader = Json.reader().forType(valueType);
+      this.handler = checkNotNull(handler, "handler");
+    }
+
+    public static <K, V> ConvertResponseToEntries<K, V> create(
+        final Class<K> keyType, final Class<V> valueType, final EntryHandler<K, V> handler) {
+      return new ConvertResponseToEntries<>(keyType, valueType, handler);
+    }
+
+    @Override
+    public ListenableFuture<Integer> apply(@NotNull final Response reply)
+        throws HeliosException {
+      if (reply.status() != HTTP_OK) {
+        throw new HeliosException("request failed: " + reply);
+      }
+
+      int entries = 0;
+      try (final JsonParser parser = valueReader.getFactory().createParser(reply.payload())) {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+          throw new HeliosException("bad reply: " + reply);
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          final K key = Json.convert(parser.getCurrentName(), keyType);
+          parser.nextToken();
+          final V value = valueReader.readValue(parser);
+          handler.entry(key, value);
+          entries++;
+        }
+        if (parser.getCurrentToken() != JsonToken.END_OBJECT) {
+          throw new HeliosException("truncated reply: " + reply);
+        }
+      } catch (IOException | IllegalArgumentException e) {
+        throw new HeliosException("bad reply: " + reply, e);
+      }
+
+      return immediateFuture(entries);
+    }
+  }
+
+  /**
+   * Decodes a response like {@link ConvertResponseToPojo} and remembers it if it has an ETag, so
+   * that the next GET of the same URI can be answered with 304 Not Modified.
+   */
+  private final class ConvertTaggedResponseToPojo<T> implements AsyncFunction<Response, T> {
+
+    private final URI uri;
+    private final JavaType javaType;
+
+    private ConvertTaggedResponseToPojo(final URI uri, final JavaType javaType) {
+      this.uri = uri;
+      this.javaType = javaType;
+    }
+
+    @Override
+    public ListenableFuture<T> apply(@NotNull final Response reply) throws HeliosException {
+      final ListenableFuture<T> result = new ConvertResponseToPojo<T>(javaType).apply(reply);
+      final String etag = reply.header("ETag");
+      if (reply.status() == HTTP_OK && etag != null) {
+        taggedEntities.put(uri, new TaggedEntity(etag, reply.payload(), getUnchecked(result)));
+      } else {
+        taggedEntities.invalidate(uri);
+      }
+      return result;
+    }
+  }
+
+  private static final class TaggedEntity {
+
+    private final String etag;
+    private final byte[] payload;
+    private final Object value;
+
+    private TaggedEntity(final String etag, final byte[] payload, final Object value) {
+      this.etag = etag;
+      this.payload = payload;
+      this.value = value;
+    }
+
+    /**
+     * Returns the decoded entity. Descriptors are immutable and shared, while collections are
+     * decoded again so that callers are free to modify them.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T value(final JavaType javaType) throws HeliosException {
+      if (!javaType.isContainerType()) {
+        return (T) value;
+      }
+      try {
+        return Json.read(payload, javaType);
+      } catch (IOException e) {
+        throw new HeliosException("bad cached reply", e);
+      }
+    }
+  }
+
   public static Builder newBuilder() {
     return new Builder();
   }
@@ -34,6 +34,7 @@ import com.spotify.helios.common.descriptors.HttpHealthCheck;
 import com.spotify.helios.common.descriptors.Job;
 import com.spotify.helios.common.descriptors.JobId;
 import com.spotify.helios.common.descriptors.PortMapping;
+import com.spotify.helios.common.descriptors.RolloutOptions;
 import com.spotify.helios.common.descriptors.ServiceEndpoint;
 import com.spotify.helios.common.descriptors.ServicePorts;
 import com.spotify.helios.common.descriptors.TcpHealthCheck;
@@ -181,6 +182,7 @@ public class JobValidator {
 
     errors.addAll(validateJobHealthCheck(job));
     errors.addAll(validateJobNetworkMode(job));
+    errors.addAll(validateRolloutOptions(job));
     if (shouldValidateAddCapabilities) {
       errors.addAll(validateAddCapabilities(job));
     }
@@ -567,6 +569,31 @@ public class JobValidator {
     return errors;
   }
 
+  /**
+   * Validate the Job's rollout options. An adaptive rollout never runs waves smaller than the
+   * parallelism, so the maximum parallelism must not be less than it.
+   *
+   * @param job The Job to check
+   *
+   * @return A set of error Strings
+   */
+  private Set<String> validateRolloutOptions(final Job job) {
+    final RolloutOptions options = job.getRolloutOptions();
+    if (options == null || options.getMaxParallelism() == null) {
+      return emptySet();
+    }
+
+    final Set<String> errors = Sets.newHashSet();
+
+    final int parallelism = options.getParallelism() != null ? options.getParallelism() : 1;
+    if (options.getMaxParallelism() < parallelism) {
+      errors.add(format("maxParallelism %d is less than parallelism %d",
+          options.getMaxParallelism(), parallelism));
+    }
+
+    return errors;
+  }
+
   /**
    * Validate the Job's added Linux capabilities.
    *
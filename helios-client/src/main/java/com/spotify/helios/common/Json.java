@@ -26,6 +26,7 @@ import static com.fasterxml.jackson.databind.SerializationFeature.ORDER_MAP_ENTR
 import static com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
@@ -36,10 +37,17 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Type;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 public class Json {
@@ -50,15 +58,17 @@ public class Json {
       .configure(WRITE_DATES_AS_TIMESTAMPS, false)
       .configure(FAIL_ON_UNKNOWN_PROPERTIES, false);
 
-  private static final ObjectWriter NORMALIZING_OBJECT_WRITER = new ObjectMapper()
+  private static final ObjectMapper NORMALIZING_OBJECT_MAPPER = new ObjectMapper()
       .setDefaultPropertyInclusion(
           //parameters are valueIncl=NON_EMPTY, contentIncl=ALWAYS
           JsonInclude.Value.construct(JsonInclude.Include.NON_EMPTY, JsonInclude.Include.ALWAYS)
       )
       .configure(SORT_PROPERTIES_ALPHABETICALLY, true)
       .configure(ORDER_MAP_ENTRIES_BY_KEYS, true)
-      .configure(WRITE_DATES_AS_TIMESTAMPS, false)
-      .writer();
+      .configure(WRITE_DATES_AS_TIMESTAMPS, false);
+
+  private static final ObjectWriter NORMALIZING_OBJECT_WRITER =
+      NORMALIZING_OBJECT_MAPPER.writer();
 
   private static final ObjectWriter PRETTY_OBJECT_WRITER = new ObjectMapper()
       .configure(SORT_PROPERTIES_ALPHABETICALLY, true)
@@ -66,9 +76,6 @@ public class Json {
       .configure(WRITE_DATES_AS_TIMESTAMPS, false)
       .writerWithDefaultPrettyPrinter();
 
-  private static final TypeReference<Map<String, Object>> MAP_TYPE =
-      new TypeReference<Map<String, Object>>() {};
-
   /**
    * Serialize an object to json. Use when it is not know whether an object can be json
    * serializable.
@@ -348,10 +355,44 @@ public class Json {
     return OBJECT_MAPPER.convertValue(from, to);
   }
 
+  /**
+   * Computes the SHA-1 digest of the normalized JSON of an object, with the fields of every
+   * nested object sorted by name.
+   *
+   * <p>The JSON is written straight into the digest instead of being rendered as a string,
+   * parsed back into a map and rendered again, but the bytes digested are the same.
+   */
   public static byte[] sha1digest(final Object obj) throws IOException {
-    final String json = NORMALIZING_OBJECT_WRITER.writeValueAsString(obj);
-    final Map<String, Object> map = OBJECT_MAPPER.readValue(json, MAP_TYPE);
-    return sha1digest(map);
+    final JsonNode tree = NORMALIZING_OBJECT_MAPPER.valueToTree(obj);
+    final MessageDigest digest = Hash.sha1();
+    final OutputStream out = new DigestOutputStream(ByteStreams.nullOutputStream(), digest);
+    try (final JsonGenerator generator = NORMALIZING_OBJECT_MAPPER.getFactory()
+        .createGenerator(out)) {
+      writeSorted(generator, tree);
+    }
+    return digest.digest();
+  }
+
+  private static void writeSorted(final JsonGenerator generator, final JsonNode node)
+      throws IOException {
+    if (node.isObject()) {
+      final List<String> names = Lists.newArrayList(node.fieldNames());
+      Collections.sort(names);
+      generator.writeStartObject();
+      for (final String name : names) {
+        generator.writeFieldName(name);
+        writeSorted(generator, node.get(name));
+      }
+      generator.writeEndObject();
+    } else if (node.isArray()) {
+      generator.writeStartArray();
+      for (final JsonNode element : node) {
+        writeSorted(generator, element);
+      }
+      generator.writeEndArray();
+    } else {
+      generator.writeTree(node);
+    }
   }
 
   public static byte[] sha1digest(final Map<String, ?> obj) throws IOException {
@@ -27,35 +27,92 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.Collections;
 import java.util.List;
 
+/**
+ * The plan of a rolling update and how far it has progressed.
+ *
+ * <p>Small plans are stored inline in {@link #getRolloutTasks()}. Large plans are split into
+ * segments of {@link #getSegmentSize()} tasks that are stored separately, in which case the
+ * inline task list is empty and only {@link #getTaskCount()} tells how many tasks there are.
+ *
+ * <p>An adaptive rollout plans host by host and runs the plan in waves. When a wave starts, its
+ * tasks, from {@link #getWaveStart()} to {@link #getWaveEnd()} in the plan, are planned again and
+ * written back over the same range of the plan in the order they are run, so the task index
+ * always points into the stored plan. Along with the range, the size chosen for the wave, when it
+ * started and how many of its tasks failed are kept, and {@link #getWaves()} records the recent
+ * waves and why they were sized the way they were.
+ */
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class DeploymentGroupTasks extends Descriptor {
 
   private final List<RolloutTask> rolloutTasks;
   private final int taskIndex;
+  private final int taskCount;
+  private final int segmentSize;
   private final DeploymentGroup deploymentGroup;
+  private final int waveStart;
+  private final int waveEnd;
+  private final int waveSize;
+  private final long waveStartedAt;
+  private final int waveFailures;
+  private final List<RolloutWave> waves;
 
   private DeploymentGroupTasks(
       @JsonProperty("rolloutTasks") final List<RolloutTask> rolloutTasks,
       @JsonProperty("taskIndex") final int taskIndex,
-      @JsonProperty("deploymentGroup") final DeploymentGroup deploymentGroup) {
+      @JsonProperty("taskCount") final Integer taskCount,
+      @JsonProperty("segmentSize") final Integer segmentSize,
+      @JsonProperty("deploymentGroup") final DeploymentGroup deploymentGroup,
+      @JsonProperty("waveStart") final Integer waveStart,
+      @JsonProperty("waveEnd") final Integer waveEnd,
+      @JsonProperty("waveSize") final Integer waveSize,
+      @JsonProperty("waveStartedAt") final Long waveStartedAt,
+      @JsonProperty("waveFailures") final Integer waveFailures,
+      @JsonProperty("waves") final List<RolloutWave> waves) {
     this.rolloutTasks = checkNotNull(rolloutTasks, "rolloutTasks");
     this.taskIndex = taskIndex;
+    this.segmentSize = segmentSize == null ? 0 : segmentSize;
+    this.taskCount = this.segmentSize == 0 || taskCount == null ? rolloutTasks.size() : taskCount;
     this.deploymentGroup = deploymentGroup;
+    this.waveStart = waveStart == null ? 0 : waveStart;
+    this.waveEnd = waveEnd == null ? 0 : waveEnd;
+    this.waveSize = waveSize == null ? 0 : waveSize;
+    this.waveStartedAt = waveStartedAt == null ? 0 : waveStartedAt;
+    this.waveFailures = waveFailures == null ? 0 : waveFailures;
+    this.waves = waves == null ? Collections.<RolloutWave>emptyList() : waves;
   }
 
   public Builder toBuilder() {
     return newBuilder()
         .setRolloutTasks(rolloutTasks)
         .setTaskIndex(taskIndex)
-        .setDeploymentGroup(deploymentGroup);
+        .setTaskCount(taskCount)
+        .setSegmentSize(segmentSize)
+        .setDeploymentGroup(deploymentGroup)
+        .setWaveStart(waveStart)
+        .setWaveEnd(waveEnd)
+        .setWaveSize(waveSize)
+        .setWaveStartedAt(waveStartedAt)
+        .setWaveFailures(waveFailures)
+        .setWaves(waves);
   }
 
   private DeploymentGroupTasks(final Builder builder) {
     this.rolloutTasks = checkNotNull(builder.rolloutTasks, "rolloutTasks");
     this.taskIndex = builder.taskIndex;
+    this.segmentSize = builder.segmentSize;
+    this.taskCount = segmentSize == 0 ? rolloutTasks.size() : builder.taskCount;
     this.deploymentGroup = checkNotNull(builder.deploymentGroup, "deploymentGroup");
+    this.waveStart = builder.waveStart;
+    this.waveEnd = builder.waveEnd;
+    this.waveSize = builder.waveSize;
+    this.waveStartedAt = builder.waveStartedAt;
+    this.waveFailures = builder.waveFailures;
+    this.waves = checkNotNull(builder.waves, "waves");
   }
 
+  /**
+   * The tasks of the plan, or an empty list if the plan is stored in segments.
+   */
   public List<RolloutTask> getRolloutTasks() {
     return rolloutTasks;
   }
@@ -64,10 +121,67 @@ public class DeploymentGroupTasks extends Descriptor {
     return taskIndex;
   }
 
+  /**
+   * The total number of tasks in the plan, whether they are stored inline or in segments.
+   */
+  public int getTaskCount() {
+    return taskCount;
+  }
+
+  /**
+   * The number of tasks in each segment of the plan, or 0 if the tasks are stored inline.
+   */
+  public int getSegmentSize() {
+    return segmentSize;
+  }
+
   public DeploymentGroup getDeploymentGroup() {
     return deploymentGroup;
   }
 
+  /**
+   * The index in the plan of the first task of the current wave.
+   */
+  public int getWaveStart() {
+    return waveStart;
+  }
+
+  /**
+   * The index in the plan after the last task of the current wave, or 0 if the rollout is not
+   * adaptive or no wave has been planned yet.
+   */
+  public int getWaveEnd() {
+    return waveEnd;
+  }
+
+  /**
+   * The number of hosts chosen for the current wave. The wave has fewer hosts if fewer are left.
+   */
+  public int getWaveSize() {
+    return waveSize;
+  }
+
+  /**
+   * When the current wave started, in milliseconds since the epoch.
+   */
+  public long getWaveStartedAt() {
+    return waveStartedAt;
+  }
+
+  /**
+   * The number of tasks of the current wave that failed and were ignored.
+   */
+  public int getWaveFailures() {
+    return waveFailures;
+  }
+
+  /**
+   * The recent waves of an adaptive rollout, eldest first. The last one is the current wave.
+   */
+  public List<RolloutWave> getWaves() {
+    return waves;
+  }
+
   public static Builder newBuilder() {
     return new Builder();
   }
@@ -86,6 +200,27 @@ public class DeploymentGroupTasks extends Descriptor {
     if (taskIndex != that.taskIndex) {
       return false;
     }
+    if (taskCount != that.taskCount) {
+      return false;
+    }
+    if (segmentSize != that.segmentSize) {
+      return false;
+    }
+    if (waveStart != that.waveStart) {
+      return false;
+    }
+    if (waveEnd != that.waveEnd) {
+      return false;
+    }
+    if (waveSize != that.waveSize) {
+      return false;
+    }
+    if (waveStartedAt != that.waveStartedAt) {
+      return false;
+    }
+    if (waveFailures != that.waveFailures) {
+      return false;
+    }
     if (deploymentGroup != null ? !deploymentGroup.equals(that.deploymentGroup)
                                 : that.deploymentGroup != null) {
       return false;
@@ -94,6 +229,9 @@ public class DeploymentGroupTasks extends Descriptor {
                              : that.rolloutTasks != null) {
       return false;
     }
+    if (waves != null ? !waves.equals(that.waves) : that.waves != null) {
+      return false;
+    }
 
     return true;
   }
@@ -102,7 +240,15 @@ public class DeploymentGroupTasks extends Descriptor {
   public int hashCode() {
     int result = rolloutTasks != null ? rolloutTasks.hashCode() : 0;
     result = 31 * result + taskIndex;
+    result = 31 * result + taskCount;
+    result = 31 * result + segmentSize;
     result = 31 * result + (deploymentGroup != null ? deploymentGroup.hashCode() : 0);
+    result = 31 * result + waveStart;
+    result = 31 * result + waveEnd;
+    result = 31 * result + waveSize;
+    result = 31 * result + (int) (waveStartedAt ^ (waveStartedAt >>> 32));
+    result = 31 * result + waveFailures;
+    result = 31 * result + (waves != null ? waves.hashCode() : 0);
     return result;
   }
 
@@ -111,14 +257,30 @@ public class DeploymentGroupTasks extends Descriptor {
     return "DeploymentGroupTasks{"
            + "rolloutTasks=" + rolloutTasks
            + ", taskIndex=" + taskIndex
+           + ", taskCount=" + taskCount
+           + ", segmentSize=" + segmentSize
            + ", deploymentGroup=" + deploymentGroup
+           + ", waveStart=" + waveStart
+           + ", waveEnd=" + waveEnd
+           + ", waveSize=" + waveSize
+           + ", waveStartedAt=" + waveStartedAt
+           + ", waveFailures=" + waveFailures
+           + ", waves=" + waves
            + '}';
   }
 
   public static class Builder {
     private List<RolloutTask> rolloutTasks = Collections.emptyList();
     private int taskIndex;
+    private int taskCount;
+    private int segmentSize;
     private DeploymentGroup deploymentGroup;
+    private int waveStart;
+    private int waveEnd;
+    private int waveSize;
+    private long waveStartedAt;
+    private int waveFailures;
+    private List<RolloutWave> waves = Collections.emptyList();
 
     public Builder setRolloutTasks(List<RolloutTask> rolloutTasks) {
       this.rolloutTasks = rolloutTasks;
@@ -130,11 +292,51 @@ public class DeploymentGroupTasks extends Descriptor {
       return this;
     }
 
+    public Builder setTaskCount(int taskCount) {
+      this.taskCount = taskCount;
+      return this;
+    }
+
+    public Builder setSegmentSize(int segmentSize) {
+      this.segmentSize = segmentSize;
+      return this;
+    }
+
     public Builder setDeploymentGroup(final DeploymentGroup deploymentGroup) {
       this.deploymentGroup = deploymentGroup;
       return this;
     }
 
+    public Builder setWaveStart(final int waveStart) {
+      this.waveStart = waveStart;
+      return this;
+    }
+
+    public Builder setWaveEnd(final int waveEnd) {
+      this.waveEnd = waveEnd;
+      return this;
+    }
+
+    public Builder setWaveSize(final int waveSize) {
+      this.waveSize = waveSize;
+      return this;
+    }
+
+    public Builder setWaveStartedAt(final long waveStartedAt) {
+      this.waveStartedAt = waveStartedAt;
+      return this;
+    }
+
+    public Builder setWaveFailures(final int waveFailures) {
+      this.waveFailures = waveFailures;
+      return this;
+    }
+
+    public Builder setWaves(final List<RolloutWave> waves) {
+      this.waves = waves;
+      return this;
+    }
+
     public DeploymentGroupTasks build() {
       return new DeploymentGroupTasks(this);
     }
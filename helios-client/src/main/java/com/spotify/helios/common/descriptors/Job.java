@@ -176,6 +176,11 @@ public class Job extends Descriptor implements Comparable<Job> {
   private final Map<String, String> ramdisks;
   private final RolloutOptions rolloutOptions;
 
+  // The digest of the configuration that the id hash is derived from, once it has been computed.
+  // Computing it means serializing the whole job, and jobs are rebuilt with toBuilder().build()
+  // in many places.
+  private volatile String configHash;
+
   /**
    * Create a Job.
    *
@@ -522,13 +527,17 @@ public class Job extends Descriptor implements Comparable<Job> {
         .setLabels(labels)
         .setSecondsToWaitBeforeKill(secondsToWaitBeforeKill)
         .setRamdisks(ramdisks)
-        .setRolloutOptions(rolloutOptions);
+        .setRolloutOptions(rolloutOptions)
+        .setSource(this);
   }
 
   public static class Builder implements Cloneable {
 
     private final Parameters pm;
     private String hash;
+    // The job this builder was created from, whose config hash can be reused as long as no
+    // parameter has been set since
+    private Job source;
 
     private Builder() {
       this.pm = new Parameters();
@@ -628,18 +637,28 @@ public class Job extends Descriptor implements Comparable<Job> {
       }
     }
 
+    /**
+     * Returns the parameters for a setter to change. Every setter goes through this, as the
+     * builder no longer has the configuration of the job it was created from once anything has
+     * been set.
+     */
+    private Parameters edit() {
+      source = null;
+      return pm;
+    }
+
     public Builder setRegistrationDomain(final String domain) {
-      this.pm.registrationDomain = domain;
+      edit().registrationDomain = domain;
       return this;
     }
 
     public Builder setCreatingUser(final String creatingUser) {
-      this.pm.creatingUser = creatingUser;
+      edit().creatingUser = creatingUser;
       return this;
     }
 
     public Builder setToken(final String token) {
-      this.pm.token = token;
+      edit().token = token;
       return this;
     }
 
@@ -649,157 +668,157 @@ public class Job extends Descriptor implements Comparable<Job> {
     }
 
     public Builder setName(final String name) {
-      pm.name = name;
+      edit().name = name;
       return this;
     }
 
     public Builder setVersion(final String version) {
-      pm.version = version;
+      edit().version = version;
       return this;
     }
 
     public Builder setImage(final String image) {
-      pm.image = image;
+      edit().image = image;
       return this;
     }
 
     public Builder setHostname(final String hostname) {
-      pm.hostname = hostname;
+      edit().hostname = hostname;
       return this;
     }
 
     public Builder setCreated(final Long created) {
-      pm.created = created;
+      edit().created = created;
       return this;
     }
 
     public Builder setCommand(final List<String> command) {
-      pm.command = ImmutableList.copyOf(command);
+      edit().command = ImmutableList.copyOf(command);
       return this;
     }
 
     public Builder setEnv(final Map<String, String> env) {
-      pm.env = Maps.newHashMap(env);
+      edit().env = Maps.newHashMap(env);
       return this;
     }
 
     public Builder setResources(final Resources resources) {
-      pm.resources = resources;
+      edit().resources = resources;
       return this;
     }
 
     public Builder addEnv(final String key, final String value) {
-      pm.env.put(key, value);
+      edit().env.put(key, value);
       return this;
     }
 
     public Builder setPorts(final Map<String, PortMapping> ports) {
-      pm.ports = Maps.newHashMap(ports);
+      edit().ports = Maps.newHashMap(ports);
       return this;
     }
 
     public Builder addPort(final String name, final PortMapping port) {
-      pm.ports.put(name, port);
+      edit().ports.put(name, port);
       return this;
     }
 
     public Builder setRegistration(final Map<ServiceEndpoint, ServicePorts> registration) {
-      pm.registration = Maps.newHashMap(registration);
+      edit().registration = Maps.newHashMap(registration);
       return this;
     }
 
     public Builder addRegistration(final ServiceEndpoint endpoint, final ServicePorts ports) {
-      pm.registration.put(endpoint, ports);
+      edit().registration.put(endpoint, ports);
       return this;
     }
 
     public Builder setGracePeriod(final Integer gracePeriod) {
-      pm.gracePeriod = gracePeriod;
+      edit().gracePeriod = gracePeriod;
       return this;
     }
 
     public Builder setVolumes(final Map<String, String> volumes) {
-      pm.volumes = Maps.newHashMap(volumes);
+      edit().volumes = Maps.newHashMap(volumes);
       return this;
     }
 
     public Builder addVolume(final String path) {
-      pm.volumes.put(path, EMPTY_MOUNT);
+      edit().volumes.put(path, EMPTY_MOUNT);
       return this;
     }
 
     public Builder addVolume(final String path, final String source) {
-      pm.volumes.put(path, source);
+      edit().volumes.put(path, source);
       return this;
     }
 
     public Builder setExpires(final Date expires) {
-      pm.expires = expires;
+      edit().expires = expires;
       return this;
     }
 
     public Builder setHealthCheck(final HealthCheck healthCheck) {
-      pm.healthCheck = healthCheck;
+      edit().healthCheck = healthCheck;
       return this;
     }
 
     public Builder setSecurityOpt(final List<String> securityOpt) {
-      pm.securityOpt = ImmutableList.copyOf(securityOpt);
+      edit().securityOpt = ImmutableList.copyOf(securityOpt);
       return this;
     }
 
     public Builder setNetworkMode(final String networkMode) {
-      pm.networkMode = networkMode;
+      edit().networkMode = networkMode;
       return this;
     }
 
     public Builder setMetadata(final Map<String, String> metadata) {
-      pm.metadata = Maps.newHashMap(metadata);
+      edit().metadata = Maps.newHashMap(metadata);
       return this;
     }
 
     public Builder addMetadata(final String name, final String value) {
-      pm.metadata.put(name, value);
+      edit().metadata.put(name, value);
       return this;
     }
 
     public Builder setAddCapabilities(final Collection<String> addCapabilities) {
-      pm.addCapabilities = ImmutableSet.copyOf(addCapabilities);
+      edit().addCapabilities = ImmutableSet.copyOf(addCapabilities);
       return this;
     }
 
     public Builder setDropCapabilities(final Collection<String> dropCapabilities) {
-      pm.dropCapabilities = ImmutableSet.copyOf(dropCapabilities);
+      edit().dropCapabilities = ImmutableSet.copyOf(dropCapabilities);
       return this;
     }
 
     public Builder setLabels(final Map<String, String> labels) {
-      pm.labels = Maps.newHashMap(labels);
+      edit().labels = Maps.newHashMap(labels);
       return this;
     }
 
     public Builder addLabels(final String name, final String value) {
-      pm.labels.put(name, value);
+      edit().labels.put(name, value);
       return this;
     }
 
     public Builder setSecondsToWaitBeforeKill(final Integer secondsToWaitBeforeKill) {
-      pm.secondsToWaitBeforeKill = secondsToWaitBeforeKill;
+      edit().secondsToWaitBeforeKill = secondsToWaitBeforeKill;
       return this;
     }
 
     public Builder setRamdisks(final Map<String, String> ramdisks) {
-      pm.ramdisks = Maps.newHashMap(ramdisks);
+      edit().ramdisks = Maps.newHashMap(ramdisks);
       return this;
     }
 
     public Builder addRamdisk(final String mountPoint, final String mountOptions) {
-      pm.ramdisks.put(mountPoint, mountOptions);
+      edit().ramdisks.put(mountPoint, mountOptions);
       return this;
     }
 
     public Builder setRolloutOptions(final RolloutOptions options) {
-      pm.rolloutOptions = options;
+      edit().rolloutOptions = options;
       return this;
     }
 
@@ -906,19 +925,19 @@ public class Job extends Descriptor implements Comparable<Job> {
       return new Builder(hash, new Parameters(pm));
     }
 
-    public Job build() {
-      final String configHash;
-      try {
-        configHash = hex(Json.sha1digest(pm.withoutMetaParameters()));
-      } catch (IOException e) {
-        throw new RuntimeException(e);
-      }
+    private Builder setSource(final Job source) {
+      this.source = source;
+      return this;
+    }
 
+    public Job build() {
+      String configHash = null;
       final String hash;
       if (!Strings.isNullOrEmpty(this.hash)) {
         hash = this.hash;
       } else {
         if (pm.name != null && pm.version != null) {
+          configHash = configHash();
           final String input = String.format("%s:%s:%s", pm.name, pm.version, configHash);
           hash = hex(sha1digest(input.getBytes(UTF_8)));
         } else {
@@ -928,7 +947,33 @@ public class Job extends Descriptor implements Comparable<Job> {
 
       final JobId id = new JobId(pm.name, pm.version, hash);
 
-      return new Job(id, pm);
+      final Job job = new Job(id, pm);
+      job.configHash = configHash;
+      return job;
+    }
+
+    /**
+     * Returns the digest of the configuration, reusing the one of the job this builder was
+     * created from if no parameter has been set since.
+     */
+    private String configHash() {
+      if (source == null) {
+        return computeConfigHash();
+      }
+      String configHash = source.configHash;
+      if (configHash == null) {
+        configHash = computeConfigHash();
+        source.configHash = configHash;
+      }
+      return configHash;
+    }
+
+    private String computeConfigHash() {
+      try {
+        return hex(Json.sha1digest(pm.withoutMetaParameters()));
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
     }
 
     public Job buildWithoutHash() {
@@ -0,0 +1,178 @@
+/*-
+ * -\-\-
+ * Helios Client
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.common.descriptors;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Counts of the states of the tasks of a job, as a much smaller alternative to a full
+ * {@link JobStatus} for callers that only need to know how many instances are in which state.
+ *
+ * <p>A typical JSON representation might be:
+ * <pre>
+ * {
+ *   "jobId" : "myjob:0.1:2d0e7d5c1d5e0f8a2c4e2b7a3c1d9e0f6b5a4c3d",
+ *   "hosts" : 3,
+ *   "states" : { "RUNNING" : 2, "PULLING_IMAGE" : 1 },
+ *   "goals" : { "START" : 3 },
+ *   "throttleStates" : { "NO" : 3 }
+ * }
+ * </pre>
+ *
+ * <p>Hosts the job is deployed to that have not reported a task status yet are included in
+ * {@code hosts} and {@code goals} but not in {@code states} or {@code throttleStates}.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class JobStatusSummary extends Descriptor {
+
+  private final JobId jobId;
+  private final int hosts;
+  private final Map<TaskStatus.State, Integer> states;
+  private final Map<Goal, Integer> goals;
+  private final Map<ThrottleState, Integer> throttleStates;
+
+  /**
+   * Constructor.
+   *
+   * @param jobId          The id of the job.
+   * @param hosts          The number of hosts the job is deployed to.
+   * @param states         The number of tasks in each state.
+   * @param goals          The number of deployments with each goal.
+   * @param throttleStates The number of tasks in each throttle state.
+   */
+  public JobStatusSummary(@JsonProperty("jobId") final JobId jobId,
+                          @JsonProperty("hosts") final int hosts,
+                          @JsonProperty("states") final Map<TaskStatus.State, Integer> states,
+                          @JsonProperty("goals") final Map<Goal, Integer> goals,
+                          @JsonProperty("throttleStates")
+                          final Map<ThrottleState, Integer> throttleStates) {
+    this.jobId = checkNotNull(jobId, "jobId");
+    this.hosts = hosts;
+    this.states = copyOf(states);
+    this.goals = copyOf(goals);
+    this.throttleStates = copyOf(throttleStates);
+  }
+
+  /**
+   * Summarizes a job status.
+   *
+   * @param status The job status.
+   *
+   * @return The summary of the job status.
+   */
+  public static JobStatusSummary of(final JobStatus status) {
+    final Map<TaskStatus.State, Integer> states = Maps.newEnumMap(TaskStatus.State.class);
+    final Map<ThrottleState, Integer> throttleStates = Maps.newEnumMap(ThrottleState.class);
+    for (final TaskStatus taskStatus : status.getTaskStatuses().values()) {
+      increment(states, taskStatus.getState());
+      increment(throttleStates, taskStatus.getThrottled());
+    }
+
+    final Map<Goal, Integer> goals = Maps.newEnumMap(Goal.class);
+    for (final Deployment deployment : status.getDeployments().values()) {
+      increment(goals, deployment.getGoal());
+    }
+
+    return new JobStatusSummary(status.getJob().getId(), status.getDeployments().size(),
+        states, goals, throttleStates);
+  }
+
+  public JobId getJobId() {
+    return jobId;
+  }
+
+  public int getHosts() {
+    return hosts;
+  }
+
+  public Map<TaskStatus.State, Integer> getStates() {
+    return states;
+  }
+
+  public Map<Goal, Integer> getGoals() {
+    return goals;
+  }
+
+  public Map<ThrottleState, Integer> getThrottleStates() {
+    return throttleStates;
+  }
+
+  /**
+   * Returns the number of tasks in the given state.
+   */
+  public int count(final TaskStatus.State state) {
+    final Integer count = states.get(state);
+    return count == null ? 0 : count;
+  }
+
+  private static <K extends Enum<K>> void increment(final Map<K, Integer> counts, final K key) {
+    if (key == null) {
+      return;
+    }
+    final Integer count = counts.get(key);
+    counts.put(key, count == null ? 1 : count + 1);
+  }
+
+  private static <K> Map<K, Integer> copyOf(final Map<K, Integer> counts) {
+    return counts == null ? ImmutableMap.<K, Integer>of() : ImmutableMap.copyOf(counts);
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (obj == null || getClass() != obj.getClass()) {
+      return false;
+    }
+
+    final JobStatusSummary that = (JobStatusSummary) obj;
+
+    return hosts == that.hosts
+           && Objects.equals(jobId, that.jobId)
+           && Objects.equals(states, that.states)
+           && Objects.equals(goals, that.goals)
+           && Objects.equals(throttleStates, that.throttleStates);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(jobId, hosts, states, goals, throttleStates);
+  }
+
+  @Override
+  public String toString() {
+    return "JobStatusSummary{"
+           + "jobId=" + jobId
+           + ", hosts=" + hosts
+           + ", states=" + states
+           + ", goals=" + goals
+           + ", throttleStates=" + throttleStates
+           + '}';
+  }
+}
@@ -39,9 +39,16 @@ import org.jetbrains.annotations.Nullable;
  *   "timeout": 1000,
  *   "overlap": true,
  *   "token": "insecure-access-token",
- *   "ignoreFailures": false
+ *   "ignoreFailures": false,
+ *   "maxParallelism": 16,
+ *   "latencyBudget": 120
  * }
  * </pre>
+ *
+ * <p>When {@code maxParallelism} is greater than {@code parallelism} the rollout is adaptive: it
+ * starts with waves of {@code parallelism} hosts, doubles the wave size after every wave in which
+ * all hosts were updated within {@code latencyBudget} seconds, up to {@code maxParallelism}, and
+ * halves it after a wave with failures. Failures only leave the rollout going if it ignores them.
  */
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class RolloutOptions {
@@ -68,19 +75,25 @@ public class RolloutOptions {
   private final Boolean overlap;
   private final String token;
   private final Boolean ignoreFailures;
+  private final Integer maxParallelism;
+  private final Long latencyBudget;
 
   private RolloutOptions(@JsonProperty("timeout") @Nullable final Long timeout,
                          @JsonProperty("parallelism") @Nullable final Integer parallelism,
                          @JsonProperty("migrate") @Nullable final Boolean migrate,
                          @JsonProperty("overlap") @Nullable final Boolean overlap,
                          @JsonProperty("token") @Nullable final String token,
-                         @JsonProperty("ignoreFailures") @Nullable final Boolean ignoreFailures) {
+                         @JsonProperty("ignoreFailures") @Nullable final Boolean ignoreFailures,
+                         @JsonProperty("maxParallelism") @Nullable final Integer maxParallelism,
+                         @JsonProperty("latencyBudget") @Nullable final Long latencyBudget) {
     this.timeout = timeout;
     this.parallelism = parallelism;
     this.migrate = migrate;
     this.overlap = overlap;
     this.token = token;
     this.ignoreFailures = ignoreFailures;
+    this.maxParallelism = maxParallelism;
+    this.latencyBudget = latencyBudget;
   }
 
   public static RolloutOptions getDefault() {
@@ -98,12 +111,15 @@ public class RolloutOptions {
         .setMigrate(migrate)
         .setOverlap(overlap)
         .setToken(token)
-        .setIgnoreFailures(ignoreFailures);
+        .setIgnoreFailures(ignoreFailures)
+        .setMaxParallelism(maxParallelism)
+        .setLatencyBudget(latencyBudget);
   }
 
   /**
    * Return a new RolloutOptions instance by merging this instance with another one.
-   * @throws NullPointerException if any attribute in both instances are null.
+   * The adaptive rollout attributes may be null in both instances.
+   * @throws NullPointerException if any other attribute in both instances are null.
    */
   public RolloutOptions withFallback(final RolloutOptions that) {
     return RolloutOptions.newBuilder()
@@ -113,6 +129,8 @@ public class RolloutOptions {
         .setOverlap(firstNonNull(overlap, that.overlap))
         .setToken(firstNonNull(token, that.token))
         .setIgnoreFailures(firstNonNull(ignoreFailures, that.ignoreFailures))
+        .setMaxParallelism(maxParallelism != null ? maxParallelism : that.maxParallelism)
+        .setLatencyBudget(latencyBudget != null ? latencyBudget : that.latencyBudget)
         .build();
   }
 
@@ -146,6 +164,23 @@ public class RolloutOptions {
     return ignoreFailures;
   }
 
+  /**
+   * The largest number of hosts to deploy to concurrently in an adaptive rollout.
+   */
+  @Nullable
+  public Integer getMaxParallelism() {
+    return maxParallelism;
+  }
+
+  /**
+   * How long an adaptive rollout may take to update a wave of hosts and still grow the next wave,
+   * in seconds.
+   */
+  @Nullable
+  public Long getLatencyBudget() {
+    return latencyBudget;
+  }
+
   @Override
   public boolean equals(final Object obj) {
     if (this == obj) {
@@ -162,12 +197,15 @@ public class RolloutOptions {
            && Objects.equals(this.timeout, that.timeout)
            && Objects.equals(this.overlap, that.overlap)
            && Objects.equals(this.token, that.token)
-           && Objects.equals(this.ignoreFailures, that.ignoreFailures);
+           && Objects.equals(this.ignoreFailures, that.ignoreFailures)
+           && Objects.equals(this.maxParallelism, that.maxParallelism)
+           && Objects.equals(this.latencyBudget, that.latencyBudget);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(timeout, parallelism, migrate, overlap, token, ignoreFailures);
+    return Objects.hash(timeout, parallelism, migrate, overlap, token, ignoreFailures,
+        maxParallelism, latencyBudget);
   }
 
   @Override
@@ -179,6 +217,8 @@ public class RolloutOptions {
            + ", overlap=" + overlap
            + ", token=" + token
            + ", ignoreFailures=" + ignoreFailures
+           + ", maxParallelism=" + maxParallelism
+           + ", latencyBudget=" + latencyBudget
            + '}';
   }
 
@@ -190,6 +230,8 @@ public class RolloutOptions {
     private Boolean overlap;
     private String token;
     private Boolean ignoreFailures;
+    private Integer maxParallelism;
+    private Long latencyBudget;
 
     public Builder() { }
 
@@ -223,8 +265,19 @@ public class RolloutOptions {
       return this;
     }
 
+    public Builder setMaxParallelism(final Integer maxParallelism) {
+      this.maxParallelism = maxParallelism;
+      return this;
+    }
+
+    public Builder setLatencyBudget(final Long latencyBudget) {
+      this.latencyBudget = latencyBudget;
+      return this;
+    }
+
     public RolloutOptions build() {
-      return new RolloutOptions(timeout, parallelism, migrate, overlap, token, ignoreFailures);
+      return new RolloutOptions(timeout, parallelism, migrate, overlap, token, ignoreFailures,
+          maxParallelism, latencyBudget);
     }
   }
 }
@@ -0,0 +1,219 @@
+/*-
+ * -\-\-
+ * Helios Client
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.common.descriptors;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * A wave of an adaptive rollout: where in the plan it started, how many hosts it was sized for and
+ * why.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class RolloutWave extends Descriptor {
+
+  /**
+   * How the size of a wave relates to the size of the wave before it.
+   */
+  public enum Adjustment {
+    /**
+     * The first wave, which has parallelism hosts.
+     */
+    START,
+    /**
+     * The previous wave took no longer than the latency budget, the wave is twice as large.
+     */
+    GROW,
+    /**
+     * The previous wave took longer than the latency budget, the wave is as large.
+     */
+    HOLD,
+    /**
+     * Tasks of the previous wave failed, the wave is half as large.
+     */
+    SHRINK,
+    /**
+     * The hosts of a wave whose record was lost are finished in the order they were planned in.
+     */
+    RESUME
+  }
+
+  private final int wave;
+  private final int taskIndex;
+  private final int size;
+  private final Adjustment adjustment;
+  private final String reason;
+  private final long startedAt;
+
+  private RolloutWave(@JsonProperty("wave") final int wave,
+                      @JsonProperty("taskIndex") final int taskIndex,
+                      @JsonProperty("size") final int size,
+                      @JsonProperty("adjustment") final Adjustment adjustment,
+                      @JsonProperty("reason") final String reason,
+                      @JsonProperty("startedAt") final long startedAt) {
+    this.wave = wave;
+    this.taskIndex = taskIndex;
+    this.size = size;
+    this.adjustment = checkNotNull(adjustment, "adjustment");
+    this.reason = reason;
+    this.startedAt = startedAt;
+  }
+
+  /**
+   * The number of the wave in the rollout, starting at 1.
+   */
+  public int getWave() {
+    return wave;
+  }
+
+  /**
+   * The index in the plan of the first task of the wave.
+   */
+  public int getTaskIndex() {
+    return taskIndex;
+  }
+
+  /**
+   * The number of hosts chosen for the wave.
+   */
+  public int getSize() {
+    return size;
+  }
+
+  public Adjustment getAdjustment() {
+    return adjustment;
+  }
+
+  /**
+   * Why the wave was sized the way it was, for humans.
+   */
+  public String getReason() {
+    return reason;
+  }
+
+  /**
+   * When the wave started, in milliseconds since the epoch.
+   */
+  public long getStartedAt() {
+    return startedAt;
+  }
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  @Override
+  public String toString() {
+    return "RolloutWave{"
+           + "wave=" + wave
+           + ", taskIndex=" + taskIndex
+           + ", size=" + size
+           + ", adjustment=" + adjustment
+           + ", reason='" + reason + '\''
+           + ", startedAt=" + startedAt
+           + '}';
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (obj == null || getClass() != obj.getClass()) {
+      return false;
+    }
+
+    final RolloutWave that = (RolloutWave) obj;
+
+    if (wave != that.wave) {
+      return false;
+    }
+    if (taskIndex != that.taskIndex) {
+      return false;
+    }
+    if (size != that.size) {
+      return false;
+    }
+    if (startedAt != that.startedAt) {
+      return false;
+    }
+    if (adjustment != that.adjustment) {
+      return false;
+    }
+    return !(reason != null ? !reason.equals(that.reason) : that.reason != null);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = wave;
+    result = 31 * result + taskIndex;
+    result = 31 * result + size;
+    result = 31 * result + (adjustment != null ? adjustment.hashCode() : 0);
+    result = 31 * result + (reason != null ? reason.hashCode() : 0);
+    result = 31 * result + (int) (startedAt ^ (startedAt >>> 32));
+    return result;
+  }
+
+  public static class Builder {
+    private int wave;
+    private int taskIndex;
+    private int size;
+    private Adjustment adjustment;
+    private String reason;
+    private long startedAt;
+
+    public Builder setWave(final int wave) {
+      this.wave = wave;
+      return this;
+    }
+
+    public Builder setTaskIndex(final int taskIndex) {
+      this.taskIndex = taskIndex;
+      return this;
+    }
+
+    public Builder setSize(final int size) {
+      this.size = size;
+      return this;
+    }
+
+    public Builder setAdjustment(final Adjustment adjustment) {
+      this.adjustment = adjustment;
+      return this;
+    }
+
+    public Builder setReason(final String reason) {
+      this.reason = reason;
+      return this;
+    }
+
+    public Builder setStartedAt(final long startedAt) {
+      this.startedAt = startedAt;
+      return this;
+    }
+
+    public RolloutWave build() {
+      return new RolloutWave(wave, taskIndex, size, adjustment, reason, startedAt);
+    }
+  }
+}
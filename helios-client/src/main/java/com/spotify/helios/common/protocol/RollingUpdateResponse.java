@@ -28,7 +28,8 @@ public class RollingUpdateResponse {
   public enum Status {
     OK,
     JOB_NOT_FOUND,
-    DEPLOYMENT_GROUP_NOT_FOUND
+    DEPLOYMENT_GROUP_NOT_FOUND,
+    INVALID_ROLLOUT_OPTIONS
   }
 
   private final Status status;
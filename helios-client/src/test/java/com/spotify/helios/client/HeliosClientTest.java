@@ -20,32 +20,49 @@
 
 package com.spotify.helios.client;
 
+import static java.util.Collections.singletonList;
 import static org.hamcrest.Matchers.allOf;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyMap;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.Futures;
+import com.spotify.helios.common.HeliosException;
 import com.spotify.helios.common.Json;
+import com.spotify.helios.common.descriptors.DeploymentGroup;
 import com.spotify.helios.common.descriptors.Job;
 import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.Resources;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import org.hamcrest.FeatureMatcher;
 import org.hamcrest.Matcher;
 import org.hamcrest.Matchers;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 public class HeliosClientTest {
 
@@ -133,6 +150,31 @@ public class HeliosClientTest {
     assertThat(client.listHosts(selectors).get(), equalTo(hosts));
   }
 
+  @Test
+  public void hostPlacement() throws Exception {
+    final List<String> hosts = ImmutableList.of("foo2", "foo1");
+
+    mockResponse("GET",
+        allOf(hasPath("/hosts/placement"),
+            containsQuery("namePattern=foo"),
+            containsQuery("memory=1024")
+        ),
+        response("GET", 200, hosts));
+
+    final Resources resources = new Resources(1024L, null, null, null);
+    assertThat(client.hostPlacement("foo", ImmutableSet.<String>of(), resources).get(),
+        equalTo(hosts));
+  }
+
+  @Test
+  public void hostPlacementOnMasterWithoutPlacement() throws Exception {
+    // Older masters have no GET under /hosts/ for a single path segment
+    mockResponse("GET", hasPath("/hosts/placement"), response("GET", 405, ""));
+
+    assertThat(client.hostPlacement("foo", ImmutableSet.<String>of(), null).get(),
+        is(nullValue()));
+  }
+
   private static Map<JobId, Job> fakeJobs(JobId... jobIds) {
     Map<JobId, Job> jobs = new HashMap<>();
     for (JobId jobId : jobIds) {
@@ -188,4 +230,76 @@ public class HeliosClientTest {
 
     assertThat(client.jobs("foo", "bar").get(), is(jobs));
   }
+
+  @Test
+  public void taggedResponseIsRevalidated() throws Exception {
+    final DeploymentGroup group = DeploymentGroup.newBuilder().setName("foo").build();
+    final Response tagged = new Response("GET", null, 200, Json.asBytesUnchecked(group),
+        ImmutableMap.<String, List<String>>of("ETag", singletonList("\"v1\"")));
+    final Response notModified = new Response("GET", null, 304, new byte[0],
+        Collections.<String, List<String>>emptyMap());
+
+    when(dispatcher.request(argThat(hasPath("/deployment-group/foo")), eq("GET"),
+        eq(new byte[0]), anyMap()))
+        .thenReturn(Futures.immediateFuture(tagged))
+        .thenReturn(Futures.immediateFuture(notModified));
+
+    final DeploymentGroup first = client.deploymentGroup("foo").get();
+    final DeploymentGroup second = client.deploymentGroup("foo").get();
+
+    assertThat(first, equalTo(group));
+    assertThat(second, sameInstance(first));
+
+    final ArgumentCaptor<Map> headers = ArgumentCaptor.forClass(Map.class);
+    verify(dispatcher, times(2)).request(any(URI.class), eq("GET"), any(byte[].class),
+        headers.capture());
+    assertThat(headers.getAllValues().get(0).containsKey("If-None-Match"), is(false));
+    assertThat(headers.getAllValues().get(1).get("If-None-Match"),
+        is((Object) singletonList("\"v1\"")));
+  }
+
+  @Test
+  public void jobsArePassedToHandlerOneByOne() throws Exception {
+    final Job job1 = Job.newBuilder().setName("foo").setVersion("1").setImage("a").build();
+    final Job job2 = Job.newBuilder().setName("foo").setVersion("2").setImage("b").build();
+    final Map<JobId, Job> jobs = ImmutableMap.of(job1.getId(), job1, job2.getId(), job2);
+
+    mockResponse("GET", allOf(hasPath("/jobs"), containsQuery("hostPattern=bar")),
+        response("GET", 200, jobs));
+
+    final Map<JobId, Job> handled = new LinkedHashMap<>();
+    final int count = client.jobs("foo", "bar", new EntryHandler<JobId, Job>() {
+      @Override
+      public void entry(final JobId key, final Job value) {
+        handled.put(key, value);
+      }
+    }).get();
+
+    assertThat(count, is(2));
+    assertThat(handled, is(jobs));
+  }
+
+  @Test
+  public void truncatedListingFails() throws Exception {
+    final Job job = Job.newBuilder().setName("foo").setVersion("1").setImage("a").build();
+    final byte[] body = Json.asBytesUnchecked(ImmutableMap.of(job.getId(), job));
+    final Response truncated = new Response("GET", null, 200,
+        Arrays.copyOf(body, body.length - 1), Collections.<String, List<String>>emptyMap());
+
+    mockResponse("GET", hasPath("/jobs"), truncated);
+
+    final List<JobId> handled = new ArrayList<>();
+    try {
+      client.jobs(null, null, new EntryHandler<JobId, Job>() {
+        @Override
+        public void entry(final JobId key, final Job value) {
+          handled.add(key);
+        }
+      }).get();
+      fail("expected the truncated listing to fail");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause(), instanceOf(HeliosException.class));
+    }
+    assertThat(handled, is((List<JobId>) singletonList(job.getId())));
+  }
 }
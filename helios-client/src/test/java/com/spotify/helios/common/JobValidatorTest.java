@@ -62,6 +62,7 @@ import com.spotify.helios.common.descriptors.HealthCheck;
 import com.spotify.helios.common.descriptors.Job;
 import com.spotify.helios.common.descriptors.JobId;
 import com.spotify.helios.common.descriptors.PortMapping;
+import com.spotify.helios.common.descriptors.RolloutOptions;
 import com.spotify.helios.common.descriptors.ServiceEndpoint;
 import com.spotify.helios.common.descriptors.ServicePortParameters;
 import com.spotify.helios.common.descriptors.ServicePorts;
@@ -510,6 +511,28 @@ public class JobValidatorTest {
     assertEquals(1, validator.validate(job).size());
   }
 
+  @Test
+  public void testMaxParallelismBelowParallelismFails() {
+    final Job job = Job.newBuilder()
+        .setName("foo")
+        .setVersion("1")
+        .setImage("foobar")
+        .setRolloutOptions(RolloutOptions.newBuilder()
+            .setParallelism(4)
+            .setMaxParallelism(2)
+            .build())
+        .build();
+
+    assertThat(validator.validate(job),
+        contains("maxParallelism 2 is less than parallelism 4"));
+    assertThat(validator.validate(job.toBuilder()
+        .setRolloutOptions(RolloutOptions.newBuilder()
+            .setParallelism(4)
+            .setMaxParallelism(4)
+            .build())
+        .build()), is(empty()));
+  }
+
   @Test
   public void testExpiry() {
     // make a date that's 24 hours behind
@@ -23,6 +23,13 @@ package com.spotify.helios.common;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.spotify.helios.common.descriptors.HttpHealthCheck;
+import com.spotify.helios.common.descriptors.Job;
+import com.spotify.helios.common.descriptors.PortMapping;
+import com.spotify.helios.common.descriptors.RolloutOptions;
+import com.spotify.helios.common.descriptors.ServiceEndpoint;
+import com.spotify.helios.common.descriptors.ServicePorts;
 import java.security.MessageDigest;
 import java.util.Collections;
 import java.util.LinkedHashMap;
@@ -118,4 +125,28 @@ public class JsonTest {
                  + "  \"foo\" : \"bar\"\n"
                  + "}", json);
   }
+
+  @Test
+  public void verifyDigestMatchesDigestOfReparsedJson() throws Exception {
+    final Map<String, String> labels = new LinkedHashMap<>();
+    labels.put("z", "last");
+    labels.put("a", "");
+    final Job job = Job.newBuilder()
+        .setName("foo")
+        .setVersion("1")
+        .setImage("foo:1")
+        .setCreated(1410308461448L)
+        .setHealthCheck(HttpHealthCheck.of("http", "/healthcheck"))
+        .addPort("http", PortMapping.of(80, 8000))
+        .addRegistration(ServiceEndpoint.of("foo", "http"), ServicePorts.of("http"))
+        .setLabels(labels)
+        .setRolloutOptions(RolloutOptions.newBuilder().setParallelism(2).build())
+        .build();
+
+    // The digest used to be computed by rendering the normalized JSON, parsing it into a map and
+    // rendering that with sorted keys
+    final Map<String, Object> reparsed = Json.read(Json.asNormalizedString(job),
+        new TypeReference<Map<String, Object>>() {});
+    assertArrayEquals(Json.sha1digest(reparsed), Json.sha1digest(job));
+  }
 }
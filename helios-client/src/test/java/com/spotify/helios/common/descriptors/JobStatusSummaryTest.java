@@ -0,0 +1,82 @@
+/*-
+ * -\-\-
+ * Helios Client
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.common.descriptors;
+
+import static org.junit.Assert.assertEquals;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.spotify.helios.common.Json;
+import com.spotify.helios.common.descriptors.TaskStatus.State;
+import org.junit.Test;
+
+public class JobStatusSummaryTest {
+
+  private static final Job JOB = Job.newBuilder()
+      .setCommand(ImmutableList.of("BOGUS"))
+      .setImage("IMAGE")
+      .setName("NAME")
+      .setVersion("VERSION")
+      .build();
+
+  @Test
+  public void testOf() throws Exception {
+    final JobStatus status = JobStatus.newBuilder()
+        .setJob(JOB)
+        .setDeployments(ImmutableMap.of(
+            "host1", Deployment.of(JOB.getId(), Goal.START),
+            "host2", Deployment.of(JOB.getId(), Goal.START),
+            "host3", Deployment.of(JOB.getId(), Goal.STOP)))
+        .setTaskStatuses(ImmutableMap.of(
+            "host1", taskStatus(State.RUNNING, ThrottleState.NO),
+            "host2", taskStatus(State.FAILED, ThrottleState.FLAPPING)))
+        .build();
+
+    final JobStatusSummary summary = JobStatusSummary.of(status);
+
+    assertEquals(JOB.getId(), summary.getJobId());
+    assertEquals(3, summary.getHosts());
+    assertEquals(ImmutableMap.of(State.RUNNING, 1, State.FAILED, 1), summary.getStates());
+    assertEquals(ImmutableMap.of(Goal.START, 2, Goal.STOP, 1), summary.getGoals());
+    assertEquals(ImmutableMap.of(ThrottleState.NO, 1, ThrottleState.FLAPPING, 1),
+        summary.getThrottleStates());
+    assertEquals(1, summary.count(State.RUNNING));
+    assertEquals(0, summary.count(State.EXITED));
+  }
+
+  @Test
+  public void testSerialization() throws Exception {
+    final JobStatusSummary summary = new JobStatusSummary(JOB.getId(), 2,
+        ImmutableMap.of(State.RUNNING, 2), ImmutableMap.of(Goal.START, 2),
+        ImmutableMap.of(ThrottleState.NO, 2));
+
+    assertEquals(summary, Json.read(Json.asBytes(summary), JobStatusSummary.class));
+  }
+
+  private static TaskStatus taskStatus(final State state, final ThrottleState throttled) {
+    return TaskStatus.newBuilder()
+        .setGoal(Goal.START)
+        .setJob(JOB)
+        .setState(state)
+        .setThrottled(throttled)
+        .build();
+  }
+}
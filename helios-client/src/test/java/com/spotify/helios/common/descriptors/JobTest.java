@@ -43,6 +43,9 @@ import com.google.common.io.BaseEncoding;
 import com.spotify.helios.common.Hash;
 import com.spotify.helios.common.Json;
 import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -386,6 +389,110 @@ public class JobTest {
     assertEquals(expectedId, job.getId());
   }
 
+  @Test
+  public void verifyRebuiltJobKeepsId() throws Exception {
+    final Job job = largeJob().build();
+
+    assertEquals(job.getId(), job.toBuilder().build().getId());
+    // Again, now that the config hash is known
+    assertEquals(job.getId(), job.toBuilder().build().getId());
+
+    final Job parsed = parse(Json.asBytes(job), Job.class);
+    assertEquals(job.getId(), parsed.toBuilder().build().getId());
+    assertEquals(job.getId(), parsed.toBuilder().build().getId());
+  }
+
+  @Test
+  public void verifyRebuiltJobWithChangesGetsNewId() throws Exception {
+    final Job job = largeJob().build();
+    job.toBuilder().build();
+
+    final Job changed = job.toBuilder().addEnv("ANOTHER", "VAR").build();
+    assertNotEquals(job.getId(), changed.getId());
+    assertEquals(largeJob().addEnv("ANOTHER", "VAR").build().getId(), changed.getId());
+
+    // Meta parameters do not go into the hash
+    final Job meta = job.toBuilder().setCreatingUser("someone").setCreated(17L).build();
+    assertEquals(job.getId(), meta.getId());
+  }
+
+  @Test
+  public void verifyEverySetterOfRebuiltJobIsReflectedInId() throws Exception {
+    final Job job = largeJob().build();
+    // Make the config hash of the job known, so that a builder that wrongly reuses it shows
+    job.toBuilder().build();
+
+    for (final Method method : Job.Builder.class.getMethods()) {
+      if (method.getReturnType() != Job.Builder.class
+          || !(method.getName().startsWith("set") || method.getName().startsWith("add"))) {
+        continue;
+      }
+      final Type[] types = method.getGenericParameterTypes();
+      final Object[] args = new Object[types.length];
+      for (int i = 0; i < types.length; i++) {
+        args[i] = sample(types[i]);
+      }
+
+      final Job.Builder builder = job.toBuilder();
+      method.invoke(builder, args);
+      // A clone does not know the job it came from, and always computes the hash
+      final JobId expected = builder.clone().build().getId();
+      assertEquals(method.toString(), expected, builder.build().getId());
+    }
+  }
+
+  /**
+   * Returns a value of the type that differs from the ones in {@link #largeJob()}.
+   */
+  private static Object sample(final Type type) {
+    if (type instanceof ParameterizedType) {
+      final ParameterizedType parameterized = (ParameterizedType) type;
+      final Type[] arguments = parameterized.getActualTypeArguments();
+      if (parameterized.getRawType() == Map.class) {
+        return ImmutableMap.of(sample(arguments[0]), sample(arguments[1]));
+      }
+      return ImmutableList.of(sample(arguments[0]));
+    }
+    if (type == String.class) {
+      return "changed";
+    } else if (type == Long.class) {
+      return 4711L;
+    } else if (type == Integer.class) {
+      return 4711;
+    } else if (type == Date.class) {
+      return new Date(4711);
+    } else if (type == Resources.class) {
+      return new Resources(4711L, 4711L, 4711L, "0");
+    } else if (type == HealthCheck.class) {
+      return TcpHealthCheck.of("changed");
+    } else if (type == RolloutOptions.class) {
+      return RolloutOptions.newBuilder().setTimeout(4711L).build();
+    } else if (type == PortMapping.class) {
+      return PortMapping.of(4711, 4711);
+    } else if (type == ServiceEndpoint.class) {
+      return ServiceEndpoint.of("changed", "http");
+    } else if (type == ServicePorts.class) {
+      return ServicePorts.of("changed");
+    }
+    throw new AssertionError("no sample value for " + type);
+  }
+
+  private Job.Builder largeJob() {
+    final Job.Builder builder = Job.newBuilder()
+        .setName("foozbarz")
+        .setVersion("17")
+        .setImage("foobar:4711")
+        .setCommand(asList("foo", "bar"))
+        .setHealthCheck(HttpHealthCheck.of("http", "/healthcheck"))
+        .addPort("http", PortMapping.of(80, 8000))
+        .addRegistration(ServiceEndpoint.of("foo", "http"), ServicePorts.of("http"));
+    for (int i = 0; i < 500; i++) {
+      builder.addEnv("ENV_" + i, "value-" + i);
+      builder.addMetadata("meta-" + i, "value-" + i);
+    }
+    return builder;
+  }
+
   private String hex(final byte[] bytes) {
     return BaseEncoding.base16().lowerCase().encode(bytes);
   }
@@ -116,4 +116,33 @@ public class RolloutOptionsTest {
             .setOverlap(true)
             .build()));
   }
+
+  @Test
+  public void testAdaptiveOptionsAreOptionalInFallback() throws Exception {
+    final RolloutOptions options = RolloutOptions.newBuilder()
+        .setParallelism(2)
+        .build();
+    assertThat(options.withFallback(RolloutOptions.getDefault()).getMaxParallelism(),
+        is(nullValue()));
+
+    final RolloutOptions fallback = RolloutOptions.getDefault().toBuilder()
+        .setMaxParallelism(8)
+        .setLatencyBudget(30L)
+        .build();
+    assertThat(options.withFallback(fallback), equalTo(fallback.toBuilder()
+        .setParallelism(2)
+        .build()));
+    assertThat(options.toBuilder().setMaxParallelism(4).build().withFallback(fallback)
+        .getMaxParallelism(), is(4));
+  }
+
+  @Test
+  public void testCanDeserializeAdaptiveFields() throws Exception {
+    final String json = "{\"parallelism\": 2, \"maxParallelism\": 16, \"latencyBudget\": 120}";
+
+    final RolloutOptions options = Json.read(json, RolloutOptions.class);
+
+    assertThat(options.getMaxParallelism(), is(16));
+    assertThat(options.getLatencyBudget(), is(120L));
+  }
 }
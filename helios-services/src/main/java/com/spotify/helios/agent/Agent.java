@@ -20,14 +20,24 @@
 
 package com.spotify.helios.agent;
 
+import static com.codahale.metrics.MetricRegistry.name;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Predicates.in;
 import static com.google.common.base.Predicates.not;
 import static com.spotify.helios.common.descriptors.Goal.START;
 import static com.spotify.helios.common.descriptors.Goal.UNDEPLOY;
 import static com.spotify.helios.servicescommon.Reactor.Callback;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+import com.codahale.metrics.Timer;
 import com.google.common.base.Predicate;
 import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableMap;
@@ -35,7 +45,7 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.AbstractIdleService;
-import com.spotify.helios.common.descriptors.Goal;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.spotify.helios.common.descriptors.Job;
 import com.spotify.helios.common.descriptors.JobId;
 import com.spotify.helios.common.descriptors.Task;
@@ -44,22 +54,35 @@ import com.spotify.helios.servicescommon.PersistentAtomicReference;
 import com.spotify.helios.servicescommon.Reactor;
 import com.spotify.helios.servicescommon.ReactorFactory;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Runs jobs to implement the desired container deployment state.
+ *
+ * <p>Each reactor run only reconciles the jobs that are dirty: jobs whose task changed in the
+ * model, jobs whose supervisor reported a state change, and jobs whose supervisor has stopped.
+ * When the reactor times out, every 30 seconds, all jobs are reconciled, which also retries
+ * port allocations that failed. Containers that no supervisor owns are reaped on a
+ * separate, slower schedule.
  */
-public class Agent extends AbstractIdleService {
+public class Agent extends AbstractIdleService implements MetricSet {
 
   public static final Map<JobId, Execution> EMPTY_EXECUTIONS = Collections.emptyMap();
 
   private static final Logger log = LoggerFactory.getLogger(Agent.class);
 
   private static final long UPDATE_INTERVAL = SECONDS.toMillis(30);
+  private static final long REAP_INTERVAL = MINUTES.toMillis(1);
 
   private static final Predicate<Execution> PORT_ALLOCATION_PENDING = new Predicate<Execution>() {
     @Override
@@ -80,12 +103,29 @@ public class Agent extends AbstractIdleService {
   private final AgentModel model;
   private final SupervisorFactory supervisorFactory;
   private final ModelListener modelListener = new ModelListener();
-  private final Supervisor.Listener supervisorListener = new SupervisorListener();
-  private final Map<JobId, Supervisor> supervisors = Maps.newHashMap();
+  private final ConcurrentMap<JobId, Supervisor> supervisors = Maps.newConcurrentMap();
   private final Reactor reactor;
   private final PersistentAtomicReference<Map<JobId, Execution>> executions;
   private final PortAllocator portAllocator;
   private final Reaper reaper;
+  private final ScheduledExecutorService reaperExecutor;
+  private final ContainerAdopter adopter;
+  private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+  // Jobs whose supervisor reported a state change since the last run
+  private final Set<JobId> changedJobs = Sets.newConcurrentHashSet();
+  // The tasks seen by the last run. Only accessed by the reactor.
+  private Map<JobId, Task> lastTasks = Collections.emptyMap();
+  private boolean fullUpdatePending = true;
+
+  private final Timer updateTimer = new Timer();
+  private final Histogram updatedJobs = new Histogram(new ExponentiallyDecayingReservoir());
+  private final Timer reapTimer = new Timer();
+
+  // Jobs started on startup whose supervisor has not settled yet
+  private final Set<JobId> unsettled = Sets.newConcurrentHashSet();
+  private final AtomicLong timeToReadyMillis = new AtomicLong(-1);
+  private volatile long startNanos;
 
   /**
    * Create a new agent.
@@ -102,6 +142,28 @@ public class Agent extends AbstractIdleService {
                final PersistentAtomicReference<Map<JobId, Execution>> executions,
                final PortAllocator portAllocator,
                final Reaper reaper) {
+    this(model, supervisorFactory, reactorFactory, executions, portAllocator, reaper, null);
+  }
+
+  /**
+   * Create a new agent that adopts the containers of persisted executions in bulk on startup.
+   *
+   * @param model             The model.
+   * @param supervisorFactory The factory to use for creating supervisors.
+   * @param reactorFactory    The factory to use for creating reactors.
+   * @param executions        A persistent map of executions.
+   * @param portAllocator     Allocator for job ports.
+   * @param reaper            The reaper.
+   * @param adopter           The container adopter, or null to have each supervisor inspect its
+   *                          own container.
+   */
+  public Agent(final AgentModel model, final SupervisorFactory supervisorFactory,
+               final ReactorFactory reactorFactory,
+               final PersistentAtomicReference<Map<JobId, Execution>> executions,
+               final PortAllocator portAllocator,
+               final Reaper reaper,
+               final ContainerAdopter adopter) {
+    this.adopter = adopter;
     this.model = checkNotNull(model, "model");
     this.supervisorFactory = checkNotNull(supervisorFactory, "supervisorFactory");
     this.executions = checkNotNull(executions, "executions");
@@ -109,24 +171,45 @@ public class Agent extends AbstractIdleService {
     this.reactor = checkNotNull(reactorFactory.create("agent", new Update(), UPDATE_INTERVAL),
         "reactor");
     this.reaper = checkNotNull(reaper, "reaper");
+    this.reaperExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+        .setNameFormat("agent-reaper-%d")
+        .setDaemon(true)
+        .build());
   }
 
   @Override
   protected void startUp() throws Exception {
-    for (final Entry<JobId, Execution> entry : executions.get().entrySet()) {
+    startNanos = System.nanoTime();
+    final Map<JobId, Execution> persisted = executions.get();
+    final Map<JobId, ContainerAdopter.Adopted> adopted = adopt(persisted);
+    for (final Entry<JobId, Execution> entry : persisted.entrySet()) {
       final Execution execution = entry.getValue();
       final Job job = execution.getJob();
       if (execution.getPorts() != null) {
-        createSupervisor(job, execution.getPorts());
+        if (execution.getGoal() == START) {
+          unsettled.add(entry.getKey());
+        }
+        createSupervisor(job, execution.getPorts(), adopted.get(entry.getKey()));
       }
     }
+    if (unsettled.isEmpty()) {
+      ready();
+    }
     model.addListener(modelListener);
     reactor.startAsync().awaitRunning();
     reactor.signal();
+    reaperExecutor.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        reap();
+      }
+    }, 0, REAP_INTERVAL, MILLISECONDS);
   }
 
   @Override
   protected void shutDown() throws Exception {
+    reaperExecutor.shutdownNow();
+    reaperExecutor.awaitTermination(1, MINUTES);
     reactor.stopAsync().awaitTerminated();
     for (final Supervisor supervisor : supervisors.values()) {
       supervisor.close();
@@ -134,21 +217,160 @@ public class Agent extends AbstractIdleService {
     }
   }
 
+  /**
+   * Add a listener that will be notified when the executions change.
+   */
+  public void addListener(final Listener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Remove a listener.
+   *
+   * @see #addListener(Listener)
+   */
+  public void removeListener(final Listener listener) {
+    listeners.remove(listener);
+  }
+
+  private void setExecutions(final Map<JobId, Execution> newExecutions)
+      throws InterruptedException {
+    executions.setUnchecked(newExecutions);
+    for (final Listener listener : listeners) {
+      try {
+        listener.executionsChanged(newExecutions);
+      } catch (Exception e) {
+        log.error("listener threw exception", e);
+      }
+    }
+  }
+
+  @Override
+  public Map<String, Metric> getMetrics() {
+    final String prefix = "helios.agent_reconcile";
+    return ImmutableMap.<String, Metric>of(
+        name(prefix, "update"), updateTimer,
+        name(prefix, "jobs"), updatedJobs,
+        name(prefix, "reap"), reapTimer,
+        "helios.agent_restart.time_to_ready", new Gauge<Long>() {
+          @Override
+          public Long getValue() {
+            return timeToReadyMillis.get();
+          }
+        });
+  }
+
   /**
    * Create a job supervisor.
    *
    * @param job The job .
    */
   private Supervisor createSupervisor(final Job job, final Map<String, Integer> portAllocation) {
+    return createSupervisor(job, portAllocation, null);
+  }
+
+  /**
+   * Create a job supervisor, handing it the container adopted for it on startup, if any.
+   */
+  private Supervisor createSupervisor(final Job job, final Map<String, Integer> portAllocation,
+                                      final ContainerAdopter.Adopted adopted) {
     log.debug("creating job supervisor: {}", job);
-    final TaskStatus taskStatus = model.getTaskStatus(job.getId());
-    final String containerId = (taskStatus == null) ? null : taskStatus.getContainerId();
-    final Supervisor supervisor = supervisorFactory.create(job, containerId, portAllocation,
-        supervisorListener);
+    final Supervisor supervisor;
+    if (adopted == null) {
+      final TaskStatus taskStatus = model.getTaskStatus(job.getId());
+      final String containerId = (taskStatus == null) ? null : taskStatus.getContainerId();
+      supervisor = supervisorFactory.create(job, containerId, portAllocation,
+          new SupervisorListener(job.getId()));
+    } else {
+      supervisor = supervisorFactory.create(job, adopted.getContainerId(), adopted.isRunning(),
+          portAllocation, new SupervisorListener(job.getId()));
+    }
     supervisors.put(job.getId(), supervisor);
     return supervisor;
   }
 
+  /**
+   * Lists the containers of the persisted executions in one go, instead of having every
+   * supervisor inspect its own.
+   */
+  private Map<JobId, ContainerAdopter.Adopted> adopt(final Map<JobId, Execution> persisted)
+      throws InterruptedException {
+    if (adopter == null) {
+      return Collections.emptyMap();
+    }
+    final Set<JobId> jobs = Sets.newHashSet();
+    final Map<JobId, String> containerIds = Maps.newHashMap();
+    for (final Entry<JobId, Execution> entry : persisted.entrySet()) {
+      if (entry.getValue().getPorts() == null) {
+        continue;
+      }
+      jobs.add(entry.getKey());
+      final TaskStatus taskStatus = model.getTaskStatus(entry.getKey());
+      if (taskStatus != null && taskStatus.getContainerId() != null) {
+        containerIds.put(entry.getKey(), taskStatus.getContainerId());
+      }
+    }
+    return adopter.adopt(jobs, containerIds);
+  }
+
+  /**
+   * Marks a job started on startup as settled, and records the time to ready once all are.
+   */
+  private void settled(final JobId jobId) {
+    if (unsettled.remove(jobId) && unsettled.isEmpty()) {
+      ready();
+    }
+  }
+
+  private void ready() {
+    final long millis = MILLISECONDS.convert(System.nanoTime() - startNanos, NANOSECONDS);
+    if (timeToReadyMillis.compareAndSet(-1, millis)) {
+      log.info("agent ready {} ms after startup", millis);
+    }
+  }
+
+  /**
+   * Kills containers in our namespace that no supervisor owns.
+   */
+  private void reap() {
+    final Timer.Context context = reapTimer.time();
+    try {
+      reaper.reap(new Supplier<Set<String>>() {
+        @Override
+        public Set<String> get() {
+          final Set<String> active = Sets.newHashSet();
+          for (final Supervisor supervisor : supervisors.values()) {
+            final String containerId = supervisor.containerId();
+            if (containerId != null) {
+              active.add(containerId);
+            }
+          }
+          return active;
+        }
+      });
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      log.error("reaping failed", e);
+    } finally {
+      context.stop();
+    }
+  }
+
+  /**
+   * A listener for changes to the executions, which hold the job, goal and allocated ports of
+   * every task of the agent.
+   */
+  public interface Listener {
+
+    /**
+     * The executions changed.
+     *
+     * @param executions The new executions.
+     */
+    void executionsChanged(Map<JobId, Execution> executions);
+  }
+
   /**
    * Listens to model state updates and signals the reactor.
    */
@@ -161,14 +383,27 @@ public class Agent extends AbstractIdleService {
   }
 
   /**
-   * Listens to supervisor state updates and signals the reactor.
+   * Listens to state updates of the supervisor of a job, marks the job dirty and signals the
+   * reactor.
    */
   private class SupervisorListener implements Supervisor.Listener {
 
+    private final JobId jobId;
+
+    private SupervisorListener(final JobId jobId) {
+      this.jobId = jobId;
+    }
+
     @Override
     public void stateChanged(final Supervisor supervisor) {
+      changedJobs.add(jobId);
       reactor.signal();
     }
+
+    @Override
+    public void settled(final Supervisor supervisor) {
+      Agent.this.settled(jobId);
+    }
   }
 
   /**
@@ -178,146 +413,169 @@ public class Agent extends AbstractIdleService {
 
     @Override
     public void run(final boolean timeout) throws InterruptedException {
+      final Timer.Context context = updateTimer.time();
+      try {
+        update(timeout);
+      } finally {
+        context.stop();
+      }
+    }
+  }
 
-      // Note: when changing this code:
-      // * Ensure that supervisors for the same container never run concurrently.
-      // * A supervisor must not be released before its container is stopped.
-      // * A new container must either reuse an existing supervisor or wait for the old supervisor
-      //   to die before spawning a new one.
-      // * Book-keeping a supervisor of one job should not block processing of other jobs
-
-      // Reap unwanted containers
-      reaper.reap(new Supplier<Set<String>>() {
-        @Override
-        public Set<String> get() {
-          final Set<String> active = Sets.newHashSet();
-          for (final Supervisor supervisor : supervisors.values()) {
-            final String containerId = supervisor.containerId();
-            if (containerId != null) {
-              active.add(containerId);
-            }
-          }
-          return active;
+  private void update(final boolean timeout) throws InterruptedException {
+    // Note: when changing this code:
+    // * Ensure that supervisors for the same container never run concurrently.
+    // * A supervisor must not be released before its container is stopped.
+    // * A new container must either reuse an existing supervisor or wait for the old supervisor
+    //   to die before spawning a new one.
+    // * Book-keeping a supervisor of one job should not block processing of other jobs
+
+    final Map<JobId, Task> tasks = model.getTasks();
+    final Map<JobId, Execution> current = executions.get();
+
+    final Set<JobId> dirty = Sets.newHashSet();
+    for (final Iterator<JobId> it = changedJobs.iterator(); it.hasNext(); ) {
+      dirty.add(it.next());
+      it.remove();
+    }
+    if (timeout || fullUpdatePending) {
+      fullUpdatePending = false;
+      dirty.addAll(tasks.keySet());
+      dirty.addAll(current.keySet());
+      dirty.addAll(supervisors.keySet());
+    } else {
+      // Comparing the tasks is cheap, they are in memory. Doing so on every run rather than
+      // relying on the model listener keeps us from missing changes that raced with a run.
+      for (final Entry<JobId, Task> entry : tasks.entrySet()) {
+        if (!entry.getValue().equals(lastTasks.get(entry.getKey()))) {
+          dirty.add(entry.getKey());
         }
-      });
-
-      final Map<JobId, Task> tasks = model.getTasks();
-
-      log.debug("tasks: {}", tasks);
-      log.debug("executions: {}", executions.get());
-      log.debug("supervisors: {}", supervisors);
+      }
+      dirty.addAll(Sets.difference(lastTasks.keySet(), tasks.keySet()));
+      // Supervisors that have finished stopping are released below
+      for (final Entry<JobId, Supervisor> entry : supervisors.entrySet()) {
+        if (entry.getValue().isStopping() && entry.getValue().isDone()) {
+          dirty.add(entry.getKey());
+        }
+      }
+    }
+    lastTasks = tasks;
 
-      // Create and update executions
-      final Map<JobId, Execution> newExecutions = Maps.newHashMap(executions.get());
-      for (final Entry<JobId, Task> entry : tasks.entrySet()) {
-        final JobId jobId = entry.getKey();
-        final Task task = entry.getValue();
-        final Execution existing = newExecutions.get(jobId);
-        if (existing != null) {
-          if (existing.getGoal() != task.getGoal()) {
-            final Execution execution = existing.withGoal(task.getGoal());
-            newExecutions.put(jobId, execution);
-          }
-        } else {
-          newExecutions.put(jobId, Execution.of(task.getJob()).withGoal(task.getGoal()));
+    if (dirty.isEmpty()) {
+      return;
+    }
+    updatedJobs.update(dirty.size());
+
+    log.debug("dirty: {}", dirty);
+    log.debug("tasks: {}", tasks);
+    log.debug("executions: {}", current);
+    log.debug("supervisors: {}", supervisors);
+
+    // Create and update executions, and create undeploy goals for removed tasks
+    final Map<JobId, Execution> changed = Maps.newHashMap();
+    for (final JobId jobId : dirty) {
+      final Task task = tasks.get(jobId);
+      final Execution existing = current.get(jobId);
+      if (task != null) {
+        if (existing == null) {
+          changed.put(jobId, Execution.of(task.getJob()).withGoal(task.getGoal()));
+        } else if (existing.getGoal() != task.getGoal()) {
+          changed.put(jobId, existing.withGoal(task.getGoal()));
         }
+      } else if (existing != null && existing.getGoal() != UNDEPLOY) {
+        log.debug("Setting UNDEPLOY goal for removed job: {}", existing.getJob());
+        changed.put(jobId, existing.withGoal(UNDEPLOY));
       }
+    }
 
-      // Create undeploy goals for removed tasks
-      for (final Entry<JobId, Execution> entry : newExecutions.entrySet()) {
+    // Allocate ports
+    final Map<JobId, Execution> pending = Maps.newHashMap();
+    for (final JobId jobId : dirty) {
+      final Execution execution = changed.containsKey(jobId) ? changed.get(jobId)
+                                                             : current.get(jobId);
+      if (execution != null && PORT_ALLOCATION_PENDING.apply(execution)) {
+        pending.put(jobId, execution);
+      }
+    }
+    if (!pending.isEmpty()) {
+      final ImmutableSet.Builder<Integer> usedPorts = ImmutableSet.builder();
+      final Map<JobId, Execution> allocated = Maps.filterValues(current, PORTS_ALLOCATED);
+      for (final Entry<JobId, Execution> entry : allocated.entrySet()) {
+        usedPorts.addAll(entry.getValue().getPorts().values());
+      }
+
+      for (final Entry<JobId, Execution> entry : pending.entrySet()) {
         final JobId jobId = entry.getKey();
         final Execution execution = entry.getValue();
-
-        if (!tasks.containsKey(jobId)) {
-          log.debug("Setting UNDEPLOY goal for removed job: {}", execution.getJob());
-          entry.setValue(execution.withGoal(Goal.UNDEPLOY));
+        final Job job = execution.getJob();
+        final Map<String, Integer> ports = portAllocator.allocate(job.getPorts(),
+            usedPorts.build());
+        log.debug("Allocated ports for job {}: {}", jobId, ports);
+        if (ports != null) {
+          changed.put(jobId, execution.withPorts(ports));
+          usedPorts.addAll(ports.values());
+        } else {
+          log.warn("Unable to allocate ports for job: {}", job);
         }
       }
+    }
 
-      // Allocate ports
-      final Map<JobId, Execution> pending = ImmutableMap.copyOf(
-          Maps.filterValues(newExecutions, PORT_ALLOCATION_PENDING));
-      if (!pending.isEmpty()) {
-        final ImmutableSet.Builder<Integer> usedPorts = ImmutableSet.builder();
-        final Map<JobId, Execution> allocated = Maps.filterValues(newExecutions, PORTS_ALLOCATED);
-        for (final Entry<JobId, Execution> entry : allocated.entrySet()) {
-          usedPorts.addAll(entry.getValue().getPorts().values());
-        }
+    // Persist executions
+    if (!changed.isEmpty()) {
+      final Map<JobId, Execution> newExecutions = Maps.newHashMap(current);
+      newExecutions.putAll(changed);
+      setExecutions(ImmutableMap.copyOf(newExecutions));
+    }
 
-        for (final Entry<JobId, Execution> entry : pending.entrySet()) {
-          final JobId jobId = entry.getKey();
-          final Execution execution = entry.getValue();
-          final Job job = execution.getJob();
-          final Map<String, Integer> ports = portAllocator.allocate(job.getPorts(),
-              usedPorts.build());
-          log.debug("Allocated ports for job {}: {}", jobId, ports);
-          if (ports != null) {
-            newExecutions.put(jobId, execution.withPorts(ports));
-            usedPorts.addAll(ports.values());
-          } else {
-            log.warn("Unable to allocate ports for job: {}", job);
-          }
-        }
+    final Set<JobId> reapedTasks = Sets.newHashSet();
+    for (final JobId jobId : dirty) {
+      final Execution execution = executions.get().get(jobId);
+      Supervisor supervisor = supervisors.get(jobId);
+
+      // Remove stopped supervisor
+      if (supervisor != null && supervisor.isStopping() && supervisor.isDone()) {
+        log.debug("releasing stopped supervisor: {}", jobId);
+        supervisors.remove(jobId);
+        supervisor.close();
+        supervisor = null;
+        changedJobs.add(jobId);
+        reactor.signal();
       }
 
-      // Persist executions
-      if (!newExecutions.equals(executions.get())) {
-        executions.setUnchecked(ImmutableMap.copyOf(newExecutions));
+      if (execution == null || execution.getGoal() != START) {
+        // Not waiting for it to come up anymore
+        settled(jobId);
       }
 
-      // Remove stopped supervisors.
-      for (final Entry<JobId, Supervisor> entry : ImmutableSet.copyOf(supervisors.entrySet())) {
-        final JobId jobId = entry.getKey();
-        final Supervisor supervisor = entry.getValue();
-        if (supervisor.isStopping() && supervisor.isDone()) {
-          log.debug("releasing stopped supervisor: {}", jobId);
-          supervisors.remove(jobId);
-          supervisor.close();
-          reactor.signal();
-        }
+      if (execution == null) {
+        continue;
       }
 
-      // Create new supervisors
-      for (final Entry<JobId, Execution> entry : executions.get().entrySet()) {
-        final JobId jobId = entry.getKey();
-        final Execution execution = entry.getValue();
-        final Supervisor supervisor = supervisors.get(jobId);
-        if (supervisor == null
-            && execution.getGoal() == START
-            && execution.getPorts() != null) {
-          createSupervisor(execution.getJob(), execution.getPorts());
-        }
+      // Create new supervisor
+      if (supervisor == null
+          && execution.getGoal() == START
+          && execution.getPorts() != null) {
+        supervisor = createSupervisor(execution.getJob(), execution.getPorts());
       }
 
-      // Update supervisor goals
-      for (final Map.Entry<JobId, Supervisor> entry : supervisors.entrySet()) {
-        final JobId jobId = entry.getKey();
-        final Supervisor supervisor = entry.getValue();
-        final Execution execution = executions.get().get(jobId);
+      // Update supervisor goal
+      if (supervisor != null) {
         supervisor.setGoal(execution.getGoal());
       }
 
-      // Reap dead executions
-      final Set<JobId> reapedTasks = Sets.newHashSet();
-      for (final Entry<JobId, Execution> entry : executions.get().entrySet()) {
-        final JobId jobId = entry.getKey();
-        final Execution execution = entry.getValue();
-        if (execution.getGoal() == UNDEPLOY) {
-          final Supervisor supervisor = supervisors.get(jobId);
-          if (supervisor == null) {
-            reapedTasks.add(jobId);
-            log.debug("Removing task: {}", jobId);
-            model.removeTaskStatus(jobId);
-          }
-        }
+      // Reap dead execution
+      if (execution.getGoal() == UNDEPLOY && supervisor == null) {
+        reapedTasks.add(jobId);
+        log.debug("Removing task: {}", jobId);
+        model.removeTaskStatus(jobId);
       }
+    }
 
-      // Persist executions
-      if (!reapedTasks.isEmpty()) {
-        final Map<JobId, Execution> survivors = Maps.filterKeys(executions.get(),
-            not(in(reapedTasks)));
-        executions.setUnchecked(ImmutableMap.copyOf(survivors));
-      }
+    // Persist executions
+    if (!reapedTasks.isEmpty()) {
+      final Map<JobId, Execution> survivors = Maps.filterKeys(executions.get(),
+          not(in(reapedTasks)));
+      setExecutions(ImmutableMap.copyOf(survivors));
     }
   }
 }
@@ -68,6 +68,9 @@ public class AgentConfig extends CommonConfiguration<AgentConfig> {
   private List<String> extraHosts;
   private boolean jobHistoryDisabled;
   private int connectionPoolSize;
+  private boolean dockerGcDisabled;
+  private int dockerGcRetainedContainers = DockerGarbageCollector.DEFAULT_RETAINED_CONTAINERS;
+  private long dockerGcImageBudget;
 
   /** Credentials to use with Google Container Registry. */
   private GoogleCredentials googleCredentials;
@@ -374,6 +377,33 @@ public class AgentConfig extends CommonConfiguration<AgentConfig> {
     return this;
   }
 
+  public boolean isDockerGcDisabled() {
+    return dockerGcDisabled;
+  }
+
+  public AgentConfig setDockerGcDisabled(final boolean dockerGcDisabled) {
+    this.dockerGcDisabled = dockerGcDisabled;
+    return this;
+  }
+
+  public int getDockerGcRetainedContainers() {
+    return dockerGcRetainedContainers;
+  }
+
+  public AgentConfig setDockerGcRetainedContainers(final int dockerGcRetainedContainers) {
+    this.dockerGcRetainedContainers = dockerGcRetainedContainers;
+    return this;
+  }
+
+  public long getDockerGcImageBudget() {
+    return dockerGcImageBudget;
+  }
+
+  public AgentConfig setDockerGcImageBudget(final long dockerGcImageBudget) {
+    this.dockerGcImageBudget = dockerGcImageBudget;
+    return this;
+  }
+
   public GoogleCredentials getGoogleCredentials() {
     return googleCredentials;
   }
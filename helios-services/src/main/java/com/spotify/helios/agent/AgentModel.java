@@ -102,5 +102,14 @@ public interface AgentModel {
      * @param model This state.
      */
     void tasksChanged(AgentModel model);
+
+    /**
+     * The status of a task was set or removed.
+     *
+     * @param jobId  The job ID.
+     * @param status The new status, or null if it was removed.
+     */
+    default void taskStatusChanged(JobId jobId, TaskStatus status) {
+    }
   }
 }
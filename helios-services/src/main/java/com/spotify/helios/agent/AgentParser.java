@@ -77,6 +77,9 @@ public class AgentParser extends ServiceParser {
   private Argument zkAclAgentPassword;
   private Argument disableJobHistory;
   private Argument connectionPoolSize;
+  private Argument disableDockerGc;
+  private Argument dockerGcRetainedContainers;
+  private Argument dockerGcImageBudget;
   private Argument googleCloudCredentialsFile;
   private Argument useGoogleDefaultApplicationCredentials;
 
@@ -154,7 +157,11 @@ public class AgentParser extends ServiceParser {
         .setLabels(labels)
         .setFfwdConfig(ffwdConfig(options))
         .setJobHistoryDisabled(options.getBoolean(disableJobHistory.getDest()))
-        .setConnectionPoolSize(firstNonNull(options.getInt(connectionPoolSize.getDest()), -1));
+        .setConnectionPoolSize(firstNonNull(options.getInt(connectionPoolSize.getDest()), -1))
+        .setDockerGcDisabled(options.getBoolean(disableDockerGc.getDest()))
+        .setDockerGcRetainedContainers(options.getInt(dockerGcRetainedContainers.getDest()))
+        .setDockerGcImageBudget(
+            options.getLong(dockerGcImageBudget.getDest()) * 1024 * 1024);
 
     final String explicitId = options.getString(agentIdArg.getDest());
     if (explicitId != null) {
@@ -323,6 +330,22 @@ public class AgentParser extends ServiceParser {
         .type(Integer.class)
         .help("Size of the Docker socket connection pool.");
 
+    disableDockerGc = parser.addArgument("--disable-docker-gc")
+        .action(storeTrue())
+        .setDefault(false)
+        .help("If specified, the agent won't remove exited containers and unused images.");
+
+    dockerGcRetainedContainers = parser.addArgument("--docker-gc-retained-containers")
+        .type(Integer.class)
+        .setDefault(DockerGarbageCollector.DEFAULT_RETAINED_CONTAINERS)
+        .help("Number of exited containers to keep for each job deployed to the agent.");
+
+    dockerGcImageBudget = parser.addArgument("--docker-gc-image-budget-mb")
+        .type(Long.class)
+        .setDefault(0L)
+        .help("Total size in MB of Docker images above which the least recently used images "
+              + "that no job needs are removed. Images are never removed if this is 0.");
+
     googleCloudCredentialsFile = parser.addArgument("--docker-gcp-account-credentials")
         .type(fileType().verifyExists().verifyCanRead())
         .help("When set, helios-agent will configure the docker-client to use the Google Cloud "
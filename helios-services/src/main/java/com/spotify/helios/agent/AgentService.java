@@ -49,6 +49,7 @@ import com.spotify.docker.client.exceptions.DockerCertificateException;
 import com.spotify.helios.common.HeliosRuntimeException;
 import com.spotify.helios.common.SystemClock;
 import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.TaskStatus;
 import com.spotify.helios.common.descriptors.TaskStatusEvent;
 import com.spotify.helios.master.metrics.HealthCheckGauge;
 import com.spotify.helios.master.metrics.TotalHealthCheckGauge;
@@ -85,9 +86,11 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import org.apache.curator.RetryPolicy;
 import org.apache.curator.framework.AuthInfo;
 import org.apache.curator.framework.CuratorFramework;
@@ -122,6 +125,7 @@ public class AgentService extends AbstractIdleService implements Managed {
   private final ZooKeeperAgentModel model;
   private final Metrics metrics;
   private final ServiceRegistrar serviceRegistrar;
+  private final DockerGarbageCollector dockerGarbageCollector;
 
   private ZooKeeperRegistrarService zkRegistrar;
 
@@ -236,7 +240,8 @@ public class AgentService extends AbstractIdleService implements Managed {
     final String taskStatusEventTopic = TaskStatusEvent.TASK_STATUS_EVENT_TOPIC;
 
     final List<EventSender> eventSenders = EventSenderFactory
-        .build(environment, config, metricsRegistry, taskStatusEventTopic);
+        .build(environment, config, metricsRegistry, taskStatusEventTopic,
+            stateDirectory.resolve("outbox"));
 
     final TaskHistoryWriter historyWriter;
     if (config.isJobHistoryDisabled()) {
@@ -253,6 +258,7 @@ public class AgentService extends AbstractIdleService implements Managed {
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
+    metricsRegistry.registerAll(model.taskStatusMetrics());
 
     // Set up service registrar
     this.serviceRegistrar = createServiceRegistrar(config.getServiceRegistrarPlugin(),
@@ -319,8 +325,27 @@ public class AgentService extends AbstractIdleService implements Managed {
     }
 
     final Reaper reaper = new Reaper(dockerClient, namespace);
+    final ContainerAdopter adopter = new ContainerAdopter(dockerClient, namespace);
     this.agent = new Agent(model, supervisorFactory, reactorFactory, executions, portAllocator,
-        reaper);
+        reaper, adopter);
+    metricsRegistry.registerAll(agent);
+
+    if (config.isDockerGcDisabled()) {
+      this.dockerGarbageCollector = null;
+    } else {
+      this.dockerGarbageCollector = DockerGarbageCollector.newBuilder()
+          .setDockerClient(dockerClient)
+          .setNamespace(namespace)
+          .setExecutions(executions::get)
+          .setActiveContainers(() -> model.getTaskStatuses().values().stream()
+              .map(TaskStatus::getContainerId)
+              .filter(Objects::nonNull)
+              .collect(Collectors.toSet()))
+          .setRetainedContainers(config.getDockerGcRetainedContainers())
+          .setImageBudget(config.getDockerGcImageBudget())
+          .build();
+      metricsRegistry.registerAll(dockerGarbageCollector);
+    }
 
     final ZooKeeperHealthChecker zkHealthChecker = new ZooKeeperHealthChecker(zooKeeperClient);
     final DockerDaemonHealthChecker dockerDaemonHealthChecker =
@@ -346,6 +371,12 @@ public class AgentService extends AbstractIdleService implements Managed {
 
       environment.jersey().register(new AgentModelTaskResource(model));
       environment.jersey().register(new AgentModelTaskStatusResource(model));
+
+      final LocalAgentState localState = new LocalAgentState(config.getName(),
+          model.getTaskStatuses(), executions.get());
+      model.addListener(localState);
+      agent.addListener(localState);
+      environment.jersey().register(new LocalAgentStateResource(localState));
       environment.lifecycle().manage(this);
 
       this.server = ServiceUtil.createServerFactory(config.getHttpEndpoint(),
@@ -462,6 +493,9 @@ public class AgentService extends AbstractIdleService implements Managed {
     zkRegistrar.startAsync().awaitRunning();
     model.startAsync().awaitRunning();
     agent.startAsync().awaitRunning();
+    if (dockerGarbageCollector != null) {
+      dockerGarbageCollector.startAsync();
+    }
     hostInfoReporter.startAsync();
     agentInfoReporter.startAsync();
     environmentVariableReporter.startAsync();
@@ -495,6 +529,9 @@ public class AgentService extends AbstractIdleService implements Managed {
     agentInfoReporter.stopAsync().awaitTerminated();
     environmentVariableReporter.stopAsync().awaitTerminated();
     labelReporter.stopAsync().awaitTerminated();
+    if (dockerGarbageCollector != null) {
+      dockerGarbageCollector.stopAsync().awaitTerminated();
+    }
     agent.stopAsync().awaitTerminated();
 
     if (serviceRegistrar != null) {
@@ -89,6 +89,11 @@ public class AgentZooKeeperRegistrar implements ZooKeeperRegistrar {
 
     final Stat stat = client.exists(idPath);
     if (stat == null) {
+      if (ZooKeeperRegistrarUtil.isHostDeregistering(client, name)) {
+        log.warn("Agent {} is being deregistered, waiting for that to complete before registering",
+            name);
+        return false;
+      }
       log.debug("Agent id node not present, registering agent {}: {}", id, name);
       ZooKeeperRegistrarUtil.registerHost(client, idPath, name, id);
     } else {
@@ -0,0 +1,146 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.agent;
+
+import static com.spotify.docker.client.DockerClient.ListContainersParam.allContainers;
+import static com.spotify.docker.client.DockerClient.ListContainersParam.filter;
+
+import com.google.common.collect.Maps;
+import com.spotify.docker.client.DockerClient;
+import com.spotify.docker.client.exceptions.DockerException;
+import com.spotify.docker.client.messages.Container;
+import com.spotify.helios.common.descriptors.JobId;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Finds the containers of persisted executions when the agent starts, so that supervisors can
+ * re-attach to them without inspecting each one.
+ *
+ * <p>All containers in our namespace are fetched with a single list call. A job is matched to the
+ * container its last task status names if that container still exists, and otherwise to its most
+ * recently created running container.
+ */
+public class ContainerAdopter {
+
+  private static final Logger log = LoggerFactory.getLogger(ContainerAdopter.class);
+
+  private final DockerClient docker;
+  private final String namespace;
+
+  public ContainerAdopter(final DockerClient docker, final String namespace) {
+    this.docker = docker;
+    this.namespace = namespace;
+  }
+
+  /**
+   * Returns the adopted container of each job that has one. Returns an empty map if the
+   * containers could not be listed, in which case supervisors inspect their containers themselves.
+   *
+   * @param jobs         The jobs to adopt containers for.
+   * @param containerIds The containers that the last task status of each job names.
+   */
+  public Map<JobId, Adopted> adopt(final Set<JobId> jobs, final Map<JobId, String> containerIds)
+      throws InterruptedException {
+    final List<Container> containers;
+    try {
+      containers = docker.listContainers(allContainers(), filter("name", namespace + "-"));
+    } catch (DockerException e) {
+      log.warn("failed to list containers, supervisors will inspect their own", e);
+      return Collections.emptyMap();
+    }
+
+    final Map<String, Container> byId = Maps.newHashMap();
+    final Map<String, Container> runningByName = Maps.newHashMap();
+    for (final Container container : containers) {
+      byId.put(container.id(), container);
+      if (!isRunning(container) || container.names() == null) {
+        continue;
+      }
+      for (final String name : container.names()) {
+        final int random = name.lastIndexOf('_');
+        if (random > 0) {
+          runningByName.merge(name.substring(0, random), container,
+              (a, b) -> created(a) >= created(b) ? a : b);
+        }
+      }
+    }
+
+    final Map<JobId, Adopted> adopted = Maps.newHashMap();
+    for (final JobId jobId : jobs) {
+      final String containerId = containerIds.get(jobId);
+      Container container = containerId == null ? null : byId.get(containerId);
+      if (container == null) {
+        container = runningByName.get("/" + TaskConfig.containerNamePrefix(namespace, jobId));
+      }
+      if (container != null) {
+        adopted.put(jobId, new Adopted(container.id(), isRunning(container)));
+      } else {
+        adopted.put(jobId, new Adopted(containerId, false));
+      }
+    }
+    log.info("listed {} containers, adopted {} running containers for {} jobs",
+        containers.size(), running(adopted), jobs.size());
+    return adopted;
+  }
+
+  private static long running(final Map<JobId, Adopted> adopted) {
+    return adopted.values().stream().filter(Adopted::isRunning).count();
+  }
+
+  private static boolean isRunning(final Container container) {
+    if (container.state() != null) {
+      return "running".equals(container.state());
+    }
+    return container.status() != null && container.status().startsWith("Up");
+  }
+
+  private static long created(final Container container) {
+    return container.created() == null ? 0 : container.created();
+  }
+
+  /**
+   * The container a supervisor should start out with, and whether it was running when the
+   * containers were listed.
+   */
+  public static class Adopted {
+
+    private final String containerId;
+    private final boolean running;
+
+    Adopted(final String containerId, final boolean running) {
+      this.containerId = containerId;
+      this.running = running;
+    }
+
+    public String getContainerId() {
+      return containerId;
+    }
+
+    public boolean isRunning() {
+      return running;
+    }
+  }
+}
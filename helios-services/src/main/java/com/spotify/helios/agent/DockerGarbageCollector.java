@@ -0,0 +1,438 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.agent;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.RateLimiter;
+import com.spotify.docker.client.DockerClient;
+import com.spotify.docker.client.DockerClient.ListContainersParam;
+import com.spotify.docker.client.exceptions.DockerException;
+import com.spotify.docker.client.messages.Container;
+import com.spotify.docker.client.messages.Image;
+import com.spotify.helios.common.Clock;
+import com.spotify.helios.common.SystemClock;
+import com.spotify.helios.common.descriptors.JobId;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Periodically removes exited containers and unused images that Helios has left behind on the
+ * agent.
+ *
+ * <p>Exited containers in our namespace are grouped by job. The most recent ones of each job that
+ * still has an {@link Execution} are retained for debugging, all others are removed. Containers
+ * that a task status still refers to are never removed.
+ *
+ * <p>If an image budget is set and the images on the host add up to more than that, the least
+ * recently used images are removed until they are back under the low watermark. An image is used
+ * when a container was created from it, and is never removed while a container of any state
+ * refers to it or an execution names it. Image sizes include layers shared with other images,
+ * so the total and the reclaimed bytes overestimate the disk space involved.
+ *
+ * <p>Removals are rate limited so that a collection never competes with task startup for the
+ * Docker daemon.
+ */
+public class DockerGarbageCollector extends InterruptingScheduledService implements MetricSet {
+
+  private static final Logger log = LoggerFactory.getLogger(DockerGarbageCollector.class);
+
+  public static final int DEFAULT_RETAINED_CONTAINERS = 2;
+  public static final double DEFAULT_LOW_WATERMARK = 0.8;
+
+  private static final long DEFAULT_INTERVAL = 10;
+  private static final TimeUnit DEFAULT_TIMEUNIT = MINUTES;
+  private static final double DEFAULT_REMOVALS_PER_SECOND = 2;
+
+  private final DockerClient docker;
+  private final String namespace;
+  private final Supplier<Map<JobId, Execution>> executions;
+  private final Supplier<Set<String>> activeContainers;
+  private final int retainedContainers;
+  private final long imageBudget;
+  private final double lowWatermark;
+  private final RateLimiter rateLimiter;
+  private final long interval;
+  private final TimeUnit timeUnit;
+  private final Clock clock;
+
+  // When each image was last seen in use, by image id. Only touched by the collector thread.
+  private final Map<String, Long> lastUsed = Maps.newHashMap();
+
+  private final AtomicLong removedContainers = new AtomicLong();
+  private final AtomicLong removedImages = new AtomicLong();
+  private final AtomicLong reclaimedBytes = new AtomicLong();
+  private final AtomicLong imageBytes = new AtomicLong();
+  private final AtomicLong failures = new AtomicLong();
+
+  private DockerGarbageCollector(final Builder builder) {
+    this.docker = checkNotNull(builder.docker, "docker");
+    this.namespace = checkNotNull(builder.namespace, "namespace");
+    this.executions = checkNotNull(builder.executions, "executions");
+    this.activeContainers = checkNotNull(builder.activeContainers, "activeContainers");
+    checkArgument(builder.retainedContainers >= 0, "retainedContainers must be non-negative");
+    checkArgument(builder.lowWatermark > 0 && builder.lowWatermark <= 1,
+        "lowWatermark must be in (0, 1]");
+    this.retainedContainers = builder.retainedContainers;
+    this.imageBudget = builder.imageBudget;
+    this.lowWatermark = builder.lowWatermark;
+    this.rateLimiter = RateLimiter.create(builder.removalsPerSecond);
+    this.interval = builder.interval;
+    this.timeUnit = checkNotNull(builder.timeUnit, "timeUnit");
+    this.clock = checkNotNull(builder.clock, "clock");
+  }
+
+  @Override
+  protected void runOneIteration() throws InterruptedException {
+    try {
+      final List<Container> containers =
+          docker.listContainers(ListContainersParam.allContainers());
+      final List<Container> remaining = collectContainers(containers);
+      if (imageBudget > 0) {
+        collectImages(remaining);
+      }
+    } catch (DockerException e) {
+      failures.incrementAndGet();
+      log.warn("docker garbage collection failed", e);
+    }
+  }
+
+  @Override
+  protected ScheduledFuture<?> schedule(final Runnable runnable,
+                                        final ScheduledExecutorService executorService) {
+    return executorService.scheduleWithFixedDelay(runnable, interval, interval, timeUnit);
+  }
+
+  @Override
+  public Map<String, Metric> getMetrics() {
+    final String prefix = "helios.agent_docker_gc";
+    return ImmutableMap.<String, Metric>builder()
+        .put(name(prefix, "containers_removed"), (Gauge<Long>) removedContainers::get)
+        .put(name(prefix, "images_removed"), (Gauge<Long>) removedImages::get)
+        .put(name(prefix, "reclaimed_bytes"), (Gauge<Long>) reclaimedBytes::get)
+        .put(name(prefix, "image_bytes"), (Gauge<Long>) imageBytes::get)
+        .put(name(prefix, "failures"), (Gauge<Long>) failures::get)
+        .build();
+  }
+
+  /**
+   * Removes exited containers beyond the retention count of their job and returns the containers
+   * that are left.
+   */
+  private List<Container> collectContainers(final List<Container> containers)
+      throws InterruptedException {
+    // Fetch these after listing the containers, so that a container started in between is
+    // protected even if it has already exited.
+    final Set<String> jobPrefixes = Sets.newHashSet();
+    for (final JobId jobId : executions.get().keySet()) {
+      jobPrefixes.add("/" + TaskConfig.containerNamePrefix(namespace, jobId));
+    }
+    final Set<String> active = activeContainers.get();
+
+    final Map<String, List<Container>> exitedByJob = Maps.newHashMap();
+    for (final Container container : containers) {
+      final String jobPrefix = jobPrefix(container);
+      if (jobPrefix != null && isExited(container) && !active.contains(container.id())) {
+        exitedByJob.computeIfAbsent(jobPrefix, k -> Lists.newArrayList()).add(container);
+      }
+    }
+
+    final Set<String> removed = Sets.newHashSet();
+    for (final Map.Entry<String, List<Container>> entry : exitedByJob.entrySet()) {
+      final List<Container> exited = entry.getValue();
+      exited.sort(Comparator.comparing(DockerGarbageCollector::created).reversed());
+      final int retain = jobPrefixes.contains(entry.getKey()) ? retainedContainers : 0;
+      for (final Container container : exited.subList(Math.min(retain, exited.size()),
+          exited.size())) {
+        rateLimiter.acquire();
+        try {
+          log.info("removing exited container {} {}", container.id(), container.names());
+          docker.removeContainer(container.id());
+          removed.add(container.id());
+          removedContainers.incrementAndGet();
+        } catch (DockerException e) {
+          failures.incrementAndGet();
+          log.warn("failed to remove container {}", container.id(), e);
+        }
+      }
+    }
+
+    final List<Container> remaining = Lists.newArrayList();
+    for (final Container container : containers) {
+      if (!removed.contains(container.id())) {
+        remaining.add(container);
+      }
+    }
+    return remaining;
+  }
+
+  /**
+   * Removes the least recently used images until the total is under the low watermark, if the
+   * total is over the budget.
+   */
+  private void collectImages(final List<Container> containers)
+      throws DockerException, InterruptedException {
+    final List<Image> images = docker.listImages();
+    final long now = clock.now().getMillis();
+
+    final Set<String> needed = Sets.newHashSet();
+    for (final Container container : containers) {
+      if (container.imageId() != null) {
+        needed.add(container.imageId());
+        lastUsed.merge(container.imageId(), SECONDS.toMillis(created(container)), Math::max);
+      }
+    }
+    final Set<String> executionImages = Sets.newHashSet();
+    for (final Execution execution : executions.get().values()) {
+      executionImages.add(execution.getJob().getImage());
+    }
+
+    long total = 0;
+    final Set<String> present = Sets.newHashSet();
+    final List<Image> candidates = Lists.newArrayList();
+    for (final Image image : images) {
+      present.add(image.id());
+      total += size(image);
+      if (needed.contains(image.id()) || referencesAny(image, executionImages)) {
+        lastUsed.put(image.id(), now);
+      } else {
+        candidates.add(image);
+      }
+    }
+    lastUsed.keySet().retainAll(present);
+    imageBytes.set(total);
+
+    if (total <= imageBudget) {
+      return;
+    }
+
+    final long target = (long) (imageBudget * lowWatermark);
+    log.info("images use {} bytes, over the budget of {}; pruning to {}", total, imageBudget,
+        target);
+
+    candidates.sort(Comparator.comparing(this::lastUsed));
+    for (final Image image : candidates) {
+      if (total <= target) {
+        break;
+      }
+      rateLimiter.acquire();
+      try {
+        log.info("removing image {} {}", image.id(), image.repoTags());
+        // Force so that an image with several tags is untagged and removed in one go. Images
+        // that any container refers to are not candidates.
+        docker.removeImage(image.id(), true, false);
+        total -= size(image);
+        removedImages.incrementAndGet();
+        reclaimedBytes.addAndGet(size(image));
+        lastUsed.remove(image.id());
+      } catch (DockerException e) {
+        failures.incrementAndGet();
+        log.warn("failed to remove image {}", image.id(), e);
+      }
+    }
+    imageBytes.set(total);
+  }
+
+  /**
+   * Returns the name prefix shared by the containers of the job this container belongs to, or
+   * null if it is not a Helios container.
+   */
+  private String jobPrefix(final Container container) {
+    if (container.names() == null) {
+      return null;
+    }
+    final String prefix = "/" + namespace + "-";
+    for (final String name : container.names()) {
+      final int random = name.lastIndexOf('_');
+      if (name.startsWith(prefix) && random > prefix.length()) {
+        return name.substring(0, random);
+      }
+    }
+    return null;
+  }
+
+  private long lastUsed(final Image image) {
+    final Long used = lastUsed.get(image.id());
+    final long created = SECONDS.toMillis(parseLong(image.created()));
+    return used == null ? created : Math.max(used, created);
+  }
+
+  private static boolean isExited(final Container container) {
+    if (container.state() != null) {
+      return "exited".equals(container.state()) || "dead".equals(container.state());
+    }
+    return container.status() != null && container.status().startsWith("Exited");
+  }
+
+  /**
+   * Returns true if the image is one of the named images. Names without a tag or digest refer to
+   * the latest tag.
+   */
+  private static boolean referencesAny(final Image image, final Set<String> names) {
+    for (final String name : names) {
+      if (name.contains("@")) {
+        if (image.repoDigests() != null && image.repoDigests().contains(name)) {
+          return true;
+        }
+        continue;
+      }
+      final boolean tagged = name.lastIndexOf(':') > name.lastIndexOf('/');
+      final String tag = tagged ? name : name + ":latest";
+      if (image.repoTags() != null && image.repoTags().contains(tag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static long created(final Container container) {
+    return container.created() == null ? 0 : container.created();
+  }
+
+  private static long size(final Image image) {
+    return image.size() == null ? 0 : image.size();
+  }
+
+  private static long parseLong(final String value) {
+    try {
+      return value == null ? 0 : Long.parseLong(value);
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  public static class Builder {
+
+    private Builder() {
+    }
+
+    private DockerClient docker;
+    private String namespace;
+    private Supplier<Map<JobId, Execution>> executions;
+    private Supplier<Set<String>> activeContainers;
+    private int retainedContainers = DEFAULT_RETAINED_CONTAINERS;
+    private long imageBudget;
+    private double lowWatermark = DEFAULT_LOW_WATERMARK;
+    private double removalsPerSecond = DEFAULT_REMOVALS_PER_SECOND;
+    private long interval = DEFAULT_INTERVAL;
+    private TimeUnit timeUnit = DEFAULT_TIMEUNIT;
+    private Clock clock = new SystemClock();
+
+    public Builder setDockerClient(final DockerClient docker) {
+      this.docker = docker;
+      return this;
+    }
+
+    public Builder setNamespace(final String namespace) {
+      this.namespace = namespace;
+      return this;
+    }
+
+    /**
+     * The executions of the agent. Their containers are retained and their images are kept.
+     */
+    public Builder setExecutions(final Supplier<Map<JobId, Execution>> executions) {
+      this.executions = executions;
+      return this;
+    }
+
+    /**
+     * The ids of containers that must not be removed, such as those task statuses refer to.
+     */
+    public Builder setActiveContainers(final Supplier<Set<String>> activeContainers) {
+      this.activeContainers = activeContainers;
+      return this;
+    }
+
+    /**
+     * The number of exited containers to keep for each job that has an execution.
+     */
+    public Builder setRetainedContainers(final int retainedContainers) {
+      this.retainedContainers = retainedContainers;
+      return this;
+    }
+
+    /**
+     * The total size in bytes that images may add up to before unused ones are removed. Images
+     * are never removed if this is zero.
+     */
+    public Builder setImageBudget(final long imageBudget) {
+      this.imageBudget = imageBudget;
+      return this;
+    }
+
+    /**
+     * The fraction of the image budget to prune down to once it has been exceeded.
+     */
+    public Builder setLowWatermark(final double lowWatermark) {
+      this.lowWatermark = lowWatermark;
+      return this;
+    }
+
+    public Builder setRemovalsPerSecond(final double removalsPerSecond) {
+      this.removalsPerSecond = removalsPerSecond;
+      return this;
+    }
+
+    public Builder setInterval(final long interval) {
+      this.interval = interval;
+      return this;
+    }
+
+    public Builder setTimeUnit(final TimeUnit timeUnit) {
+      this.timeUnit = timeUnit;
+      return this;
+    }
+
+    public Builder setClock(final Clock clock) {
+      this.clock = clock;
+      return this;
+    }
+
+    public DockerGarbageCollector build() {
+      return new DockerGarbageCollector(this);
+    }
+  }
+}
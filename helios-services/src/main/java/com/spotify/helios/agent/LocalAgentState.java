@@ -0,0 +1,243 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.agent;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.spotify.helios.common.Json;
+import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.TaskStatus;
+import com.spotify.helios.common.descriptors.TaskStatusEvent;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The state of the agent as local tooling sees it: the executions with their allocated ports, the
+ * task statuses and the recent status history. It is kept in memory, by listening to the
+ * {@link AgentModel} and the {@link Agent}, so that it can be read at high frequency without
+ * touching ZooKeeper.
+ *
+ * <p>Every change increments the version of the state. A snapshot of the state, and its JSON, is
+ * made at most once per version, and callers can wait for the version to move past the one they
+ * have seen to long-poll for changes.
+ */
+public class LocalAgentState implements AgentModel.Listener, Agent.Listener {
+
+  public static final int DEFAULT_MAX_HISTORY = 1000;
+
+  private final String host;
+  private final int maxHistory;
+
+  private final Object lock = new Object();
+  private final Map<JobId, TaskStatus> statuses;
+  private final Deque<TaskStatusEvent> history = new ArrayDeque<>();
+  private Map<JobId, Execution> executions;
+  private long version;
+  private Snapshot snapshot;
+
+  public LocalAgentState(final String host, final Map<JobId, TaskStatus> statuses,
+                         final Map<JobId, Execution> executions) {
+    this(host, statuses, executions, DEFAULT_MAX_HISTORY);
+  }
+
+  /**
+   * Creates the state of an agent.
+   *
+   * @param host       The name of the agent, which history events are attributed to.
+   * @param statuses   The task statuses the agent starts out with.
+   * @param executions The executions the agent starts out with.
+   * @param maxHistory How many status events to keep, across all jobs.
+   */
+  public LocalAgentState(final String host, final Map<JobId, TaskStatus> statuses,
+                         final Map<JobId, Execution> executions, final int maxHistory) {
+    checkArgument(maxHistory >= 0, "maxHistory must not be negative");
+    this.host = checkNotNull(host, "host");
+    this.statuses = Maps.newHashMap(statuses);
+    this.executions = ImmutableMap.copyOf(executions);
+    this.maxHistory = maxHistory;
+    // Versions start at the current time, so that a version seen before the agent restarted is
+    // not mistaken for the current one.
+    this.version = System.currentTimeMillis();
+  }
+
+  @Override
+  public void tasksChanged(final AgentModel model) {
+    // The executions reflect the tasks once the agent has acted on them
+  }
+
+  @Override
+  public void taskStatusChanged(final JobId jobId, final TaskStatus status) {
+    synchronized (lock) {
+      if (status == null) {
+        statuses.remove(jobId);
+      } else {
+        statuses.put(jobId, status);
+        history.addLast(new TaskStatusEvent(status, System.currentTimeMillis(), host));
+        while (history.size() > maxHistory) {
+          history.removeFirst();
+        }
+      }
+      changed();
+    }
+  }
+
+  @Override
+  public void executionsChanged(final Map<JobId, Execution> executions) {
+    synchronized (lock) {
+      this.executions = ImmutableMap.copyOf(executions);
+      changed();
+    }
+  }
+
+  private void changed() {
+    version++;
+    snapshot = null;
+    lock.notifyAll();
+  }
+
+  /**
+   * Returns the current state.
+   */
+  public Snapshot snapshot() {
+    synchronized (lock) {
+      if (snapshot == null) {
+        snapshot = new Snapshot(version, executions, ImmutableMap.copyOf(statuses));
+      }
+      return snapshot;
+    }
+  }
+
+  /**
+   * Waits until the version of the state is no longer {@code version} and returns the state. If
+   * the state has not changed by the time the timeout expires, the current state is returned.
+   */
+  public Snapshot awaitChange(final long version, final long timeoutMillis)
+      throws InterruptedException {
+    final long deadline = System.nanoTime() + MILLISECONDS.toNanos(timeoutMillis);
+    synchronized (lock) {
+      while (this.version == version) {
+        final long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          break;
+        }
+        NANOSECONDS.timedWait(lock, remaining);
+      }
+      return snapshot();
+    }
+  }
+
+  /**
+   * Returns the recent status events of the jobs matching {@code jobId}, or of all jobs if it is
+   * null, eldest first. A job id without a hash or version matches every job with the same name
+   * and version, or name.
+   *
+   * @param jobId The job ID, which may be abbreviated.
+   * @param after Only return events with a timestamp after this one.
+   */
+  public List<TaskStatusEvent> history(final JobId jobId, final long after) {
+    final ImmutableList.Builder<TaskStatusEvent> events = ImmutableList.builder();
+    synchronized (lock) {
+      for (final TaskStatusEvent event : history) {
+        if (event.getTimestamp() > after
+            && (jobId == null || matches(jobId, event.getStatus().getJob().getId()))) {
+          events.add(event);
+        }
+      }
+    }
+    return events.build();
+  }
+
+  private static boolean matches(final JobId pattern, final JobId id) {
+    return pattern.getName().equals(id.getName())
+           && (pattern.getVersion() == null || pattern.getVersion().equals(id.getVersion()))
+           && (pattern.getHash() == null || Objects.equals(pattern.getHash(), id.getHash()));
+  }
+
+  /**
+   * The state of the agent at one version. It never changes, and is serialized at most once.
+   */
+  public static class Snapshot {
+
+    private final long version;
+    private final Map<JobId, Execution> executions;
+    private final Map<JobId, TaskStatus> taskStatuses;
+    private volatile byte[] json;
+
+    private Snapshot(final long version, final Map<JobId, Execution> executions,
+                     final Map<JobId, TaskStatus> taskStatuses) {
+      this.version = version;
+      this.executions = executions;
+      this.taskStatuses = taskStatuses;
+    }
+
+    public long getVersion() {
+      return version;
+    }
+
+    public Map<JobId, Execution> getExecutions() {
+      return executions;
+    }
+
+    public Map<JobId, TaskStatus> getTaskStatuses() {
+      return taskStatuses;
+    }
+
+    /**
+     * Returns the ports allocated to each job that has been allocated ports.
+     */
+    public Map<JobId, Map<String, Integer>> getPorts() {
+      final ImmutableMap.Builder<JobId, Map<String, Integer>> ports = ImmutableMap.builder();
+      for (final Map.Entry<JobId, Execution> entry : executions.entrySet()) {
+        if (entry.getValue().getPorts() != null) {
+          ports.put(entry.getKey(), entry.getValue().getPorts());
+        }
+      }
+      return ports.build();
+    }
+
+    public byte[] toJsonBytes() {
+      byte[] bytes = json;
+      if (bytes == null) {
+        bytes = Json.asBytesUnchecked(this);
+        json = bytes;
+      }
+      return bytes;
+    }
+
+    @Override
+    public String toString() {
+      return "Snapshot{"
+             + "version=" + version
+             + ", executions=" + executions
+             + ", taskStatuses=" + taskStatuses
+             + '}';
+    }
+  }
+}
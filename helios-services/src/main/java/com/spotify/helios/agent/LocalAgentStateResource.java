@@ -0,0 +1,141 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.agent;
+
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+
+import com.codahale.metrics.annotation.Timed;
+import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.JobIdParseException;
+import com.spotify.helios.common.descriptors.TaskStatusEvent;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+
+/**
+ * Read-only view of the state of the agent for tooling on the same host, served from memory.
+ * Unlike the same information read through the master, it costs no ZooKeeper reads, so it can be
+ * polled at high frequency.
+ */
+@Path("/helios/local")
+@Produces(APPLICATION_JSON)
+public class LocalAgentStateResource {
+
+  static final long MAX_WAIT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+  static final int DEFAULT_MAX_WAITING_REQUESTS = 32;
+
+  private final LocalAgentState state;
+  // Each waiting request holds on to a server thread, so only this many may wait at once
+  private final Semaphore waitingRequests;
+
+  public LocalAgentStateResource(final LocalAgentState state) {
+    this(state, DEFAULT_MAX_WAITING_REQUESTS);
+  }
+
+  /**
+   * Creates the resource.
+   *
+   * @param state              The state to serve.
+   * @param maxWaitingRequests How many requests may wait for the state to change at once. Requests
+   *                           beyond that get the current state right away.
+   */
+  public LocalAgentStateResource(final LocalAgentState state, final int maxWaitingRequests) {
+    this.state = state;
+    this.waitingRequests = new Semaphore(maxWaitingRequests);
+  }
+
+  /**
+   * Returns the executions, allocated ports and task statuses of the agent, tagged with the
+   * version of the state. Requests with the current tag in If-None-Match get 304 Not Modified.
+   *
+   * @param since   The version last seen. If the state still has this version, waits for it to
+   *                change for up to {@code wait} milliseconds before responding, unless too many
+   *                requests are waiting already.
+   * @param wait    How long to wait for a change, at most {@link #MAX_WAIT_MILLIS}.
+   * @param request The request, used to evaluate If-None-Match.
+   *
+   * @return The state of the agent.
+   *
+   * @throws InterruptedException If the thread is interrupted while waiting.
+   */
+  @GET
+  @Path("/state")
+  @Timed
+  public Response getState(@QueryParam("since") final Long since,
+                           @QueryParam("wait") @DefaultValue("0") final long wait,
+                           @Context final Request request) throws InterruptedException {
+    final LocalAgentState.Snapshot snapshot;
+    if (since != null && wait > 0 && waitingRequests.tryAcquire()) {
+      try {
+        snapshot = state.awaitChange(since, Math.min(wait, MAX_WAIT_MILLIS));
+      } finally {
+        waitingRequests.release();
+      }
+    } else {
+      snapshot = state.snapshot();
+    }
+    final EntityTag tag = new EntityTag(Long.toString(snapshot.getVersion()));
+    final Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+    if (notModified != null) {
+      return notModified.build();
+    }
+    return Response.ok(snapshot.toJsonBytes(), APPLICATION_JSON).tag(tag).build();
+  }
+
+  /**
+   * Returns the recent task status events of the agent, eldest first.
+   *
+   * @param job   Only return events of this job. May be abbreviated to a name and version, or a
+   *              name.
+   * @param after Only return events with a timestamp after this one, in milliseconds since the
+   *              epoch.
+   *
+   * @return The events.
+   */
+  @GET
+  @Path("/history")
+  @Timed
+  public List<TaskStatusEvent> getHistory(
+      @QueryParam("job") final String job,
+      @QueryParam("after") @DefaultValue("0") final long after) {
+    final JobId jobId;
+    try {
+      jobId = job == null ? null : JobId.parse(job);
+    } catch (JobIdParseException | IllegalArgumentException e) {
+      throw new WebApplicationException(Response.Status.BAD_REQUEST);
+    }
+    return state.history(jobId, after);
+  }
+
+  int availableWaits() {
+    return waitingRequests.availablePermits();
+  }
+}
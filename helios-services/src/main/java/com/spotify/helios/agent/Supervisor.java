@@ -40,6 +40,7 @@ import com.spotify.helios.servicescommon.statistics.SupervisorMetrics;
 import java.io.InterruptedIOException;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -51,6 +52,13 @@ public class Supervisor {
   public interface Listener {
 
     void stateChanged(Supervisor supervisor);
+
+    /**
+     * Called once, when the first container of this supervisor is running or its first runner
+     * has ended without getting there.
+     */
+    default void settled(Supervisor supervisor) {
+    }
   }
 
   private static final Logger log = LoggerFactory.getLogger(Supervisor.class);
@@ -71,6 +79,10 @@ public class Supervisor {
 
   private volatile Goal goal;
   private volatile String containerId;
+  // Whether the existing container was running when the agent started, if known. Only used by
+  // the first runner.
+  private volatile Boolean existingContainerRunning;
+  private final AtomicBoolean settled = new AtomicBoolean();
   private volatile TaskRunner runner;
   private volatile Command currentCommand;
   private volatile Command performedCommand;
@@ -83,6 +95,7 @@ public class Supervisor {
     this.listener = checkNotNull(builder.listener, "listener");
     this.currentCommand = new Nop();
     this.containerId = builder.existingContainerId;
+    this.existingContainerRunning = builder.existingContainerRunning;
     this.runnerFactory = checkNotNull(builder.runnerFactory, "runnerFactory");
     this.statusUpdater = checkNotNull(builder.statusUpdater, "statusUpdater");
     this.monitor = checkNotNull(builder.monitor, "monitor");
@@ -192,6 +205,17 @@ public class Supervisor {
     }
   }
 
+  private void fireSettled() {
+    if (!settled.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      listener.settled(this);
+    } catch (Exception e) {
+      log.error("Listener threw exception", e);
+    }
+  }
+
   private void fireStateChanged() {
     log.debug("Supervisor {}: state changed", job.getId());
     try {
@@ -212,6 +236,7 @@ public class Supervisor {
 
     private Job job;
     private String existingContainerId;
+    private Boolean existingContainerRunning;
     private DockerClient dockerClient;
     private RestartPolicy restartPolicy;
     private SupervisorMetrics metrics;
@@ -232,6 +257,15 @@ public class Supervisor {
       return this;
     }
 
+    /**
+     * Whether the existing container is known to be running, so that the first runner does not
+     * have to inspect it.
+     */
+    public Builder setExistingContainerRunning(final Boolean existingContainerRunning) {
+      this.existingContainerRunning = existingContainerRunning;
+      return this;
+    }
+
     public Builder setRestartPolicy(final RestartPolicy restartPolicy) {
       this.restartPolicy = restartPolicy;
       return this;
@@ -343,8 +377,16 @@ public class Supervisor {
       log.debug("starting job (delay={}): {}", delay, job);
       final int waitBeforeKill = Optional.ofNullable(job.getSecondsToWaitBeforeKill())
           .orElse(DEFAULT_SECONDS_TO_WAIT_BEFORE_KILL);
-      runner = runnerFactory.create(delay, containerId, new TaskListener(), waitBeforeKill);
+      final Boolean containerRunning = existingContainerRunning;
+      existingContainerRunning = null;
+      if (containerRunning == null) {
+        runner = runnerFactory.create(delay, containerId, new TaskListener(), waitBeforeKill);
+      } else {
+        runner = runnerFactory.create(delay, containerId, containerRunning, new TaskListener(),
+            waitBeforeKill);
+      }
       runner.startAsync();
+      runner.resultFuture().addListener(Supervisor.this::fireSettled, directExecutor());
       runner.resultFuture().addListener(reactor.signalRunnable(), directExecutor());
     }
   }
@@ -502,5 +544,10 @@ public class Supervisor {
     public void created(final String createdContainerId) {
       containerId = createdContainerId;
     }
+
+    @Override
+    public void running() {
+      fireSettled();
+    }
   }
 }
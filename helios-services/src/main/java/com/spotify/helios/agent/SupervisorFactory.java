@@ -94,6 +94,25 @@ public class SupervisorFactory {
   public Supervisor create(final Job job, final String existingContainerId,
                            final Map<String, Integer> ports,
                            final Supervisor.Listener listener) {
+    return create(job, existingContainerId, null, ports, listener);
+  }
+
+  /**
+   * Create a new application container for a job whose existing container was adopted when the
+   * agent started.
+   *
+   * @param job                      The job definition.
+   * @param existingContainerId      ID of existing container.
+   * @param existingContainerRunning Whether the existing container is running, or null if unknown.
+   * @param ports                    The ports.
+   * @param listener                 The listener.
+   *
+   * @return A new container.
+   */
+  public Supervisor create(final Job job, final String existingContainerId,
+                           final Boolean existingContainerRunning,
+                           final Map<String, Integer> ports,
+                           final Supervisor.Listener listener) {
     final RestartPolicy policy = RestartPolicy.newBuilder().build();
     final TaskConfig taskConfig = TaskConfig.builder()
         .host(host)
@@ -128,6 +147,7 @@ public class SupervisorFactory {
     return Supervisor.newBuilder()
         .setJob(job)
         .setExistingContainerId(existingContainerId)
+        .setExistingContainerRunning(existingContainerRunning)
         .setDockerClient(dockerClient)
         .setRestartPolicy(policy)
         .setMetrics(metrics)
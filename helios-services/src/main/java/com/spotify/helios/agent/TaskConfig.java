@@ -36,6 +36,7 @@ import com.spotify.docker.client.messages.PortBinding;
 import com.spotify.helios.common.descriptors.HealthCheck;
 import com.spotify.helios.common.descriptors.HttpHealthCheck;
 import com.spotify.helios.common.descriptors.Job;
+import com.spotify.helios.common.descriptors.JobId;
 import com.spotify.helios.common.descriptors.PortMapping;
 import com.spotify.helios.common.descriptors.Resources;
 import com.spotify.helios.common.descriptors.ServiceEndpoint;
@@ -90,10 +91,16 @@ public class TaskConfig {
    * @return The random container name.
    */
   public String containerName() {
-    final String shortId = job.getId().toShortString();
-    final String escaped = CONTAINER_NAME_FORBIDDEN.matcher(shortId).replaceAll("_");
     final String random = Integer.toHexString(new SecureRandom().nextInt());
-    return namespace + "-" + escaped + "_" + random;
+    return containerNamePrefix(namespace, job.getId()) + "_" + random;
+  }
+
+  /**
+   * Returns the part of the container name that is the same for every container of a job.
+   */
+  static String containerNamePrefix(final String namespace, final JobId jobId) {
+    final String escaped = CONTAINER_NAME_FORBIDDEN.matcher(jobId.toShortString()).replaceAll("_");
+    return namespace + "-" + escaped;
   }
 
   /**
@@ -0,0 +1,295 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.agent;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.Maps;
+import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.TaskStatusEvent;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded buffer of task status events waiting to be written to ZooKeeper.
+ *
+ * <p>Every event is held twice: in a queue per job, which enforces the per-job cap, and in a
+ * single index ordered by timestamp, which hands out the eldest event in O(log n) no matter how
+ * many jobs have events buffered. Nothing here takes a lock. An event belongs to whichever thread
+ * removes it from the index first, so an event is either evicted or taken, never both.
+ *
+ * <p>The caps are enforced by the thread that adds an event, after the event has been added.
+ * While several threads add events for the same job at once, the buffer can briefly hold a few
+ * events more than the caps allow.
+ */
+public class TaskHistoryBuffer {
+
+  public static final int DEFAULT_MAX_EVENTS_PER_JOB = 30;
+  public static final int DEFAULT_MAX_EVENTS = 600;
+
+  /**
+   * Which event of a job to drop when the job has more events than the per-job cap.
+   */
+  public enum JobEviction {
+    /** Drop the eldest event of the job. */
+    DROP_OLDEST,
+    /** Drop the newest event of the job, keeping the events that were buffered first. */
+    DROP_NEWEST
+  }
+
+  /**
+   * Which event to drop when the buffer holds more events than the global cap.
+   */
+  public enum GlobalEviction {
+    /** Drop the eldest event of any job. */
+    ELDEST,
+    /**
+     * Drop the eldest event of the job with the most events buffered, so that one flapping job
+     * cannot push out the history of all others. Finding that job takes a pass over all jobs.
+     */
+    LARGEST_JOB
+  }
+
+  private static final Comparator<Entry> ORDER = (a, b) -> {
+    final int result = Long.compare(a.event.getTimestamp(), b.event.getTimestamp());
+    return result != 0 ? result : Long.compare(a.sequence, b.sequence);
+  };
+
+  private final ConcurrentMap<JobId, JobQueue> jobs = Maps.newConcurrentMap();
+  private final ConcurrentSkipListSet<Entry> index = new ConcurrentSkipListSet<>(ORDER);
+  private final AtomicInteger size = new AtomicInteger();
+  private final AtomicLong sequence = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+
+  private final int maxEventsPerJob;
+  private final int maxEvents;
+  private final JobEviction jobEviction;
+  private final GlobalEviction globalEviction;
+
+  public TaskHistoryBuffer() {
+    this(DEFAULT_MAX_EVENTS_PER_JOB, DEFAULT_MAX_EVENTS,
+        JobEviction.DROP_OLDEST, GlobalEviction.ELDEST);
+  }
+
+  public TaskHistoryBuffer(final int maxEventsPerJob, final int maxEvents,
+                           final JobEviction jobEviction, final GlobalEviction globalEviction) {
+    checkArgument(maxEventsPerJob > 0, "maxEventsPerJob must be positive");
+    checkArgument(maxEvents > 0, "maxEvents must be positive");
+    this.maxEventsPerJob = maxEventsPerJob;
+    this.maxEvents = maxEvents;
+    this.jobEviction = checkNotNull(jobEviction, "jobEviction");
+    this.globalEviction = checkNotNull(globalEviction, "globalEviction");
+  }
+
+  /**
+   * Adds an event, then drops events as needed to get back under the caps.
+   */
+  public void add(final TaskStatusEvent event) {
+    final Entry entry = new Entry(event, sequence.incrementAndGet());
+    final JobQueue queue = enqueue(entry, false);
+    index.add(entry);
+    size.incrementAndGet();
+
+    while (queue.events.size() > maxEventsPerJob) {
+      final Entry victim = jobEviction == JobEviction.DROP_OLDEST
+                           ? queue.events.peekFirst() : queue.events.peekLast();
+      // A victim we cannot claim was either just taken, or was added by a thread that has not
+      // indexed it yet and will trim the queue itself once it has.
+      if (victim == null || !drop(victim)) {
+        break;
+      }
+    }
+
+    while (size.get() > maxEvents) {
+      if (!dropGlobal()) {
+        break;
+      }
+    }
+  }
+
+  /**
+   * Returns an event that was taken but could not be written. It goes back to the front of its
+   * job, unless the job has filled up in the meantime, in which case it is dropped.
+   */
+  public void putBack(final TaskStatusEvent event) {
+    final JobQueue current = jobs.get(event.getStatus().getJob().getId());
+    if (current != null && current.events.size() >= maxEventsPerJob) {
+      dropped.incrementAndGet();
+      return;
+    }
+    final Entry entry = new Entry(event, sequence.incrementAndGet());
+    enqueue(entry, true);
+    index.add(entry);
+    size.incrementAndGet();
+  }
+
+  /**
+   * Removes and returns the eldest event, or null if the buffer is empty.
+   */
+  public TaskStatusEvent poll() {
+    final Entry entry = index.pollFirst();
+    if (entry == null) {
+      return null;
+    }
+    size.decrementAndGet();
+    detach(entry);
+    return entry.event;
+  }
+
+  public boolean isEmpty() {
+    return size.get() == 0;
+  }
+
+  public int size() {
+    return size.get();
+  }
+
+  /**
+   * Returns the number of events dropped to stay under the caps.
+   */
+  public long droppedCount() {
+    return dropped.get();
+  }
+
+  /**
+   * Returns a copy of the buffered events per job, eldest first. Jobs without events are left
+   * out.
+   */
+  public ConcurrentMap<JobId, Deque<TaskStatusEvent>> snapshot() {
+    final ConcurrentMap<JobId, Deque<TaskStatusEvent>> snapshot = Maps.newConcurrentMap();
+    for (final Map.Entry<JobId, JobQueue> job : jobs.entrySet()) {
+      final Deque<TaskStatusEvent> events = new ArrayDeque<>();
+      for (final Entry entry : job.getValue().events) {
+        events.add(entry.event);
+      }
+      if (!events.isEmpty()) {
+        snapshot.put(job.getKey(), events);
+      }
+    }
+    return snapshot;
+  }
+
+  /**
+   * Adds an entry to the queue of its job. The queue is created if needed, and if it turns out
+   * to have been retired while we were adding to it, we move on to its replacement.
+   */
+  private JobQueue enqueue(final Entry entry, final boolean first) {
+    final JobId id = entry.event.getStatus().getJob().getId();
+    while (true) {
+      final JobQueue queue = jobs.computeIfAbsent(id, key -> new JobQueue());
+      if (first) {
+        queue.events.addFirst(entry);
+      } else {
+        queue.events.addLast(entry);
+      }
+      if (!queue.retired.get()) {
+        return queue;
+      }
+      queue.events.remove(entry);
+    }
+  }
+
+  private boolean dropGlobal() {
+    if (globalEviction == GlobalEviction.ELDEST) {
+      final Entry eldest = index.pollFirst();
+      if (eldest == null) {
+        return false;
+      }
+      size.decrementAndGet();
+      dropped.incrementAndGet();
+      detach(eldest);
+      return true;
+    }
+
+    JobQueue largest = null;
+    int largestSize = 0;
+    for (final JobQueue queue : jobs.values()) {
+      final int queueSize = queue.events.size();
+      if (queueSize > largestSize) {
+        largest = queue;
+        largestSize = queueSize;
+      }
+    }
+    if (largest == null) {
+      return false;
+    }
+    final Entry victim = largest.events.peekFirst();
+    // Losing a race for the victim still counts as progress, as it has left the buffer.
+    return victim != null && (drop(victim) || !index.contains(victim));
+  }
+
+  private boolean drop(final Entry entry) {
+    if (!index.remove(entry)) {
+      return false;
+    }
+    size.decrementAndGet();
+    dropped.incrementAndGet();
+    detach(entry);
+    return true;
+  }
+
+  /**
+   * Removes a claimed entry from the queue of its job, and retires the queue if it is empty.
+   * A queue is retired before it is unmapped, and a thread that finds it has added to a retired
+   * queue backs out and retries, so no entry is left behind in an unmapped queue.
+   */
+  private void detach(final Entry entry) {
+    final JobId id = entry.event.getStatus().getJob().getId();
+    final JobQueue queue = jobs.get(id);
+    if (queue == null) {
+      return;
+    }
+    queue.events.remove(entry);
+    if (queue.events.isEmpty() && queue.retired.compareAndSet(false, true)) {
+      if (queue.events.isEmpty()) {
+        jobs.remove(id, queue);
+      } else {
+        queue.retired.set(false);
+      }
+    }
+  }
+
+  private static class JobQueue {
+
+    private final ConcurrentLinkedDeque<Entry> events = new ConcurrentLinkedDeque<>();
+    private final AtomicBoolean retired = new AtomicBoolean();
+  }
+
+  private static class Entry {
+
+    private final TaskStatusEvent event;
+    private final long sequence;
+
+    private Entry(final TaskStatusEvent event, final long sequence) {
+      this.event = event;
+      this.sequence = sequence;
+    }
+  }
+}
@@ -20,14 +20,12 @@
 
 package com.spotify.helios.agent;
 
-import static com.google.common.base.Preconditions.checkState;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Supplier;
-import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -45,7 +43,6 @@ import java.nio.file.Path;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.List;
-import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -71,6 +68,8 @@ import org.slf4j.LoggerFactory;
  *    occurring, as the file may get large if ZK has been away for a long time.
  * 2. We limit each job to max 30 events in memory (and in ZK for that matter)
  * 3. Maximum of 600 total events, so as not to consume all available memory.
+ * 4. Events are written eldest first across all jobs. The limits, what to drop when they are
+ *    hit and the ordering all live in {@link TaskHistoryBuffer}.
  */
 public class TaskHistoryWriter extends AbstractIdleService implements Runnable {
   private static final Logger log = LoggerFactory.getLogger(TaskHistoryWriter.class);
@@ -78,23 +77,32 @@ public class TaskHistoryWriter extends AbstractIdleService implements Runnable {
   @VisibleForTesting
   public static final int MAX_NUMBER_STATUS_EVENTS_TO_RETAIN = 30;
 
-  private static final int MAX_QUEUE_SIZE = 30;
-  private static final int MAX_TOTAL_SIZE = 600;
-
-  private final ConcurrentMap<JobId, Deque<TaskStatusEvent>> items;
+  private final TaskHistoryBuffer buffer;
   private final ScheduledExecutorService zkWriterExecutor =
       MoreExecutors.getExitingScheduledExecutorService(
           (ScheduledThreadPoolExecutor) Executors.newScheduledThreadPool(1), 0, SECONDS);
   private final String hostname;
-  private final AtomicInteger count;
   private final ZooKeeperClient client;
   private final PersistentAtomicReference<ConcurrentMap<JobId, Deque<TaskStatusEvent>>>
       backingStore;
+  // Adds since the backing store was last written. Non-zero while a write is in progress.
+  private final AtomicInteger unsaved = new AtomicInteger();
 
   public TaskHistoryWriter(final String hostname, final ZooKeeperClient client,
                            final Path backingFile) throws IOException, InterruptedException {
+    this(hostname, client, backingFile, new TaskHistoryBuffer());
+  }
+
+  /**
+   * Creates a writer that buffers events in the specified, empty, buffer. Any events left in the
+   * backing file by a previous writer are added to it.
+   */
+  public TaskHistoryWriter(final String hostname, final ZooKeeperClient client,
+                           final Path backingFile, final TaskHistoryBuffer buffer)
+      throws IOException, InterruptedException {
     this.hostname = hostname;
     this.client = client;
+    this.buffer = buffer;
     this.backingStore = PersistentAtomicReference.create(backingFile,
         new TypeReference<ConcurrentMap<JobId, Deque<TaskStatusEvent>>>() {
         },
@@ -104,22 +112,17 @@ public class TaskHistoryWriter extends AbstractIdleService implements Runnable {
             return Maps.newConcurrentMap();
           }
         });
-    this.items = backingStore.get();
 
-    // Clean out any errant null values.  Normally shouldn't have any, but we did have a few
+    // Skip any errant null values.  Normally shouldn't have any, but we did have a few
     // where it happened, and this will make sure we can get out of a bad state if we get into it.
-    final ImmutableSet<JobId> curKeys = ImmutableSet.copyOf(this.items.keySet());
-    for (final JobId key : curKeys) {
-      if (this.items.get(key) == null) {
-        this.items.remove(key);
+    for (final Deque<TaskStatusEvent> deque : backingStore.get().values()) {
+      if (deque == null) {
+        continue;
+      }
+      for (final TaskStatusEvent event : deque) {
+        buffer.add(event);
       }
     }
-
-    int itemCount = 0;
-    for (final Deque<TaskStatusEvent> deque : items.values()) {
-      itemCount += deque.size();
-    }
-    this.count = new AtomicInteger(itemCount);
   }
 
   @Override
@@ -134,43 +137,36 @@ public class TaskHistoryWriter extends AbstractIdleService implements Runnable {
   }
 
   private void add(TaskStatusEvent item) throws InterruptedException {
-    // If too many "globally", toss them
-    while (count.get() >= MAX_TOTAL_SIZE) {
-      getNext();
-    }
-
-    final JobId key = item.getStatus().getJob().getId();
-    final Deque<TaskStatusEvent> deque = getDeque(key);
+    buffer.add(item);
+    save();
+  }
 
-    synchronized (deque) {
-      // if too many in the particular deque, toss them
-      while (deque.size() >= MAX_QUEUE_SIZE) {
-        deque.remove();
-        count.decrementAndGet();
-      }
-      deque.add(item);
-      count.incrementAndGet();
+  /**
+   * Writes the buffered events to the backing store. If another thread is already writing, we
+   * leave it to that thread to write again once it is done, so that callers do not queue up
+   * behind the file write. The thread that writes last always writes a snapshot taken after the
+   * last add.
+   */
+  private void save() throws InterruptedException {
+    if (unsaved.getAndIncrement() != 0) {
+      return;
     }
-
+    boolean done = false;
     try {
-      backingStore.set(items);
+      int seen;
+      do {
+        seen = unsaved.get();
+        backingStore.set(buffer.snapshot());
+      } while (!unsaved.compareAndSet(seen, 0));
+      done = true;
     } catch (ClosedByInterruptException e) {
       log.debug("Writing task status event to backing store was interrupted");
     } catch (IOException e) { // We are best effort after all...
       log.warn("Failed to write task status event to backing store", e);
-    }
-  }
-
-  private Deque<TaskStatusEvent> getDeque(final JobId key) {
-    synchronized (items) {
-      final Deque<TaskStatusEvent> deque = items.get(key);
-      if (deque == null) {  // try more assertively to get a deque
-        final ConcurrentLinkedDeque<TaskStatusEvent> newDeque =
-            new ConcurrentLinkedDeque<>();
-        items.put(key, newDeque);
-        return newDeque;
+    } finally {
+      if (!done) {
+        unsaved.set(0);
       }
-      return deque;
     }
   }
 
@@ -182,91 +178,14 @@ public class TaskHistoryWriter extends AbstractIdleService implements Runnable {
     add(new TaskStatusEvent(status, timestamp, hostname));
   }
 
-  private TaskStatusEvent getNext() {
-    // Some explanation: We first find the eldest event from amongst the queues (ok, they're
-    // deques, but we really use it as a put back queue), and only then to we try to get
-    // a lock on the relevant queue from whence we got the event.  Assuming that all worked
-    // *and* that the event we have wasn't rolled off due to max-size limitations, we then
-    // pull the item off the queue and return it.  We're basically doing optimistic concurrency,
-    // and skewing things so that adding to this should be cheap.
-
-    while (true) {
-      final TaskStatusEvent current = findEldestEvent();
-
-      // Didn't find anything that needed processing?
-      if (current == null) {
-        return null;
-      }
-
-      final JobId id = current.getStatus().getJob().getId();
-      final Deque<TaskStatusEvent> deque = items.get(id);
-      if (deque == null) {
-        // shouldn't happen because we should be the only one pulling items off, but....
-        continue;
-      }
-
-      synchronized (deque) {
-        if (!deque.peek().equals(current)) {
-          // item got rolled off, try again
-          continue;
-        }
-
-        // Pull it off the queue and be paranoid.
-        final TaskStatusEvent newCurrent = deque.poll();
-        count.decrementAndGet();
-        checkState(current.equals(newCurrent), "current should equal newCurrent");
-        // Safe because this is the *only* place we hold these two locks at the same time.
-        synchronized (items) {
-          // Extra paranoia: curDeque should always == deque
-          final Deque<TaskStatusEvent> curDeque = items.get(id);
-          if (curDeque != null && curDeque.isEmpty()) {
-            items.remove(id);
-          }
-        }
-        return current;
-      }
-    }
-  }
-
   public boolean isEmpty() {
-    return count.get() == 0;
-  }
-
-  private void putBack(TaskStatusEvent event) {
-    final JobId key = event.getStatus().getJob().getId();
-    final Deque<TaskStatusEvent> queue = getDeque(key);
-    synchronized (queue) {
-      if (queue.size() >= MAX_QUEUE_SIZE) {
-        // already full, just toss the event
-        return;
-      }
-      queue.push(event);
-      count.incrementAndGet();
-    }
-  }
-
-  private TaskStatusEvent findEldestEvent() {
-    // We don't lock anything because in the worst case, we just put things in out of order which
-    // while not perfect, won't cause any actual harm.  Out of order meaning between jobids, not
-    // within the same job id.  Whether this is the best strategy (as opposed to fullest deque)
-    // is arguable.
-    TaskStatusEvent current = null;
-    for (final Deque<TaskStatusEvent> queue : items.values()) {
-      if (queue == null) {
-        continue;
-      }
-      final TaskStatusEvent item = queue.peek();
-      if (current == null || (item.getTimestamp() < current.getTimestamp())) {
-        current = item;
-      }
-    }
-    return current;
+    return buffer.isEmpty();
   }
 
   @Override
   public void run() {
     while (true) {
-      final TaskStatusEvent item = getNext();
+      final TaskStatusEvent item = buffer.poll();
       if (item == null) {
         return;
       }
@@ -293,11 +212,11 @@ public class TaskHistoryWriter extends AbstractIdleService implements Runnable {
         log.debug("item we wanted in is already there");
       } catch (ConnectionLossException e) {
         log.warn("Connection lost while putting item into zookeeper, will retry");
-        putBack(item);
+        buffer.putBack(item);
         break;
       } catch (KeeperException e) {
         log.error("Error putting item into zookeeper, will retry", e);
-        putBack(item);
+        buffer.putBack(item);
         break;
       }
     }
@@ -60,6 +60,7 @@ class TaskRunner extends InterruptingExecutionThreadService {
   private final TaskConfig config;
   private final DockerClient docker;
   private final String existingContainerId;
+  private final Boolean existingContainerRunning;
   private final Listener listener;
   private final ServiceRegistrar registrar;
   private final Optional<HealthChecker> healthChecker;
@@ -76,6 +77,7 @@ class TaskRunner extends InterruptingExecutionThreadService {
     this.docker = checkNotNull(builder.docker, "docker");
     this.listener = checkNotNull(builder.listener, "listener");
     this.existingContainerId = builder.existingContainerId;
+    this.existingContainerRunning = builder.existingContainerRunning;
     this.registrar = checkNotNull(builder.registrar, "registrar");
     this.secondsToWaitBeforeKill = checkNotNull(builder.secondsToWaitBeforeKill, "waitBeforeKill");
     this.healthChecker = Optional.fromNullable(builder.healthChecker);
@@ -164,11 +166,17 @@ class TaskRunner extends InterruptingExecutionThreadService {
     // Delay
     Thread.sleep(delayMillis);
 
-    // Check if the container is already running
-    final ContainerInfo info = getContainerInfo(existingContainerId);
+    // Check if the container is already running, unless we were told when the agent started
+    final boolean running;
+    if (existingContainerRunning != null) {
+      running = existingContainerId != null && existingContainerRunning;
+    } else {
+      final ContainerInfo info = getContainerInfo(existingContainerId);
+      running = info != null && info.state().running();
+    }
     final String containerId;
 
-    if (info != null && info.state().running()) {
+    if (running) {
       containerId = existingContainerId;
       this.containerId = Optional.of(existingContainerId);
     } else {
@@ -391,6 +399,7 @@ class TaskRunner extends InterruptingExecutionThreadService {
     private TaskConfig taskConfig;
     private DockerClient docker;
     private String existingContainerId;
+    private Boolean existingContainerRunning;
     private Listener listener;
     private HealthChecker healthChecker;
     private int secondsToWaitBeforeKill;
@@ -416,6 +425,15 @@ class TaskRunner extends InterruptingExecutionThreadService {
       return this;
     }
 
+    /**
+     * Whether the existing container is known to be running. If set, the runner does not inspect
+     * the container. A container that has exited since is noticed when waiting for it.
+     */
+    public Builder existingContainerRunning(final Boolean existingContainerRunning) {
+      this.existingContainerRunning = existingContainerRunning;
+      return this;
+    }
+
     public Builder listener(final Listener listener) {
       this.listener = listener;
       return this;
@@ -53,12 +53,25 @@ public class TaskRunnerFactory {
                            final String containerId,
                            final TaskRunner.Listener listener,
                            final int secondsToWaitBeforeKill) {
+    return create(delay, containerId, null, listener, secondsToWaitBeforeKill);
+  }
+
+  /**
+   * Creates a runner that trusts {@code containerRunning}, if not null, instead of inspecting
+   * the container.
+   */
+  public TaskRunner create(final long delay,
+                           final String containerId,
+                           final Boolean containerRunning,
+                           final TaskRunner.Listener listener,
+                           final int secondsToWaitBeforeKill) {
     return TaskRunner.builder()
         .delayMillis(delay)
         .config(taskConfig)
         .docker(docker)
         .healthChecker(healthChecker.orNull())
         .existingContainerId(containerId)
+        .existingContainerRunning(containerRunning)
         .listener(new BroadcastingListener(concat(this.listeners, singletonList(listener))))
         .registrar(registrar)
         .secondsToWaitBeforeKill(secondsToWaitBeforeKill)
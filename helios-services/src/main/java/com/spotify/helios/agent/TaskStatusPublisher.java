@@ -0,0 +1,200 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.agent;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.TaskStatus;
+import com.spotify.helios.servicescommon.coordination.ZooKeeperUpdatingPersistentDirectory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes task statuses to the persistent directory that mirrors them to ZooKeeper, coalescing
+ * the updates of each task that arrive within a short window.
+ *
+ * <p>A task that starts quickly goes through pulling, creating, starting and running in well
+ * under a second, and every one of those used to rewrite the status file and wake up the
+ * ZooKeeper updater. Now the first update of a task starts the window, later updates replace the
+ * pending status, and only the latest one is written when the window closes. Statuses that are
+ * still pending are visible through {@link #get(JobId)} and {@link #getAll()}.
+ */
+class TaskStatusPublisher implements MetricSet {
+
+  private static final Logger log = LoggerFactory.getLogger(TaskStatusPublisher.class);
+
+  public static final long DEFAULT_WINDOW_MILLIS = 200;
+
+  private final ZooKeeperUpdatingPersistentDirectory directory;
+  private final long windowMillis;
+  private final ScheduledExecutorService executor;
+
+  private final ConcurrentMap<JobId, TaskStatus> pending = Maps.newConcurrentMap();
+  private final AtomicBoolean scheduled = new AtomicBoolean();
+  private final AtomicLong updates = new AtomicLong();
+  private final AtomicLong writes = new AtomicLong();
+
+  TaskStatusPublisher(final ZooKeeperUpdatingPersistentDirectory directory,
+                      final long windowMillis) {
+    this.directory = directory;
+    this.windowMillis = windowMillis;
+    this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+        .setNameFormat("task-status-publisher-%d")
+        .setDaemon(true)
+        .build());
+  }
+
+  /**
+   * Records the latest status of a task. It is written when the current window closes, or right
+   * away if coalescing is disabled.
+   */
+  void publish(final JobId jobId, final TaskStatus status) throws InterruptedException {
+    updates.incrementAndGet();
+    if (windowMillis <= 0) {
+      write(jobId, status);
+      return;
+    }
+    pending.put(jobId, status);
+    schedule();
+  }
+
+  /**
+   * Drops the status of a task, including any update that has not been written yet.
+   */
+  synchronized void remove(final JobId jobId) throws InterruptedException {
+    pending.remove(jobId);
+    directory.remove(jobId.toString());
+  }
+
+  /**
+   * Returns the pending status of a task, or null if everything published for it has been
+   * written.
+   */
+  TaskStatus get(final JobId jobId) {
+    return pending.get(jobId);
+  }
+
+  /**
+   * Returns the statuses that have not been written yet.
+   */
+  Map<JobId, TaskStatus> getAll() {
+    return ImmutableMap.copyOf(pending);
+  }
+
+  /**
+   * Writes all pending statuses.
+   */
+  void flush() throws InterruptedException {
+    // Clear the flag first. An update that lands after it is either picked up below, or
+    // schedules another flush.
+    scheduled.set(false);
+    for (final JobId jobId : pending.keySet()) {
+      synchronized (this) {
+        // Taking and writing the status under the lock keeps a concurrent remove from being
+        // undone by a status we took before it.
+        final TaskStatus status = pending.remove(jobId);
+        if (status != null) {
+          try {
+            write(jobId, status);
+          } catch (InterruptedException | RuntimeException e) {
+            pending.putIfAbsent(jobId, status);
+            throw e;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes all pending statuses and stops accepting scheduled flushes.
+   */
+  void close() throws InterruptedException {
+    executor.shutdownNow();
+    executor.awaitTermination(1, TimeUnit.MINUTES);
+    flush();
+    log.info("published {} task status updates with {} writes", updates.get(), writes.get());
+  }
+
+  long updateCount() {
+    return updates.get();
+  }
+
+  long writeCount() {
+    return writes.get();
+  }
+
+  @Override
+  public Map<String, Metric> getMetrics() {
+    final String prefix = "helios.agent_task_status";
+    return ImmutableMap.<String, Metric>builder()
+        .put(name(prefix, "updates"), (Gauge<Long>) this::updateCount)
+        .put(name(prefix, "writes"), (Gauge<Long>) this::writeCount)
+        .put(name(prefix, "writes_saved"), (Gauge<Long>) () -> updates.get() - writes.get())
+        .build();
+  }
+
+  private void write(final JobId jobId, final TaskStatus status) throws InterruptedException {
+    directory.put(jobId.toString(), status.toJsonBytes());
+    writes.incrementAndGet();
+  }
+
+  private void schedule() throws InterruptedException {
+    if (!scheduled.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      executor.schedule(this::flushQuietly, windowMillis, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      // Closed, so there is nobody left to flush later
+      flush();
+    }
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (RuntimeException e) {
+      log.error("failed to write task statuses, will retry", e);
+      try {
+        schedule();
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
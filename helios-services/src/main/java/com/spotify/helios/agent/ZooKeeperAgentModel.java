@@ -23,6 +23,7 @@ package com.spotify.helios.agent;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.spotify.helios.common.descriptors.Descriptor.parse;
 
+import com.codahale.metrics.MetricSet;
 import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.AbstractIdleService;
 import com.spotify.helios.common.Json;
@@ -60,6 +61,7 @@ public class ZooKeeperAgentModel extends AbstractIdleService implements AgentMod
 
   private final PersistentPathChildrenCache<Task> tasks;
   private final ZooKeeperUpdatingPersistentDirectory taskStatuses;
+  private final TaskStatusPublisher statusPublisher;
   private final TaskHistoryWriter historyWriter;
   private final List<EventSender> eventSenders;
   private final String taskStatusEventTopic;
@@ -74,6 +76,22 @@ public class ZooKeeperAgentModel extends AbstractIdleService implements AgentMod
                              final List<EventSender> eventSenders,
                              final String taskStatusEventTopic)
       throws IOException, InterruptedException {
+    this(provider, host, stateDirectory, historyWriter, eventSenders, taskStatusEventTopic,
+        TaskStatusPublisher.DEFAULT_WINDOW_MILLIS);
+  }
+
+  /**
+   * Creates a model that coalesces the task status updates of each task that arrive within
+   * {@code statusWindowMillis} into a single write. Zero disables coalescing.
+   */
+  public ZooKeeperAgentModel(final ZooKeeperClientProvider provider,
+                             final String host,
+                             final Path stateDirectory,
+                             final TaskHistoryWriter historyWriter,
+                             final List<EventSender> eventSenders,
+                             final String taskStatusEventTopic,
+                             final long statusWindowMillis)
+      throws IOException, InterruptedException {
     // TODO(drewc): we're constructing too many heavyweight things in the ctor, these kinds of
     // things should be passed in/provider'd/etc.
     final ZooKeeperClient client = provider.get("ZooKeeperAgentModel_ctor");
@@ -89,6 +107,7 @@ public class ZooKeeperAgentModel extends AbstractIdleService implements AgentMod
         provider,
         taskStatusFile,
         Paths.statusHostJobs(host));
+    this.statusPublisher = new TaskStatusPublisher(taskStatuses, statusWindowMillis);
     this.historyWriter = historyWriter;
 
     this.eventSenders = eventSenders;
@@ -107,6 +126,7 @@ public class ZooKeeperAgentModel extends AbstractIdleService implements AgentMod
   @Override
   protected void shutDown() throws Exception {
     tasks.stopAsync().awaitTerminated();
+    statusPublisher.close();
     taskStatuses.stopAsync().awaitTerminated();
     if (historyWriter != null) {
       historyWriter.stopAsync().awaitTerminated();
@@ -146,6 +166,7 @@ public class ZooKeeperAgentModel extends AbstractIdleService implements AgentMod
         throw new RuntimeException(e);
       }
     }
+    statuses.putAll(statusPublisher.getAll());
     return statuses;
   }
 
@@ -156,7 +177,9 @@ public class ZooKeeperAgentModel extends AbstractIdleService implements AgentMod
   public void setTaskStatus(final JobId jobId, final TaskStatus status)
       throws InterruptedException {
     log.debug("setting task status: {}", status);
-    taskStatuses.put(jobId.toString(), status.toJsonBytes());
+    // Only the latest status within a short window is persisted, but history and events still
+    // see every transition.
+    statusPublisher.publish(jobId, status);
     if (historyWriter != null) {
       try {
         historyWriter.saveHistoryItem(status);
@@ -172,6 +195,7 @@ public class ZooKeeperAgentModel extends AbstractIdleService implements AgentMod
     for (final EventSender sender : eventSenders) {
       sender.send(taskStatusEventTopic, message);
     }
+    fireTaskStatusChanged(jobId, status);
   }
 
   /**
@@ -179,6 +203,10 @@ public class ZooKeeperAgentModel extends AbstractIdleService implements AgentMod
    */
   @Override
   public TaskStatus getTaskStatus(final JobId jobId) {
+    final TaskStatus pending = statusPublisher.get(jobId);
+    if (pending != null) {
+      return pending;
+    }
     final byte[] data = taskStatuses.get(jobId.toString());
     if (data == null) {
       return null;
@@ -195,7 +223,15 @@ public class ZooKeeperAgentModel extends AbstractIdleService implements AgentMod
    */
   @Override
   public void removeTaskStatus(final JobId jobId) throws InterruptedException {
-    taskStatuses.remove(jobId.toString());
+    statusPublisher.remove(jobId);
+    fireTaskStatusChanged(jobId, null);
+  }
+
+  /**
+   * Returns metrics on how many task status updates were coalesced.
+   */
+  public MetricSet taskStatusMetrics() {
+    return statusPublisher;
   }
 
   /**
@@ -225,6 +261,16 @@ public class ZooKeeperAgentModel extends AbstractIdleService implements AgentMod
     }
   }
 
+  private void fireTaskStatusChanged(final JobId jobId, final TaskStatus status) {
+    for (final AgentModel.Listener listener : listeners) {
+      try {
+        listener.taskStatusChanged(jobId, status);
+      } catch (Exception e) {
+        log.error("listener threw exception", e);
+      }
+    }
+  }
+
   private class JobsListener implements PersistentPathChildrenCache.Listener {
 
     @Override
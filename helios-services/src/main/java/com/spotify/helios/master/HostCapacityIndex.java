@@ -0,0 +1,138 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.master;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Maps;
+import com.spotify.helios.common.descriptors.HostInfo;
+import com.spotify.helios.common.descriptors.HostStatus;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Ranks hosts by their free capacity, for picking the host to place a new job on.
+ *
+ * <p>The capacity of a host is taken from the load average, CPU count and free memory its agent
+ * reports in {@link HostInfo}, along with the number of jobs deployed to it. Capacities are cached
+ * per host for a short while, so that many placements in a row read each host only once. Hosts
+ * that are not cached are read concurrently.
+ */
+public class HostCapacityIndex {
+
+  private static final Logger log = LoggerFactory.getLogger(HostCapacityIndex.class);
+
+  private static final Comparator<Capacity> MOST_FREE_FIRST =
+      Comparator.comparingDouble(Capacity::headroom).reversed()
+          .thenComparingInt(capacity -> capacity.jobs)
+          .thenComparing(capacity -> capacity.host);
+
+  private final MasterModel model;
+  private final Cache<String, Capacity> cache;
+
+  public HostCapacityIndex(final MasterModel model, final long ttlMillis) {
+    this.model = model;
+    this.cache = CacheBuilder.newBuilder()
+        .expireAfterWrite(ttlMillis, MILLISECONDS)
+        .build();
+  }
+
+  /**
+   * Returns the hosts among {@code hosts} that are UP, ordered by free capacity, most first.
+   *
+   * @param hosts  The candidate hosts.
+   * @param memory The number of bytes of memory the job will need, or null if unknown. Hosts known
+   *               to have less memory free are left out.
+   */
+  public List<String> rank(final List<String> hosts, final Long memory) {
+    final Map<String, CompletableFuture<Capacity>> pending = Maps.newHashMap();
+    for (final String host : hosts) {
+      final Capacity cached = cache.getIfPresent(host);
+      pending.put(host, cached != null
+                        ? CompletableFuture.completedFuture(cached)
+                        : load(host));
+    }
+
+    return pending.values().stream()
+        .map(CompletableFuture::join)
+        .filter(capacity -> capacity != null && capacity.up && capacity.fits(memory))
+        .sorted(MOST_FREE_FIRST)
+        .map(capacity -> capacity.host)
+        .collect(Collectors.toList());
+  }
+
+  private CompletableFuture<Capacity> load(final String host) {
+    return model.getHostStatusAsync(host).toCompletableFuture()
+        .thenApply(status -> {
+          if (status == null) {
+            return null;
+          }
+          final Capacity capacity = new Capacity(host, status);
+          cache.put(host, capacity);
+          return capacity;
+        })
+        .exceptionally(e -> {
+          log.warn("failed to read capacity of host {}", host, e);
+          return null;
+        });
+  }
+
+  private static class Capacity {
+
+    private final String host;
+    private final boolean up;
+    private final int jobs;
+    private final HostInfo info;
+
+    private Capacity(final String host, final HostStatus status) {
+      this.host = host;
+      this.up = status.getStatus() == HostStatus.Status.UP;
+      this.jobs = status.getJobs() == null ? 0 : status.getJobs().size();
+      this.info = status.getHostInfo();
+    }
+
+    /**
+     * The fraction of CPU left idle by the load average plus the fraction of memory that is free.
+     * Hosts that do not report their resources have no headroom and are ranked last.
+     */
+    private double headroom() {
+      if (info == null) {
+        return 0;
+      }
+      final double cpu = info.getCpus() > 0
+                         ? Math.max(0, 1 - info.getLoadAvg() / info.getCpus()) : 0;
+      final double mem = info.getMemoryTotalBytes() > 0
+                         ? (double) info.getMemoryFreeBytes() / info.getMemoryTotalBytes() : 0;
+      return cpu + mem;
+    }
+
+    private boolean fits(final Long memory) {
+      return memory == null || info == null || memory <= info.getMemoryFreeBytes();
+    }
+  }
+}
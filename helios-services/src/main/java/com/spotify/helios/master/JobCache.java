@@ -0,0 +1,312 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.master;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static com.spotify.helios.common.descriptors.Descriptor.parse;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.spotify.helios.common.descriptors.Job;
+import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.servicescommon.coordination.Paths;
+import com.spotify.helios.servicescommon.coordination.ZooKeeperClient;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.KeeperException.NoNodeException;
+import org.apache.zookeeper.data.Stat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A read-through cache of the {@link Job} descriptors stored under /config/jobs.
+ *
+ * <p>Job ids are derived from a hash of the job configuration and job nodes are never rewritten,
+ * so a cached job stays valid for as long as its node exists. Every lookup stats /config/jobs and
+ * compares its child version with the one seen last. When it has moved, the child list is
+ * re-read and the jobs that were removed, possibly by another master, are dropped along with all
+ * cached misses. If the child version moved by more than the visible additions and removals can
+ * explain, a job was removed and re-added in between and the whole cache is flushed.
+ *
+ * <p>Entries are weighed by the size of their serialized form and the cache is bounded by the
+ * total weight.
+ */
+public class JobCache implements MetricSet {
+
+  private static final Logger log = LoggerFactory.getLogger(JobCache.class);
+
+  public static final long DEFAULT_MAX_WEIGHT = 64 * 1024 * 1024;
+
+  // The weight of a cached miss. It only holds a JobId key.
+  private static final int MISS_WEIGHT = 128;
+
+  private final Cache<JobId, Entry> cache;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong negativeHits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  // Guarded by this
+  private int cversion = -1;
+  private Set<String> children = null;
+
+  public JobCache() {
+    this(DEFAULT_MAX_WEIGHT);
+  }
+
+  public JobCache(final long maxWeight) {
+    this.cache = CacheBuilder.newBuilder()
+        .maximumWeight(maxWeight)
+        .weigher((Weigher<JobId, Entry>) (id, entry) -> entry.weight)
+        .recordStats()
+        .build();
+  }
+
+  /**
+   * Returns the job with the specified id, or null if it does not exist.
+   */
+  public Job getJob(final ZooKeeperClient client, final JobId id)
+      throws KeeperException, IOException {
+    final Stat stat = client.stat(Paths.configJobs());
+    if (stat == null) {
+      return null;
+    }
+    final int version = sync(client, stat);
+
+    final Entry cached = cache.getIfPresent(id);
+    if (cached != null) {
+      (cached.job == null ? negativeHits : hits).incrementAndGet();
+      return cached.job;
+    }
+
+    misses.incrementAndGet();
+    final Entry entry = load(client, id);
+    put(id, entry, version);
+    return entry.job;
+  }
+
+  /**
+   * Asynchronous variant of {@link #getJob(ZooKeeperClient, JobId)}. The returned stage completes
+   * with null if the job does not exist.
+   */
+  public CompletionStage<Job> getJobAsync(final ZooKeeperClient client, final JobId id) {
+    return client.existsAsync(Paths.configJobs()).thenCompose(stat -> {
+      if (stat == null) {
+        return CompletableFuture.<Job>completedFuture(null);
+      }
+      return syncAsync(client, stat).thenCompose(version -> {
+        final Entry cached = cache.getIfPresent(id);
+        if (cached != null) {
+          (cached.job == null ? negativeHits : hits).incrementAndGet();
+          return CompletableFuture.completedFuture(cached.job);
+        }
+
+        misses.incrementAndGet();
+        return client.getNodeAsync(Paths.configJob(id)).handle((node, error) -> {
+          final Entry entry;
+          if (error == null) {
+            try {
+              entry = new Entry(parse(node.getBytes(), Job.class), node.getBytes().length);
+            } catch (IOException e) {
+              throw new CompletionException(e);
+            }
+          } else if (unwrap(error) instanceof NoNodeException) {
+            entry = new Entry(null, MISS_WEIGHT);
+          } else {
+            throw new CompletionException(unwrap(error));
+          }
+          put(id, entry, version);
+          return entry.job;
+        });
+      });
+    });
+  }
+
+  /**
+   * Returns all jobs, reading only the ones that are not already cached.
+   */
+  public Map<JobId, Job> getJobs(final ZooKeeperClient client)
+      throws KeeperException, IOException {
+    final Stat stat = client.stat(Paths.configJobs());
+    if (stat == null) {
+      return Maps.newHashMap();
+    }
+    final int version = sync(client, stat);
+
+    final Set<String> ids;
+    synchronized (this) {
+      ids = children;
+    }
+
+    final Map<JobId, Job> jobs = Maps.newHashMap();
+    for (final String child : ids) {
+      final JobId id = JobId.fromString(child);
+      Entry entry = cache.getIfPresent(id);
+      if (entry != null) {
+        hits.incrementAndGet();
+      } else {
+        misses.incrementAndGet();
+        entry = load(client, id);
+        put(id, entry, version);
+      }
+      if (entry.job != null) {
+        jobs.put(entry.job.getId(), entry.job);
+      }
+    }
+    return jobs;
+  }
+
+  /**
+   * Drops the job with the specified id. Called after removing the job from ZooKeeper so that
+   * this master does not have to wait for the next child version check to notice it.
+   */
+  public void invalidate(final JobId id) {
+    cache.invalidate(id);
+  }
+
+  public long hitCount() {
+    return hits.get();
+  }
+
+  public long negativeHitCount() {
+    return negativeHits.get();
+  }
+
+  public long missCount() {
+    return misses.get();
+  }
+
+  public double hitRate() {
+    final long found = hits.get() + negativeHits.get();
+    final long total = found + misses.get();
+    return total == 0 ? 1.0 : (double) found / total;
+  }
+
+  @Override
+  public Map<String, Metric> getMetrics() {
+    final String prefix = "helios.master_job_cache";
+    return ImmutableMap.<String, Metric>builder()
+        .put(name(prefix, "hits"), (Gauge<Long>) this::hitCount)
+        .put(name(prefix, "negative_hits"), (Gauge<Long>) this::negativeHitCount)
+        .put(name(prefix, "misses"), (Gauge<Long>) this::missCount)
+        .put(name(prefix, "hit_rate"), (Gauge<Double>) this::hitRate)
+        .put(name(prefix, "evictions"), (Gauge<Long>) () -> cache.stats().evictionCount())
+        .put(name(prefix, "size"), (Gauge<Long>) cache::size)
+        .build();
+  }
+
+  private Entry load(final ZooKeeperClient client, final JobId id)
+      throws KeeperException, IOException {
+    try {
+      final byte[] data = client.getData(Paths.configJob(id));
+      return new Entry(parse(data, Job.class), data.length);
+    } catch (NoNodeException e) {
+      return new Entry(null, MISS_WEIGHT);
+    }
+  }
+
+  /**
+   * Caches an entry read while /config/jobs had the specified child version. The entry is
+   * discarded if a sync has happened since, as that sync could not have invalidated it.
+   */
+  private synchronized void put(final JobId id, final Entry entry, final int version) {
+    if (version == cversion) {
+      cache.put(id, entry);
+    }
+  }
+
+  private synchronized int sync(final ZooKeeperClient client, final Stat stat)
+      throws KeeperException {
+    final int version = stat.getCversion();
+    if (children != null && version == cversion) {
+      return version;
+    }
+    return sync(version, client.getChildren(Paths.configJobs()));
+  }
+
+  private CompletionStage<Integer> syncAsync(final ZooKeeperClient client, final Stat stat) {
+    final int version = stat.getCversion();
+    synchronized (this) {
+      if (children != null && version == cversion) {
+        return CompletableFuture.completedFuture(version);
+      }
+    }
+    return client.getChildrenAsync(Paths.configJobs())
+        .thenApply(current -> sync(version, current));
+  }
+
+  private synchronized int sync(final int version, final List<String> listing) {
+    if (children != null && version == cversion) {
+      // Somebody else got here first
+      return version;
+    }
+
+    // The child list might be newer than the stat. That is safe, it only means that the next
+    // sync will see unexplained changes and flush the cache.
+    final Set<String> current = ImmutableSet.copyOf(listing);
+
+    if (children == null
+        || version - cversion != Sets.symmetricDifference(children, current).size()) {
+      log.debug("flushing job cache: cversion {} -> {}", cversion, version);
+      cache.invalidateAll();
+    } else {
+      for (final String removed : Sets.difference(children, current)) {
+        cache.invalidate(JobId.fromString(removed));
+      }
+      cache.asMap().values().removeIf(entry -> entry.job == null);
+    }
+
+    children = current;
+    cversion = version;
+    return version;
+  }
+
+  private static Throwable unwrap(final Throwable error) {
+    return error instanceof CompletionException && error.getCause() != null
+           ? error.getCause() : error;
+  }
+
+  private static class Entry {
+
+    private final Job job;
+    private final int weight;
+
+    private Entry(final Job job, final int weight) {
+      this.job = job;
+      this.weight = weight;
+    }
+  }
+}
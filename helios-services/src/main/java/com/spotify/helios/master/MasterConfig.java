@@ -59,6 +59,8 @@ public class MasterConfig extends CommonConfiguration<MasterConfig> {
   private FastForwardConfig fastForwardConfig;
   private Set<String> whitelistedCapabilities;
   private boolean jobHistoryReapingEnabled;
+  private long statusReadTtlMillis;
+  private boolean segmentDeploymentGroups;
 
   public String getDomain() {
     return domain;
@@ -284,4 +286,22 @@ public class MasterConfig extends CommonConfiguration<MasterConfig> {
     this.jobHistoryReapingEnabled = jobHistoryReapingEnabled;
     return this;
   }
+
+  public long getStatusReadTtlMillis() {
+    return statusReadTtlMillis;
+  }
+
+  public MasterConfig setStatusReadTtlMillis(final long statusReadTtlMillis) {
+    this.statusReadTtlMillis = statusReadTtlMillis;
+    return this;
+  }
+
+  public boolean isSegmentDeploymentGroups() {
+    return segmentDeploymentGroups;
+  }
+
+  public MasterConfig setSegmentDeploymentGroups(final boolean segmentDeploymentGroups) {
+    this.segmentDeploymentGroups = segmentDeploymentGroups;
+    return this;
+  }
 }
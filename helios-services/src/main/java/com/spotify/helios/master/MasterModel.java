@@ -30,8 +30,10 @@ import com.spotify.helios.common.descriptors.JobId;
 import com.spotify.helios.common.descriptors.JobStatus;
 import com.spotify.helios.common.descriptors.RolloutOptions;
 import com.spotify.helios.common.descriptors.TaskStatusEvent;
+import com.spotify.helios.rollingupdate.RolloutSimulator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionStage;
 
 /**
  * The interface that describes the kinds of information the Helios master needs from its
@@ -43,12 +45,25 @@ public interface MasterModel {
 
   void deregisterHost(String host) throws HostNotFoundException, HostStillInUseException;
 
+  /**
+   * Returns true if a deregistration of the host was started but has not completed, for example
+   * because the master performing it was restarted. Calling {@link #deregisterHost(String)} again
+   * completes it.
+   */
+  boolean isHostDeregistering(String host);
+
   List<String> listHosts();
 
   List<String> listHosts(String namePatternFilter);
 
   HostStatus getHostStatus(String host);
 
+  /**
+   * Asynchronous variant of {@link #getHostStatus(String)}. The returned stage completes with null
+   * if the host is not registered.
+   */
+  CompletionStage<HostStatus> getHostStatusAsync(String host);
+
   /**
    * Returns labels for {@code host}. Returns an empty map for hosts not found in the store.
    */
@@ -64,8 +79,20 @@ public interface MasterModel {
 
   Map<JobId, Job> getJobs();
 
+  /**
+   * Returns a version of the set of jobs. It changes whenever a job is added or removed and, as
+   * jobs are never modified, whenever the result of {@link #getJobs()} may have changed.
+   */
+  long getJobsVersion();
+
   JobStatus getJobStatus(JobId jobId);
 
+  /**
+   * Asynchronous variant of {@link #getJobStatus(JobId)}. The returned stage completes with null
+   * if the job does not exist.
+   */
+  CompletionStage<JobStatus> getJobStatusAsync(JobId jobId);
+
   Job removeJob(JobId jobId)
       throws JobDoesNotExistException,
              JobStillDeployedException;
@@ -131,9 +158,24 @@ public interface MasterModel {
   void removeDeploymentGroup(String name) throws DeploymentGroupDoesNotExistException;
 
   void rollingUpdate(DeploymentGroup deploymentGroup, JobId jobId, RolloutOptions options)
-      throws DeploymentGroupDoesNotExistException, JobDoesNotExistException;
+      throws DeploymentGroupDoesNotExistException, JobDoesNotExistException,
+             InvalidRolloutOptionsException;
+
+  /**
+   * Simulates a rolling update of the deployment group to the job, without changing anything. How
+   * long the hosts take to start and stop the job is fitted to the task status history of the job
+   * the deployment group runs, or of the new job if it runs none.
+   */
+  RolloutSimulator.Result simulateRollingUpdate(DeploymentGroup deploymentGroup, JobId jobId,
+                                                RolloutOptions options)
+      throws DeploymentGroupDoesNotExistException, JobDoesNotExistException,
+             InvalidRolloutOptionsException;
 
-  void rollingUpdateStep();
+  /**
+   * Performs the next step of the rolling updates of the deployment groups whose names are owned
+   * by the partition. The tasks of other deployment groups are not read.
+   */
+  void rollingUpdateStep(WorkPartition partition);
 
   void stopDeploymentGroup(String deploymentGroupName) throws DeploymentGroupDoesNotExistException;
 }
@@ -50,6 +50,8 @@ public class MasterParser extends ServiceParser {
   private Argument jobRetention;
   private Argument whitelistedCapabilities;
   private Argument jobHistoryReapingEnabled;
+  private Argument statusReadTtl;
+  private Argument segmentDeploymentGroups;
 
   public MasterParser(final String... args) throws ArgumentParserException {
     super("helios-master", "Spotify Helios Master", args);
@@ -92,7 +94,9 @@ public class MasterParser extends ServiceParser {
         .setFfwdConfig(ffwdConfig(options))
         .setWhitelistedCapabilities(ImmutableSet.copyOf(
             options.getList(whitelistedCapabilities.getDest())))
-        .setJobHistoryReapingEnabled(options.getBoolean(jobHistoryReapingEnabled.getDest()));
+        .setJobHistoryReapingEnabled(options.getBoolean(jobHistoryReapingEnabled.getDest()))
+        .setStatusReadTtlMillis(options.getLong(statusReadTtl.getDest()))
+        .setSegmentDeploymentGroups(options.getBoolean(segmentDeploymentGroups.getDest()));
 
     this.masterConfig = config;
   }
@@ -139,6 +143,21 @@ public class MasterParser extends ServiceParser {
         .action(storeTrue())
         .setDefault(false)
         .help("Enable periodic reaping of orphaned job histories.");
+
+    statusReadTtl = parser.addArgument("--status-read-ttl")
+        .type(Long.class)
+        .setDefault(0L)
+        .help("In milliseconds. Identical concurrent job, host and deployment group status "
+              + "requests share a single read. If set, its result is also reused for this long "
+              + "after it completes, so a status read may not reflect a change made just before "
+              + "it. By default only reads that are still in flight are shared.");
+
+    segmentDeploymentGroups = parser.addArgument("--segment-deployment-groups")
+        .action(storeTrue())
+        .setDefault(false)
+        .help("Store the host lists and rollout plans of large deployment groups in segments. "
+              + "Masters that predate segments cannot read them, so only enable this once every "
+              + "master in the cluster supports them.");
   }
 
   public MasterConfig getMasterConfig() {
@@ -25,12 +25,14 @@ import static com.google.common.base.Strings.isNullOrEmpty;
 import static com.spotify.helios.servicescommon.ServiceRegistrars.createServiceRegistrar;
 import static com.spotify.helios.servicescommon.ZooKeeperAclProviders.digest;
 import static com.spotify.helios.servicescommon.ZooKeeperAclProviders.heliosAclProvider;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 import ch.qos.logback.access.jetty.RequestLogImpl;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.jvm.GarbageCollectorMetricSet;
 import com.codahale.metrics.jvm.MemoryUsageGaugeSet;
 import com.google.common.base.Strings;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
@@ -38,6 +40,7 @@ import com.google.common.collect.Sets;
 import com.google.common.io.Resources;
 import com.google.common.util.concurrent.AbstractIdleService;
 import com.spotify.helios.common.HeliosRuntimeException;
+import com.spotify.helios.common.descriptors.JobId;
 import com.spotify.helios.common.descriptors.TaskStatusEvent;
 import com.spotify.helios.master.http.VersionResponseFilter;
 import com.spotify.helios.master.metrics.HealthCheckGauge;
@@ -110,6 +113,8 @@ public class MasterService extends AbstractIdleService {
   private static final String LOGBACK_ACCESS_CONFIG = "logback-access.xml";
   private static final String LOGBACK_ACCESS_RESOURCE = "/" + LOGBACK_ACCESS_CONFIG;
   private static final String DG_EVENT_TOPIC = "HeliosDeploymentGroupEvents";
+  private static final long MASTER_MEMBERSHIP_REFRESH_SECONDS = 5;
+  private static final long HOST_CAPACITY_TTL_SECONDS = 2;
 
   private final Server server;
   private final MasterConfig config;
@@ -189,11 +194,15 @@ public class MasterService extends AbstractIdleService {
     }
 
     final List<EventSender> eventSenders =
-        EventSenderFactory.build(environment, config, metricsRegistry, DG_EVENT_TOPIC);
+        EventSenderFactory.build(environment, config, metricsRegistry, DG_EVENT_TOPIC,
+            stateDirectory.resolve("outbox"));
+
+    final JobCache jobCache = new JobCache();
+    metricsRegistry.registerAll(jobCache);
 
     final ZooKeeperMasterModel model =
         new ZooKeeperMasterModel(zkClientProvider, config.getName(), eventSenders,
-            DG_EVENT_TOPIC);
+            DG_EVENT_TOPIC, jobCache, config.isSegmentDeploymentGroups());
 
     final ZooKeeperHealthChecker zooKeeperHealthChecker =
         new ZooKeeperHealthChecker(zooKeeperClient);
@@ -210,18 +219,25 @@ public class MasterService extends AbstractIdleService {
         config.getServiceRegistryAddress(),
         config.getDomain());
 
+    // Share rolling updates and reaping among the live masters
+    final WorkPartition workPartition = new RendezvousWorkPartition(config.getName(),
+        Suppliers.memoizeWithExpiration(model::getRunningMasters,
+            MASTER_MEMBERSHIP_REFRESH_SECONDS, SECONDS));
+
     // Set up reaping of expired jobs
     this.expiredJobReaper = ExpiredJobReaper.newBuilder()
         .setMasterModel(model)
+        .setWorkPartition(workPartition)
         .build();
 
     // Set up rolling update service
     final ReactorFactory reactorFactory = new ReactorFactory();
-    this.rollingUpdateService = new RollingUpdateService(model, reactorFactory);
+    this.rollingUpdateService = new RollingUpdateService(model, reactorFactory, workPartition);
 
     // Set up agent reaper (de-registering hosts that have been DOWN for more than X hours)
     if (config.getAgentReapingTimeout() > 0) {
-      this.agentReaper = Optional.of(new DeadAgentReaper(model, config.getAgentReapingTimeout()));
+      this.agentReaper = Optional.of(new DeadAgentReaper(
+          model, config.getAgentReapingTimeout(), workPartition));
     } else {
       log.info("Reaping of dead agents disabled");
       this.agentReaper = Optional.empty();
@@ -229,7 +245,8 @@ public class MasterService extends AbstractIdleService {
 
     // Set up old job reaper (removes jobs not deployed anywhere and created more than X days ago)
     if (config.getJobRetention() > 0) {
-      this.oldJobReaper = Optional.of(new OldJobReaper(model, config.getJobRetention()));
+      this.oldJobReaper = Optional.of(new OldJobReaper(
+          model, config.getJobRetention(), workPartition));
     } else {
       log.info("Reaping of old jobs disabled");
       this.oldJobReaper = Optional.empty();
@@ -238,7 +255,7 @@ public class MasterService extends AbstractIdleService {
     // Set up job history reaper (removes histories whose corresponding job doesn't exist)
     if (config.isJobHistoryReapingEnabled()) {
       this.jobHistoryReaper = Optional.of(
-          new JobHistoryReaper(model, zkClientProvider.get("jobHistoryReaper")));
+          new JobHistoryReaper(model, zkClientProvider.get("jobHistoryReaper"), workPartition));
     } else {
       log.info("Reaping of orphaned jobs disabled");
       this.jobHistoryReaper = Optional.empty();
@@ -250,14 +267,28 @@ public class MasterService extends AbstractIdleService {
         .addMappingForUrlPatterns(EnumSet.of(DispatcherType.REQUEST), true, "/*");
     environment.jersey().register(
         new ReportingResourceMethodDispatchAdapter(metrics.getMasterMetrics()));
+
+    // Identical concurrent status reads share one computation
+    final long statusReadTtl = config.getStatusReadTtlMillis();
+    final SingleFlight<JobId, byte[]> jobStatusReads =
+        new SingleFlight<>("job_status", statusReadTtl);
+    final SingleFlight<String, byte[]> hostStatusReads =
+        new SingleFlight<>("host_status", statusReadTtl);
+    final SingleFlight<String, byte[]> deploymentGroupStatusReads =
+        new SingleFlight<>("deployment_group_status", statusReadTtl);
+    metricsRegistry.registerAll(jobStatusReads);
+    metricsRegistry.registerAll(hostStatusReads);
+    metricsRegistry.registerAll(deploymentGroupStatusReads);
+
     environment.jersey().register(new JobsResource(
-        model, metrics.getMasterMetrics(), config.getWhitelistedCapabilities()));
+        model, metrics.getMasterMetrics(), config.getWhitelistedCapabilities(), jobStatusReads));
     environment.jersey().register(new HistoryResource(model, metrics.getMasterMetrics()));
-    environment.jersey().register(new HostsResource(model));
+    environment.jersey().register(new HostsResource(model, hostStatusReads,
+        new HostCapacityIndex(model, SECONDS.toMillis(HOST_CAPACITY_TTL_SECONDS))));
     environment.jersey().register(new MastersResource(model));
     environment.jersey().register(new VersionResource());
     environment.jersey().register(new UserProvider());
-    environment.jersey().register(new DeploymentGroupResource(model));
+    environment.jersey().register(new DeploymentGroupResource(model, deploymentGroupStatusReads));
 
     final DefaultServerFactory serverFactory = ServiceUtil.createServerFactory(
         config.getHttpEndpoint(), config.getAdminEndpoint(), false);
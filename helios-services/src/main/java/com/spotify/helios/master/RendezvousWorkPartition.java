@@ -0,0 +1,110 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.master;
+
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import java.util.List;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Partitions background work among the live masters by rendezvous hashing. Each key is owned by
+ * the master for which the hash of the master name and the key is highest. Every master computes
+ * this from the same membership, the up nodes that masters register in ZooKeeper, so no leader
+ * or extra coordination is needed. When a master joins or leaves only the keys it gains or loses
+ * move.
+ *
+ * <p>Masters may briefly disagree about membership while it changes. Work is then done twice or
+ * is delayed until the next round, which the versioned ZooKeeper transactions the work relies on
+ * already tolerate. If this master is not in the membership, for example because registration is
+ * disabled or has not completed, or the membership cannot be read, it owns everything.
+ */
+public class RendezvousWorkPartition implements WorkPartition {
+
+  private static final Logger log = LoggerFactory.getLogger(RendezvousWorkPartition.class);
+
+  private static final HashFunction HASH = Hashing.murmur3_128();
+
+  private final String name;
+  private final Supplier<List<String>> masters;
+
+  private volatile Set<String> lastMembers = ImmutableSet.of();
+
+  /**
+   * Creates the partition of the named master.
+   *
+   * @param name    The name of this master.
+   * @param masters Supplies the names of the live masters. Called for every key, so it should
+   *                be memoized.
+   */
+  public RendezvousWorkPartition(final String name, final Supplier<List<String>> masters) {
+    this.name = name;
+    this.masters = masters;
+  }
+
+  @Override
+  public boolean owns(final String key) {
+    final Set<String> members;
+    try {
+      members = ImmutableSet.copyOf(masters.get());
+    } catch (Exception e) {
+      log.warn("failed to get live masters, processing all background work", e);
+      return true;
+    }
+
+    if (!members.equals(lastMembers)) {
+      lastMembers = members;
+      log.info("sharing background work among masters {}", members);
+    }
+
+    if (!members.contains(name)) {
+      return true;
+    }
+    return name.equals(owner(members, key));
+  }
+
+  private static String owner(final Set<String> members, final String key) {
+    String owner = null;
+    long ownerScore = 0;
+    for (final String member : members) {
+      final long score = score(member, key);
+      if (owner == null || score > ownerScore
+          || (score == ownerScore && member.compareTo(owner) < 0)) {
+        owner = member;
+        ownerScore = score;
+      }
+    }
+    return owner;
+  }
+
+  private static long score(final String member, final String key) {
+    return HASH.newHasher()
+        .putUnencodedChars(member)
+        .putChar('\0')
+        .putUnencodedChars(key)
+        .hash()
+        .asLong();
+  }
+}
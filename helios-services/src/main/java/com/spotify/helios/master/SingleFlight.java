@@ -0,0 +1,194 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.master;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.spotify.helios.common.Clock;
+import com.spotify.helios.common.SystemClock;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent computations of the same key. The first caller for a key runs the loader
+ * and every caller that asks for the key while it is running waits for and shares its result.
+ * Successful results are kept for a short time to live after they complete so that a burst of
+ * identical requests arriving just after each other is also served by a single computation.
+ * Failures and null results are never kept, so that something that was just created does not
+ * appear to be missing.
+ *
+ * <p>A time to live of zero only coalesces callers that overlap with a running computation.
+ */
+public class SingleFlight<K, V> implements MetricSet {
+
+  private final String name;
+
+  private final ConcurrentMap<K, Flight<V>> flights = new ConcurrentHashMap<>();
+  // Guava expires entries incrementally as the cache is used, so no lookup scans every result
+  private final Cache<K, V> results;
+
+  private final AtomicLong calls = new AtomicLong();
+  private final AtomicLong executions = new AtomicLong();
+  private final AtomicLong coalesced = new AtomicLong();
+  private final AtomicLong cached = new AtomicLong();
+
+  public SingleFlight(final String name, final long ttlMillis) {
+    this(name, ttlMillis, new SystemClock());
+  }
+
+  public SingleFlight(final String name, final long ttlMillis, final Clock clock) {
+    this.name = name;
+    if (ttlMillis > 0) {
+      this.results = CacheBuilder.newBuilder()
+          .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+          .ticker(new Ticker() {
+            @Override
+            public long read() {
+              return TimeUnit.MILLISECONDS.toNanos(clock.now().getMillis());
+            }
+          })
+          .build();
+    } else {
+      this.results = null;
+    }
+  }
+
+  /**
+   * Returns the value for the key, running the loader only if no computation of the key is in
+   * flight and no result younger than the time to live is available. Exceptions thrown by the
+   * loader are rethrown to every caller that shared the computation.
+   */
+  public V get(final K key, final Supplier<V> loader) {
+    calls.incrementAndGet();
+    while (true) {
+      final V result = cachedResult(key);
+      if (result != null) {
+        cached.incrementAndGet();
+        return result;
+      }
+
+      final Flight<V> existing = flights.get(key);
+      if (existing != null) {
+        coalesced.incrementAndGet();
+        return join(existing.future);
+      }
+
+      final Flight<V> flight = new Flight<>();
+      if (flights.putIfAbsent(key, flight) != null) {
+        continue;
+      }
+      // A computation may have finished between the lookup of its result and our flight
+      final V finished = cachedResult(key);
+      if (finished != null) {
+        flights.remove(key, flight);
+        flight.future.complete(finished);
+        cached.incrementAndGet();
+        return finished;
+      }
+      return execute(key, flight, loader);
+    }
+  }
+
+  public long callCount() {
+    return calls.get();
+  }
+
+  public long executionCount() {
+    return executions.get();
+  }
+
+  /**
+   * The number of calls that were answered without running the loader, either by joining a
+   * running computation or by a result within its time to live.
+   */
+  public long coalescedCount() {
+    return coalesced.get() + cached.get();
+  }
+
+  @Override
+  public Map<String, Metric> getMetrics() {
+    final String prefix = name("helios.master_single_flight", name);
+    return ImmutableMap.<String, Metric>builder()
+        .put(name(prefix, "calls"), (Gauge<Long>) this::callCount)
+        .put(name(prefix, "executions"), (Gauge<Long>) this::executionCount)
+        .put(name(prefix, "coalesced_in_flight"), (Gauge<Long>) coalesced::get)
+        .put(name(prefix, "coalesced_cached"), (Gauge<Long>) cached::get)
+        .put(name(prefix, "size"),
+            (Gauge<Long>) () -> flights.size() + (results == null ? 0 : results.size()))
+        .build();
+  }
+
+  private V execute(final K key, final Flight<V> flight, final Supplier<V> loader) {
+    executions.incrementAndGet();
+    final V value;
+    try {
+      value = loader.get();
+    } catch (RuntimeException | Error e) {
+      flights.remove(key, flight);
+      flight.future.completeExceptionally(e);
+      throw e;
+    }
+
+    // Publish the result before retiring the flight, so that later callers find one of them
+    if (results != null && value != null) {
+      results.put(key, value);
+    }
+    flights.remove(key, flight);
+    flight.future.complete(value);
+    return value;
+  }
+
+  private V cachedResult(final K key) {
+    return results == null ? null : results.getIfPresent(key);
+  }
+
+  private static <V> V join(final CompletableFuture<V> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw e;
+    }
+  }
+
+  private static class Flight<V> {
+
+    private final CompletableFuture<V> future = new CompletableFuture<>();
+  }
+}
@@ -0,0 +1,41 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.master;
+
+/**
+ * Decides whether this master is responsible for a unit of background work, such as a deployment
+ * group's rolling update or reaping a host or job. Every master runs the same background loops and
+ * uses this to skip the work that belongs to another master.
+ */
+public interface WorkPartition {
+
+  /**
+   * Returns true if this master should process the work identified by the key.
+   */
+  boolean owns(String key);
+
+  /**
+   * Returns a partition that owns all work, for a master that does not share its work.
+   */
+  static WorkPartition all() {
+    return key -> true;
+  }
+}
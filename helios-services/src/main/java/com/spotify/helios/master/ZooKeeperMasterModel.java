@@ -20,6 +20,7 @@
 
 package com.spotify.helios.master;
 
+import static com.google.common.base.MoreObjects.firstNonNull;
 import static com.google.common.base.Optional.fromNullable;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Strings.isNullOrEmpty;
@@ -36,11 +37,10 @@ import static com.spotify.helios.servicescommon.coordination.ZooKeeperOperations
 import static com.spotify.helios.servicescommon.coordination.ZooKeeperOperations.create;
 import static com.spotify.helios.servicescommon.coordination.ZooKeeperOperations.delete;
 import static com.spotify.helios.servicescommon.coordination.ZooKeeperOperations.set;
-import static java.lang.Boolean.TRUE;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.emptyMap;
 import static java.util.Collections.singletonList;
-import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.type.TypeReference;
@@ -78,22 +78,31 @@ import com.spotify.helios.common.descriptors.Task;
 import com.spotify.helios.common.descriptors.TaskStatus;
 import com.spotify.helios.common.descriptors.TaskStatusEvent;
 import com.spotify.helios.common.descriptors.ThrottleState;
+import com.spotify.helios.rollingupdate.AdaptiveRollout;
 import com.spotify.helios.rollingupdate.DeploymentGroupEventFactory;
 import com.spotify.helios.rollingupdate.RollingUndeployPlanner;
 import com.spotify.helios.rollingupdate.RollingUpdateError;
 import com.spotify.helios.rollingupdate.RollingUpdateOp;
 import com.spotify.helios.rollingupdate.RollingUpdateOpFactory;
 import com.spotify.helios.rollingupdate.RollingUpdatePlanner;
+import com.spotify.helios.rollingupdate.RolloutDecider;
+import com.spotify.helios.rollingupdate.RolloutDecision;
+import com.spotify.helios.rollingupdate.RolloutSimulator;
+import com.spotify.helios.rollingupdate.RolloutState;
+import com.spotify.helios.rollingupdate.StartLatencyModel;
 import com.spotify.helios.servicescommon.EventSender;
 import com.spotify.helios.servicescommon.VersionedValue;
 import com.spotify.helios.servicescommon.ZooKeeperRegistrarUtil;
 import com.spotify.helios.servicescommon.coordination.Node;
 import com.spotify.helios.servicescommon.coordination.Paths;
+import com.spotify.helios.servicescommon.coordination.SegmentedList;
 import com.spotify.helios.servicescommon.coordination.ZooKeeperClient;
 import com.spotify.helios.servicescommon.coordination.ZooKeeperClientProvider;
 import com.spotify.helios.servicescommon.coordination.ZooKeeperOperation;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
@@ -101,6 +110,9 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -149,13 +161,25 @@ public class ZooKeeperMasterModel implements MasterModel {
       STRING_LIST_TYPE =
       new TypeReference<List<String>>() {};
 
+  private static final TypeReference<List<RolloutTask>>
+      ROLLOUT_TASK_LIST_TYPE =
+      new TypeReference<List<RolloutTask>>() {};
+
   private static final DeploymentGroupEventFactory DEPLOYMENT_GROUP_EVENT_FACTORY =
       new DeploymentGroupEventFactory();
 
+  // Simulated rolling updates assume the 90th percentile of the starts and stops in the history,
+  // and a minute to start and ten seconds to stop where there is no history.
+  private static final double SIMULATION_PERCENTILE = 0.9;
+  private static final StartLatencyModel SIMULATION_FALLBACK_LATENCIES =
+      StartLatencyModel.fixed(SECONDS.toMillis(60), SECONDS.toMillis(10));
+
   private final ZooKeeperClientProvider provider;
   private final String name;
   private final List<EventSender> eventSenders;
   private final String deploymentGroupEventTopic;
+  private final JobCache jobCache;
+  private final boolean segmentDeploymentGroups;
 
   /**
    * Constructor.
@@ -168,10 +192,48 @@ public class ZooKeeperMasterModel implements MasterModel {
                               final String name,
                               final List<EventSender> eventSenders,
                               final String deploymentGroupEventTopic) {
+    this(provider, name, eventSenders, deploymentGroupEventTopic, new JobCache());
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param provider     {@link ZooKeeperClientProvider}
+   * @param name         The hostname of the machine running the {@link MasterModel}
+   * @param eventSenders {@link EventSender}
+   * @param jobCache     The {@link JobCache} used to look up job descriptors
+   */
+  public ZooKeeperMasterModel(final ZooKeeperClientProvider provider,
+                              final String name,
+                              final List<EventSender> eventSenders,
+                              final String deploymentGroupEventTopic,
+                              final JobCache jobCache) {
+    this(provider, name, eventSenders, deploymentGroupEventTopic, jobCache, false);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param provider                {@link ZooKeeperClientProvider}
+   * @param name                    The hostname of the machine running the {@link MasterModel}
+   * @param eventSenders            {@link EventSender}
+   * @param jobCache                The {@link JobCache} used to look up job descriptors
+   * @param segmentDeploymentGroups Whether large deployment group host lists and rollout plans
+   *                                are stored in segments. Masters that predate segments cannot
+   *                                read them.
+   */
+  public ZooKeeperMasterModel(final ZooKeeperClientProvider provider,
+                              final String name,
+                              final List<EventSender> eventSenders,
+                              final String deploymentGroupEventTopic,
+                              final JobCache jobCache,
+                              final boolean segmentDeploymentGroups) {
     this.provider = Preconditions.checkNotNull(provider);
     this.name = Preconditions.checkNotNull(name);
     this.eventSenders = Preconditions.checkNotNull(eventSenders);
     this.deploymentGroupEventTopic = deploymentGroupEventTopic;
+    this.jobCache = Preconditions.checkNotNull(jobCache);
+    this.segmentDeploymentGroups = segmentDeploymentGroups;
   }
 
   /**
@@ -244,6 +306,12 @@ public class ZooKeeperMasterModel implements MasterModel {
     ZooKeeperRegistrarUtil.deregisterHost(client, host);
   }
 
+  @Override
+  public boolean isHostDeregistering(final String host) {
+    final ZooKeeperClient client = provider.get("isHostDeregistering");
+    return ZooKeeperRegistrarUtil.isHostDeregistering(client, host);
+  }
+
   /**
    * Adds a job into the configuration.
    */
@@ -413,6 +481,7 @@ public class ZooKeeperMasterModel implements MasterModel {
    * <li>/status/deployment-groups/[group-name]/removed</li>
    * <li>/status/deployment-group-tasks/[group-name]</li>
    * </ul>
+   * The segments of the hosts, removed hosts and tasks nodes are deleted along with them.
    * If the operation fails no ZK nodes will be removed.
    *
    * @throws DeploymentGroupDoesNotExistException If the DG does not exist.
@@ -448,12 +517,17 @@ public class ZooKeeperMasterModel implements MasterModel {
       //
       // Having /status/deployment-group-tasks/[group-name] for removed groups around will cause
       // DGs to become slower and spam logs with errors so we want to avoid it.
+      final Map<String, Integer> segments = Maps.newHashMap();
       for (final String path : paths) {
-        if (client.exists(path) == null) {
+        final Stat stat = client.exists(path);
+        if (stat == null) {
           operations.add(create(path));
+        } else {
+          segments.put(path, stat.getNumChildren());
         }
       }
       for (final String path : Lists.reverse(paths)) {
+        operations.addAll(SegmentedList.deleteSegments(path, segments.getOrDefault(path, 0)));
         operations.add(delete(path));
       }
 
@@ -555,9 +629,12 @@ public class ZooKeeperMasterModel implements MasterModel {
       client.ensurePathAndSetData(Paths.statusDeploymentGroupRemovedHosts(groupName),
           Json.asBytesUnchecked(emptyList()));
 
-      final List<String> curHosts = getHosts(client, Paths.statusDeploymentGroupHosts(groupName));
-      final List<String> previouslyRemovedHosts = getHosts(
-          client, Paths.statusDeploymentGroupRemovedHosts(groupName));
+      final SegmentedList<String> curHostsList = SegmentedList.read(
+          client, Paths.statusDeploymentGroupHosts(groupName), STRING_LIST_TYPE);
+      final SegmentedList<String> removedHostsList = SegmentedList.read(
+          client, Paths.statusDeploymentGroupRemovedHosts(groupName), STRING_LIST_TYPE);
+      final List<String> curHosts = curHostsList.values();
+      final List<String> previouslyRemovedHosts = removedHostsList.values();
 
       final List<String> removedHosts = removedHosts(curHosts, hosts, previouslyRemovedHosts);
 
@@ -570,8 +647,8 @@ public class ZooKeeperMasterModel implements MasterModel {
           groupName, curHosts, hosts, previouslyRemovedHosts, removedHosts);
 
       final List<ZooKeeperOperation> ops = Lists.newArrayList();
-      ops.add(set(Paths.statusDeploymentGroupHosts(groupName), Json.asBytes(hosts)));
-      ops.add(set(Paths.statusDeploymentGroupRemovedHosts(groupName), Json.asBytes(removedHosts)));
+      ops.addAll(curHostsList.replace(hosts, segmentDeploymentGroups));
+      ops.addAll(removedHostsList.replace(removedHosts, segmentDeploymentGroups));
 
       final Node dgn = client.getNode(Paths.configDeploymentGroup(groupName));
       final Integer deploymentGroupVersion = dgn.getStat().getVersion();
@@ -634,15 +711,11 @@ public class ZooKeeperMasterModel implements MasterModel {
   public void rollingUpdate(final DeploymentGroup deploymentGroup,
                             final JobId jobId,
                             final RolloutOptions options)
-      throws DeploymentGroupDoesNotExistException, JobDoesNotExistException {
+      throws DeploymentGroupDoesNotExistException, JobDoesNotExistException,
+             InvalidRolloutOptionsException {
     checkNotNull(deploymentGroup, "deploymentGroup");
 
-    final Job job = getJob(jobId);
-    if (job == null) {
-      throw new JobDoesNotExistException(jobId);
-    }
-
-    final RolloutOptions rolloutOptionsWithFallback = rolloutOptionsWithFallback(options, job);
+    final RolloutOptions rolloutOptionsWithFallback = validRolloutOptions(jobId, options);
 
     log.info("preparing to initiate rolling-update on deployment-group: "
              + "name={}, jobId={}, options={}",
@@ -681,6 +754,61 @@ public class ZooKeeperMasterModel implements MasterModel {
     }
   }
 
+  /**
+   * Returns the rollout options of a rolling update to the job, with those of the job and the
+   * defaults as fallback.
+   */
+  private RolloutOptions validRolloutOptions(final JobId jobId, final RolloutOptions options)
+      throws JobDoesNotExistException, InvalidRolloutOptionsException {
+    final Job job = getJob(jobId);
+    if (job == null) {
+      throw new JobDoesNotExistException(jobId);
+    }
+
+    final RolloutOptions rolloutOptionsWithFallback = rolloutOptionsWithFallback(options, job);
+    final Integer maxParallelism = rolloutOptionsWithFallback.getMaxParallelism();
+    if (maxParallelism != null && maxParallelism < rolloutOptionsWithFallback.getParallelism()) {
+      throw new InvalidRolloutOptionsException(String.format(
+          "maxParallelism %d is less than parallelism %d", maxParallelism,
+          rolloutOptionsWithFallback.getParallelism()));
+    }
+    return rolloutOptionsWithFallback;
+  }
+
+  @Override
+  public RolloutSimulator.Result simulateRollingUpdate(final DeploymentGroup deploymentGroup,
+                                                       final JobId jobId,
+                                                       final RolloutOptions options)
+      throws DeploymentGroupDoesNotExistException, JobDoesNotExistException,
+             InvalidRolloutOptionsException {
+    checkNotNull(deploymentGroup, "deploymentGroup");
+
+    final DeploymentGroup updated = deploymentGroup.toBuilder()
+        .setJobId(jobId)
+        .setRolloutOptions(validRolloutOptions(jobId, options))
+        .setRollingUpdateReason(MANUAL)
+        .build();
+
+    // the rollout is planned for the hosts that are UP, like a rolling update is
+    final ZooKeeperClient client = provider.get("simulateRollingUpdate");
+    final List<String> hosts = getDeploymentGroupHosts(deploymentGroup.getName()).stream()
+        .filter(host -> checkHostUp(client, host))
+        .collect(Collectors.toList());
+
+    // the new job has rarely run yet, the job it replaces tells more about the hosts
+    final JobId previous = deploymentGroup.getJobId();
+    final List<TaskStatusEvent> history =
+        previous != null && getJob(previous) != null
+        ? getJobHistory(previous)
+        : getJobHistory(jobId);
+
+    return RolloutSimulator.newBuilder()
+        .setLatencies(StartLatencyModel.fromHistory(
+            history, SIMULATION_PERCENTILE, SIMULATION_FALLBACK_LATENCIES))
+        .build()
+        .simulate(updated, hosts);
+  }
+
   private RollingUpdateOp getInitRollingUpdateOps(final DeploymentGroup deploymentGroup,
                                                   final ZooKeeperClient zooKeeperClient)
       throws DeploymentGroupDoesNotExistException, KeeperException {
@@ -709,9 +837,13 @@ public class ZooKeeperMasterModel implements MasterModel {
         .filter(host -> checkHostUp(zooKeeperClient, host))
         .collect(Collectors.toList());
 
-    rolloutTasks.addAll(RollingUndeployPlanner.of(deploymentGroup)
+    // an adaptive rollout is planned host by host and cut into waves as it progresses
+    final DeploymentGroup planned = AdaptiveRollout.isAdaptive(deploymentGroup)
+                                    ? AdaptiveRollout.hostByHost(deploymentGroup)
+                                    : deploymentGroup;
+    rolloutTasks.addAll(RollingUndeployPlanner.of(planned)
         .plan(upHostsToUndeploy));
-    rolloutTasks.addAll(RollingUpdatePlanner.of(deploymentGroup)
+    rolloutTasks.addAll(RollingUpdatePlanner.of(planned)
         .plan(upHostsToDeploy));
 
     log.info("generated rolloutTasks for deployment-group name={} "
@@ -725,11 +857,11 @@ public class ZooKeeperMasterModel implements MasterModel {
         .build();
 
     return new RollingUpdateOpFactory(tasks, DEPLOYMENT_GROUP_EVENT_FACTORY)
-        .start(deploymentGroup, zooKeeperClient);
+        .start(deploymentGroup, zooKeeperClient, segmentDeploymentGroups);
   }
 
   private Map<String, VersionedValue<DeploymentGroupTasks>> getDeploymentGroupTasks(
-      final ZooKeeperClient client) {
+      final ZooKeeperClient client, final WorkPartition partition) {
     final String folder = Paths.statusDeploymentGroupTasks();
     try {
       final List<String> names;
@@ -741,6 +873,9 @@ public class ZooKeeperMasterModel implements MasterModel {
 
       final Map<String, VersionedValue<DeploymentGroupTasks>> ret = Maps.newHashMap();
       for (final String name : names) {
+        if (!partition.owns(name)) {
+          continue;
+        }
         final String path = Paths.statusDeploymentGroupTasks(name);
         try {
           final Node node = client.getNode(path);
@@ -764,41 +899,133 @@ public class ZooKeeperMasterModel implements MasterModel {
     }
   }
 
+  /**
+   * Returns the current task of a rolling update. Tasks stored in segments are read from the
+   * segment holding the current task only. Returns null if that segment no longer exists.
+   */
+  private RolloutTask getRolloutTask(final ZooKeeperClient client,
+                                     final String deploymentGroupName,
+                                     final DeploymentGroupTasks tasks)
+      throws KeeperException, IOException {
+    final int taskIndex = tasks.getTaskIndex();
+    if (tasks.getSegmentSize() == 0) {
+      return tasks.getRolloutTasks().get(taskIndex);
+    }
+
+    final String path = SegmentedList.segmentPath(
+        Paths.statusDeploymentGroupTasks(deploymentGroupName),
+        taskIndex / tasks.getSegmentSize());
+    try {
+      final List<RolloutTask> segment = Json.read(client.getData(path), ROLLOUT_TASK_LIST_TYPE);
+      return segment.get(taskIndex % tasks.getSegmentSize());
+    } catch (NoNodeException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns the segments of the plan of a rolling update that hold the tasks from the task index
+   * up to {@code count} tasks after it, starting with the segment holding the task index. Returns
+   * an empty list if one of those segments no longer exists.
+   */
+  private List<RolloutTask> getRolloutSegments(final ZooKeeperClient client,
+                                               final String deploymentGroupName,
+                                               final DeploymentGroupTasks tasks,
+                                               final int count)
+      throws KeeperException, IOException {
+    final int from = tasks.getTaskIndex();
+    final int to = (int) Math.min(tasks.getTaskCount(), (long) from + count);
+    final List<RolloutTask> result = Lists.newArrayList();
+    final int segmentSize = tasks.getSegmentSize();
+    for (int segment = from / segmentSize; segment <= (to - 1) / segmentSize; segment++) {
+      final String path = SegmentedList.segmentPath(
+          Paths.statusDeploymentGroupTasks(deploymentGroupName), segment);
+      try {
+        result.addAll(Json.read(client.getData(path), ROLLOUT_TASK_LIST_TYPE));
+      } catch (NoNodeException e) {
+        return Collections.emptyList();
+      }
+    }
+    return result;
+  }
+
   private RollingUpdateOp processRollingUpdateTask(final ZooKeeperClient client,
                                                    final RollingUpdateOpFactory opFactory,
                                                    final RolloutTask task,
                                                    final DeploymentGroup deploymentGroup) {
-    final RolloutTask.Action action = task.getAction();
     final String host = task.getTarget();
+    final RolloutDecision decision = RolloutDecider.decide(
+        rolloutState(client), task, deploymentGroup, System.currentTimeMillis());
 
-    switch (action) {
-      case UNDEPLOY_OLD_JOBS:
-        // add undeploy ops for jobs previously deployed by this deployment group
-        return rollingUpdateUndeploy(client, opFactory, deploymentGroup, host);
-      case DEPLOY_NEW_JOB:
+    switch (decision.getKind()) {
+      case NEXT_TASK:
+        return opFactory.nextTask();
+      case YIELD:
+        return opFactory.yield();
+      case DEPLOY:
         // add deploy ops for the new job
         return rollingUpdateDeploy(client, opFactory, deploymentGroup, host);
-      case AWAIT_RUNNING:
-        return rollingUpdateAwaitRunning(client, opFactory, deploymentGroup, host);
-      case FORCE_UNDEPLOY_JOBS:
-        return forceRollingUpdateUndeploy(client, opFactory, deploymentGroup, host);
-      case AWAIT_UNDEPLOYED:
-        return rollingUpdateAwaitUndeployed(client, opFactory, deploymentGroup, host);
+      case UNDEPLOY:
+        return rollingUpdateUndeploy(client, opFactory, deploymentGroup, host,
+            decision.getUndeployJobIds());
       case MARK_UNDEPLOYED:
         return rollingUpdateMarkUndeployed(client, opFactory, deploymentGroup, host);
+      case ERROR:
+        if (decision.getError() == RollingUpdateError.TIMED_OUT_WAITING_FOR_JOB_TO_REACH_RUNNING
+            && decision.getTaskStatus() != null) {
+          return rollingUpdateTimedoutError(opFactory, host, deploymentGroup.getJobId(),
+              decision.getTaskStatus());
+        }
+        return opFactory.error(decision.getMessage(), host, decision.getError());
       default:
         throw new HeliosRuntimeException(String.format(
-            "unknown rollout task type %s for deployment group %s.",
-            action, deploymentGroup.getName()));
+            "unknown rollout decision %s for deployment group %s.",
+            decision.getKind(), deploymentGroup.getName()));
     }
   }
 
+  /**
+   * Returns the state of the cluster that rolling update steps are decided on.
+   */
+  private RolloutState rolloutState(final ZooKeeperClient client) {
+    return new RolloutState() {
+      @Override
+      public TaskStatus getTaskStatus(final String host, final JobId jobId) {
+        return ZooKeeperMasterModel.this.getTaskStatus(client, host, jobId);
+      }
+
+      @Override
+      public Deployment getDeployment(final String host, final JobId jobId) {
+        return ZooKeeperMasterModel.this.getDeployment(host, jobId);
+      }
+
+      @Override
+      public Map<JobId, Deployment> getDeployments(final String host) {
+        return getTasks(client, host);
+      }
+
+      @Override
+      public Long getTasksModifiedMillis(final String deploymentGroupName) {
+        try {
+          return client.getNode(Paths.statusDeploymentGroupTasks(deploymentGroupName))
+              .getStat().getMtime();
+        } catch (KeeperException e) {
+          // statusPath doesn't exist or some other ZK issue. probably this deployment group
+          // was removed.
+          log.warn("error determining deployment group modification time: name={}",
+              deploymentGroupName, e);
+          return null;
+        }
+      }
+    };
+  }
+
   @Override
-  public void rollingUpdateStep() {
+  public void rollingUpdateStep(final WorkPartition partition) {
     final ZooKeeperClient client = provider.get("rollingUpdateStep");
 
     final Map<String, VersionedValue<DeploymentGroupTasks>> tasksMap =
-        getDeploymentGroupTasks(client);
+        getDeploymentGroupTasks(client, partition);
 
     for (final Map.Entry<String, VersionedValue<DeploymentGroupTasks>> entry :
         tasksMap.entrySet()) {
@@ -807,16 +1034,42 @@ public class ZooKeeperMasterModel implements MasterModel {
       final DeploymentGroupTasks tasks = versionedTasks.value();
       final int taskIndex = tasks.getTaskIndex();
 
-      log.info("rolling-update step on deployment-group {}. Doing taskIndex {} of {}: {}. ",
-          deploymentGroupName, taskIndex, tasks.getRolloutTasks().size(),
-          tasks.getRolloutTasks().get(taskIndex));
-
       try {
-        final RollingUpdateOpFactory opFactory = new RollingUpdateOpFactory(
-            tasks, DEPLOYMENT_GROUP_EVENT_FACTORY);
-        final RolloutTask task = tasks.getRolloutTasks().get(taskIndex);
-        final RollingUpdateOp op = processRollingUpdateTask(
-            client, opFactory, task, tasks.getDeploymentGroup());
+        final RollingUpdateOp op;
+        if (AdaptiveRollout.needsWave(tasks)) {
+          // The previous wave of an adaptive rollout is done, plan the next one in this step
+          final int offset;
+          final List<RolloutTask> window;
+          if (tasks.getSegmentSize() == 0) {
+            offset = 0;
+            window = tasks.getRolloutTasks();
+          } else {
+            offset = taskIndex - taskIndex % tasks.getSegmentSize();
+            window = getRolloutSegments(client, deploymentGroupName, tasks,
+                AdaptiveRollout.of(tasks.getDeploymentGroup()).maxWaveTasks());
+            if (window.isEmpty()) {
+              log.debug("Ignoring deleted deployment group tasks segment {}",
+                  deploymentGroupName);
+              continue;
+            }
+          }
+          op = new RollingUpdateOpFactory(tasks, DEPLOYMENT_GROUP_EVENT_FACTORY)
+              .startWave(offset, window, System.currentTimeMillis());
+        } else {
+          final RolloutTask task = getRolloutTask(client, deploymentGroupName, tasks);
+          if (task == null) {
+            // Ignore, the rolling update was finished or replaced after we read the tasks.
+            log.debug("Ignoring deleted deployment group tasks segment {}", deploymentGroupName);
+            continue;
+          }
+
+          log.info("rolling-update step on deployment-group {}. Doing taskIndex {} of {}: {}. ",
+              deploymentGroupName, taskIndex, tasks.getTaskCount(), task);
+
+          final RollingUpdateOpFactory opFactory = new RollingUpdateOpFactory(
+              tasks, task, DEPLOYMENT_GROUP_EVENT_FACTORY);
+          op = processRollingUpdateTask(client, opFactory, task, tasks.getDeploymentGroup());
+        }
 
         if (!op.operations().isEmpty()) {
           final List<ZooKeeperOperation> ops = Lists.newArrayList();
@@ -900,91 +1153,6 @@ public class ZooKeeperMasterModel implements MasterModel {
         metadata);
   }
 
-  private RollingUpdateOp rollingUpdateAwaitRunning(final ZooKeeperClient client,
-                                                    final RollingUpdateOpFactory opFactory,
-                                                    final DeploymentGroup deploymentGroup,
-                                                    final String host) {
-    final TaskStatus taskStatus = getTaskStatus(client, host, deploymentGroup.getJobId());
-    final JobId jobId = deploymentGroup.getJobId();
-
-    if (taskStatus == null) {
-      // Handle cases where agent has not written job status to zookeeper.
-
-      // If job is not listed under /config/hosts node, it may have been deployed successfully and
-      // then manually undeployed. The job will not get redeployed, so treat this as a failure.
-      final Deployment deployment = getDeployment(host, jobId);
-      if (deployment == null) {
-        return opFactory.error(
-            "Job unexpectedly undeployed. Perhaps it was manually undeployed?", host,
-            RollingUpdateError.JOB_UNEXPECTEDLY_UNDEPLOYED);
-      }
-
-      // Check if we've exceeded the timeout for the rollout operation.
-      if (isRolloutTimedOut(client, deploymentGroup)) {
-        return opFactory.error("timed out while retrieving job status", host,
-            RollingUpdateError.TIMED_OUT_RETRIEVING_JOB_STATUS);
-      }
-
-      // We haven't detected any errors, so assume the agent will write the status soon.
-      return opFactory.yield();
-    } else if (!taskStatus.getState().equals(TaskStatus.State.RUNNING)) {
-      // job isn't running yet
-
-      if (isRolloutTimedOut(client, deploymentGroup)) {
-        // We exceeded the configured deploy timeout, and this job is still not running
-        return rollingUpdateTimedoutError(opFactory, host, jobId, taskStatus);
-      }
-
-      return opFactory.yield();
-    } else {
-      // the job is running on the host. last thing we have to ensure is that it was
-      // deployed by this deployment group. otherwise some weird conflict has occurred and we
-      // won't be able to undeploy the job on the next update.
-      final Deployment deployment = getDeployment(host, deploymentGroup.getJobId());
-      if (deployment == null) {
-        return opFactory.error(
-            "deployment for this job not found in zookeeper. "
-            + "Perhaps it was manually undeployed?", host,
-            RollingUpdateError.JOB_UNEXPECTEDLY_UNDEPLOYED);
-      } else if (!Objects.equals(deployment.getDeploymentGroupName(), deploymentGroup.getName())) {
-        return opFactory.error(
-            "job was already deployed, either manually or by a different deployment group", host,
-            RollingUpdateError.JOB_ALREADY_DEPLOYED);
-      }
-
-      return opFactory.nextTask();
-    }
-  }
-
-  private boolean isRolloutTimedOut(final ZooKeeperClient client,
-                                    final DeploymentGroup deploymentGroup) {
-    final String groupName = deploymentGroup.getName();
-    final RolloutOptions defaultOptions = RolloutOptions.getDefault();
-    final long groupTimeoutSetting =
-        deploymentGroup.getRolloutOptions() == null
-        ? defaultOptions.getTimeout()
-        : deploymentGroup.getRolloutOptions().withFallback(defaultOptions).getTimeout();
-    final long secondsSinceDeploy;
-    try {
-      final String statusPath = Paths.statusDeploymentGroupTasks(groupName);
-      secondsSinceDeploy = MILLISECONDS.toSeconds(
-          System.currentTimeMillis() - client.getNode(statusPath).getStat().getMtime());
-    } catch (KeeperException e) {
-      // statusPath doesn't exist or some other ZK issue. probably this deployment group
-      // was removed.
-      log.warn("error determining deployment group modification time: name={}", groupName, e);
-      return false;
-    }
-
-    if (secondsSinceDeploy > groupTimeoutSetting) {
-      log.info("rolling-update on deployment-group name={} has timed out after "
-               + "{} seconds (rolloutOptions.timeout={})",
-          groupName, secondsSinceDeploy, groupTimeoutSetting);
-      return true;
-    }
-    return false;
-  }
-
   private RollingUpdateOp rollingUpdateDeploy(final ZooKeeperClient client,
                                               final RollingUpdateOpFactory opFactory,
                                               final DeploymentGroup deploymentGroup,
@@ -1011,42 +1179,21 @@ public class ZooKeeperMasterModel implements MasterModel {
     }
   }
 
-  private RollingUpdateOp rollingUpdateAwaitUndeployed(final ZooKeeperClient client,
-                                                       final RollingUpdateOpFactory opFactory,
-                                                       final DeploymentGroup deploymentGroup,
-                                                       final String host) {
-    final TaskStatus taskStatus = getTaskStatus(client, host, deploymentGroup.getJobId());
-
-    if (taskStatus == null) {
-      // The task status (i.e. /status/hosts/<host>/job/<job-id>) has been removed, indicating the
-      // job has been undeployed.
-      return opFactory.nextTask();
-    }
-
-    if (isRolloutTimedOut(client, deploymentGroup)) {
-      return opFactory.error("timed out while waiting for job undeployment", host,
-          RollingUpdateError.TIMED_OUT_WAITING_FOR_JOB_TO_UNDEPLOY);
-    }
-
-    return opFactory.yield();
-  }
-
   private RollingUpdateOp rollingUpdateMarkUndeployed(final ZooKeeperClient client,
                                                       final RollingUpdateOpFactory opFactory,
                                                       final DeploymentGroup deploymentGroup,
                                                       final String host) {
     try {
-      final Node node = client.getNode(
-          Paths.statusDeploymentGroupRemovedHosts(deploymentGroup.getName()));
-      final int version = node.getStat().getVersion();
-      final List<String> hostsToUndeploy = Json.read(node.getBytes(), STRING_LIST_TYPE);
+      final SegmentedList<String> hostsToUndeploy = SegmentedList.read(client,
+          Paths.statusDeploymentGroupRemovedHosts(deploymentGroup.getName()), STRING_LIST_TYPE);
+      final List<ZooKeeperOperation> ops = hostsToUndeploy.remove(host);
 
-      if (!hostsToUndeploy.remove(host)) {
+      if (ops.isEmpty()) {
         // Something already removed this host. Don't bother trying to update the removed hosts.
         return opFactory.nextTask();
       }
       /*
-      The below check() avoids the following race:
+      The check() included in the operations avoids the following race:
 
       1. Master A reads list of hosts X and Y
       2. Master B reads list of hosts X and Y
@@ -1061,10 +1208,7 @@ public class ZooKeeperMasterModel implements MasterModel {
       The check() will cause this RollingUpdateOp's ZK transaction to fail without incrementing the
       task index, so this RollingUpdateOp will be retried by the next master that gets to it.
       */
-      return opFactory.nextTask(ImmutableList.of(
-          check(Paths.statusDeploymentGroupRemovedHosts(deploymentGroup.getName()), version),
-          set(Paths.statusDeploymentGroupRemovedHosts(deploymentGroup.getName()),
-              Json.asBytes(hostsToUndeploy))));
+      return opFactory.nextTask(ops);
     } catch (KeeperException | IOException e) {
       return opFactory.error("unable to mark host undeployed after removal from deployment group",
           host, RollingUpdateError.UNABLE_TO_MARK_HOST_UNDEPLOYED);
@@ -1072,39 +1216,22 @@ public class ZooKeeperMasterModel implements MasterModel {
   }
 
   /**
-   * rollingUpdateUndeploy is used to undeploy jobs during a rolling update. It enables the
-   * 'skipRedundantUndeploys' flag, which enables the redundantDeployment() check.
+   * rollingUpdateUndeploy plans the undeployment of the jobs the {@link RolloutDecider} picked
+   * from the host.
    */
-  private RollingUpdateOp rollingUpdateUndeploy(final ZooKeeperClient client,
-                                                final RollingUpdateOpFactory opFactory,
-                                                final DeploymentGroup deploymentGroup,
-                                                final String host) {
-    return rollingUpdateUndeploy(client, opFactory, deploymentGroup, host, true);
-  }
-
   private RollingUpdateOp rollingUpdateUndeploy(final ZooKeeperClient client,
                                                 final RollingUpdateOpFactory opFactory,
                                                 final DeploymentGroup deploymentGroup,
                                                 final String host,
-                                                final boolean skipRedundantUndeploys) {
+                                                final List<JobId> jobIds) {
     final List<ZooKeeperOperation> operations = Lists.newArrayList();
 
-    for (final Deployment deployment : getTasks(client, host).values()) {
-
-      if (!ownedByDeploymentGroup(deployment, deploymentGroup)
-          && !isMigration(deployment, deploymentGroup)) {
-        continue;
-      }
-
-      if (skipRedundantUndeploys && redundantUndeployment(deployment, deploymentGroup)) {
-        continue;
-      }
-
+    for (final JobId jobId : jobIds) {
       try {
         final String token = MoreObjects.firstNonNull(
             deploymentGroup.getRolloutOptions().getToken(), Job.EMPTY_TOKEN);
-        operations.addAll(getUndeployOperations(client, host, deployment.getJobId(), token));
-        log.debug("planned undeploy operations for job={}", deployment.getJobId());
+        operations.addAll(getUndeployOperations(client, host, jobId, token));
+        log.debug("planned undeploy operations for job={}", jobId);
       } catch (TokenVerificationException e) {
         return opFactory.error(e, host, RollingUpdateError.TOKEN_VERIFICATION_ERROR);
       } catch (HostNotFoundException e) {
@@ -1117,70 +1244,6 @@ public class ZooKeeperMasterModel implements MasterModel {
     return opFactory.nextTask(operations);
   }
 
-
-  /**
-   * forceRollingUpdateUndeploy is used to undeploy jobs from hosts that have been removed from the
-   * deployment group. It disables the 'skipRedundantUndeploys' flag, which disables the
-   * redundantDeployment() check.
-   */
-  private RollingUpdateOp forceRollingUpdateUndeploy(final ZooKeeperClient client,
-                                                     final RollingUpdateOpFactory opFactory,
-                                                     final DeploymentGroup deploymentGroup,
-                                                     final String host) {
-    return rollingUpdateUndeploy(client, opFactory, deploymentGroup, host, false);
-  }
-
-  private boolean ownedByDeploymentGroup(final Deployment deployment,
-                                         final DeploymentGroup deploymentGroup) {
-    return Objects.equals(deployment.getDeploymentGroupName(), deploymentGroup.getName());
-  }
-
-  private boolean isMigration(final Deployment deployment, final DeploymentGroup deploymentGroup) {
-    return (deploymentGroup.getRolloutOptions() != null
-            && TRUE.equals(deploymentGroup.getRolloutOptions().getMigrate())
-            && deployment.getJobId().equals(deploymentGroup.getJobId()));
-  }
-
-  /**
-   * redundantDeployment determines whether or not rollingUpdateUndeploy should actually emit
-   * RollingUpdateOps to undeploy a job.
-   *
-   * <p>Jobs are undeployed in two cases:
-   *
-   * <p>1. During a rolling update
-   * 2. When a host leaves a deployment group
-   *
-   * <p>In case 1. this redundancy check makes sense. The undeployment of a job during a rolling
-   * update is always coupled with the deployment of a job. If the 'new' job is the same job
-   * that is currently deployed, the undeployment would be redundant so we do not generate
-   * deployment operations.
-   *
-   * <p>In case 2. undeployment can never be redundant. We always want to undeploy the job from
-   * hosts that have left the deployment group. Unfortunately in case case undeployments appear to
-   * be redundant to the following checks, so they must be skipped.
-   */
-  private boolean redundantUndeployment(final Deployment deployment,
-                                        final DeploymentGroup deploymentGroup) {
-    // This deployment was not created by this deployment group.
-    if (!Objects.equals(deployment.getDeploymentGroupName(), deploymentGroup.getName())) {
-      return false;
-    }
-
-    // This deployment is not of the deployment group's job.
-    if (!deployment.getJobId().equals(deploymentGroup.getJobId())) {
-      return false;
-    }
-
-    // This deployment aims to do something other than start.
-    if (!Goal.START.equals(deployment.getGoal())) {
-      return false;
-    }
-
-    // Undeploying this deployment's job would be redundant because the next operation would simply
-    // redeploy the same job.
-    return true;
-  }
-
   @Override
   public void stopDeploymentGroup(final String deploymentGroupName)
       throws DeploymentGroupDoesNotExistException {
@@ -1215,6 +1278,7 @@ public class ZooKeeperMasterModel implements MasterModel {
 
       final Stat tasksStat = client.exists(tasksPath);
       if (tasksStat != null) {
+        operations.addAll(SegmentedList.deleteSegments(tasksPath, tasksStat.getNumChildren()));
         operations.add(delete(tasksPath));
       } else {
         // There doesn't seem to be a "check that node doesn't exist" operation so we
@@ -1306,7 +1370,7 @@ public class ZooKeeperMasterModel implements MasterModel {
 
   private List<String> getHosts(final ZooKeeperClient client, final String path) {
     try {
-      return Json.read(client.getNode(path).getBytes(), STRING_LIST_TYPE);
+      return SegmentedList.read(client, path, STRING_LIST_TYPE).values();
     } catch (JsonMappingException | JsonParseException | NoNodeException e) {
       return emptyList();
     } catch (KeeperException | IOException e) {
@@ -1340,13 +1404,9 @@ public class ZooKeeperMasterModel implements MasterModel {
   }
 
   private Job getJob(final ZooKeeperClient client, final JobId id) {
-    final String path = Paths.configJob(id);
     try {
-      final byte[] data = client.getData(path);
-      return Json.read(data, Job.class);
-    } catch (NoNodeException e) {
-      // Return null to indicate that the job does not exist
-      return null;
+      // Returns null to indicate that the job does not exist
+      return jobCache.getJob(client, id);
     } catch (KeeperException | IOException e) {
       throw new HeliosRuntimeException("getting job " + id + " failed", e);
     }
@@ -1358,34 +1418,26 @@ public class ZooKeeperMasterModel implements MasterModel {
   @Override
   public Map<JobId, Job> getJobs() {
     log.debug("getting jobs");
-    final String folder = Paths.configJobs();
     final ZooKeeperClient client = provider.get("getJobs");
     try {
-      final List<String> ids;
-      try {
-        ids = client.getChildren(folder);
-      } catch (NoNodeException e) {
-        return Maps.newHashMap();
-      }
-      final Map<JobId, Job> descriptors = Maps.newHashMap();
-      for (final String id : ids) {
-        final JobId jobId = JobId.fromString(id);
-        final String path = Paths.configJob(jobId);
-        try {
-          final byte[] data = client.getData(path);
-          final Job descriptor = parse(data, Job.class);
-          descriptors.put(descriptor.getId(), descriptor);
-        } catch (NoNodeException e) {
-          // Ignore, the job was deleted before we had a chance to read it.
-          log.debug("Ignoring deleted job {}", jobId);
-        }
-      }
-      return descriptors;
+      return jobCache.getJobs(client);
     } catch (KeeperException | IOException e) {
       throw new HeliosRuntimeException("getting jobs failed", e);
     }
   }
 
+  @Override
+  public long getJobsVersion() {
+    final ZooKeeperClient client = provider.get("getJobsVersion");
+    try {
+      final Stat stat = client.stat(Paths.configJobs());
+      // The zxid of the last change to the children of /config/jobs
+      return stat == null ? 0 : stat.getPzxid();
+    } catch (KeeperException e) {
+      throw new HeliosRuntimeException("getting jobs version failed", e);
+    }
+  }
+
   /**
    * Returns the current job status as a {@link JobStatus} object.
    */
@@ -1426,6 +1478,35 @@ public class ZooKeeperMasterModel implements MasterModel {
         .build();
   }
 
+  @Override
+  public CompletionStage<JobStatus> getJobStatusAsync(final JobId jobId) {
+    final ZooKeeperClient client = provider.get("getJobStatusAsync");
+
+    final CompletionStage<List<String>> hostsStage =
+        client.getChildrenAsync(Paths.configJobHosts(jobId))
+            .handle(ZooKeeperMasterModel::nullIfNoNode);
+
+    return jobCache.getJobAsync(client, jobId).thenCompose(job -> hostsStage.thenCompose(hosts -> {
+      if (job == null || hosts == null) {
+        return CompletableFuture.<JobStatus>completedFuture(null);
+      }
+
+      final Map<String, CompletableFuture<TaskStatus>> taskStatuses = Maps.newHashMap();
+      final Map<String, CompletableFuture<Deployment>> deployments = Maps.newHashMap();
+      for (final String host : hosts) {
+        taskStatuses.put(host, getTaskStatusAsync(client, host, jobId));
+        deployments.put(host, getDeploymentAsync(client, host, jobId));
+      }
+
+      return allOf(taskStatuses.values(), deployments.values()).thenApply(ignored ->
+          JobStatus.newBuilder()
+              .setJob(job)
+              .setDeployments(joinNonNull(deployments))
+              .setTaskStatuses(joinNonNull(taskStatuses))
+              .build());
+    }));
+  }
+
   private List<String> listJobHosts(final ZooKeeperClient client, final JobId jobId)
       throws JobDoesNotExistException {
     final List<String> hosts;
@@ -1476,7 +1557,9 @@ public class ZooKeeperMasterModel implements MasterModel {
           // change down the tree. Effectively, make it that version == cVersion.
           set(Paths.configJobs(), UUID.randomUUID().toString().getBytes()));
       client.transaction(operations.build());
+      jobCache.invalidate(id);
     } catch (final NoNodeException e) {
+      jobCache.invalidate(id);
       throw new JobDoesNotExistException(id);
     } catch (final NotEmptyException e) {
       throw new JobStillDeployedException(id, listJobHosts(client, id));
@@ -1769,6 +1852,47 @@ public class ZooKeeperMasterModel implements MasterModel {
         .build();
   }
 
+  @Override
+  public CompletionStage<HostStatus> getHostStatusAsync(final String host) {
+    final ZooKeeperClient client = provider.get("getHostStatusAsync");
+
+    // Issue all reads at once instead of one after the other
+    final CompletableFuture<Stat> registered =
+        client.existsAsync(Paths.configHostId(host)).toCompletableFuture();
+    final CompletableFuture<Stat> up =
+        client.existsAsync(Paths.statusHostUp(host)).toCompletableFuture();
+    final CompletableFuture<HostInfo> hostInfo = readAsync(
+        client, Paths.statusHostInfo(host), data -> Json.read(data, HOST_INFO_TYPE), "host info");
+    final CompletableFuture<AgentInfo> agentInfo = readAsync(
+        client, Paths.statusHostAgentInfo(host), data -> Json.read(data, AGENT_INFO_TYPE),
+        "agent info");
+    final CompletableFuture<Map<String, String>> environment = readAsync(
+        client, Paths.statusHostEnvVars(host), data -> Json.read(data, STRING_MAP_TYPE),
+        "environment");
+    final CompletableFuture<Map<String, String>> labels = readAsync(
+        client, Paths.statusHostLabels(host), data -> Json.read(data, STRING_MAP_TYPE), "labels");
+    final CompletableFuture<Map<JobId, Deployment>> tasks = getTasksAsync(client, host);
+    final CompletableFuture<Map<JobId, TaskStatus>> statuses = getTaskStatusesAsync(client, host);
+
+    return CompletableFuture.allOf(
+        registered, up, hostInfo, agentInfo, environment, labels, tasks, statuses)
+        .thenApply(ignored -> {
+          if (registered.join() == null) {
+            log.warn("Host {} isn't registered in ZooKeeper.", host);
+            return null;
+          }
+          return HostStatus.newBuilder()
+              .setJobs(tasks.join())
+              .setStatuses(statuses.join())
+              .setHostInfo(hostInfo.join())
+              .setAgentInfo(agentInfo.join())
+              .setStatus(up.join() != null ? UP : DOWN)
+              .setEnvironment(environment.join())
+              .setLabels(labels.join())
+              .build();
+        });
+  }
+
   @Override
   public Map<String, String> getHostLabels(final String host) {
     final ZooKeeperClient client = provider.get("getHostStatus");
@@ -1884,6 +2008,120 @@ public class ZooKeeperMasterModel implements MasterModel {
     }
   }
 
+  private CompletableFuture<TaskStatus> getTaskStatusAsync(final ZooKeeperClient client,
+                                                           final String host,
+                                                           final JobId jobId) {
+    return readAsync(client, Paths.statusHostJob(host, jobId),
+        data -> parse(data, TaskStatus.class), "task " + jobId + " status for host " + host);
+  }
+
+  private CompletableFuture<Map<JobId, TaskStatus>> getTaskStatusesAsync(
+      final ZooKeeperClient client, final String host) {
+    return client.getChildrenAsync(Paths.statusHostJobs(host))
+        .handle(ZooKeeperMasterModel::nullIfNoNode)
+        .thenCompose(jobIds -> {
+          final Map<JobId, CompletableFuture<TaskStatus>> statuses = Maps.newHashMap();
+          for (final String jobId : firstNonNull(jobIds, ImmutableList.<String>of())) {
+            // Skip task statuses that can't be read so we can return other available
+            // information instead of failing the entire thing.
+            statuses.put(JobId.fromString(jobId),
+                getTaskStatusAsync(client, host, JobId.fromString(jobId))
+                    .exceptionally(e -> null));
+          }
+          return allOf(statuses.values()).thenApply(ignored -> joinNonNull(statuses));
+        }).toCompletableFuture();
+  }
+
+  private CompletableFuture<Deployment> getDeploymentAsync(final ZooKeeperClient client,
+                                                           final String host,
+                                                           final JobId jobId) {
+    return readAsync(client, Paths.configHostJob(host, jobId),
+        data -> {
+          final Task task = parse(data, Task.class);
+          return Deployment.of(jobId, task.getGoal(), task.getDeployerUser(),
+              task.getDeployerMaster(), task.getDeploymentGroupName());
+        }, "deployment config");
+  }
+
+  private CompletableFuture<Map<JobId, Deployment>> getTasksAsync(final ZooKeeperClient client,
+                                                                  final String host) {
+    return client.getChildrenAsync(Paths.configHostJobs(host))
+        .handle(ZooKeeperMasterModel::nullIfNoNode)
+        .thenCompose(jobIds -> {
+          final Map<JobId, CompletableFuture<Deployment>> deployments = Maps.newHashMap();
+          for (final String jobId : firstNonNull(jobIds, ImmutableList.<String>of())) {
+            deployments.put(JobId.fromString(jobId),
+                getDeploymentAsync(client, host, JobId.fromString(jobId)));
+          }
+          return allOf(deployments.values()).thenApply(ignored -> joinNonNull(deployments));
+        }).toCompletableFuture();
+  }
+
+  /**
+   * Reads and parses a node in the background. The returned future completes with null if the
+   * node does not exist.
+   */
+  private static <T> CompletableFuture<T> readAsync(final ZooKeeperClient client,
+                                                    final String path,
+                                                    final NodeParser<T> parser,
+                                                    final String name) {
+    return client.getNodeAsync(path).handle((node, error) -> {
+      try {
+        if (error != null) {
+          throw unwrap(error);
+        }
+        return parser.parse(node.getBytes());
+      } catch (NoNodeException e) {
+        return null;
+      } catch (Throwable e) {
+        throw new CompletionException(
+            new HeliosRuntimeException("reading " + name + " failed", e));
+      }
+    }).toCompletableFuture();
+  }
+
+  private static <T> T nullIfNoNode(final T value, final Throwable error) {
+    if (error == null) {
+      return value;
+    }
+    if (unwrap(error) instanceof NoNodeException) {
+      return null;
+    }
+    throw new CompletionException(unwrap(error));
+  }
+
+  private static Throwable unwrap(final Throwable error) {
+    return error instanceof CompletionException && error.getCause() != null
+           ? error.getCause() : error;
+  }
+
+  @SafeVarargs
+  private static CompletableFuture<Void> allOf(
+      final Collection<? extends CompletableFuture<?>>... futures) {
+    return CompletableFuture.allOf(Arrays.stream(futures)
+        .flatMap(Collection::stream)
+        .toArray(CompletableFuture[]::new));
+  }
+
+  /**
+   * Returns the values of completed futures, leaving out nulls.
+   */
+  private static <K, V> Map<K, V> joinNonNull(final Map<K, CompletableFuture<V>> futures) {
+    final ImmutableMap.Builder<K, V> values = ImmutableMap.builder();
+    for (final Map.Entry<K, CompletableFuture<V>> entry : futures.entrySet()) {
+      final V value = entry.getValue().join();
+      if (value != null) {
+        values.put(entry.getKey(), value);
+      }
+    }
+    return values.build();
+  }
+
+  @FunctionalInterface
+  private interface NodeParser<T> {
+    T parse(byte[] data) throws IOException;
+  }
+
   private Map<JobId, Deployment> getTasks(final ZooKeeperClient client, final String host) {
     final Map<JobId, Deployment> jobs = Maps.newHashMap();
     try {
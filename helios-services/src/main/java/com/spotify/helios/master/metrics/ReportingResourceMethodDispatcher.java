@@ -25,8 +25,11 @@ import com.spotify.helios.servicescommon.statistics.MasterMetrics;
 import com.sun.jersey.api.core.HttpContext;
 import com.sun.jersey.api.model.AbstractResourceMethod;
 import com.sun.jersey.spi.dispatch.RequestDispatcher;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.concurrent.ConcurrentMap;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
 
 public class ReportingResourceMethodDispatcher implements RequestDispatcher {
 
@@ -44,9 +47,18 @@ public class ReportingResourceMethodDispatcher implements RequestDispatcher {
   public void dispatch(final Object resource, final HttpContext context) {
     final AbstractResourceMethod resourceMethod = context.getUriInfo().getMatchedMethod();
     final String key = getKey(resourceMethod);
+    final long allocatedBefore = ThreadAllocation.allocatedBytes();
+    boolean streaming = false;
     try {
       dispatcher.dispatch(resource, context);
       metrics.success(key);
+      final Object entity = context.getResponse().getEntity();
+      if (entity instanceof StreamingOutput && allocatedBefore >= 0) {
+        // The body is written after this returns, count what writing it allocates as well
+        context.getResponse().setEntity(
+            new AllocationCountingOutput((StreamingOutput) entity, key, allocatedBefore));
+        streaming = true;
+      }
     } catch (WebApplicationException e) {
       final int status = e.getResponse().getStatus();
       if (status == 404) {
@@ -60,6 +72,16 @@ public class ReportingResourceMethodDispatcher implements RequestDispatcher {
     } catch (Exception e) {
       metrics.failure(key);
       throw e;
+    } finally {
+      if (!streaming) {
+        recordAllocation(key, allocatedBefore);
+      }
+    }
+  }
+
+  private void recordAllocation(final String key, final long allocatedBefore) {
+    if (allocatedBefore >= 0) {
+      metrics.allocation(key, ThreadAllocation.allocatedBytes() - allocatedBefore);
     }
   }
 
@@ -73,4 +95,31 @@ public class ReportingResourceMethodDispatcher implements RequestDispatcher {
     }
     return key;
   }
+
+  /**
+   * Records the allocation of a request whose body is streamed once the body has been written,
+   * which Jersey does on the thread that dispatched it.
+   */
+  private class AllocationCountingOutput implements StreamingOutput {
+
+    private final StreamingOutput output;
+    private final String key;
+    private final long allocatedBefore;
+
+    AllocationCountingOutput(final StreamingOutput output, final String key,
+                             final long allocatedBefore) {
+      this.output = output;
+      this.key = key;
+      this.allocatedBefore = allocatedBefore;
+    }
+
+    @Override
+    public void write(final OutputStream outputStream) throws IOException {
+      try {
+        output.write(outputStream);
+      } finally {
+        recordAllocation(key, allocatedBefore);
+      }
+    }
+  }
 }
@@ -0,0 +1,92 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.master.metrics;
+
+import com.sun.management.ThreadMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Reads the number of bytes the current thread has allocated on the heap so far, as counted by
+ * HotSpot. Reading it is cheap enough to do around every request.
+ */
+public final class ThreadAllocation {
+
+  private static final ThreadMXBean THREADS = threads();
+
+  private ThreadAllocation() {
+  }
+
+  /**
+   * Returns true if the JVM counts allocations per thread.
+   */
+  public static boolean isSupported() {
+    return THREADS != null;
+  }
+
+  /**
+   * Returns the number of bytes allocated by the current thread since it started, or -1 if the
+   * JVM does not count allocations per thread.
+   */
+  public static long allocatedBytes() {
+    if (THREADS == null) {
+      return -1;
+    }
+    return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * Returns the number of bytes allocated by all live threads since they started, or -1 if the
+   * JVM does not count allocations per thread. Allocations of threads that have ended are not
+   * included.
+   */
+  public static long liveThreadsAllocatedBytes() {
+    if (THREADS == null) {
+      return -1;
+    }
+    long total = 0;
+    for (final long bytes : THREADS.getThreadAllocatedBytes(THREADS.getAllThreadIds())) {
+      // Threads that ended after their ids were read are reported as -1
+      if (bytes > 0) {
+        total += bytes;
+      }
+    }
+    return total;
+  }
+
+  private static ThreadMXBean threads() {
+    final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (!(bean instanceof ThreadMXBean)) {
+      return null;
+    }
+    final ThreadMXBean threads = (ThreadMXBean) bean;
+    if (!threads.isThreadAllocatedMemorySupported()) {
+      return null;
+    }
+    if (!threads.isThreadAllocatedMemoryEnabled()) {
+      try {
+        threads.setThreadAllocatedMemoryEnabled(true);
+      } catch (UnsupportedOperationException | SecurityException e) {
+        return null;
+      }
+    }
+    return threads;
+  }
+}
@@ -27,6 +27,7 @@ import com.spotify.helios.common.Clock;
 import com.spotify.helios.common.SystemClock;
 import com.spotify.helios.common.descriptors.AgentInfo;
 import com.spotify.helios.master.MasterModel;
+import com.spotify.helios.master.WorkPartition;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
 import org.apache.commons.lang.time.DurationFormatUtils;
@@ -52,7 +53,14 @@ public class DeadAgentReaper extends RateLimitedService<String> {
 
   public DeadAgentReaper(final MasterModel masterModel,
                          final long timeoutHours) {
-    this(masterModel, timeoutHours, SYSTEM_CLOCK, PERMITS_PER_SECOND, new Random().nextInt(DELAY));
+    this(masterModel, timeoutHours, WorkPartition.all());
+  }
+
+  public DeadAgentReaper(final MasterModel masterModel,
+                         final long timeoutHours,
+                         final WorkPartition partition) {
+    this(masterModel, timeoutHours, SYSTEM_CLOCK, PERMITS_PER_SECOND, new Random().nextInt(DELAY),
+        partition);
   }
 
   @VisibleForTesting
@@ -61,7 +69,17 @@ public class DeadAgentReaper extends RateLimitedService<String> {
                   final Clock clock,
                   final double permitsPerSecond,
                   final int initialDelay) {
-    super(permitsPerSecond, initialDelay, DELAY, TIME_UNIT);
+    this(masterModel, timeoutHours, clock, permitsPerSecond, initialDelay, WorkPartition.all());
+  }
+
+  @VisibleForTesting
+  DeadAgentReaper(final MasterModel masterModel,
+                  final long timeoutHours,
+                  final Clock clock,
+                  final double permitsPerSecond,
+                  final int initialDelay,
+                  final WorkPartition partition) {
+    super(permitsPerSecond, initialDelay, DELAY, TIME_UNIT, partition);
     this.masterModel = masterModel;
     checkArgument(timeoutHours > 0);
     this.timeoutMillis = TimeUnit.HOURS.toMillis(timeoutHours);
@@ -73,9 +91,25 @@ public class DeadAgentReaper extends RateLimitedService<String> {
     return masterModel.listHosts();
   }
 
+  @Override
+  String workKey(final String agent) {
+    return agent;
+  }
+
   @Override
   void processItem(final String agent) {
     try {
+      if (masterModel.isHostDeregistering(agent)) {
+        // An earlier deregistration was interrupted, finish it
+        try {
+          log.info("Resuming deregistration of agent '{}'", agent);
+          masterModel.deregisterHost(agent);
+        } catch (Exception e) {
+          log.warn("Failed to resume deregistration of agent '{}'", agent, e);
+        }
+        return;
+      }
+
       if (masterModel.isHostUp(agent)) {
         // Host UP -- nothing to do
         return;
@@ -36,6 +36,7 @@ import com.spotify.helios.master.JobNotDeployedException;
 import com.spotify.helios.master.JobStillDeployedException;
 import com.spotify.helios.master.MasterModel;
 import com.spotify.helios.master.TokenVerificationException;
+import com.spotify.helios.master.WorkPartition;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Random;
@@ -61,12 +62,14 @@ public class ExpiredJobReaper extends InterruptingScheduledService {
   private final int interval;
   private final TimeUnit timeUnit;
   private final Clock clock;
+  private final WorkPartition partition;
 
   private ExpiredJobReaper(final Builder builder) {
     this.masterModel = builder.masterModel;
     this.interval = builder.interval;
     this.timeUnit = checkNotNull(builder.timeUnit);
     this.clock = checkNotNull(builder.clock);
+    this.partition = checkNotNull(builder.partition);
   }
 
   @Override
@@ -75,7 +78,7 @@ public class ExpiredJobReaper extends InterruptingScheduledService {
       final JobId jobId = entry.getKey();
       final Job job = entry.getValue();
 
-      if (job.getExpires() == null) {
+      if (job.getExpires() == null || !partition.owns(jobId.toString())) {
         //noinspection UnnecessaryContinue
         continue;
       } else if (job.getExpires().getTime() <= clock.now().getMillis()) {
@@ -128,12 +131,18 @@ public class ExpiredJobReaper extends InterruptingScheduledService {
     private int interval = DEFAULT_INTERVAL;
     private TimeUnit timeUnit = DEFAUL_TIMEUNIT;
     private Clock clock = new SystemClock();
+    private WorkPartition partition = WorkPartition.all();
 
     public Builder setClock(final Clock clock) {
       this.clock = clock;
       return this;
     }
 
+    public Builder setWorkPartition(final WorkPartition partition) {
+      this.partition = partition;
+      return this;
+    }
+
     public Builder setMasterModel(final MasterModel masterModel) {
       this.masterModel = masterModel;
       return this;
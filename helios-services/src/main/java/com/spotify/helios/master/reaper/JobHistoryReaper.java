@@ -24,6 +24,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.spotify.helios.common.descriptors.Job;
 import com.spotify.helios.common.descriptors.JobId;
 import com.spotify.helios.master.MasterModel;
+import com.spotify.helios.master.WorkPartition;
 import com.spotify.helios.servicescommon.coordination.Paths;
 import com.spotify.helios.servicescommon.coordination.ZooKeeperClient;
 import java.util.Collections;
@@ -64,7 +65,13 @@ public class JobHistoryReaper extends RateLimitedService<String> {
 
   public JobHistoryReaper(final MasterModel masterModel,
                           final ZooKeeperClient client) {
-    this(masterModel, client, PERMITS_PER_SECOND, new Random().nextInt(DELAY));
+    this(masterModel, client, WorkPartition.all());
+  }
+
+  public JobHistoryReaper(final MasterModel masterModel,
+                          final ZooKeeperClient client,
+                          final WorkPartition partition) {
+    this(masterModel, client, PERMITS_PER_SECOND, new Random().nextInt(DELAY), partition);
   }
 
   @VisibleForTesting
@@ -72,7 +79,16 @@ public class JobHistoryReaper extends RateLimitedService<String> {
                    final ZooKeeperClient client,
                    final double permitsPerSecond,
                    final int initialDelay) {
-    super(permitsPerSecond, initialDelay, DELAY, TIME_UNIT);
+    this(masterModel, client, permitsPerSecond, initialDelay, WorkPartition.all());
+  }
+
+  @VisibleForTesting
+  JobHistoryReaper(final MasterModel masterModel,
+                   final ZooKeeperClient client,
+                   final double permitsPerSecond,
+                   final int initialDelay,
+                   final WorkPartition partition) {
+    super(permitsPerSecond, initialDelay, DELAY, TIME_UNIT, partition);
     this.masterModel = masterModel;
     this.client = client;
   }
@@ -91,6 +107,11 @@ public class JobHistoryReaper extends RateLimitedService<String> {
     return jobIds;
   }
 
+  @Override
+  String workKey(final String jobId) {
+    return jobId;
+  }
+
   @Override
   void processItem(final String jobId) {
     final JobId id = JobId.fromString(jobId);
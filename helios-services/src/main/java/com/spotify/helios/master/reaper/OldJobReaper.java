@@ -31,6 +31,7 @@ import com.spotify.helios.common.descriptors.JobId;
 import com.spotify.helios.common.descriptors.JobStatus;
 import com.spotify.helios.common.descriptors.TaskStatusEvent;
 import com.spotify.helios.master.MasterModel;
+import com.spotify.helios.master.WorkPartition;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -80,7 +81,13 @@ public class OldJobReaper extends RateLimitedService<Job> {
   private final Clock clock;
 
   public OldJobReaper(final MasterModel masterModel, final long retentionDays) {
-    this(masterModel, retentionDays, SYSTEM_CLOCK, PERMITS_PER_SECOND, new Random().nextInt(DELAY));
+    this(masterModel, retentionDays, WorkPartition.all());
+  }
+
+  public OldJobReaper(final MasterModel masterModel, final long retentionDays,
+                      final WorkPartition partition) {
+    this(masterModel, retentionDays, SYSTEM_CLOCK, PERMITS_PER_SECOND, new Random().nextInt(DELAY),
+        partition);
   }
 
   @VisibleForTesting
@@ -89,7 +96,17 @@ public class OldJobReaper extends RateLimitedService<Job> {
                final Clock clock,
                final double permitsPerSecond,
                final int initialDelay) {
-    super(permitsPerSecond, initialDelay, DELAY, TIME_UNIT);
+    this(masterModel, retentionDays, clock, permitsPerSecond, initialDelay, WorkPartition.all());
+  }
+
+  @VisibleForTesting
+  OldJobReaper(final MasterModel masterModel,
+               final long retentionDays,
+               final Clock clock,
+               final double permitsPerSecond,
+               final int initialDelay,
+               final WorkPartition partition) {
+    super(permitsPerSecond, initialDelay, DELAY, TIME_UNIT, partition);
     this.masterModel = masterModel;
     checkArgument(retentionDays > 0);
     this.retentionDays = retentionDays;
@@ -102,6 +119,11 @@ public class OldJobReaper extends RateLimitedService<Job> {
     return masterModel.getJobs().values();
   }
 
+  @Override
+  String workKey(final Job job) {
+    return job.getId().toString();
+  }
+
   @Override
   void processItem(final Job job) {
     final JobId jobId = job.getId();
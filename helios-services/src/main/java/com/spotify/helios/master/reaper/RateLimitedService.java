@@ -22,6 +22,7 @@ package com.spotify.helios.master.reaper;
 
 import com.google.common.util.concurrent.RateLimiter;
 import com.spotify.helios.agent.InterruptingScheduledService;
+import com.spotify.helios.master.WorkPartition;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -35,6 +36,9 @@ import java.util.concurrent.TimeUnit;
  * more ZooKeeper operations. You need to get all the nodes in a single {@link #runOneIteration()},
  * but you want to pause between processing each node because the fan-out of ZooKeeper operations
  * will hammer it.
+ *
+ * <p>Items are shared among the live masters by a {@link WorkPartition} and each master only
+ * processes its own.
  */
 abstract class RateLimitedService<T> extends InterruptingScheduledService {
 
@@ -42,15 +46,18 @@ abstract class RateLimitedService<T> extends InterruptingScheduledService {
   private final long delay;
   private final TimeUnit timeUnit;
   private final RateLimiter rateLimiter;
+  private final WorkPartition partition;
 
   RateLimitedService(final double permitsPerSecond,
                      final long initialDelay,
                      final long delay,
-                     final TimeUnit timeUnit) {
+                     final TimeUnit timeUnit,
+                     final WorkPartition partition) {
     this.rateLimiter = RateLimiter.create(permitsPerSecond);
     this.initialDelay = initialDelay;
     this.delay = delay;
     this.timeUnit = timeUnit;
+    this.partition = partition;
   }
 
   /**
@@ -67,9 +74,20 @@ abstract class RateLimitedService<T> extends InterruptingScheduledService {
    */
   abstract void processItem(final T item);
 
+  /**
+   * Returns the key used to decide which master processes the item.
+   *
+   * @param item An instance of T.
+   */
+  abstract String workKey(final T item);
+
   @Override
   protected void runOneIteration() {
     for (final T item : collectItems()) {
+      // Items owned by other masters are skipped without waiting for a permit
+      if (!partition.owns(workKey(item))) {
+        continue;
+      }
       rateLimiter.acquire();
       processItem(item);
     }
@@ -0,0 +1,72 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.master.resources;
+
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+
+import com.google.common.hash.Hashing;
+import java.util.function.Supplier;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+
+/**
+ * Helpers for answering GET requests with strong ETags, so that clients polling for a resource
+ * that has not changed get an empty 304 Not Modified instead of the same body over and over.
+ */
+final class ConditionalResponses {
+
+  private ConditionalResponses() {
+  }
+
+  /**
+   * Returns a tag for a representation derived from data with the specified ZooKeeper version.
+   */
+  static EntityTag tag(final String kind, final long version) {
+    return new EntityTag(kind + "-" + Long.toHexString(version));
+  }
+
+  /**
+   * Returns a tag for a representation that is identified by its serialized form.
+   */
+  static EntityTag tag(final byte[] body) {
+    return new EntityTag(Hashing.murmur3_128().hashBytes(body).toString());
+  }
+
+  /**
+   * Responds with 304 Not Modified if the request has a matching If-None-Match header, or with
+   * the body and its tag otherwise. The body is only computed if it is needed.
+   */
+  static Response ok(final Request request, final EntityTag tag, final Supplier<byte[]> body) {
+    final Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+    if (notModified != null) {
+      return notModified.build();
+    }
+    return Response.ok(body.get(), APPLICATION_JSON).tag(tag).build();
+  }
+
+  /**
+   * Like {@link #ok(Request, EntityTag, Supplier)} for a body that has already been serialized.
+   */
+  static Response ok(final Request request, final byte[] body) {
+    return ok(request, tag(body), () -> body);
+  }
+}
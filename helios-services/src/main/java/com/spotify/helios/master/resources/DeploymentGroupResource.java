@@ -25,6 +25,8 @@ import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 import com.codahale.metrics.annotation.ExceptionMetered;
 import com.codahale.metrics.annotation.Timed;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.spotify.helios.common.Json;
 import com.spotify.helios.common.descriptors.Deployment;
 import com.spotify.helios.common.descriptors.DeploymentGroup;
 import com.spotify.helios.common.descriptors.DeploymentGroupStatus;
@@ -38,12 +40,15 @@ import com.spotify.helios.common.protocol.RollingUpdateRequest;
 import com.spotify.helios.common.protocol.RollingUpdateResponse;
 import com.spotify.helios.master.DeploymentGroupDoesNotExistException;
 import com.spotify.helios.master.DeploymentGroupExistsException;
+import com.spotify.helios.master.InvalidRolloutOptionsException;
 import com.spotify.helios.master.JobDoesNotExistException;
 import com.spotify.helios.master.MasterModel;
+import com.spotify.helios.master.SingleFlight;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletionStage;
 import javax.validation.Valid;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
@@ -51,12 +56,15 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 
 @Path("/deployment-group")
 public class DeploymentGroupResource {
 
   private final MasterModel model;
+  private final SingleFlight<String, byte[]> statusReads;
 
   private static final CreateDeploymentGroupResponse CREATED_RESPONSE =
       new CreateDeploymentGroupResponse(CreateDeploymentGroupResponse.Status.CREATED);
@@ -66,7 +74,13 @@ public class DeploymentGroupResource {
       new CreateDeploymentGroupResponse(CreateDeploymentGroupResponse.Status.CONFLICT);
 
   public DeploymentGroupResource(final MasterModel model) {
+    this(model, new SingleFlight<>("deployment_group_status", 0));
+  }
+
+  public DeploymentGroupResource(final MasterModel model,
+                                 final SingleFlight<String, byte[]> statusReads) {
     this.model = model;
+    this.statusReads = statusReads;
   }
 
   @POST
@@ -152,6 +166,31 @@ public class DeploymentGroupResource {
     } catch (JobDoesNotExistException e) {
       return Response.ok(new RollingUpdateResponse(
           RollingUpdateResponse.Status.JOB_NOT_FOUND)).build();
+    } catch (InvalidRolloutOptionsException e) {
+      return Response.ok(new RollingUpdateResponse(
+          RollingUpdateResponse.Status.INVALID_ROLLOUT_OPTIONS)).build();
+    }
+  }
+
+  /**
+   * Simulates the rolling update without starting it, to see how long it would take and which
+   * hosts it would wait for.
+   */
+  @POST
+  @Path("/{name}/rolling-update/simulate")
+  @Produces(APPLICATION_JSON)
+  @Timed
+  @ExceptionMetered
+  public Response simulateRollingUpdate(@PathParam("name") @Valid final String name,
+                                        @Valid final RollingUpdateRequest args) {
+    try {
+      final DeploymentGroup deploymentGroup = model.getDeploymentGroup(name);
+      return Response.ok(model.simulateRollingUpdate(
+          deploymentGroup, args.getJob(), args.getRolloutOptions())).build();
+    } catch (DeploymentGroupDoesNotExistException | JobDoesNotExistException e) {
+      return Response.status(Response.Status.NOT_FOUND).build();
+    } catch (InvalidRolloutOptionsException e) {
+      return Response.status(Response.Status.BAD_REQUEST).build();
     }
   }
 
@@ -174,17 +213,36 @@ public class DeploymentGroupResource {
   @Produces(APPLICATION_JSON)
   @Timed
   @ExceptionMetered
-  public Response getDeploymentGroupStatus(@PathParam("name") @Valid final String name) {
+  public Response getDeploymentGroupStatus(@PathParam("name") @Valid final String name,
+                                           @Context final Request request) {
+    // Concurrent requests for the same group share a single read of the status
+    final byte[] status = statusReads.get(name, () -> readDeploymentGroupStatus(name));
+    if (status == null) {
+      return Response.status(Response.Status.NOT_FOUND).build();
+    }
+    return ConditionalResponses.ok(request, status);
+  }
+
+  /**
+   * Returns the serialized status of the deployment group, or null if it does not exist.
+   */
+  private byte[] readDeploymentGroupStatus(final String name) {
     try {
       final DeploymentGroup deploymentGroup = model.getDeploymentGroup(name);
       final DeploymentGroupStatus deploymentGroupStatus = model.getDeploymentGroupStatus(name);
 
       final List<String> hosts = model.getDeploymentGroupHosts(name);
 
+      // Read all host statuses concurrently, we only wait for the slowest one
+      final Map<String, CompletionStage<HostStatus>> hostStatuses = Maps.newHashMap();
+      for (final String host : hosts) {
+        hostStatuses.put(host, model.getHostStatusAsync(host));
+      }
+
       final List<DeploymentGroupStatusResponse.HostStatus> result = Lists.newArrayList();
 
       for (final String host : hosts) {
-        final HostStatus hostStatus = model.getHostStatus(host);
+        final HostStatus hostStatus = CompletionStages.join(hostStatuses.get(host));
         JobId deployedJobId = null;
         TaskStatus.State state = null;
 
@@ -216,10 +274,10 @@ public class DeploymentGroupResource {
       }
 
       final String error = deploymentGroupStatus == null ? "" : deploymentGroupStatus.getError();
-      return Response.ok(new DeploymentGroupStatusResponse(
-          deploymentGroup, status, error, result, deploymentGroupStatus)).build();
+      return Json.asBytesUnchecked(new DeploymentGroupStatusResponse(
+          deploymentGroup, status, error, result, deploymentGroupStatus));
     } catch (final DeploymentGroupDoesNotExistException e) {
-      return Response.status(Response.Status.NOT_FOUND).build();
+      return null;
     }
   }
 }
@@ -36,6 +36,7 @@ import com.codahale.metrics.annotation.ExceptionMetered;
 import com.codahale.metrics.annotation.Timed;
 import com.google.common.base.Optional;
 import com.google.common.collect.Maps;
+import com.spotify.helios.common.Json;
 import com.spotify.helios.common.descriptors.Deployment;
 import com.spotify.helios.common.descriptors.HostSelector;
 import com.spotify.helios.common.descriptors.HostStatus;
@@ -45,6 +46,7 @@ import com.spotify.helios.common.protocol.HostRegisterResponse;
 import com.spotify.helios.common.protocol.JobDeployResponse;
 import com.spotify.helios.common.protocol.JobUndeployResponse;
 import com.spotify.helios.common.protocol.SetGoalResponse;
+import com.spotify.helios.master.HostCapacityIndex;
 import com.spotify.helios.master.HostMatcher;
 import com.spotify.helios.master.HostNotFoundException;
 import com.spotify.helios.master.HostStillInUseException;
@@ -53,10 +55,12 @@ import com.spotify.helios.master.JobDoesNotExistException;
 import com.spotify.helios.master.JobNotDeployedException;
 import com.spotify.helios.master.JobPortAllocationConflictException;
 import com.spotify.helios.master.MasterModel;
+import com.spotify.helios.master.SingleFlight;
 import com.spotify.helios.master.TokenVerificationException;
 import com.spotify.helios.master.http.PATCH;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionStage;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.validation.Valid;
@@ -70,6 +74,8 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -79,9 +85,22 @@ public class HostsResource {
   private static final Logger log = LoggerFactory.getLogger(HostsResource.class);
 
   private final MasterModel model;
+  private final SingleFlight<String, byte[]> statusReads;
+  private final HostCapacityIndex capacityIndex;
 
   public HostsResource(final MasterModel model) {
+    this(model, new SingleFlight<>("host_status", 0));
+  }
+
+  public HostsResource(final MasterModel model, final SingleFlight<String, byte[]> statusReads) {
+    this(model, statusReads, new HostCapacityIndex(model, 0));
+  }
+
+  public HostsResource(final MasterModel model, final SingleFlight<String, byte[]> statusReads,
+                       final HostCapacityIndex capacityIndex) {
     this.model = model;
+    this.statusReads = statusReads;
+    this.capacityIndex = capacityIndex;
   }
 
   /**
@@ -123,6 +142,28 @@ public class HostsResource {
     return hosts;
   }
 
+  /**
+   * Returns the hostnames of the UP hosts that match the name pattern and host selectors, ordered
+   * by free capacity, most first. Hosts that do not have the requested amount of memory free are
+   * left out.
+   *
+   * @param namePattern   A regex the hostnames must contain a match for.
+   * @param hostSelectors Host selectors the hosts must match.
+   * @param memory        The number of bytes of memory the job to place will need.
+   *
+   * @return The ranked list of hostnames.
+   */
+  @GET
+  @Path("/placement")
+  @Produces(APPLICATION_JSON)
+  @Timed
+  @ExceptionMetered
+  public List<String> placement(@QueryParam("namePattern") final String namePattern,
+                                @QueryParam("selector") final List<String> hostSelectors,
+                                @QueryParam("memory") final Long memory) {
+    return capacityIndex.rank(list(namePattern, hostSelectors), memory);
+  }
+
   /**
    * Registers a host with the cluster.  The {@code host} is the name of the host.  It SHOULD be
    * the hostname of the machine.  The {@code id} should be a persistent value for the host, but
@@ -180,6 +221,7 @@ public class HostsResource {
    *
    * @param host         The host id.
    * @param statusFilter An optional status filter.
+   * @param request      The request, used to evaluate If-None-Match.
    *
    * @return The host status.
    */
@@ -188,19 +230,25 @@ public class HostsResource {
   @Produces(APPLICATION_JSON)
   @Timed
   @ExceptionMetered
-  public Optional<HostStatus> hostStatus(
+  public Response hostStatus(
       @PathParam("id") final String host,
-      @QueryParam("status") @DefaultValue("") final String statusFilter) {
-    final HostStatus status = model.getHostStatus(host);
-    final Optional<HostStatus> response;
-    if (status != null
-        && (isNullOrEmpty(statusFilter) || statusFilter.equals(status.getStatus().toString()))) {
-      response = Optional.of(status);
-    } else {
-      response = Optional.absent();
+      @QueryParam("status") @DefaultValue("") final String statusFilter,
+      @Context final Request request) {
+    // Concurrent requests for the same host share a single read of the status
+    final byte[] response = statusReads.get(host + "?" + statusFilter, () -> {
+      final HostStatus status = model.getHostStatus(host);
+      if (status != null
+          && (isNullOrEmpty(statusFilter) || statusFilter.equals(status.getStatus().toString()))) {
+        return Json.asBytesUnchecked(status);
+      }
+      return null;
+    });
+    log.debug("hostStatus: host={}, statusFilter={}, found: {}", host, statusFilter,
+        response != null);
+    if (response == null) {
+      return Response.status(Response.Status.NOT_FOUND).build();
     }
-    log.debug("hostStatus: host={}, statusFilter={}, returning: {}", host, statusFilter, response);
-    return response;
+    return ConditionalResponses.ok(request, response);
   }
 
   /**
@@ -216,19 +264,18 @@ public class HostsResource {
   @Produces(APPLICATION_JSON)
   @Timed
   @ExceptionMetered
-  public Map<String, HostStatus> hostStatuses(
+  public Response hostStatuses(
       final List<String> hosts,
       @QueryParam("status") @DefaultValue("") final String statusFilter) {
-    final Map<String, HostStatus> statuses = Maps.newHashMap();
+    // Read all statuses concurrently, and write each one as soon as it and those before it are
+    // read instead of collecting all of them first
+    final Map<String, CompletionStage<HostStatus>> futures = Maps.newLinkedHashMap();
     for (final String host : hosts) {
-      final HostStatus status = model.getHostStatus(host);
-      if (status != null) {
-        if (isNullOrEmpty(statusFilter) || statusFilter.equals(status.getStatus().toString())) {
-          statuses.put(host, status);
-        }
-      }
+      futures.put(host, model.getHostStatusAsync(host));
     }
-    return statuses;
+    return Response.ok(JsonStreams.completed(futures, status ->
+        isNullOrEmpty(statusFilter) || statusFilter.equals(status.getStatus().toString())),
+        APPLICATION_JSON).build();
   }
 
   /**
@@ -30,27 +30,37 @@ import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 import com.codahale.metrics.annotation.ExceptionMetered;
 import com.codahale.metrics.annotation.Timed;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Maps;
 import com.spotify.helios.common.Clock;
 import com.spotify.helios.common.JobValidator;
+import com.spotify.helios.common.Json;
 import com.spotify.helios.common.SystemClock;
 import com.spotify.helios.common.descriptors.Job;
 import com.spotify.helios.common.descriptors.JobId;
 import com.spotify.helios.common.descriptors.JobStatus;
+import com.spotify.helios.common.descriptors.JobStatusSummary;
 import com.spotify.helios.common.protocol.CreateJobResponse;
 import com.spotify.helios.common.protocol.JobDeleteResponse;
 import com.spotify.helios.master.JobDoesNotExistException;
 import com.spotify.helios.master.JobExistsException;
 import com.spotify.helios.master.JobStillDeployedException;
 import com.spotify.helios.master.MasterModel;
+import com.spotify.helios.master.SingleFlight;
 import com.spotify.helios.master.TokenVerificationException;
 import com.spotify.helios.servicescommon.statistics.MasterMetrics;
 import com.sun.jersey.api.core.InjectParam;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.validation.Valid;
@@ -62,6 +72,10 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -70,31 +84,61 @@ public class JobsResource {
 
   private static final Logger log = LoggerFactory.getLogger(JobsResource.class);
 
+  static final long SUMMARY_TTL_MILLIS = 1000;
+
 
   private final MasterModel model;
   private final MasterMetrics metrics;
   private final JobValidator jobValidator;
   private final Clock clock;
+  private final SingleFlight<JobId, byte[]> statusReads;
+
+  private final Cache<JobId, JobStatusSummary> summaries = CacheBuilder.newBuilder()
+      .expireAfterWrite(SUMMARY_TTL_MILLIS, TimeUnit.MILLISECONDS)
+      .maximumSize(100000)
+      .build();
+
+  // Serialized job lists by tag and query
+  private final Cache<String, byte[]> serializedJobs = CacheBuilder.newBuilder()
+      .maximumSize(16)
+      .build();
 
   public JobsResource(final MasterModel model, final MasterMetrics metrics,
                       final Set<String> whitelistedCapabilities) {
-    this(model, metrics, whitelistedCapabilities, new SystemClock());
+    this(model, metrics, whitelistedCapabilities, new SingleFlight<>("job_status", 0));
+  }
+
+  public JobsResource(final MasterModel model, final MasterMetrics metrics,
+                      final Set<String> whitelistedCapabilities,
+                      final SingleFlight<JobId, byte[]> statusReads) {
+    this(model, metrics, whitelistedCapabilities, new SystemClock(), statusReads);
   }
 
   @VisibleForTesting
   JobsResource(final MasterModel model, final MasterMetrics metrics,
                final Set<String> whitelistedCapabilities, final Clock clock) {
+    this(model, metrics, whitelistedCapabilities, clock, new SingleFlight<>("job_status", 0));
+  }
+
+  private JobsResource(final MasterModel model, final MasterMetrics metrics,
+                       final Set<String> whitelistedCapabilities, final Clock clock,
+                       final SingleFlight<JobId, byte[]> statusReads) {
     this.model = model;
     this.metrics = metrics;
     this.clock = clock;
     this.jobValidator = new JobValidator(true, true, whitelistedCapabilities);
+    this.statusReads = statusReads;
   }
 
   /**
    * Returns a {@link Map} of job id to job definition for all jobs known.  If the query
    * parameter {@code q} is specified it will only return jobs whose job id contains the string.
    *
-   * @param query The query string.
+   * <p>Unless {@code hostPattern} is specified, the response is tagged with the version of the set
+   * of jobs and conditional requests for an unchanged set are answered with 304 Not Modified.
+   *
+   * @param query   The query string.
+   * @param request The request, used to evaluate If-None-Match.
    *
    * @return A map of Job IDs to Jobs.
    */
@@ -102,20 +146,43 @@ public class JobsResource {
   @Produces(APPLICATION_JSON)
   @Timed
   @ExceptionMetered
-  public Map<JobId, Job> list(
+  public Response list(
       @QueryParam("q") @DefaultValue("") final String query,
-      @QueryParam("hostPattern") @DefaultValue("") final String hostPattern) {
+      @QueryParam("hostPattern") @DefaultValue("") final String hostPattern,
+      @Context final Request request) {
+    if (!hostPattern.isEmpty()) {
+      // The result depends on host statuses, which have no common version. Write each job as it
+      // is read, there can be many of them on many hosts.
+      final Set<JobId> ids = deployedJobIds(query, hostPattern);
+      metrics.jobsInJobList(ids.size());
+      final Iterator<Map.Entry<JobId, Job>> jobs = Iterators.transform(
+          ids.iterator(), id -> Maps.immutableEntry(id, model.getJob(id)));
+      return Response.ok(JsonStreams.object(jobs), APPLICATION_JSON).build();
+    }
+
+    // Read the version before the jobs, the body may be newer than its tag but never older
+    final EntityTag tag = ConditionalResponses.tag("jobs", model.getJobsVersion());
+    return ConditionalResponses.ok(request, tag, () -> {
+      final String key = tag.getValue() + "?" + query;
+      byte[] body = serializedJobs.getIfPresent(key);
+      if (body == null) {
+        body = Json.asBytesUnchecked(list(query, hostPattern));
+        serializedJobs.put(key, body);
+      }
+      return body;
+    });
+  }
+
+  /**
+   * Returns the jobs as {@link #list(String, String, Request)} does, without serializing them.
+   */
+  public Map<JobId, Job> list(final String query, final String hostPattern) {
 
     final Map<JobId, Job> allJobs;
     if (!hostPattern.isEmpty()) {
-      // for each host that matches this pattern...
-      allJobs = model.listHosts(hostPattern).stream()
-          // get the host status
-          .map(model::getHostStatus)
-          // then flat map over the jobs deployed to this host
-          .flatMap(hostStatus -> hostStatus.getJobs().keySet().stream())
-          .distinct()
-          .collect(Collectors.toMap(Function.identity(), model::getJob));
+      final Set<JobId> ids = deployedJobIds(query, hostPattern);
+      metrics.jobsInJobList(ids.size());
+      return ids.stream().collect(Collectors.toMap(Function.identity(), model::getJob));
     } else {
       allJobs = model.getJobs();
     }
@@ -138,11 +205,29 @@ public class JobsResource {
     return filteredJobs;
   }
 
+  /**
+   * Returns the ids of the jobs that match the query and are deployed to hosts matching the
+   * pattern, in the order of the hosts.
+   */
+  private Set<JobId> deployedJobIds(final String query, final String hostPattern) {
+    // for each host that matches this pattern...
+    return model.listHosts(hostPattern).stream()
+        // get the host status
+        .map(model::getHostStatus)
+        // then flat map over the jobs deployed to this host
+        .flatMap(hostStatus -> hostStatus.getJobs().keySet().stream())
+        .filter(id -> query.isEmpty() || id.toString().contains(query))
+        .collect(Collectors.toCollection(LinkedHashSet::new));
+  }
+
 
   /**
-   * Returns the {@link Job} with the given id.
+   * Returns the {@link Job} with the given id, tagged with a hash of its serialized form. Fields
+   * that are not part of the job hash, like the creating user, can change without changing the
+   * id, so the id alone is not a valid tag.
    *
-   * @param id The job ID.
+   * @param id      The job ID.
+   * @param request The request, used to evaluate If-None-Match.
    *
    * @return The job.
    */
@@ -151,11 +236,16 @@ public class JobsResource {
   @Produces(APPLICATION_JSON)
   @Timed
   @ExceptionMetered
-  public Optional<Job> get(@InjectParam @PathParam("id") @Valid final JobId id) {
+  public Response get(@InjectParam @PathParam("id") @Valid final JobId id,
+                      @Context final Request request) {
     if (!id.isFullyQualified()) {
       throw badRequest("Invalid id");
     }
-    return Optional.fromNullable(model.getJob(id));
+    final Job job = model.getJob(id);
+    if (job == null) {
+      return Response.status(Response.Status.NOT_FOUND).build();
+    }
+    return ConditionalResponses.ok(request, Json.asBytesUnchecked(job));
   }
 
   /**
@@ -229,7 +319,11 @@ public class JobsResource {
    * Returns the job status for the given job id.  The job status includes things like where it's
    * deployed, and the status of the jobs where it's deployed, etc.
    *
-   * @param id The job ID.
+   * <p>Concurrent requests for the same job share a single read of the status and its serialized
+   * form. The response is tagged with a hash of that form.
+   *
+   * @param id      The job ID.
+   * @param request The request, used to evaluate If-None-Match.
    *
    * @return The job status.
    */
@@ -238,11 +332,19 @@ public class JobsResource {
   @Produces(APPLICATION_JSON)
   @Timed
   @ExceptionMetered
-  public Optional<JobStatus> statusGet(@PathParam("id") @Valid final JobId id) {
+  public Response statusGet(@PathParam("id") @Valid final JobId id,
+                            @Context final Request request) {
     if (!id.isFullyQualified()) {
       throw badRequest("Invalid id");
     }
-    return Optional.fromNullable(model.getJobStatus(id));
+    final byte[] status = statusReads.get(id, () -> {
+      final JobStatus jobStatus = model.getJobStatus(id);
+      return jobStatus == null ? null : Json.asBytesUnchecked(jobStatus);
+    });
+    if (status == null) {
+      return Response.status(Response.Status.NOT_FOUND).build();
+    }
+    return ConditionalResponses.ok(request, status);
   }
 
   @Path("/statuses")
@@ -250,19 +352,65 @@ public class JobsResource {
   @Produces(APPLICATION_JSON)
   @Timed
   @ExceptionMetered
-  public Map<JobId, JobStatus> jobStatuses(@Valid final Set<JobId> ids) {
+  public Response jobStatuses(@Valid final Set<JobId> ids) {
+    checkFullyQualified(ids);
+    // Read all statuses concurrently, and write each one as soon as it and those before it are
+    // read instead of collecting all of them first
+    final Map<JobId, CompletionStage<JobStatus>> futures = Maps.newLinkedHashMap();
     for (final JobId id : ids) {
-      if (!id.isFullyQualified()) {
-        throw badRequest("Invalid id " + id);
-      }
+      futures.put(id, model.getJobStatusAsync(id));
     }
-    final Map<JobId, JobStatus> results = Maps.newHashMap();
+    return Response.ok(JsonStreams.completed(futures, status -> true), APPLICATION_JSON).build();
+  }
+
+  /**
+   * Returns the number of tasks of each job by state, goal and throttle state, which is much
+   * smaller than the full job statuses of jobs deployed to many hosts. Summaries are reused for
+   * up to {@value #SUMMARY_TTL_MILLIS} ms, so that dashboards polling the same jobs do not all
+   * read every task status of them.
+   *
+   * @param ids The set of job IDs to summarize.
+   *
+   * @return A map of job IDs to summaries. Jobs that do not exist are left out.
+   */
+  @Path("/statuses/summary")
+  @POST
+  @Produces(APPLICATION_JSON)
+  @Timed
+  @ExceptionMetered
+  public Map<JobId, JobStatusSummary> jobStatusSummaries(@Valid final Set<JobId> ids) {
+    checkFullyQualified(ids);
+    final Map<JobId, CompletionStage<JobStatusSummary>> futures = Maps.newHashMap();
     for (final JobId id : ids) {
-      final JobStatus status = model.getJobStatus(id);
-      if (status != null) {
-        results.put(id, status);
+      final JobStatusSummary cached = summaries.getIfPresent(id);
+      if (cached != null) {
+        futures.put(id, CompletableFuture.completedFuture(cached));
+        continue;
+      }
+      futures.put(id, model.getJobStatusAsync(id).thenApply(status -> {
+        if (status == null) {
+          return null;
+        }
+        final JobStatusSummary summary = JobStatusSummary.of(status);
+        summaries.put(id, summary);
+        return summary;
+      }));
+    }
+    final Map<JobId, JobStatusSummary> results = Maps.newHashMap();
+    for (final Map.Entry<JobId, CompletionStage<JobStatusSummary>> entry : futures.entrySet()) {
+      final JobStatusSummary summary = CompletionStages.join(entry.getValue());
+      if (summary != null) {
+        results.put(entry.getKey(), summary);
       }
     }
     return results;
   }
+
+  private static void checkFullyQualified(final Set<JobId> ids) {
+    for (final JobId id : ids) {
+      if (!id.isFullyQualified()) {
+        throw badRequest("Invalid id " + id);
+      }
+    }
+  }
 }
@@ -0,0 +1,102 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.master.resources;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Maps;
+import com.spotify.helios.common.Json;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Predicate;
+import javax.ws.rs.core.StreamingOutput;
+
+/**
+ * Helpers for writing large JSON objects straight to the response as their entries become
+ * available, instead of collecting them in a map that Jersey serializes at the end. The response
+ * is sent chunked, and only the entry being written is held in memory.
+ *
+ * <p>Since the status line has been sent by the time an entry fails, a failure aborts the
+ * response, which clients see as a truncated body.
+ */
+final class JsonStreams {
+
+  /**
+   * Number of entries written between flushes, so that clients can start parsing early without
+   * sending a chunk per entry.
+   */
+  static final int FLUSH_INTERVAL = 64;
+
+  private JsonStreams() {
+  }
+
+  /**
+   * Writes the entries as a JSON object, using the string form of each key as field name. Entries
+   * with null values are left out.
+   */
+  static <K, V> StreamingOutput object(final Iterator<? extends Map.Entry<K, V>> entries) {
+    return output -> {
+      final ObjectWriter writer = Json.writer();
+      final JsonGenerator generator = writer.getFactory().createGenerator(output);
+      generator.writeStartObject();
+      int written = 0;
+      while (entries.hasNext()) {
+        final Map.Entry<K, V> entry = entries.next();
+        if (entry.getValue() == null) {
+          continue;
+        }
+        generator.writeFieldName(entry.getKey().toString());
+        writer.writeValue(generator, entry.getValue());
+        if (++written % FLUSH_INTERVAL == 0) {
+          generator.flush();
+        }
+      }
+      generator.writeEndObject();
+      generator.flush();
+    };
+  }
+
+  /**
+   * Writes the results of the stages as a JSON object, waiting for each in turn. Results that are
+   * null or that do not match the filter are left out. Stages are removed from the map once they
+   * have been written, so that their results can be collected while the rest is being sent.
+   */
+  static <K, V> StreamingOutput completed(final Map<K, CompletionStage<V>> stages,
+                                          final Predicate<? super V> filter) {
+    final Iterator<Map.Entry<K, CompletionStage<V>>> pending = stages.entrySet().iterator();
+    return object(new AbstractIterator<Map.Entry<K, V>>() {
+      @Override
+      protected Map.Entry<K, V> computeNext() {
+        while (pending.hasNext()) {
+          final Map.Entry<K, CompletionStage<V>> stage = pending.next();
+          final V value = CompletionStages.join(stage.getValue());
+          pending.remove();
+          if (value != null && filter.test(value)) {
+            return Maps.immutableEntry(stage.getKey(), value);
+          }
+        }
+        return endOfData();
+      }
+    });
+  }
+}
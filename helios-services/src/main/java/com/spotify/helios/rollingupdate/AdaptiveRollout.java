@@ -0,0 +1,352 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.rollingupdate;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.math.IntMath;
+import com.spotify.helios.common.descriptors.DeploymentGroup;
+import com.spotify.helios.common.descriptors.DeploymentGroupTasks;
+import com.spotify.helios.common.descriptors.RolloutOptions;
+import com.spotify.helios.common.descriptors.RolloutTask;
+import com.spotify.helios.common.descriptors.RolloutWave;
+import com.spotify.helios.common.descriptors.RolloutWave.Adjustment;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sizes the waves of an adaptive rollout, one whose maxParallelism is greater than its
+ * parallelism.
+ *
+ * <p>An adaptive rollout is planned host by host. Whenever the tasks of a wave are done, the
+ * next wave is cut from the front of the rest of the plan and planned again by the same planner
+ * with the size of the wave as parallelism, so a wave runs like a partition of a rollout that is
+ * not adaptive. The tasks of the wave replace the tasks they were cut from in the stored plan, so
+ * a master that does not know about waves runs the same tasks. The first wave has parallelism
+ * hosts. A wave without failures that took no longer than the latency budget doubles the size of
+ * the next one, up to maxParallelism, a wave with failures halves it, down to parallelism, and a
+ * slow wave keeps it.
+ */
+public class AdaptiveRollout {
+
+  static final long DEFAULT_LATENCY_BUDGET = TimeUnit.MINUTES.toSeconds(1);
+
+  /**
+   * How many waves are kept in {@link DeploymentGroupTasks#getWaves()}.
+   */
+  static final int MAX_WAVES = 20;
+
+  // Both planners plan three tasks per host
+  private static final int TASKS_PER_HOST = 3;
+
+  private final DeploymentGroup deploymentGroup;
+  private final int minParallelism;
+  private final int maxParallelism;
+  private final long latencyBudgetMillis;
+  private final RolloutTask.Action firstUpdateAction;
+  private final RolloutTask.Action firstUndeployAction;
+
+  private AdaptiveRollout(final DeploymentGroup deploymentGroup) {
+    this.deploymentGroup = checkNotNull(deploymentGroup, "deploymentGroup");
+    checkArgument(isAdaptive(deploymentGroup), "deployment group %s is not adaptive",
+        deploymentGroup.getName());
+    final RolloutOptions options = deploymentGroup.getRolloutOptions();
+    this.minParallelism = parallelism(options);
+    this.maxParallelism = options.getMaxParallelism();
+    this.latencyBudgetMillis = TimeUnit.SECONDS.toMillis(options.getLatencyBudget() != null
+                                                         ? options.getLatencyBudget()
+                                                         : DEFAULT_LATENCY_BUDGET);
+    final List<String> host = ImmutableList.of("host");
+    this.firstUpdateAction = RollingUpdatePlanner.of(hostByHost(deploymentGroup))
+        .plan(host).get(0).getAction();
+    this.firstUndeployAction = RollingUndeployPlanner.of(hostByHost(deploymentGroup))
+        .plan(host).get(0).getAction();
+  }
+
+  public static AdaptiveRollout of(final DeploymentGroup deploymentGroup) {
+    return new AdaptiveRollout(deploymentGroup);
+  }
+
+  public static boolean isAdaptive(final DeploymentGroup deploymentGroup) {
+    final RolloutOptions options = deploymentGroup.getRolloutOptions();
+    return options != null
+           && options.getMaxParallelism() != null
+           && options.getMaxParallelism() > parallelism(options);
+  }
+
+  /**
+   * Returns true if the rollout is adaptive and its next wave has to be planned before the task at
+   * the task index can run.
+   */
+  public static boolean needsWave(final DeploymentGroupTasks tasks) {
+    return isAdaptive(tasks.getDeploymentGroup()) && tasks.getTaskIndex() >= tasks.getWaveEnd();
+  }
+
+  /**
+   * Returns the deployment group with a parallelism of one, to plan an adaptive rollout with.
+   */
+  public static DeploymentGroup hostByHost(final DeploymentGroup deploymentGroup) {
+    return withParallelism(deploymentGroup, 1);
+  }
+
+  private static DeploymentGroup withParallelism(final DeploymentGroup deploymentGroup,
+                                                 final int parallelism) {
+    return deploymentGroup.toBuilder()
+        .setRolloutOptions(deploymentGroup.getRolloutOptions().toBuilder()
+            .setParallelism(parallelism)
+            .build())
+        .build();
+  }
+
+  private static int parallelism(final RolloutOptions options) {
+    return options.getParallelism() != null ? options.getParallelism() : 1;
+  }
+
+  /**
+   * Returns the most tasks of the plan a wave can take, which is how many tasks after the task
+   * index have to be passed to {@link #startWave}.
+   */
+  public int maxWaveTasks() {
+    return IntMath.saturatedMultiply(maxParallelism, TASKS_PER_HOST);
+  }
+
+  /**
+   * Returns how the size of the next wave changes, given the current wave has just finished.
+   */
+  public Adjustment adjustment(final DeploymentGroupTasks tasks, final long now) {
+    if (tasks.getWaveSize() == 0) {
+      return Adjustment.START;
+    } else if (tasks.getWaveFailures() > 0) {
+      return Adjustment.SHRINK;
+    } else if (now - tasks.getWaveStartedAt() <= latencyBudgetMillis) {
+      return Adjustment.GROW;
+    } else {
+      return Adjustment.HOLD;
+    }
+  }
+
+  public int waveSize(final DeploymentGroupTasks tasks, final Adjustment adjustment) {
+    final int size;
+    switch (adjustment) {
+      case GROW:
+        size = IntMath.saturatedMultiply(tasks.getWaveSize(), 2);
+        break;
+      case HOLD:
+        size = tasks.getWaveSize();
+        break;
+      case SHRINK:
+        size = tasks.getWaveSize() / 2;
+        break;
+      default:
+        size = minParallelism;
+        break;
+    }
+    return clamp(size);
+  }
+
+  private int clamp(final int size) {
+    return Math.max(minParallelism, Math.min(maxParallelism, size));
+  }
+
+  private String reason(final DeploymentGroupTasks tasks, final Adjustment adjustment,
+                        final long now) {
+    switch (adjustment) {
+      case GROW:
+        return String.format("previous wave took %dms without failures, within the latency "
+                             + "budget of %dms", now - tasks.getWaveStartedAt(),
+            latencyBudgetMillis);
+      case HOLD:
+        return String.format("previous wave took %dms, over the latency budget of %dms",
+            now - tasks.getWaveStartedAt(), latencyBudgetMillis);
+      case SHRINK:
+        return String.format("%d tasks of the previous wave failed", tasks.getWaveFailures());
+      default:
+        return "first wave";
+    }
+  }
+
+  /**
+   * Plans the next wave, sized by how the previous wave went.
+   *
+   * <p>If the plan continues with tasks of hosts whose first task is before the task index, the
+   * wave state was lost while a wave was running, e.g. because a master that does not know about
+   * waves rewrote the tasks. The wave then finishes those hosts in the order they are planned in.
+   *
+   * @param tasks    The tasks of the rollout, whose task index is the first task of the wave.
+   * @param upcoming The tasks of the plan from the task index on, at least {@link #maxWaveTasks()}
+   *                 of them unless the plan ends before.
+   * @param now      The time the wave starts at.
+   *
+   * @return The wave.
+   */
+  public Wave startWave(final DeploymentGroupTasks tasks, final List<RolloutTask> upcoming,
+                        final long now) {
+    checkArgument(!upcoming.isEmpty(), "no tasks left to plan a wave of");
+
+    final int resumed = resumedTasks(upcoming);
+    final Adjustment adjustment;
+    final int size;
+    final String reason;
+    final List<RolloutTask> waveTasks;
+    if (resumed > 0) {
+      waveTasks = upcoming.subList(0, resumed);
+      final Set<String> hosts = Sets.newHashSet();
+      for (final RolloutTask task : waveTasks) {
+        hosts.add(task.getTarget());
+      }
+      adjustment = Adjustment.RESUME;
+      size = clamp(hosts.size());
+      reason = String.format("finishing %d hosts of a wave that was not recorded", hosts.size());
+    } else {
+      adjustment = adjustment(tasks, now);
+      size = waveSize(tasks, adjustment);
+      reason = reason(tasks, adjustment, now);
+      waveTasks = planWave(upcoming, size);
+    }
+
+    final List<RolloutWave> previous = tasks.getWaves();
+    final RolloutWave wave = RolloutWave.newBuilder()
+        .setWave(previous.isEmpty() ? 1 : previous.get(previous.size() - 1).getWave() + 1)
+        .setTaskIndex(tasks.getTaskIndex())
+        .setSize(size)
+        .setAdjustment(adjustment)
+        .setReason(reason)
+        .setStartedAt(now)
+        .build();
+    final List<RolloutWave> waves = ImmutableList.<RolloutWave>builder()
+        .addAll(previous.subList(Math.max(0, previous.size() - MAX_WAVES + 1), previous.size()))
+        .add(wave)
+        .build();
+
+    return new Wave(tasks.toBuilder()
+        .setWaveStart(tasks.getTaskIndex())
+        .setWaveEnd(tasks.getTaskIndex() + waveTasks.size())
+        .setWaveSize(size)
+        .setWaveStartedAt(now)
+        .setWaveFailures(0)
+        .setWaves(waves)
+        .build(), ImmutableList.copyOf(waveTasks));
+  }
+
+  /**
+   * Returns how many tasks from the front of {@code upcoming} belong to hosts whose first task is
+   * not among them, including the tasks of every host that is interleaved with them.
+   */
+  private int resumedTasks(final List<RolloutTask> upcoming) {
+    final Set<String> started = Sets.newHashSet();
+    final Map<String, Integer> lastTask = Maps.newHashMap();
+    int resumed = 0;
+    for (int i = 0; i < upcoming.size(); i++) {
+      final RolloutTask task = upcoming.get(i);
+      if (task.getAction() == (isUndeploy(task) ? firstUndeployAction : firstUpdateAction)) {
+        started.add(task.getTarget());
+      } else if (!started.contains(task.getTarget())) {
+        resumed = i + 1;
+      }
+      lastTask.put(task.getTarget(), i);
+    }
+    for (int i = 0; i < resumed; i++) {
+      resumed = Math.max(resumed, lastTask.get(upcoming.get(i).getTarget()) + 1);
+    }
+    return resumed;
+  }
+
+  private List<RolloutTask> planWave(final List<RolloutTask> upcoming, final int size) {
+    // Hosts that are undeployed from come first in the plan, and are never in the same wave as
+    // hosts that are updated.
+    final boolean undeploy = isUndeploy(upcoming.get(0));
+    final Set<String> hosts = Sets.newLinkedHashSet();
+    int count = 0;
+    for (final RolloutTask task : upcoming) {
+      if (isUndeploy(task) != undeploy
+          || (!hosts.contains(task.getTarget()) && hosts.size() == size)) {
+        break;
+      }
+      hosts.add(task.getTarget());
+      count++;
+    }
+
+    final DeploymentGroup wave = withParallelism(deploymentGroup, hosts.size());
+    final List<RolloutTask> waveTasks = undeploy
+                                        ? RollingUndeployPlanner.of(wave)
+                                            .plan(ImmutableList.copyOf(hosts))
+                                        : RollingUpdatePlanner.of(wave)
+                                            .plan(ImmutableList.copyOf(hosts));
+    checkState(waveTasks.size() == count, "wave of %s tasks replaces %s tasks of the plan",
+        waveTasks.size(), count);
+    return waveTasks;
+  }
+
+  private static boolean isUndeploy(final RolloutTask task) {
+    switch (task.getAction()) {
+      case FORCE_UNDEPLOY_JOBS:
+      case AWAIT_UNDEPLOYED:
+      case MARK_UNDEPLOYED:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * A wave that was just started.
+   */
+  public static class Wave {
+
+    private final DeploymentGroupTasks tasks;
+    private final List<RolloutTask> waveTasks;
+
+    private Wave(final DeploymentGroupTasks tasks, final List<RolloutTask> waveTasks) {
+      this.tasks = tasks;
+      this.waveTasks = waveTasks;
+    }
+
+    /**
+     * Returns the tasks of the rollout with the wave started. The plan itself is unchanged.
+     */
+    public DeploymentGroupTasks getTasks() {
+      return tasks;
+    }
+
+    /**
+     * Returns the tasks of the wave in the order they are run. They replace as many tasks of the
+     * plan from the task index on.
+     */
+    public List<RolloutTask> getWaveTasks() {
+      return waveTasks;
+    }
+
+    /**
+     * Returns the record of the wave, which is the last of the waves of the tasks.
+     */
+    public RolloutWave getRecord() {
+      final List<RolloutWave> waves = tasks.getWaves();
+      return waves.get(waves.size() - 1);
+    }
+  }
+}
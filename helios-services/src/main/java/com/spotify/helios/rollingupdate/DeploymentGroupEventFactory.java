@@ -22,7 +22,9 @@ package com.spotify.helios.rollingupdate;
 
 import com.google.common.collect.Maps;
 import com.spotify.helios.common.descriptors.DeploymentGroup;
+import com.spotify.helios.common.descriptors.DeploymentGroupTasks;
 import com.spotify.helios.common.descriptors.RolloutTask;
+import com.spotify.helios.common.descriptors.RolloutWave;
 import java.util.Collections;
 import java.util.Map;
 
@@ -78,6 +80,26 @@ public class DeploymentGroupEventFactory {
     return ev;
   }
 
+  public Map<String, Object> rollingUpdateWaveStarted(final DeploymentGroup deploymentGroup,
+                                                      final DeploymentGroupTasks previous,
+                                                      final DeploymentGroupTasks tasks,
+                                                      final long now) {
+    final Map<String, Object> ev = createEvent("rollingUpdateWaveStarted", deploymentGroup);
+    final RolloutWave wave = tasks.getWaves().get(tasks.getWaves().size() - 1);
+    ev.put("wave", wave.getWave());
+    ev.put("adjustment", wave.getAdjustment());
+    ev.put("reason", wave.getReason());
+    ev.put("taskIndex", tasks.getWaveStart());
+    ev.put("waveSize", tasks.getWaveSize());
+    ev.put("waveTasks", tasks.getWaveEnd() - tasks.getWaveStart());
+    ev.put("previousWaveSize", previous.getWaveSize());
+    ev.put("previousWaveFailures", previous.getWaveFailures());
+    if (previous.getWaveSize() > 0) {
+      ev.put("previousWaveMillis", now - previous.getWaveStartedAt());
+    }
+    return ev;
+  }
+
   public Map<String, Object> rollingUpdateDone(final DeploymentGroup deploymentGroup) {
     final Map<String, Object> ev = createEvent("rollingUpdateFinished", deploymentGroup);
     ev.put("success", 1);
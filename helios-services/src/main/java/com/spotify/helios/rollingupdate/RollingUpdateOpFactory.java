@@ -31,11 +31,13 @@ import static java.lang.Boolean.TRUE;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.spotify.helios.common.Json;
 import com.spotify.helios.common.descriptors.DeploymentGroup;
 import com.spotify.helios.common.descriptors.DeploymentGroupStatus;
 import com.spotify.helios.common.descriptors.DeploymentGroupTasks;
 import com.spotify.helios.common.descriptors.RolloutTask;
 import com.spotify.helios.servicescommon.coordination.Paths;
+import com.spotify.helios.servicescommon.coordination.SegmentedList;
 import com.spotify.helios.servicescommon.coordination.ZooKeeperClient;
 import com.spotify.helios.servicescommon.coordination.ZooKeeperOperation;
 import java.util.Collections;
@@ -51,18 +53,37 @@ public class RollingUpdateOpFactory {
   private static final Logger log = LoggerFactory.getLogger(RollingUpdateOpFactory.class);
 
   private final DeploymentGroupTasks tasks;
+  private final RolloutTask current;
   private final DeploymentGroup deploymentGroup;
   private final DeploymentGroupEventFactory eventFactory;
 
   public RollingUpdateOpFactory(final DeploymentGroupTasks tasks,
                                 final DeploymentGroupEventFactory eventFactory) {
+    this(tasks, null, eventFactory);
+  }
+
+  /**
+   * Creates a factory for tasks whose plan is stored in segments, where {@code current} is the
+   * current task read from the segment it is stored in.
+   */
+  public RollingUpdateOpFactory(final DeploymentGroupTasks tasks,
+                                final RolloutTask current,
+                                final DeploymentGroupEventFactory eventFactory) {
     this.tasks = tasks;
+    this.current = current;
     this.deploymentGroup = tasks.getDeploymentGroup();
     this.eventFactory = eventFactory;
   }
 
+  /**
+   * Returns the operations that start a rollout of the planned tasks.
+   *
+   * @param segment Whether a plan longer than {@link SegmentedList#SEGMENT_SIZE} tasks is stored
+   *                in segments rather than inline. Masters that predate segments cannot read them.
+   */
   public RollingUpdateOp start(final DeploymentGroup deploymentGroup,
-                               final ZooKeeperClient client) throws KeeperException {
+                               final ZooKeeperClient client,
+                               final boolean segment) throws KeeperException {
     client.ensurePath(Paths.statusDeploymentGroupTasks());
 
     final List<ZooKeeperOperation> ops = Lists.newArrayList();
@@ -71,8 +92,9 @@ public class RollingUpdateOpFactory {
     final List<RolloutTask> rolloutTasks = tasks.getRolloutTasks();
     events.add(eventFactory.rollingUpdateStarted(deploymentGroup));
 
-    final Stat tasksStat = client.exists(
-        Paths.statusDeploymentGroupTasks(deploymentGroup.getName()));
+    final String tasksPath = Paths.statusDeploymentGroupTasks(deploymentGroup.getName());
+    final Stat tasksStat = client.exists(tasksPath);
+    final int existingSegments = tasksStat == null ? 0 : tasksStat.getNumChildren();
     if (tasksStat == null) {
       // Create the tasks path if it doesn't already exist. The following operations (delete or set)
       // assume the node already exists. If the tasks path is created/deleted before the transaction
@@ -86,18 +108,32 @@ public class RollingUpdateOpFactory {
       status = DeploymentGroupStatus.newBuilder()
           .setState(DONE)
           .build();
-      ops.add(delete(Paths.statusDeploymentGroupTasks(deploymentGroup.getName())));
+      ops.addAll(SegmentedList.deleteSegments(tasksPath, existingSegments));
+      ops.add(delete(tasksPath));
       events.add(eventFactory.rollingUpdateDone(deploymentGroup));
     } else {
-      final DeploymentGroupTasks tasks = DeploymentGroupTasks.newBuilder()
-          .setRolloutTasks(rolloutTasks)
-          .setTaskIndex(0)
-          .setDeploymentGroup(deploymentGroup)
-          .build();
       status = DeploymentGroupStatus.newBuilder()
           .setState(ROLLING_OUT)
           .build();
-      ops.add(set(Paths.statusDeploymentGroupTasks(deploymentGroup.getName()), tasks));
+      if (!segment || rolloutTasks.size() <= SegmentedList.SEGMENT_SIZE) {
+        ops.addAll(SegmentedList.deleteSegments(tasksPath, existingSegments));
+        ops.add(set(tasksPath, DeploymentGroupTasks.newBuilder()
+            .setRolloutTasks(rolloutTasks)
+            .setTaskIndex(0)
+            .setDeploymentGroup(deploymentGroup)
+            .build()));
+      } else {
+        // Large plans are written in segments so that each step only has to read the segment
+        // holding the current task, and advancing only has to rewrite the small tasks node.
+        ops.addAll(SegmentedList.writeSegments(tasksPath, existingSegments,
+            Lists.partition(rolloutTasks, SegmentedList.SEGMENT_SIZE)));
+        ops.add(set(tasksPath, DeploymentGroupTasks.newBuilder()
+            .setTaskIndex(0)
+            .setTaskCount(rolloutTasks.size())
+            .setSegmentSize(SegmentedList.SEGMENT_SIZE)
+            .setDeploymentGroup(deploymentGroup)
+            .build()));
+      }
     }
 
     // NOTE: If the DG was removed this set() cause the transaction to fail, because removing
@@ -108,24 +144,89 @@ public class RollingUpdateOpFactory {
     return new RollingUpdateOp(ImmutableList.copyOf(ops), ImmutableList.copyOf(events));
   }
 
+  /**
+   * Plans the next wave of an adaptive rollout, sized by how the previous wave went, and writes
+   * its tasks over the tasks of the plan they replace.
+   *
+   * @param offset The index in the plan of the first task of {@code window}.
+   * @param window The tasks of the plan from {@code offset} on, with at least
+   *               {@link AdaptiveRollout#maxWaveTasks()} of them after the task index unless the
+   *               plan ends before. For a plan stored inline it is the whole plan, for a plan
+   *               stored in segments it is made of whole segments.
+   * @param now    The current time.
+   *
+   * @return {@link RollingUpdateOp}
+   */
+  public RollingUpdateOp startWave(final int offset, final List<RolloutTask> window,
+                                   final long now) {
+    final AdaptiveRollout rollout = AdaptiveRollout.of(deploymentGroup);
+    final int from = tasks.getTaskIndex() - offset;
+    final List<RolloutTask> upcoming = window.subList(
+        from, (int) Math.min(window.size(), (long) from + rollout.maxWaveTasks()));
+    final AdaptiveRollout.Wave wave = rollout.startWave(tasks, upcoming, now);
+    final List<RolloutTask> waveTasks = wave.getWaveTasks();
+
+    log.info("rolling-update on deployment-group name={} starts wave {} of {} tasks at "
+             + "taskIndex={} (adjustment={}, waveSize={}): {}", deploymentGroup.getName(),
+        wave.getRecord().getWave(), waveTasks.size(), tasks.getTaskIndex(),
+        wave.getRecord().getAdjustment(), wave.getTasks().getWaveSize(),
+        wave.getRecord().getReason());
+
+    final String tasksPath = Paths.statusDeploymentGroupTasks(deploymentGroup.getName());
+    final List<ZooKeeperOperation> ops = Lists.newArrayList();
+    if (waveTasks.equals(upcoming.subList(0, waveTasks.size()))) {
+      // The wave runs in the order it was planned in
+      ops.add(set(tasksPath, wave.getTasks()));
+    } else {
+      final List<RolloutTask> replanned = Lists.newArrayList(window);
+      for (int i = 0; i < waveTasks.size(); i++) {
+        replanned.set(from + i, waveTasks.get(i));
+      }
+      if (tasks.getSegmentSize() == 0) {
+        ops.add(set(tasksPath, wave.getTasks().toBuilder()
+            .setRolloutTasks(replanned)
+            .build()));
+      } else {
+        // Only the segments holding tasks of the wave are rewritten
+        final int segmentSize = tasks.getSegmentSize();
+        final int first = offset / segmentSize;
+        for (int segment = from / segmentSize;
+             segment <= (from + waveTasks.size() - 1) / segmentSize; segment++) {
+          ops.add(set(SegmentedList.segmentPath(tasksPath, first + segment),
+              Json.asBytesUnchecked(replanned.subList(segment * segmentSize,
+                  Math.min(replanned.size(), (segment + 1) * segmentSize)))));
+        }
+        ops.add(set(tasksPath, wave.getTasks()));
+      }
+    }
+
+    return new RollingUpdateOp(ImmutableList.copyOf(ops), ImmutableList.of(
+        eventFactory.rollingUpdateWaveStarted(deploymentGroup, tasks, wave.getTasks(), now)));
+  }
+
   public RollingUpdateOp nextTask() {
     return nextTask(Collections.<ZooKeeperOperation>emptyList());
   }
 
   public RollingUpdateOp nextTask(final List<ZooKeeperOperation> operations) {
+    return nextTask(operations, false);
+  }
+
+  private RollingUpdateOp nextTask(final List<ZooKeeperOperation> operations,
+                                   final boolean failed) {
     final List<ZooKeeperOperation> ops = Lists.newArrayList(operations);
     final List<Map<String, Object>> events = Lists.newArrayList();
 
-    final RolloutTask task = tasks.getRolloutTasks().get(tasks.getTaskIndex());
+    final RolloutTask task = currentTask();
 
     // Update the task index, delete tasks if done
-    if (tasks.getTaskIndex() + 1 == tasks.getRolloutTasks().size()) {
+    if (tasks.getTaskIndex() + 1 == tasks.getTaskCount()) {
       final DeploymentGroupStatus status = DeploymentGroupStatus.newBuilder()
           .setState(DONE)
           .build();
 
       // We are done -> delete tasks & update status
-      ops.add(delete(Paths.statusDeploymentGroupTasks(deploymentGroup.getName())));
+      ops.addAll(deleteTasks());
       ops.add(set(Paths.statusDeploymentGroup(deploymentGroup.getName()),
           status));
 
@@ -135,6 +236,7 @@ public class RollingUpdateOpFactory {
       ops.add(
           set(Paths.statusDeploymentGroupTasks(deploymentGroup.getName()), tasks.toBuilder()
               .setTaskIndex(tasks.getTaskIndex() + 1)
+              .setWaveFailures(tasks.getWaveFailures() + (failed ? 1 : 0))
               .build()));
 
       // Only emit an event if the task resulted in taking in action. If there are no ZK operations
@@ -147,6 +249,22 @@ public class RollingUpdateOpFactory {
     return new RollingUpdateOp(ImmutableList.copyOf(ops), ImmutableList.copyOf(events));
   }
 
+  private RolloutTask currentTask() {
+    if (current != null) {
+      return current;
+    } else {
+      return tasks.getRolloutTasks().get(tasks.getTaskIndex());
+    }
+  }
+
+  private List<ZooKeeperOperation> deleteTasks() {
+    final String tasksPath = Paths.statusDeploymentGroupTasks(deploymentGroup.getName());
+    final List<ZooKeeperOperation> ops = Lists.newArrayList(SegmentedList.deleteSegments(
+        tasksPath, SegmentedList.segmentCount(tasks.getTaskCount(), tasks.getSegmentSize())));
+    ops.add(delete(tasksPath));
+    return ops;
+  }
+
   /**
    * Don't advance to the next task -- yield and have the current task be executed again in the
    * next iteration.
@@ -176,7 +294,8 @@ public class RollingUpdateOpFactory {
           + "for this group/rollout. errorCode={} message={}",
           deploymentGroup.getName(), errorCode, errMsg);
 
-      return nextTask(operations);
+      // The failure still counts against the size of the next wave of an adaptive rollout
+      return nextTask(operations, true);
     }
 
     final DeploymentGroupStatus status = DeploymentGroupStatus.newBuilder()
@@ -185,10 +304,10 @@ public class RollingUpdateOpFactory {
         .build();
 
     // Delete tasks, set state to FAILED
-    operations.add(delete(Paths.statusDeploymentGroupTasks(deploymentGroup.getName())));
+    operations.addAll(deleteTasks());
     operations.add(set(Paths.statusDeploymentGroup(deploymentGroup.getName()), status));
 
-    final RolloutTask task = tasks.getRolloutTasks().get(tasks.getTaskIndex());
+    final RolloutTask task = currentTask();
 
     // Emit a FAILED event and a failed task event
     final List<Map<String, Object>> events = Lists.newArrayList();
@@ -24,11 +24,13 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.spotify.helios.servicescommon.Reactor.Callback;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.AbstractIdleService;
 import com.spotify.helios.common.descriptors.DeploymentGroup;
 import com.spotify.helios.master.HostMatcher;
 import com.spotify.helios.master.MasterModel;
+import com.spotify.helios.master.WorkPartition;
 import com.spotify.helios.servicescommon.Reactor;
 import com.spotify.helios.servicescommon.ReactorFactory;
 import java.util.List;
@@ -43,22 +45,37 @@ public class RollingUpdateService extends AbstractIdleService {
 
   private static final Logger log = LoggerFactory.getLogger(RollingUpdateService.class);
 
-  private static final long UPDATE_INTERVAL = SECONDS.toMillis(1);
+  static final long UPDATE_INTERVAL = SECONDS.toMillis(1);
   private static final long HOST_UPDATE_INTERVAL = SECONDS.toMillis(1);
 
   private final MasterModel masterModel;
+  private final WorkPartition partition;
   private final Reactor hostUpdateReactor;
   private final Reactor rollingUpdateReactor;
 
   /**
-   * Create a new RollingUpdateService.
+   * Create a new RollingUpdateService that processes all deployment groups.
    *
    * @param masterModel    The {@link MasterModel} to use for retrieving data.
    * @param reactorFactory The factory to use for creating reactors.
    */
   public RollingUpdateService(final MasterModel masterModel,
                               final ReactorFactory reactorFactory) {
+    this(masterModel, reactorFactory, WorkPartition.all());
+  }
+
+  /**
+   * Create a new RollingUpdateService.
+   *
+   * @param masterModel    The {@link MasterModel} to use for retrieving data.
+   * @param reactorFactory The factory to use for creating reactors.
+   * @param partition      Decides which deployment groups this master processes.
+   */
+  public RollingUpdateService(final MasterModel masterModel,
+                              final ReactorFactory reactorFactory,
+                              final WorkPartition partition) {
     this.masterModel = checkNotNull(masterModel, "masterModel");
+    this.partition = checkNotNull(partition, "partition");
     checkNotNull(reactorFactory, "reactorFactory");
 
     this.hostUpdateReactor = reactorFactory.create("hostUpdate",
@@ -90,6 +107,17 @@ public class RollingUpdateService extends AbstractIdleService {
 
     @Override
     public void run(final boolean timeout) throws InterruptedException {
+      final List<DeploymentGroup> deploymentGroups = Lists.newArrayList();
+      for (final DeploymentGroup dg : masterModel.getDeploymentGroups().values()) {
+        if (partition.owns(dg.getName())) {
+          deploymentGroups.add(dg);
+        }
+      }
+      if (deploymentGroups.isEmpty()) {
+        // Nothing to do, don't read all the hosts
+        return;
+      }
+
       final List<String> allHosts = masterModel.listHosts();
       final Map<String, Map<String, String>> hostsToLabels = Maps.newHashMap();
 
@@ -100,7 +128,7 @@ public class RollingUpdateService extends AbstractIdleService {
 
       final HostMatcher hostMatcher = new HostMatcher(hostsToLabels);
 
-      for (final DeploymentGroup dg : masterModel.getDeploymentGroups().values()) {
+      for (final DeploymentGroup dg : deploymentGroups) {
         final List<String> matchingHosts = hostMatcher.getMatchingHosts(dg);
 
         try {
@@ -120,7 +148,7 @@ public class RollingUpdateService extends AbstractIdleService {
     @Override
     public void run(final boolean timeout) throws InterruptedException {
       try {
-        masterModel.rollingUpdateStep();
+        masterModel.rollingUpdateStep(partition);
       } catch (Exception e) {
         log.error("error processing rolling update step: {}", e);
       }
@@ -0,0 +1,267 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.rollingupdate;
+
+import static java.lang.Boolean.TRUE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import com.google.common.collect.Lists;
+import com.spotify.helios.common.HeliosRuntimeException;
+import com.spotify.helios.common.descriptors.Deployment;
+import com.spotify.helios.common.descriptors.DeploymentGroup;
+import com.spotify.helios.common.descriptors.Goal;
+import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.RolloutOptions;
+import com.spotify.helios.common.descriptors.RolloutTask;
+import com.spotify.helios.common.descriptors.TaskStatus;
+import java.util.List;
+import java.util.Objects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decides what a rolling update step does with a task, given the state of the cluster. Both the
+ * master and the {@link RolloutSimulator} step through rollouts with it, so that a simulated
+ * rollout waits, fails and times out exactly like a real one.
+ */
+public class RolloutDecider {
+
+  private static final Logger log = LoggerFactory.getLogger(RolloutDecider.class);
+
+  private RolloutDecider() {
+  }
+
+  /**
+   * Decides what to do with the task.
+   *
+   * @param state           The state of the cluster.
+   * @param task            The current task of the rolling update.
+   * @param deploymentGroup The deployment group being rolled out.
+   * @param now             The current time, which timeouts are measured against.
+   */
+  public static RolloutDecision decide(final RolloutState state, final RolloutTask task,
+                                       final DeploymentGroup deploymentGroup, final long now) {
+    final String host = task.getTarget();
+
+    switch (task.getAction()) {
+      case UNDEPLOY_OLD_JOBS:
+        // undeploy jobs previously deployed by this deployment group
+        return undeploy(state, deploymentGroup, host, true);
+      case DEPLOY_NEW_JOB:
+        // deploy the new job
+        return RolloutDecision.deploy();
+      case AWAIT_RUNNING:
+        return awaitRunning(state, deploymentGroup, host, now);
+      case FORCE_UNDEPLOY_JOBS:
+        return undeploy(state, deploymentGroup, host, false);
+      case AWAIT_UNDEPLOYED:
+        return awaitUndeployed(state, deploymentGroup, host, now);
+      case MARK_UNDEPLOYED:
+        return RolloutDecision.markUndeployed();
+      default:
+        throw new HeliosRuntimeException(String.format(
+            "unknown rollout task type %s for deployment group %s.",
+            task.getAction(), deploymentGroup.getName()));
+    }
+  }
+
+  private static RolloutDecision awaitRunning(final RolloutState state,
+                                              final DeploymentGroup deploymentGroup,
+                                              final String host, final long now) {
+    final JobId jobId = deploymentGroup.getJobId();
+    final TaskStatus taskStatus = state.getTaskStatus(host, jobId);
+
+    if (taskStatus == null) {
+      // Handle cases where agent has not written job status to zookeeper.
+
+      // If job is not listed under /config/hosts node, it may have been deployed successfully and
+      // then manually undeployed. The job will not get redeployed, so treat this as a failure.
+      final Deployment deployment = state.getDeployment(host, jobId);
+      if (deployment == null) {
+        return RolloutDecision.error(
+            "Job unexpectedly undeployed. Perhaps it was manually undeployed?",
+            RollingUpdateError.JOB_UNEXPECTEDLY_UNDEPLOYED);
+      }
+
+      // Check if we've exceeded the timeout for the rollout operation.
+      if (isTimedOut(state, deploymentGroup, now)) {
+        return RolloutDecision.error("timed out while retrieving job status",
+            RollingUpdateError.TIMED_OUT_RETRIEVING_JOB_STATUS);
+      }
+
+      // We haven't detected any errors, so assume the agent will write the status soon.
+      return RolloutDecision.yield();
+    } else if (!taskStatus.getState().equals(TaskStatus.State.RUNNING)) {
+      // job isn't running yet
+
+      if (isTimedOut(state, deploymentGroup, now)) {
+        // We exceeded the configured deploy timeout, and this job is still not running
+        return RolloutDecision.error(
+            "timed out waiting for job " + jobId + " to reach state RUNNING",
+            RollingUpdateError.TIMED_OUT_WAITING_FOR_JOB_TO_REACH_RUNNING, taskStatus);
+      }
+
+      return RolloutDecision.yield();
+    } else {
+      // the job is running on the host. last thing we have to ensure is that it was
+      // deployed by this deployment group. otherwise some weird conflict has occurred and we
+      // won't be able to undeploy the job on the next update.
+      final Deployment deployment = state.getDeployment(host, jobId);
+      if (deployment == null) {
+        return RolloutDecision.error(
+            "deployment for this job not found in zookeeper. "
+            + "Perhaps it was manually undeployed?",
+            RollingUpdateError.JOB_UNEXPECTEDLY_UNDEPLOYED);
+      } else if (!Objects.equals(deployment.getDeploymentGroupName(), deploymentGroup.getName())) {
+        return RolloutDecision.error(
+            "job was already deployed, either manually or by a different deployment group",
+            RollingUpdateError.JOB_ALREADY_DEPLOYED);
+      }
+
+      return RolloutDecision.nextTask();
+    }
+  }
+
+  private static RolloutDecision awaitUndeployed(final RolloutState state,
+                                                 final DeploymentGroup deploymentGroup,
+                                                 final String host, final long now) {
+    final TaskStatus taskStatus = state.getTaskStatus(host, deploymentGroup.getJobId());
+
+    if (taskStatus == null) {
+      // The task status (i.e. /status/hosts/<host>/job/<job-id>) has been removed, indicating the
+      // job has been undeployed.
+      return RolloutDecision.nextTask();
+    }
+
+    if (isTimedOut(state, deploymentGroup, now)) {
+      return RolloutDecision.error("timed out while waiting for job undeployment",
+          RollingUpdateError.TIMED_OUT_WAITING_FOR_JOB_TO_UNDEPLOY);
+    }
+
+    return RolloutDecision.yield();
+  }
+
+  /**
+   * Decides which jobs to undeploy from the host. UNDEPLOY_OLD_JOBS enables the
+   * 'skipRedundantUndeploys' flag, which enables the redundantUndeployment() check.
+   * FORCE_UNDEPLOY_JOBS, used to undeploy jobs from hosts that have been removed from the
+   * deployment group, disables it.
+   */
+  private static RolloutDecision undeploy(final RolloutState state,
+                                          final DeploymentGroup deploymentGroup,
+                                          final String host,
+                                          final boolean skipRedundantUndeploys) {
+    final List<JobId> jobIds = Lists.newArrayList();
+
+    for (final Deployment deployment : state.getDeployments(host).values()) {
+
+      if (!ownedByDeploymentGroup(deployment, deploymentGroup)
+          && !isMigration(deployment, deploymentGroup)) {
+        continue;
+      }
+
+      if (skipRedundantUndeploys && redundantUndeployment(deployment, deploymentGroup)) {
+        continue;
+      }
+
+      jobIds.add(deployment.getJobId());
+    }
+
+    return RolloutDecision.undeploy(jobIds);
+  }
+
+  private static boolean isTimedOut(final RolloutState state,
+                                    final DeploymentGroup deploymentGroup, final long now) {
+    final String groupName = deploymentGroup.getName();
+    final RolloutOptions defaultOptions = RolloutOptions.getDefault();
+    final long groupTimeoutSetting =
+        deploymentGroup.getRolloutOptions() == null
+        ? defaultOptions.getTimeout()
+        : deploymentGroup.getRolloutOptions().withFallback(defaultOptions).getTimeout();
+
+    final Long modifiedMillis = state.getTasksModifiedMillis(groupName);
+    if (modifiedMillis == null) {
+      // the tasks could not be read. probably this deployment group was removed.
+      return false;
+    }
+    final long secondsSinceDeploy = MILLISECONDS.toSeconds(now - modifiedMillis);
+
+    if (secondsSinceDeploy > groupTimeoutSetting) {
+      log.info("rolling-update on deployment-group name={} has timed out after "
+               + "{} seconds (rolloutOptions.timeout={})",
+          groupName, secondsSinceDeploy, groupTimeoutSetting);
+      return true;
+    }
+    return false;
+  }
+
+  private static boolean ownedByDeploymentGroup(final Deployment deployment,
+                                                final DeploymentGroup deploymentGroup) {
+    return Objects.equals(deployment.getDeploymentGroupName(), deploymentGroup.getName());
+  }
+
+  private static boolean isMigration(final Deployment deployment,
+                                     final DeploymentGroup deploymentGroup) {
+    return (deploymentGroup.getRolloutOptions() != null
+            && TRUE.equals(deploymentGroup.getRolloutOptions().getMigrate())
+            && deployment.getJobId().equals(deploymentGroup.getJobId()));
+  }
+
+  /**
+   * redundantUndeployment determines whether or not an undeploy task should actually undeploy a
+   * job.
+   *
+   * <p>Jobs are undeployed in two cases:
+   *
+   * <p>1. During a rolling update
+   * 2. When a host leaves a deployment group
+   *
+   * <p>In case 1. this redundancy check makes sense. The undeployment of a job during a rolling
+   * update is always coupled with the deployment of a job. If the 'new' job is the same job
+   * that is currently deployed, the undeployment would be redundant so we do not generate
+   * deployment operations.
+   *
+   * <p>In case 2. undeployment can never be redundant. We always want to undeploy the job from
+   * hosts that have left the deployment group. Unfortunately in case case undeployments appear to
+   * be redundant to the following checks, so they must be skipped.
+   */
+  private static boolean redundantUndeployment(final Deployment deployment,
+                                               final DeploymentGroup deploymentGroup) {
+    // This deployment was not created by this deployment group.
+    if (!Objects.equals(deployment.getDeploymentGroupName(), deploymentGroup.getName())) {
+      return false;
+    }
+
+    // This deployment is not of the deployment group's job.
+    if (!deployment.getJobId().equals(deploymentGroup.getJobId())) {
+      return false;
+    }
+
+    // This deployment aims to do something other than start.
+    if (!Goal.START.equals(deployment.getGoal())) {
+      return false;
+    }
+
+    // Undeploying this deployment's job would be redundant because the next operation would simply
+    // redeploy the same job.
+    return true;
+  }
+}
@@ -0,0 +1,145 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.rollingupdate;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.ImmutableList;
+import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.TaskStatus;
+import java.util.List;
+
+/**
+ * What a rolling update step does with the current task, as decided by {@link RolloutDecider}.
+ * The master turns it into a {@link RollingUpdateOp}, the {@link RolloutSimulator} applies it to
+ * its simulated agents.
+ */
+public class RolloutDecision {
+
+  public enum Kind {
+    /** The task is done, move on to the next one. */
+    NEXT_TASK,
+    /** Nothing to do yet, try the task again in the next step. */
+    YIELD,
+    /** Deploy the job of the deployment group to the host, then move on. */
+    DEPLOY,
+    /** Undeploy the jobs of {@link #getUndeployJobIds()} from the host, then move on. */
+    UNDEPLOY,
+    /** Remove the host from the hosts the job has to be undeployed from, then move on. */
+    MARK_UNDEPLOYED,
+    /** The task failed. */
+    ERROR
+  }
+
+  private static final RolloutDecision NEXT_TASK = new RolloutDecision(
+      Kind.NEXT_TASK, ImmutableList.of(), null, null, null);
+  private static final RolloutDecision YIELD = new RolloutDecision(
+      Kind.YIELD, ImmutableList.of(), null, null, null);
+  private static final RolloutDecision DEPLOY = new RolloutDecision(
+      Kind.DEPLOY, ImmutableList.of(), null, null, null);
+  private static final RolloutDecision MARK_UNDEPLOYED = new RolloutDecision(
+      Kind.MARK_UNDEPLOYED, ImmutableList.of(), null, null, null);
+
+  private final Kind kind;
+  private final List<JobId> undeployJobIds;
+  private final String message;
+  private final RollingUpdateError error;
+  private final TaskStatus taskStatus;
+
+  private RolloutDecision(final Kind kind, final List<JobId> undeployJobIds,
+                          final String message, final RollingUpdateError error,
+                          final TaskStatus taskStatus) {
+    this.kind = kind;
+    this.undeployJobIds = undeployJobIds;
+    this.message = message;
+    this.error = error;
+    this.taskStatus = taskStatus;
+  }
+
+  public static RolloutDecision nextTask() {
+    return NEXT_TASK;
+  }
+
+  public static RolloutDecision yield() {
+    return YIELD;
+  }
+
+  public static RolloutDecision deploy() {
+    return DEPLOY;
+  }
+
+  public static RolloutDecision undeploy(final List<JobId> jobIds) {
+    return new RolloutDecision(Kind.UNDEPLOY, ImmutableList.copyOf(jobIds), null, null, null);
+  }
+
+  public static RolloutDecision markUndeployed() {
+    return MARK_UNDEPLOYED;
+  }
+
+  public static RolloutDecision error(final String message, final RollingUpdateError error) {
+    return error(message, error, null);
+  }
+
+  /**
+   * Returns a failure of the task.
+   *
+   * @param taskStatus The status of the job on the host at the time, if the task failed waiting
+   *                   for it to change.
+   */
+  public static RolloutDecision error(final String message, final RollingUpdateError error,
+                                      final TaskStatus taskStatus) {
+    return new RolloutDecision(Kind.ERROR, ImmutableList.of(),
+        checkNotNull(message, "message"), checkNotNull(error, "error"), taskStatus);
+  }
+
+  public Kind getKind() {
+    return kind;
+  }
+
+  /**
+   * Returns the jobs to undeploy, which is empty unless the kind is UNDEPLOY.
+   */
+  public List<JobId> getUndeployJobIds() {
+    return undeployJobIds;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  public RollingUpdateError getError() {
+    return error;
+  }
+
+  public TaskStatus getTaskStatus() {
+    return taskStatus;
+  }
+
+  @Override
+  public String toString() {
+    return "RolloutDecision{"
+           + "kind=" + kind
+           + ", undeployJobIds=" + undeployJobIds
+           + ", message=" + message
+           + ", error=" + error
+           + '}';
+  }
+}
@@ -0,0 +1,479 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.rollingupdate;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.lang.Boolean.TRUE;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.math.LongMath;
+import com.spotify.helios.common.descriptors.Deployment;
+import com.spotify.helios.common.descriptors.DeploymentGroup;
+import com.spotify.helios.common.descriptors.DeploymentGroupStatus;
+import com.spotify.helios.common.descriptors.DeploymentGroupTasks;
+import com.spotify.helios.common.descriptors.Goal;
+import com.spotify.helios.common.descriptors.Job;
+import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.RolloutOptions;
+import com.spotify.helios.common.descriptors.RolloutTask;
+import com.spotify.helios.common.descriptors.TaskStatus;
+import java.math.RoundingMode;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Estimates how long a rolling update takes without touching ZooKeeper or any agent. The plan is
+ * made by the real {@link RolloutPlanner}, and every step decides what to do with its task with
+ * the {@link RolloutDecider} of the master, reading simulated agents instead of ZooKeeper: one
+ * task per tick of the {@link RollingUpdateService}, waiting tasks yield until the job runs or has
+ * been undeployed, and a task times out once the plan has not advanced for longer than the
+ * rollout timeout. How long agents take is given by a {@link StartLatencyModel}.
+ *
+ * <p>Hosts a job is undeployed from start out running the job of the deployment group, the other
+ * hosts an earlier job deployed by the deployment group. Deploying and undeploying always
+ * succeeds.
+ *
+ * <p>Adaptive rollouts are run in waves sized by {@link AdaptiveRollout}, planning a wave takes a
+ * tick of its own like it does on the master.
+ *
+ * <p>Time is virtual, ticks in which nothing can change are skipped, so simulating a rollout to
+ * thousands of hosts takes milliseconds.
+ */
+public class RolloutSimulator {
+
+  private static final JobId SIMULATED_JOB = new JobId("simulated", "1");
+
+  private final StartLatencyModel latencies;
+  private final long tickMillis;
+
+  private RolloutSimulator(final Builder builder) {
+    this.latencies = checkNotNull(builder.latencies, "latencies");
+    this.tickMillis = builder.tickMillis;
+    checkArgument(tickMillis > 0, "tickMillis must be positive");
+  }
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  /**
+   * Simulates a rolling update of the deployment group to the hosts.
+   */
+  public Result simulate(final DeploymentGroup deploymentGroup, final List<String> hosts) {
+    final DeploymentGroup planned = AdaptiveRollout.isAdaptive(deploymentGroup)
+                                    ? AdaptiveRollout.hostByHost(deploymentGroup)
+                                    : deploymentGroup;
+    return simulate(RollingUpdatePlanner.of(planned), deploymentGroup, hosts);
+  }
+
+  /**
+   * Simulates the plan made by the planner for the deployment group and hosts. The planner of an
+   * adaptive rollout has to plan host by host.
+   */
+  public Result simulate(final RolloutPlanner planner, final DeploymentGroup deploymentGroup,
+                         final List<String> hosts) {
+    final DeploymentGroup group = deploymentGroup.getJobId() == null
+                                  ? deploymentGroup.toBuilder().setJobId(SIMULATED_JOB).build()
+                                  : deploymentGroup;
+    // Waves of an adaptive rollout are written over the plan like they are on the master
+    final List<RolloutTask> tasks = Lists.newArrayList(planner.plan(hosts));
+    final RolloutOptions options = group.getRolloutOptions() == null
+                                   ? RolloutOptions.getDefault()
+                                   : group.getRolloutOptions()
+                                       .withFallback(RolloutOptions.getDefault());
+    // The step times out once the whole seconds since the tasks were last written exceed this
+    final long timeoutMillis =
+        LongMath.saturatedMultiply(LongMath.saturatedAdd(options.getTimeout(), 1), 1000);
+    final boolean ignoreFailures = TRUE.equals(options.getIgnoreFailures());
+    final AdaptiveRollout adaptive = AdaptiveRollout.isAdaptive(group)
+                                     ? AdaptiveRollout.of(group)
+                                     : null;
+    // The current wave of an adaptive rollout
+    DeploymentGroupTasks wave = DeploymentGroupTasks.newBuilder()
+        .setRolloutTasks(tasks)
+        .setDeploymentGroup(group)
+        .build();
+    final ImmutableList.Builder<Integer> waveSizes = ImmutableList.builder();
+
+    final Agents agents = new Agents(group, tasks);
+    final ImmutableList.Builder<Step> steps = ImmutableList.builder();
+
+    long ticks = 0;
+    int index = 0;
+    while (index < tasks.size()) {
+      agents.now += tickMillis;
+      ticks++;
+      final long now = agents.now;
+
+      if (adaptive != null && index >= wave.getWaveEnd()) {
+        final AdaptiveRollout.Wave next = adaptive.startWave(
+            wave.toBuilder().setTaskIndex(index).build(),
+            tasks.subList(index, (int) Math.min(tasks.size(),
+                (long) index + adaptive.maxWaveTasks())),
+            now);
+        for (int i = 0; i < next.getWaveTasks().size(); i++) {
+          tasks.set(index + i, next.getWaveTasks().get(i));
+        }
+        wave = next.getTasks();
+        waveSizes.add(wave.getWaveSize());
+        agents.tasksModifiedMillis = now;
+        continue;
+      }
+
+      final RolloutTask task = tasks.get(index);
+      final String host = task.getTarget();
+      final long advancedAt = agents.tasksModifiedMillis;
+      final RolloutDecision decision = RolloutDecider.decide(agents, task, group, now);
+      switch (decision.getKind()) {
+        case YIELD:
+          // Nothing changes before the job is ready or the task times out, skip the ticks between
+          final long wakeUp = Math.min(agents.nextChangeMillis(host),
+              LongMath.saturatedAdd(advancedAt, timeoutMillis));
+          if (wakeUp == Long.MAX_VALUE) {
+            return new Result(DeploymentGroupStatus.State.ROLLING_OUT, Long.MAX_VALUE, ticks,
+                steps.build(), waveSizes.build(), "never finishes waiting for " + task,
+                tickMillis);
+          }
+          final long skipped =
+              LongMath.divide(wakeUp - now, tickMillis, RoundingMode.CEILING) - 1;
+          agents.now += skipped * tickMillis;
+          ticks += skipped;
+          continue;
+        case ERROR:
+          steps.add(new Step(task, advancedAt, now, true));
+          if (!ignoreFailures) {
+            return new Result(DeploymentGroupStatus.State.FAILED, now, ticks, steps.build(),
+                waveSizes.build(), decision.getMessage() + ": " + task, tickMillis);
+          }
+          wave = wave.toBuilder()
+              .setWaveFailures(wave.getWaveFailures() + 1)
+              .build();
+          break;
+        case DEPLOY:
+          agents.deploy(host);
+          steps.add(new Step(task, advancedAt, now, false));
+          break;
+        case UNDEPLOY:
+          agents.undeploy(host, decision.getUndeployJobIds());
+          steps.add(new Step(task, advancedAt, now, false));
+          break;
+        default:
+          steps.add(new Step(task, advancedAt, now, false));
+          break;
+      }
+      agents.tasksModifiedMillis = now;
+      index++;
+    }
+
+    return new Result(DeploymentGroupStatus.State.DONE, agents.now, ticks, steps.build(),
+        waveSizes.build(), null, tickMillis);
+  }
+
+  /**
+   * The simulated agents the hosts of a rollout run on, as read by the {@link RolloutDecider}.
+   * Only the job of the deployment group has a task status.
+   */
+  private class Agents implements RolloutState {
+
+    private final DeploymentGroup deploymentGroup;
+    private final JobId jobId;
+    private final Map<String, Map<JobId, Deployment>> deployments = Maps.newHashMap();
+    // When the job of the deployment group was deployed to or undeployed from each host
+    private final Map<String, Long> deployedAt = Maps.newHashMap();
+    private final Map<String, Long> undeployedAt = Maps.newHashMap();
+    private final TaskStatus creating;
+    private final TaskStatus running;
+    private final TaskStatus stopping;
+
+    private long now;
+    private long tasksModifiedMillis;
+
+    private Agents(final DeploymentGroup deploymentGroup, final List<RolloutTask> tasks) {
+      this.deploymentGroup = deploymentGroup;
+      this.jobId = deploymentGroup.getJobId();
+      final JobId previous = new JobId(jobId.getName(), "previous-" + jobId.getVersion());
+      for (final RolloutTask task : tasks) {
+        final String host = task.getTarget();
+        if (task.getAction() == RolloutTask.Action.FORCE_UNDEPLOY_JOBS) {
+          deployments.put(host, Maps.newHashMap());
+          deployments.get(host).put(jobId, deployment(jobId));
+          deployedAt.put(host, Long.MIN_VALUE);
+        } else if (!deployments.containsKey(host)) {
+          deployments.put(host, Maps.newHashMap());
+          deployments.get(host).put(previous, deployment(previous));
+        }
+      }
+      final Job job = Job.newBuilder()
+          .setName(jobId.getName())
+          .setVersion(jobId.getVersion())
+          .buildWithoutHash();
+      this.creating = status(job, TaskStatus.State.CREATING);
+      this.running = status(job, TaskStatus.State.RUNNING);
+      this.stopping = status(job, TaskStatus.State.STOPPING);
+    }
+
+    private Deployment deployment(final JobId jobId) {
+      return Deployment.of(jobId, Goal.START, Deployment.EMTPY_DEPLOYER_USER,
+          Deployment.EMPTY_DEPLOYER_MASTER, deploymentGroup.getName());
+    }
+
+    private TaskStatus status(final Job job, final TaskStatus.State state) {
+      return TaskStatus.newBuilder().setJob(job).setGoal(Goal.START).setState(state).build();
+    }
+
+    private void deploy(final String host) {
+      if (getDeployment(host, jobId) == null) {
+        deployments.computeIfAbsent(host, h -> Maps.newHashMap())
+            .put(jobId, deployment(jobId));
+        deployedAt.put(host, now);
+        undeployedAt.remove(host);
+      }
+    }
+
+    private void undeploy(final String host, final List<JobId> jobIds) {
+      for (final JobId undeployed : jobIds) {
+        deployments.get(host).remove(undeployed);
+        if (undeployed.equals(jobId)) {
+          deployedAt.remove(host);
+          undeployedAt.put(host, now);
+        }
+      }
+    }
+
+    /**
+     * Returns when the task status of the job on the host changes next, or {@link Long#MAX_VALUE}
+     * if it never does.
+     */
+    private long nextChangeMillis(final String host) {
+      final long changesAt;
+      if (deployedAt.containsKey(host)) {
+        changesAt = LongMath.saturatedAdd(deployedAt.get(host), latencies.startMillis(host));
+      } else if (undeployedAt.containsKey(host)) {
+        changesAt = LongMath.saturatedAdd(undeployedAt.get(host), latencies.stopMillis(host));
+      } else {
+        return Long.MAX_VALUE;
+      }
+      return changesAt > now ? changesAt : Long.MAX_VALUE;
+    }
+
+    @Override
+    public TaskStatus getTaskStatus(final String host, final JobId jobId) {
+      if (!this.jobId.equals(jobId)) {
+        return null;
+      }
+      if (deployedAt.containsKey(host)) {
+        final long runningAt =
+            LongMath.saturatedAdd(deployedAt.get(host), latencies.startMillis(host));
+        return now >= runningAt ? running : creating;
+      }
+      if (undeployedAt.containsKey(host)) {
+        final long stoppedAt =
+            LongMath.saturatedAdd(undeployedAt.get(host), latencies.stopMillis(host));
+        return now >= stoppedAt ? null : stopping;
+      }
+      return null;
+    }
+
+    @Override
+    public Deployment getDeployment(final String host, final JobId jobId) {
+      return getDeployments(host).get(jobId);
+    }
+
+    @Override
+    public Map<JobId, Deployment> getDeployments(final String host) {
+      return deployments.getOrDefault(host, Collections.emptyMap());
+    }
+
+    @Override
+    public Long getTasksModifiedMillis(final String deploymentGroupName) {
+      return tasksModifiedMillis;
+    }
+  }
+
+  public static class Builder {
+
+    private StartLatencyModel latencies;
+    private long tickMillis = RollingUpdateService.UPDATE_INTERVAL;
+
+    private Builder() {
+    }
+
+    public Builder setLatencies(final StartLatencyModel latencies) {
+      this.latencies = latencies;
+      return this;
+    }
+
+    /**
+     * Sets the interval between rolling update steps, by default that of the master.
+     */
+    public Builder setTickMillis(final long tickMillis) {
+      this.tickMillis = tickMillis;
+      return this;
+    }
+
+    public RolloutSimulator build() {
+      return new RolloutSimulator(this);
+    }
+  }
+
+  /**
+   * One task of a simulated rollout, from the tick the previous task finished in to the tick it
+   * finished in.
+   */
+  public static class Step {
+
+    private final RolloutTask task;
+    private final long startMillis;
+    private final long endMillis;
+    private final boolean failed;
+
+    Step(final RolloutTask task, final long startMillis, final long endMillis,
+         final boolean failed) {
+      this.task = task;
+      this.startMillis = startMillis;
+      this.endMillis = endMillis;
+      this.failed = failed;
+    }
+
+    public RolloutTask getTask() {
+      return task;
+    }
+
+    public long getStartMillis() {
+      return startMillis;
+    }
+
+    public long getEndMillis() {
+      return endMillis;
+    }
+
+    public long getDurationMillis() {
+      return endMillis - startMillis;
+    }
+
+    /**
+     * Returns true if the task timed out. Failures only continue the rollout if it ignores them.
+     */
+    public boolean isFailed() {
+      return failed;
+    }
+
+    @Override
+    public String toString() {
+      return task.getAction() + " " + task.getTarget() + " " + startMillis + "-" + endMillis
+             + (failed ? " failed" : "");
+    }
+  }
+
+  public static class Result {
+
+    private final DeploymentGroupStatus.State state;
+    private final long durationMillis;
+    private final long ticks;
+    private final List<Step> steps;
+    private final List<Integer> waveSizes;
+    private final String error;
+    private final long tickMillis;
+
+    Result(final DeploymentGroupStatus.State state, final long durationMillis, final long ticks,
+           final List<Step> steps, final List<Integer> waveSizes, final String error,
+           final long tickMillis) {
+      this.state = state;
+      this.durationMillis = durationMillis;
+      this.ticks = ticks;
+      this.steps = steps;
+      this.waveSizes = waveSizes;
+      this.error = error;
+      this.tickMillis = tickMillis;
+    }
+
+    /**
+     * Returns DONE or FAILED, or ROLLING_OUT if the rollout would wait forever.
+     */
+    public DeploymentGroupStatus.State getState() {
+      return state;
+    }
+
+    /**
+     * Returns the time from starting the rollout until it is done or failed.
+     */
+    public long getDurationMillis() {
+      return durationMillis;
+    }
+
+    /**
+     * Returns the number of rolling update steps the master runs for the rollout.
+     */
+    public long getTicks() {
+      return ticks;
+    }
+
+    /**
+     * Returns every task that was run, in order.
+     */
+    public List<Step> getSteps() {
+      return steps;
+    }
+
+    /**
+     * Returns the size chosen for each wave of an adaptive rollout, or an empty list if the
+     * rollout is not adaptive.
+     */
+    public List<Integer> getWaveSizes() {
+      return waveSizes;
+    }
+
+    /**
+     * Returns the tasks the rollout had to wait for, in order. Tasks are run one after the other,
+     * so these are the tasks that make up the duration beyond one tick per task. In a wave of
+     * hosts it is usually the AWAIT_RUNNING of the first host and of the slowest ones after it.
+     */
+    public List<Step> getCriticalPath() {
+      return steps.stream()
+          .filter(step -> step.getDurationMillis() > tickMillis || step.isFailed())
+          .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns why the rollout failed or would not finish, or null if it is done.
+     */
+    public String getError() {
+      return error;
+    }
+
+    @Override
+    public String toString() {
+      return "Result{"
+             + "state=" + state
+             + ", durationMillis=" + durationMillis
+             + ", ticks=" + ticks
+             + ", waveSizes=" + waveSizes
+             + ", criticalPath=" + getCriticalPath()
+             + ", error=" + error
+             + '}';
+    }
+  }
+}
@@ -0,0 +1,55 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.rollingupdate;
+
+import com.spotify.helios.common.descriptors.Deployment;
+import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.TaskStatus;
+import java.util.Map;
+
+/**
+ * The state of the cluster that a rolling update step reads to decide what to do with a task. The
+ * master reads it from ZooKeeper, the {@link RolloutSimulator} from its simulated agents.
+ */
+public interface RolloutState {
+
+  /**
+   * Returns the status of the job on the host, or null if the agent has not written one or has
+   * removed it after undeploying the job.
+   */
+  TaskStatus getTaskStatus(String host, JobId jobId);
+
+  /**
+   * Returns the deployment of the job to the host, or null if it is not deployed there.
+   */
+  Deployment getDeployment(String host, JobId jobId);
+
+  /**
+   * Returns every deployment to the host.
+   */
+  Map<JobId, Deployment> getDeployments(String host);
+
+  /**
+   * Returns when the tasks of the deployment group were last written, or null if they could not
+   * be read.
+   */
+  Long getTasksModifiedMillis(String deploymentGroupName);
+}
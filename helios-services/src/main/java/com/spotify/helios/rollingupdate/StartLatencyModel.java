@@ -0,0 +1,192 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.rollingupdate;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.spotify.helios.common.descriptors.TaskStatus;
+import com.spotify.helios.common.descriptors.TaskStatusEvent;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * How long a job takes to reach RUNNING after it is deployed to a host, and to stop after it is
+ * undeployed, as used by {@link RolloutSimulator}.
+ *
+ * <p>A model can be fitted from the task status history of a job: a start is measured from the
+ * first PULLING_IMAGE or CREATING status to the following RUNNING status, and a stop from
+ * STOPPING to STOPPED. The time it takes an agent to notice a deployment is not in the history, so
+ * fitted latencies are slightly optimistic.
+ */
+public class StartLatencyModel {
+
+  private final Map<String, Long> startMillis;
+  private final long defaultStartMillis;
+  private final Map<String, Long> stopMillis;
+  private final long defaultStopMillis;
+
+  private StartLatencyModel(final Map<String, Long> startMillis, final long defaultStartMillis,
+                            final Map<String, Long> stopMillis, final long defaultStopMillis) {
+    this.startMillis = ImmutableMap.copyOf(startMillis);
+    this.defaultStartMillis = defaultStartMillis;
+    this.stopMillis = ImmutableMap.copyOf(stopMillis);
+    this.defaultStopMillis = defaultStopMillis;
+  }
+
+  /**
+   * Returns a model in which every host takes the same time to start and stop a job.
+   */
+  public static StartLatencyModel fixed(final long startMillis, final long stopMillis) {
+    return new StartLatencyModel(Collections.emptyMap(), startMillis,
+        Collections.emptyMap(), stopMillis);
+  }
+
+  /**
+   * Fits a model to the task status history of a job.
+   *
+   * @param events     The history, as returned by the job history of the master.
+   * @param percentile The percentile of the observed latencies to use, 0.5 for the median or
+   *                   higher for a more pessimistic estimate.
+   * @param fallback   The model to use for hosts, and for starts or stops, without history. Its
+   *                   latencies of single hosts, such as failing ones, are kept for the starts or
+   *                   stops the history has no samples of.
+   */
+  public static StartLatencyModel fromHistory(final Collection<TaskStatusEvent> events,
+                                              final double percentile,
+                                              final StartLatencyModel fallback) {
+    checkArgument(percentile >= 0 && percentile <= 1, "percentile must be between 0 and 1");
+
+    final Map<String, List<TaskStatusEvent>> byHost = Maps.newHashMap();
+    for (final TaskStatusEvent event : events) {
+      byHost.computeIfAbsent(event.getHost(), host -> Lists.newArrayList()).add(event);
+    }
+
+    final Map<String, List<Long>> starts = Maps.newHashMap();
+    final Map<String, List<Long>> stops = Maps.newHashMap();
+    for (final Map.Entry<String, List<TaskStatusEvent>> entry : byHost.entrySet()) {
+      final List<TaskStatusEvent> hostEvents = entry.getValue();
+      hostEvents.sort(Comparator.comparingLong(TaskStatusEvent::getTimestamp));
+
+      Long startedAt = null;
+      Long stoppingAt = null;
+      for (final TaskStatusEvent event : hostEvents) {
+        final TaskStatus.State state = event.getStatus().getState();
+        if (state == TaskStatus.State.PULLING_IMAGE || state == TaskStatus.State.CREATING) {
+          if (startedAt == null) {
+            startedAt = event.getTimestamp();
+          }
+        } else if (state == TaskStatus.State.RUNNING && startedAt != null) {
+          add(starts, entry.getKey(), event.getTimestamp() - startedAt);
+          startedAt = null;
+        } else if (state == TaskStatus.State.STOPPING) {
+          if (stoppingAt == null) {
+            stoppingAt = event.getTimestamp();
+          }
+        } else if (state == TaskStatus.State.STOPPED && stoppingAt != null) {
+          add(stops, entry.getKey(), event.getTimestamp() - stoppingAt);
+          stoppingAt = null;
+        }
+      }
+    }
+
+    return new StartLatencyModel(
+        merge(fallback.startMillis, percentiles(starts, percentile)),
+        percentile(all(starts), percentile, fallback.defaultStartMillis),
+        merge(fallback.stopMillis, percentiles(stops, percentile)),
+        percentile(all(stops), percentile, fallback.defaultStopMillis));
+  }
+
+  /**
+   * Returns a copy of this model in which the host never gets the job to RUNNING, so that
+   * waiting for it times out.
+   */
+  public StartLatencyModel withFailingHost(final String host) {
+    final Map<String, Long> start = Maps.newHashMap(startMillis);
+    start.put(host, Long.MAX_VALUE);
+    return new StartLatencyModel(start, defaultStartMillis, stopMillis, defaultStopMillis);
+  }
+
+  /**
+   * Returns the milliseconds between deploying the job to the host and the job running there, or
+   * {@link Long#MAX_VALUE} if it never runs.
+   */
+  public long startMillis(final String host) {
+    return startMillis.getOrDefault(host, defaultStartMillis);
+  }
+
+  /**
+   * Returns the milliseconds between undeploying the job from the host and its task status being
+   * removed.
+   */
+  public long stopMillis(final String host) {
+    return stopMillis.getOrDefault(host, defaultStopMillis);
+  }
+
+  /**
+   * Returns the latencies of single hosts, the fitted ones taking precedence over the fallback.
+   */
+  private static Map<String, Long> merge(final Map<String, Long> fallback,
+                                         final Map<String, Long> fitted) {
+    final Map<String, Long> merged = Maps.newHashMap(fallback);
+    merged.putAll(fitted);
+    return merged;
+  }
+
+  private static void add(final Map<String, List<Long>> samples, final String host,
+                          final long millis) {
+    samples.computeIfAbsent(host, h -> Lists.newArrayList()).add(millis);
+  }
+
+  private static List<Long> all(final Map<String, List<Long>> samples) {
+    final List<Long> all = Lists.newArrayList();
+    samples.values().forEach(all::addAll);
+    return all;
+  }
+
+  private static Map<String, Long> percentiles(final Map<String, List<Long>> samples,
+                                               final double percentile) {
+    final Map<String, Long> result = Maps.newHashMap();
+    for (final Map.Entry<String, List<Long>> entry : samples.entrySet()) {
+      result.put(entry.getKey(), percentile(entry.getValue(), percentile, 0));
+    }
+    return result;
+  }
+
+  /**
+   * Returns the nearest-rank percentile of the samples, or the default if there are none.
+   */
+  private static long percentile(final List<Long> samples, final double percentile,
+                                 final long defaultValue) {
+    if (samples.isEmpty()) {
+      return defaultValue;
+    }
+    final List<Long> sorted = Lists.newArrayList(samples);
+    Collections.sort(sorted);
+    final int rank = (int) Math.ceil(percentile * sorted.size());
+    return sorted.get(Math.max(0, rank - 1));
+  }
+}
@@ -0,0 +1,307 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.servicescommon;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.spotify.helios.agent.BoundedRandomExponentialBackoff;
+import com.spotify.helios.agent.RetryIntervalPolicy;
+import com.spotify.helios.agent.RetryScheduler;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link EventSender} that queues events and sends them in batches from a background thread,
+ * so that emitting an event never waits for the backend.
+ *
+ * <p>Events are held in a bounded queue in memory. When the queue is full they overflow to a
+ * spill file, if a directory was given, and are dropped otherwise. A batch that fails is retried
+ * with backoff until it goes through, so events are delivered at least once. Events still queued
+ * in memory at shutdown are spilled and delivered after the next start. Events in memory when
+ * the process dies are lost.
+ *
+ * <p>Events are not guaranteed to be delivered in order.
+ */
+public class EventOutbox implements EventSender, MetricSet {
+
+  private static final Logger log = LoggerFactory.getLogger(EventOutbox.class);
+
+  public static final int DEFAULT_CAPACITY = 10000;
+  public static final int DEFAULT_BATCH_SIZE = 100;
+  public static final long DEFAULT_LINGER_MILLIS = 50;
+  public static final long DEFAULT_MAX_SPILL_BYTES = 256 * 1024 * 1024;
+
+  private static final long SEND_TIMEOUT_MILLIS = SECONDS.toMillis(30);
+  private static final long STOP_TIMEOUT_MILLIS = SECONDS.toMillis(10);
+
+  private final EventSender delegate;
+  private final String name;
+  private final BlockingQueue<Event> queue;
+  private final EventSpill spill;
+  private final int batchSize;
+  private final long lingerMillis;
+  private final RetryIntervalPolicy retryIntervalPolicy;
+  private final Thread dispatcher;
+
+  private final AtomicLong sent = new AtomicLong();
+  private final AtomicLong spilled = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+  private final AtomicLong failedBatches = new AtomicLong();
+
+  private volatile boolean running;
+
+  public EventOutbox(final EventSender delegate, final String name,
+                     @Nullable final Path spillDirectory) throws IOException {
+    this(delegate, name, spillDirectory, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE,
+        DEFAULT_LINGER_MILLIS, DEFAULT_MAX_SPILL_BYTES,
+        BoundedRandomExponentialBackoff.newBuilder()
+            .setMinInterval(1, SECONDS)
+            .setMaxInterval(30, SECONDS)
+            .build());
+  }
+
+  EventOutbox(final EventSender delegate, final String name,
+              @Nullable final Path spillDirectory, final int capacity, final int batchSize,
+              final long lingerMillis, final long maxSpillBytes,
+              final RetryIntervalPolicy retryIntervalPolicy) throws IOException {
+    this.delegate = delegate;
+    this.name = name;
+    this.queue = new LinkedBlockingQueue<>(capacity);
+    this.spill = spillDirectory == null
+                 ? null : new EventSpill(spillDirectory, name, maxSpillBytes);
+    this.batchSize = batchSize;
+    this.lingerMillis = lingerMillis;
+    this.retryIntervalPolicy = retryIntervalPolicy;
+    this.dispatcher = new Thread(this::dispatch, "event-outbox-" + name);
+    this.dispatcher.setDaemon(true);
+  }
+
+  @Override
+  public void start() throws Exception {
+    delegate.start();
+    running = true;
+    dispatcher.start();
+  }
+
+  @Override
+  public void stop() throws Exception {
+    running = false;
+    dispatcher.interrupt();
+    dispatcher.join(STOP_TIMEOUT_MILLIS);
+    if (dispatcher.isAlive()) {
+      log.warn("outbox {}: dispatcher did not stop within {} ms", name, STOP_TIMEOUT_MILLIS);
+    }
+
+    // Keep what we could not send for the next start. The dispatcher has already spilled the
+    // batch it was sending, so it comes before these.
+    final List<Event> remaining = Lists.newArrayList();
+    queue.drainTo(remaining);
+    if (!remaining.isEmpty()) {
+      log.info("outbox {}: spilling {} unsent events", name, remaining.size());
+      for (final Event event : remaining) {
+        overflow(event);
+      }
+    }
+    if (spill != null) {
+      spill.close();
+    }
+    delegate.stop();
+  }
+
+  /**
+   * Queues a message without blocking.
+   */
+  @Override
+  public void send(final String topic, final byte[] message) {
+    final Event event = new Event(topic, message);
+    if (!queue.offer(event)) {
+      overflow(event);
+    }
+  }
+
+  @Override
+  public Map<String, Metric> getMetrics() {
+    final String prefix = name("helios.event_outbox", name);
+    return ImmutableMap.<String, Metric>builder()
+        .put(name(prefix, "queued"), (Gauge<Integer>) queue::size)
+        .put(name(prefix, "spilled_bytes"),
+            (Gauge<Long>) () -> spill == null ? 0L : spill.bytes())
+        .put(name(prefix, "sent"), (Gauge<Long>) sent::get)
+        .put(name(prefix, "spilled"), (Gauge<Long>) spilled::get)
+        .put(name(prefix, "dropped"), (Gauge<Long>) dropped::get)
+        .put(name(prefix, "failed_batches"), (Gauge<Long>) failedBatches::get)
+        .build();
+  }
+
+  long sentCount() {
+    return sent.get();
+  }
+
+  long spilledCount() {
+    return spilled.get();
+  }
+
+  long droppedCount() {
+    return dropped.get();
+  }
+
+  private void overflow(final Event event) {
+    if (spill != null && spill.append(event)) {
+      spilled.incrementAndGet();
+    } else if (dropped.getAndIncrement() % 1000 == 0) {
+      log.warn("outbox {} is full, dropping events ({} so far)", name, dropped.get());
+    }
+  }
+
+  private void dispatch() {
+    boolean spillTurn = true;
+    // The batch being sent, if it was taken from memory
+    List<Event> inFlight = null;
+    while (running) {
+      try {
+        // Alternate between memory and disk so that neither starves the other
+        final boolean fromSpill = spillTurn && spill != null && !spill.isEmpty();
+        spillTurn = !spillTurn;
+
+        final List<Event> batch;
+        if (fromSpill) {
+          batch = spill.read(batchSize);
+        } else {
+          batch = nextBatch();
+          inFlight = batch;
+        }
+        if (!batch.isEmpty()) {
+          deliver(batch);
+        }
+        inFlight = null;
+        if (fromSpill) {
+          spill.commit();
+        }
+      } catch (InterruptedException e) {
+        if (running) {
+          log.warn("outbox {}: dispatcher interrupted", name);
+        }
+        break;
+      } catch (Exception e) {
+        log.error("outbox {}: failed to dispatch events", name, e);
+      }
+    }
+
+    // Keep the batch we were stopped in the middle of for the next start
+    if (inFlight != null) {
+      for (final Event event : inFlight) {
+        overflow(event);
+      }
+    }
+  }
+
+  /**
+   * Waits up to the linger time for the batch to fill up once the first event has arrived.
+   */
+  private List<Event> nextBatch() throws InterruptedException {
+    final List<Event> batch = Lists.newArrayList();
+    final Event first = queue.poll(lingerMillis, MILLISECONDS);
+    if (first == null) {
+      return batch;
+    }
+    batch.add(first);
+    final long deadline = System.nanoTime() + MILLISECONDS.toNanos(lingerMillis);
+    while (batch.size() < batchSize) {
+      queue.drainTo(batch, batchSize - batch.size());
+      final long remaining = deadline - System.nanoTime();
+      if (batch.size() >= batchSize || remaining <= 0) {
+        break;
+      }
+      final Event next = queue.poll(remaining, NANOSECONDS);
+      if (next == null) {
+        break;
+      }
+      batch.add(next);
+    }
+    return batch;
+  }
+
+  /**
+   * Sends a batch, one request per topic, retrying until every topic has gone through.
+   */
+  private void deliver(final List<Event> batch) throws InterruptedException {
+    final Map<String, List<byte[]>> topics = Maps.newLinkedHashMap();
+    for (final Event event : batch) {
+      topics.computeIfAbsent(event.topic(), topic -> Lists.newArrayList()).add(event.message());
+    }
+
+    for (final Map.Entry<String, List<byte[]>> entry : topics.entrySet()) {
+      final RetryScheduler retryScheduler = retryIntervalPolicy.newScheduler();
+      while (true) {
+        try {
+          delegate.sendBatch(entry.getKey(), entry.getValue())
+              .get(SEND_TIMEOUT_MILLIS, MILLISECONDS);
+          sent.addAndGet(entry.getValue().size());
+          break;
+        } catch (ExecutionException | TimeoutException | RuntimeException e) {
+          failedBatches.incrementAndGet();
+          final long delay = retryScheduler.nextMillis();
+          log.warn("outbox {}: failed to send {} events to {}, retrying in {} ms: {}",
+              name, entry.getValue().size(), entry.getKey(), delay, e.toString());
+          Thread.sleep(delay);
+        }
+      }
+    }
+  }
+
+  static class Event {
+
+    private final String topic;
+    private final byte[] message;
+
+    Event(final String topic, final byte[] message) {
+      this.topic = topic;
+      this.message = message;
+    }
+
+    String topic() {
+      return topic;
+    }
+
+    byte[] message() {
+      return message;
+    }
+  }
+}
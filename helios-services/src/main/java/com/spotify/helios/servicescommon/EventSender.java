@@ -20,9 +20,27 @@
 
 package com.spotify.helios.servicescommon;
 
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import io.dropwizard.lifecycle.Managed;
+import java.util.List;
 
 public interface EventSender extends Managed {
 
   void send(String topic, byte[] message);
+
+  /**
+   * Sends a batch of messages to a topic. The returned future completes once every message has
+   * been accepted, and fails if any of them might not have been, in which case the caller may
+   * send the whole batch again.
+   *
+   * <p>The default implementation hands each message to {@link #send(String, byte[])} and
+   * completes right away.
+   */
+  default ListenableFuture<Void> sendBatch(final String topic, final List<byte[]> messages) {
+    for (final byte[] message : messages) {
+      send(topic, message);
+    }
+    return Futures.immediateFuture(null);
+  }
 }
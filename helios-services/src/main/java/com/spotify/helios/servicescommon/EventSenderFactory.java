@@ -28,12 +28,15 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.dropwizard.lifecycle.Managed;
 import io.dropwizard.lifecycle.setup.LifecycleEnvironment;
 import io.dropwizard.setup.Environment;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import javax.annotation.Nullable;
 import org.apache.kafka.clients.producer.KafkaProducer;
 
 public final class EventSenderFactory {
@@ -45,6 +48,24 @@ public final class EventSenderFactory {
       final Environment environment,
       final CommonConfiguration<?> config,
       final MetricRegistry metricRegistry, final String pubsubHealthcheckTopic) {
+    try {
+      return build(environment, config, metricRegistry, pubsubHealthcheckTopic, null);
+    } catch (IOException e) {
+      // Nothing is written to disk without an outbox directory
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Builds the configured event senders. Each sender is wrapped in an {@link EventOutbox} so that
+   * events are sent in batches off the caller's thread. If an outbox directory is given, events
+   * that do not fit in memory are spilled to it and survive a restart.
+   */
+  public static List<EventSender> build(
+      final Environment environment,
+      final CommonConfiguration<?> config,
+      final MetricRegistry metricRegistry, final String pubsubHealthcheckTopic,
+      @Nullable final Path outboxDirectory) throws IOException {
 
     final List<EventSender> senders = new ArrayList<>();
 
@@ -54,7 +75,10 @@ public final class EventSenderFactory {
     final Optional<KafkaProducer<String, byte[]>> kafkaProducer =
         kafkaClientProvider.getDefaultProducer();
 
-    kafkaProducer.ifPresent(producer -> senders.add(new KafkaSender(producer)));
+    if (kafkaProducer.isPresent()) {
+      senders.add(outbox(new KafkaSender(kafkaProducer.get()), "kafka", outboxDirectory,
+          metricRegistry));
+    }
 
     final LifecycleEnvironment lifecycle = environment.lifecycle();
 
@@ -81,7 +105,8 @@ public final class EventSenderFactory {
 
       for (final String prefix : config.getPubsubPrefixes()) {
         final GooglePubSubSender sender = GooglePubSubSender.create(pubsub, prefix, healthchecker);
-        senders.add(sender);
+        senders.add(outbox(sender, "pubsub-" + prefix.replaceAll("[^A-Za-z0-9_.-]", "_"),
+            outboxDirectory, metricRegistry));
       }
 
       lifecycle.manage(new ManagedPubSub(pubsub));
@@ -92,6 +117,14 @@ public final class EventSenderFactory {
     return senders;
   }
 
+  private static EventSender outbox(final EventSender sender, final String name,
+                                    @Nullable final Path directory,
+                                    final MetricRegistry metricRegistry) throws IOException {
+    final EventOutbox outbox = new EventOutbox(sender, name, directory);
+    metricRegistry.registerAll(outbox);
+    return outbox;
+  }
+
   /** Small wrapper so we can close the PubSub instance when service shuts down. */
   private static final class ManagedPubSub implements Managed {
 
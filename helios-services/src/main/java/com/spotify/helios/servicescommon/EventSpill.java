@@ -0,0 +1,191 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.servicescommon;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+
+import com.google.common.collect.Lists;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The on-disk overflow of an {@link EventOutbox}.
+ *
+ * <p>Events are appended to a {@code .spill} file. To read them back, the file is moved aside to
+ * a {@code .draining} file, which is read from start to end and deleted once everything read
+ * from it has been sent. A {@code .draining} file left behind by a crash is read again from the
+ * start, so its events may be delivered twice but are not lost.
+ *
+ * <p>Each event is stored as the length and UTF-8 bytes of its topic followed by the length and
+ * bytes of its message.
+ */
+class EventSpill {
+
+  private static final Logger log = LoggerFactory.getLogger(EventSpill.class);
+
+  private final Path spillFile;
+  private final Path drainingFile;
+  private final long maxBytes;
+
+  private DataOutputStream writer;
+  private DataInputStream reader;
+  private boolean readerDone;
+
+  EventSpill(final Path directory, final String name, final long maxBytes) throws IOException {
+    Files.createDirectories(directory);
+    this.spillFile = directory.resolve(name + ".spill");
+    this.drainingFile = directory.resolve(name + ".draining");
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Appends an event. Returns false if it could not be written, or if the spill is full.
+   */
+  synchronized boolean append(final EventOutbox.Event event) {
+    try {
+      if (bytes() >= maxBytes) {
+        return false;
+      }
+      if (writer == null) {
+        writer = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(
+            spillFile, StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+      }
+      final byte[] topic = event.topic().getBytes(UTF_8);
+      writer.writeInt(topic.length);
+      writer.write(topic);
+      writer.writeInt(event.message().length);
+      writer.write(event.message());
+      // Hand it to the OS so that it survives the process, if not the machine
+      writer.flush();
+      return true;
+    } catch (IOException e) {
+      log.warn("failed to spill event to {}", spillFile, e);
+      return false;
+    }
+  }
+
+  /**
+   * Reads up to {@code max} spilled events. Once the current {@code .draining} file has been read
+   * to the end, {@link #commit()} deletes it.
+   */
+  synchronized List<EventOutbox.Event> read(final int max) throws IOException {
+    final List<EventOutbox.Event> events = Lists.newArrayList();
+    if (reader == null && !open()) {
+      return events;
+    }
+    while (events.size() < max && !readerDone) {
+      try {
+        final byte[] topic = readBytes();
+        final byte[] message = readBytes();
+        events.add(new EventOutbox.Event(new String(topic, UTF_8), message));
+      } catch (EOFException e) {
+        // A torn write at the end of the file is the last thing a crash can leave behind
+        readerDone = true;
+      }
+    }
+    return events;
+  }
+
+  /**
+   * Called once everything returned by {@link #read(int)} has been sent.
+   */
+  synchronized void commit() throws IOException {
+    if (reader != null && readerDone) {
+      reader.close();
+      reader = null;
+      readerDone = false;
+      Files.deleteIfExists(drainingFile);
+    }
+  }
+
+  synchronized boolean isEmpty() {
+    return reader == null && !Files.exists(drainingFile) && !hasSpilled();
+  }
+
+  /**
+   * Returns the number of bytes waiting on disk.
+   */
+  synchronized long bytes() {
+    return size(spillFile) + size(drainingFile);
+  }
+
+  synchronized void close() throws IOException {
+    if (writer != null) {
+      writer.close();
+      writer = null;
+    }
+    if (reader != null) {
+      reader.close();
+      reader = null;
+      readerDone = false;
+    }
+  }
+
+  private boolean open() throws IOException {
+    if (!Files.exists(drainingFile)) {
+      if (!hasSpilled()) {
+        return false;
+      }
+      if (writer != null) {
+        writer.close();
+        writer = null;
+      }
+      Files.move(spillFile, drainingFile, ATOMIC_MOVE);
+    }
+    reader = new DataInputStream(new BufferedInputStream(Files.newInputStream(drainingFile)));
+    readerDone = false;
+    return true;
+  }
+
+  private byte[] readBytes() throws IOException {
+    final int length = reader.readInt();
+    if (length < 0 || length > maxBytes) {
+      log.warn("skipping the rest of corrupt spill file {}", drainingFile);
+      throw new EOFException();
+    }
+    final byte[] bytes = new byte[length];
+    reader.readFully(bytes);
+    return bytes;
+  }
+
+  private boolean hasSpilled() {
+    return size(spillFile) > 0;
+  }
+
+  private static long size(final Path file) {
+    try {
+      return Files.exists(file) ? Files.size(file) : 0;
+    } catch (IOException e) {
+      return 0;
+    }
+  }
+}
@@ -24,11 +24,16 @@ import com.google.cloud.ByteArray;
 import com.google.cloud.pubsub.Message;
 import com.google.cloud.pubsub.PubSub;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Function;
+import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.JdkFutureAdapters;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import io.dropwizard.lifecycle.Managed;
 import java.time.Duration;
+import java.util.List;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -99,6 +104,37 @@ public class GooglePubSubSender implements EventSender {
     }
   }
 
+  /**
+   * Publishes the batch in a single request. Unlike {@link #send(String, byte[])} this fails
+   * instead of dropping the messages while pubsub appears to be unhealthy, so that the caller
+   * can hold on to them and try again.
+   */
+  @Override
+  public ListenableFuture<Void> sendBatch(final String topic, final List<byte[]> messages) {
+    final String combinedTopic = topicPrefix + topic;
+
+    if (!healthchecker.isHealthy()) {
+      return Futures.immediateFailedFuture(new IllegalStateException(
+          "pubsub client appears to be unhealthy, not publishing to " + combinedTopic));
+    }
+
+    final List<Message> batch = Lists.newArrayListWithCapacity(messages.size());
+    for (final byte[] message : messages) {
+      batch.add(Message.of(ByteArray.copyFrom(message)));
+    }
+    try {
+      return Futures.transform(
+          JdkFutureAdapters.listenInPoolThread(pubsub.publishAsync(combinedTopic, batch)),
+          (Function<List<String>, Void>) ackIds -> {
+            log.debug("Sent {} events to Google PubSub, topic: {}", batch.size(), combinedTopic);
+            return null;
+          },
+          MoreExecutors.directExecutor());
+    } catch (Exception e) {
+      return Futures.immediateFailedFuture(e);
+    }
+  }
+
   public interface HealthChecker extends Managed {
 
     boolean isHealthy();
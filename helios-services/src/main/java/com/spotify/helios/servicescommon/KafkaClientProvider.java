@@ -42,6 +42,7 @@ public class KafkaClientProvider {
   private static final String KAFKA_HELIOS_CLIENT_ID = "Helios";
   private static final String KAFKA_QUORUM_PARAMETER = "1";
   public static final int MAX_BLOCK_TIMEOUT = 1000;
+  private static final int LINGER_MILLIS = 20;
 
   private final Optional<Map<String, Object>> partialConfigs;
 
@@ -78,6 +79,10 @@ public class KafkaClientProvider {
             // call to KafkaProducer.send() will throw a BufferExhaustedException exception.
             .put(ProducerConfig.BLOCK_ON_BUFFER_FULL_CONFIG, false)
 
+            // Events arrive in bursts during rollouts and mass restarts. Wait a little for more
+            // records so that they go out in one request per partition rather than one each.
+            .put(ProducerConfig.LINGER_MS_CONFIG, LINGER_MILLIS)
+
             .build());
   }
 
@@ -20,6 +20,10 @@
 
 package com.spotify.helios.servicescommon;
 
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.kafka.clients.producer.Callback;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerRecord;
@@ -62,6 +66,36 @@ public class KafkaSender implements EventSender {
     send(KafkaRecord.of(topic, message));
   }
 
+  /**
+   * Hands every message to the producer, which batches them up per partition, and completes
+   * once the broker has acknowledged all of them.
+   */
+  @Override
+  public ListenableFuture<Void> sendBatch(final String topic, final List<byte[]> messages) {
+    final SettableFuture<Void> future = SettableFuture.create();
+    if (messages.isEmpty()) {
+      future.set(null);
+      return future;
+    }
+    final AtomicInteger remaining = new AtomicInteger(messages.size());
+    final Callback callback = (metadata, ex) -> {
+      if (ex != null) {
+        future.setException(ex);
+      } else if (remaining.decrementAndGet() == 0) {
+        future.set(null);
+      }
+    };
+    try {
+      for (final byte[] message : messages) {
+        kafkaProducer.send(new ProducerRecord<>(topic, message), callback);
+      }
+    } catch (RuntimeException e) {
+      // Thrown rather than reported through the callback when the producer's buffer is full
+      future.setException(e);
+    }
+    return future;
+  }
+
   private static class LoggingCallback implements Callback {
 
     @Override
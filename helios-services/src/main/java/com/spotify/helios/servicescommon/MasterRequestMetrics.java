@@ -23,6 +23,7 @@ package com.spotify.helios.servicescommon;
 import static com.codahale.metrics.MetricRegistry.name;
 
 import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 
@@ -39,6 +40,9 @@ public class MasterRequestMetrics {
   private final Meter failureMeter;
   private final Meter userErrorMeter;
 
+  private final Histogram allocatedBytes;
+  private final Meter allocationMeter;
+
   public MasterRequestMetrics(String group, String type, String requestName,
                               final MetricRegistry registry) {
     final String prefix = name(group, type, requestName);
@@ -50,6 +54,9 @@ public class MasterRequestMetrics {
     successMeter = registry.meter(prefix + "_meter_success");
     failureMeter = registry.meter(prefix + "_meter_failures");
     userErrorMeter = registry.meter(prefix + "_meter_usererror");
+
+    allocatedBytes = registry.histogram(prefix + "_allocated_bytes");
+    allocationMeter = registry.meter(prefix + "_meter_allocated_bytes");
   }
 
   public void success() {
@@ -67,6 +74,15 @@ public class MasterRequestMetrics {
     userErrorMeter.mark();
   }
 
+  /**
+   * Records the bytes allocated by one request. The histogram shows the size of single requests,
+   * the meter the rate at which requests of this kind allocate.
+   */
+  public void allocated(final long bytes) {
+    allocatedBytes.update(bytes);
+    allocationMeter.mark(bytes);
+  }
+
   public Counter getSuccessCounter() {
     return successCounter;
   }
@@ -21,6 +21,7 @@
 package com.spotify.helios.servicescommon;
 
 import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.collect.Lists.partition;
 import static com.google.common.collect.Lists.reverse;
 import static com.spotify.helios.servicescommon.coordination.ZooKeeperOperations.check;
 import static com.spotify.helios.servicescommon.coordination.ZooKeeperOperations.create;
@@ -38,6 +39,8 @@ import com.spotify.helios.servicescommon.coordination.ZooKeeperOperation;
 import java.util.List;
 import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.KeeperException.NoNodeException;
+import org.apache.zookeeper.KeeperException.NodeExistsException;
+import org.apache.zookeeper.KeeperException.NotEmptyException;
 import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,6 +49,10 @@ public class ZooKeeperRegistrarUtil {
 
   private static final Logger log = LoggerFactory.getLogger(ZooKeeperRegistrarUtil.class);
 
+  // Keeps each transaction far below the default ZooKeeper request size limit of 1 MB
+  private static final int DELETE_BATCH_SIZE = 500;
+  private static final int DELETE_ATTEMPTS = 3;
+
   public static boolean isHostRegistered(final ZooKeeperClient client, final String host) {
     try {
       final Stat stat = client.exists(Paths.configHostId(host));
@@ -69,8 +76,11 @@ public class ZooKeeperRegistrarUtil {
     client.ensurePath(Paths.statusHost(hostname));
     client.ensurePath(Paths.statusHostJobs(hostname));
 
-    // Finish registration by creating the id node last
-    client.createAndSetData(idPath, hostId.getBytes(UTF_8));
+    // Finish registration by creating the id node last. Creating and deleting the fence of a
+    // deregistration fails the transaction with NodeExistsException while the host is being
+    // deregistered, so that the deregistration does not delete the new registration.
+    final String fence = Paths.configHostDeregistering(hostname);
+    client.transaction(create(fence), delete(fence), create(idPath, hostId.getBytes(UTF_8)));
   }
 
   /**
@@ -120,69 +130,180 @@ public class ZooKeeperRegistrarUtil {
     }
   }
 
+  /**
+   * Returns true if the host has been fenced by a deregistration that has not completed.
+   */
+  public static boolean isHostDeregistering(final ZooKeeperClient client, final String host) {
+    try {
+      return client.exists(Paths.configHostDeregistering(host)) != null;
+    } catch (KeeperException e) {
+      throw new HeliosRuntimeException("checking deregistration of host " + host + " failed", e);
+    }
+  }
+
+  /**
+   * Deregisters a host in phases that are each idempotent, so that a deregistration that was
+   * interrupted, for example by a master restart, is completed by calling this again.
+   *
+   * <ol>
+   * <li>Fence the host: mark it as deregistering and remove its id, so that it is no longer
+   * considered registered. {@link #registerHost} refuses to register a fenced host.</li>
+   * <li>Delete the job history of the host in bounded batches. The history can be much larger
+   * than everything else, and deleting it in a single transaction can exceed the ZooKeeper
+   * request size limit.</li>
+   * <li>Atomically remove the remaining config and status of the host, provided that it has not
+   * been registered again.</li>
+   * </ol>
+   *
+   * <p>If the host was registered again after it was fenced, by an agent that does not respect
+   * the fence, the deregistration is aborted and the fence removed, rather than deleting a live
+   * agent.
+   *
+   * @param client ZooKeeperClient
+   * @param host   Host
+   *
+   * @throws HostNotFoundException If the host does not exist.
+   */
   public static void deregisterHost(final ZooKeeperClient client, final String host)
       throws HostNotFoundException, HostStillInUseException {
     log.info("deregistering host: {}", host);
 
-    // TODO (dano): handle retry failures
     try {
-      final List<ZooKeeperOperation> operations = Lists.newArrayList();
+      fenceHost(client, host);
+
+      for (final String jobString : safeGetChildren(client, Paths.configHostJobs(host))) {
+        final JobId job = JobId.fromString(jobString);
+        deleteInBatches(client, Paths.historyJobHost(job, host));
+      }
 
-      if (client.exists(Paths.configHost(host)) == null) {
-        throw new HostNotFoundException("host [" + host + "] does not exist");
+      try {
+        client.transaction(removeHostOperations(client, host));
+      } catch (NodeExistsException e) {
+        // The id node was created since the fence
+        throw abortDeregistration(client, host);
       }
+    } catch (NoNodeException e) {
+      throw new HostNotFoundException(host);
+    } catch (KeeperException e) {
+      throw new HeliosRuntimeException(e);
+    }
+  }
 
-      // Remove all jobs deployed to this host
-      final List<String> jobs = safeGetChildren(client, Paths.configHostJobs(host));
+  private static void fenceHost(final ZooKeeperClient client, final String host)
+      throws HostNotFoundException, KeeperException {
+    if (client.exists(Paths.configHost(host)) == null) {
+      throw new HostNotFoundException("host [" + host + "] does not exist");
+    }
 
-      for (final String jobString : jobs) {
-        final JobId job = JobId.fromString(jobString);
-        final String hostJobPath = Paths.configHostJob(host, job);
+    final boolean fenced = client.exists(Paths.configHostDeregistering(host)) != null;
+    final boolean registered = client.exists(Paths.configHostId(host)) != null;
+    if (fenced && registered) {
+      throw abortDeregistration(client, host);
+    } else if (fenced) {
+      log.info("resuming deregistration of host: {}", host);
+      return;
+    }
 
-        final List<String> nodes = safeListRecursive(client, hostJobPath);
-        for (final String node : reverse(nodes)) {
-          operations.add(delete(node));
-        }
-        if (client.exists(Paths.configJobHost(job, host)) != null) {
-          operations.add(delete(Paths.configJobHost(job, host)));
+    final List<ZooKeeperOperation> operations = Lists.newArrayList();
+    operations.add(check(Paths.configHost(host)));
+    operations.add(create(Paths.configHostDeregistering(host)));
+    if (registered) {
+      operations.add(delete(Paths.configHostId(host)));
+    }
+    client.transaction(operations);
+  }
+
+  /**
+   * Removes the fence of a host that was registered again while it was being deregistered, so
+   * that the agent that registered it keeps running normally, and returns the exception to abort
+   * the deregistration with.
+   */
+  private static HeliosRuntimeException abortDeregistration(final ZooKeeperClient client,
+                                                            final String host)
+      throws KeeperException {
+    log.warn("host {} was registered again while it was being deregistered, aborting", host);
+    try {
+      client.delete(Paths.configHostDeregistering(host));
+    } catch (NoNodeException ignore) {
+      // Already removed
+    }
+    return new HeliosRuntimeException(
+        "host " + host + " was registered again while it was being deregistered");
+  }
+
+  /**
+   * Deletes the tree under the path, children first, in transactions of at most
+   * {@link #DELETE_BATCH_SIZE} operations. The tree is listed again if it changed underneath us,
+   * for example because an agent wrote more history.
+   */
+  private static void deleteInBatches(final ZooKeeperClient client, final String path)
+      throws KeeperException {
+    for (int attempt = 1; ; attempt++) {
+      final List<String> nodes = safeListRecursive(client, path);
+      try {
+        for (final List<String> batch : partition(reverse(nodes), DELETE_BATCH_SIZE)) {
+          final List<ZooKeeperOperation> operations = Lists.newArrayList();
+          for (final String node : batch) {
+            operations.add(delete(node));
+          }
+          client.transaction(operations);
         }
-        // Clean out the history for each job
-        final List<String> history = safeListRecursive(client, Paths.historyJobHost(job, host));
-        for (final String s : reverse(history)) {
-          operations.add(delete(s));
+        return;
+      } catch (NoNodeException | NotEmptyException e) {
+        if (attempt == DELETE_ATTEMPTS) {
+          throw e;
         }
+        log.debug("{} changed while deleting it, listing it again", path, e);
       }
+    }
+  }
+
+  private static List<ZooKeeperOperation> removeHostOperations(final ZooKeeperClient client,
+                                                               final String host)
+      throws KeeperException {
+    final List<ZooKeeperOperation> operations = Lists.newArrayList();
 
-      operations.add(delete(Paths.configHostJobs(host)));
+    // Remove all jobs deployed to this host
+    final List<String> jobs = safeGetChildren(client, Paths.configHostJobs(host));
 
-      // Remove the host status
-      final List<String> nodes = safeListRecursive(client, Paths.statusHost(host));
+    for (final String jobString : jobs) {
+      final JobId job = JobId.fromString(jobString);
+      final String hostJobPath = Paths.configHostJob(host, job);
+
+      final List<String> nodes = safeListRecursive(client, hostJobPath);
       for (final String node : reverse(nodes)) {
         operations.add(delete(node));
       }
-
-      // Remove port allocations
-      final List<String> ports = safeGetChildren(client, Paths.configHostPorts(host));
-      for (final String port : ports) {
-        operations.add(delete(Paths.configHostPort(host, Integer.valueOf(port))));
+      if (client.exists(Paths.configJobHost(job, host)) != null) {
+        operations.add(delete(Paths.configJobHost(job, host)));
       }
-      operations.add(delete(Paths.configHostPorts(host)));
+    }
 
-      // Remove host id
-      final String idPath = Paths.configHostId(host);
-      if (client.exists(idPath) != null) {
-        operations.add(delete(idPath));
-      }
+    operations.add(delete(Paths.configHostJobs(host)));
 
-      // Remove host config root
-      operations.add(delete(Paths.configHost(host)));
+    // Remove the host status
+    final List<String> nodes = safeListRecursive(client, Paths.statusHost(host));
+    for (final String node : reverse(nodes)) {
+      operations.add(delete(node));
+    }
 
-      client.transaction(operations);
-    } catch (NoNodeException e) {
-      throw new HostNotFoundException(host);
-    } catch (KeeperException e) {
-      throw new HeliosRuntimeException(e);
+    // Remove port allocations
+    final List<String> ports = safeGetChildren(client, Paths.configHostPorts(host));
+    for (final String port : ports) {
+      operations.add(delete(Paths.configHostPort(host, Integer.valueOf(port))));
     }
+    operations.add(delete(Paths.configHostPorts(host)));
+
+    // Fail with NodeExistsException if the host was registered again after it was fenced
+    final String idPath = Paths.configHostId(host);
+    operations.add(create(idPath));
+    operations.add(delete(idPath));
+
+    // Remove the fence and the host config root
+    operations.add(delete(Paths.configHostDeregistering(host)));
+    operations.add(delete(Paths.configHost(host)));
+
+    return operations;
   }
 
   private static List<String> safeGetChildren(final ZooKeeperClient client, final String path) {
@@ -35,9 +35,12 @@ import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Pattern;
 import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.CuratorEvent;
 import org.apache.curator.framework.api.transaction.CuratorTransactionFinal;
 import org.apache.curator.framework.api.transaction.CuratorTransactionResult;
 import org.apache.curator.framework.imps.CuratorFrameworkState;
@@ -171,6 +174,64 @@ public class DefaultZooKeeperClient implements ZooKeeperClient {
     return stat(path);
   }
 
+  @Override
+  public CompletionStage<Node> getNodeAsync(final String path) {
+    return inBackground(path, future -> client.getData().inBackground((c, event) -> {
+      if (event.getResultCode() == KeeperException.Code.OK.intValue()) {
+        future.complete(new Node(path, event.getData(), event.getStat()));
+      } else {
+        future.completeExceptionally(keeperException(event));
+      }
+    }).forPath(path));
+  }
+
+  @Override
+  public CompletionStage<List<String>> getChildrenAsync(final String path) {
+    return inBackground(path, future -> client.getChildren().inBackground((c, event) -> {
+      if (event.getResultCode() == KeeperException.Code.OK.intValue()) {
+        future.complete(event.getChildren());
+      } else {
+        future.completeExceptionally(keeperException(event));
+      }
+    }).forPath(path));
+  }
+
+  @Override
+  public CompletionStage<Stat> existsAsync(final String path) {
+    return inBackground(path, future -> client.checkExists().inBackground((c, event) -> {
+      if (event.getResultCode() == KeeperException.Code.OK.intValue()) {
+        future.complete(event.getStat());
+      } else if (event.getResultCode() == KeeperException.Code.NONODE.intValue()) {
+        future.complete(null);
+      } else {
+        future.completeExceptionally(keeperException(event));
+      }
+    }).forPath(path));
+  }
+
+  private <T> CompletionStage<T> inBackground(final String path,
+                                              final BackgroundOperation<T> operation) {
+    final CompletableFuture<T> future = new CompletableFuture<>();
+    try {
+      assertClusterIdFlagTrue();
+      operation.start(future);
+    } catch (Exception e) {
+      log.debug("failed to start background operation on {}", path, e);
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  private static KeeperException keeperException(final CuratorEvent event) {
+    return KeeperException.create(KeeperException.Code.get(event.getResultCode()),
+        event.getPath());
+  }
+
+  @FunctionalInterface
+  private interface BackgroundOperation<T> {
+    void start(CompletableFuture<T> future) throws Exception;
+  }
+
   @Override
   public void start() {
     if (client.getState() != CuratorFrameworkState.STARTED) {
@@ -41,6 +41,7 @@ public class Paths {
   private static final String ENVIRONMENT = "environment";
   private static final String LABELS = "labels";
   private static final String ID = "id";
+  private static final String DEREGISTERING = "deregistering";
   private static final String DEPLOYMENT_GROUPS = "deployment-groups";
   private static final String DEPLOYMENT_GROUP_TASKS = "deployment-group-tasks";
 
@@ -122,6 +123,10 @@ public class Paths {
     return CONFIG_HOSTS.path(host, ID);
   }
 
+  public static String configHostDeregistering(final String host) {
+    return CONFIG_HOSTS.path(host, DEREGISTERING);
+  }
+
   public static String configHostJobs(final String host) {
     return CONFIG_HOSTS.path(host, JOBS);
   }
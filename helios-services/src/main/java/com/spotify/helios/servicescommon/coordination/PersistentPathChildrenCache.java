@@ -23,8 +23,11 @@ package com.spotify.helios.servicescommon.coordination;
 import static com.google.common.base.Charsets.UTF_8;
 import static com.google.common.util.concurrent.Service.State.STOPPING;
 import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.apache.zookeeper.Watcher.Event.EventType.NodeCreated;
 import static org.apache.zookeeper.Watcher.Event.EventType.NodeDataChanged;
+import static org.apache.zookeeper.Watcher.Event.EventType.NodeDeleted;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.type.MapType;
 import com.google.common.base.Supplier;
@@ -66,6 +69,14 @@ import org.slf4j.LoggerFactory;
  *
  * <p>The view is persisted to disk as json and the node values must be valid json.
  *
+ * <p>The modification zxid of every node is kept next to the view, in a file with a
+ * {@code .versions} suffix. When the children change only the added nodes are fetched. When the
+ * view has to be checked against zookeeper, at startup or after the session was replaced, the
+ * cache stats every node and fetches only the ones whose zxid moved. A reconnect within the same
+ * session needs neither, as zookeeper keeps the watches of a session and fires the ones whose
+ * nodes changed while we were away. A node that is deleted, or deleted and created again, fires
+ * its data watcher as well, so it is fetched again even if the children look the same.
+ *
  * @param <T> The deserialized node value type.
  */
 public class PersistentPathChildrenCache<T> extends AbstractIdleService {
@@ -74,7 +85,12 @@ public class PersistentPathChildrenCache<T> extends AbstractIdleService {
 
   private static final long REFRESH_INTERVAL_MILLIS = 30000;
 
+  private static final TypeReference<Map<String, Long>> VERSIONS_TYPE =
+      new TypeReference<Map<String, Long>>() {
+      };
+
   private final PersistentAtomicReference<Map<String, T>> snapshot;
+  private final PersistentAtomicReference<Map<String, Long>> versions;
   private final CuratorFramework curator;
   private final String path;
   private final String clusterId;
@@ -86,7 +102,12 @@ public class PersistentPathChildrenCache<T> extends AbstractIdleService {
   private final Set<String> changes = Sets.newConcurrentHashSet();
   private final Reactor reactor;
 
+  // False when every node has to be checked against zookeeper
   private volatile boolean synced;
+  // True when the children have changed since they were last listed
+  private volatile boolean childrenChanged;
+  // The zookeeper session that the watches of the last sync belong to
+  private volatile long syncedSessionId;
 
   public PersistentPathChildrenCache(final CuratorFramework curator, final String path,
                                      final String clusterId, final Path snapshotFile,
@@ -102,6 +123,9 @@ public class PersistentPathChildrenCache<T> extends AbstractIdleService {
     final Supplier<Map<String, T>> empty = Suppliers.ofInstance(Collections.<String, T>emptyMap());
 
     this.snapshot = PersistentAtomicReference.create(snapshotFile, mapType, empty);
+    this.versions = PersistentAtomicReference.create(
+        snapshotFile.resolveSibling(snapshotFile.getFileName() + ".versions"),
+        VERSIONS_TYPE, Suppliers.ofInstance(Collections.<String, Long>emptyMap()));
     this.reactor = new DefaultReactor("zk-ppcc:" + path, new Update(), REFRESH_INTERVAL_MILLIS);
     curator.getConnectionStateListenable().addListener(new ConnectionListener());
   }
@@ -179,14 +203,18 @@ public class PersistentPathChildrenCache<T> extends AbstractIdleService {
   private void update() throws KeeperException, InterruptedException {
     log.debug("updating: {}", path);
 
-    final Map<String, T> newSnapshot;
     final Map<String, T> currentSnapshot = snapshot.get();
+    final Map<String, Long> currentVersions = versions.get();
+    final Map<String, T> newSnapshot = Maps.newHashMap(currentSnapshot);
+    final Map<String, Long> newVersions = Maps.newHashMap(currentVersions);
 
     if (!synced) {
       synced = true;
-      newSnapshot = sync();
-    } else {
-      newSnapshot = Maps.newHashMap(currentSnapshot);
+      childrenChanged = false;
+      sync(newSnapshot, newVersions, true);
+    } else if (childrenChanged) {
+      childrenChanged = false;
+      sync(newSnapshot, newVersions, false);
     }
 
     // Fetch new data and register watchers for updated children
@@ -196,22 +224,25 @@ public class PersistentPathChildrenCache<T> extends AbstractIdleService {
       iterator.remove();
       final String node = ZKPaths.makePath(path, child);
       log.debug("fetching change: {}", node);
-      final T value;
       try {
-        final byte[] bytes = curator.getData()
-            .usingWatcher(dataWatcher)
-            .forPath(node);
-        value = Json.read(bytes, valueType);
-      } catch (KeeperException e) {
-        throw e;
-      } catch (Exception e) {
-        throw new RuntimeException(e);
+        fetch(node, newSnapshot, newVersions);
+      } catch (KeeperException.NoNodeException e) {
+        // Removed since. Forget it, so that it is fetched again if it is created again before the
+        // children are next listed.
+        log.debug("changed node is gone: {}", node);
+        newSnapshot.remove(node);
+        newVersions.remove(node);
       }
-      newSnapshot.put(node, value);
     }
 
+    // The view goes first. Should we die in between, versions that lag behind only cost a fetch.
     if (!currentSnapshot.equals(newSnapshot)) {
       snapshot.setUnchecked(newSnapshot);
+    }
+    if (!currentVersions.equals(newVersions)) {
+      versions.setUnchecked(newVersions);
+    }
+    if (!currentSnapshot.equals(newSnapshot)) {
       fireNodesChanged();
     }
   }
@@ -227,34 +258,58 @@ public class PersistentPathChildrenCache<T> extends AbstractIdleService {
   }
 
   /**
-   * Fetch new snapshot and register watchers.
+   * Brings the set of nodes in line with the children of the path, fetching added nodes and
+   * registering watchers on them. If {@code verify} is set, nodes we already have are checked
+   * against their zookeeper stat and refetched if they were modified, and their watchers are
+   * registered again.
    */
-  private Map<String, T> sync() throws KeeperException {
-    log.debug("syncing: {}", path);
+  private void sync(final Map<String, T> nodes, final Map<String, Long> nodeVersions,
+                    final boolean verify) throws KeeperException {
+    log.debug("syncing: {} (verify={})", path, verify);
 
-    final Map<String, T> newSnapshot = Maps.newHashMap();
-
-    // Fetch new snapshot and register watchers
+    final long sessionId = sessionId();
+    int fetched = 0;
     try {
       final List<String> children = getChildren();
       log.debug("children: {}", children);
+
+      final Set<String> current = Sets.newHashSet();
       for (final String child : children) {
-        final String node = ZKPaths.makePath(path, child);
-        final byte[] bytes = curator.getData()
-            .usingWatcher(dataWatcher)
-            .forPath(node);
-        final String json = new String(bytes, UTF_8);
-        log.debug("child: {}={}", node, json);
-        final T value;
+        current.add(ZKPaths.makePath(path, child));
+      }
+      nodes.keySet().retainAll(current);
+      nodeVersions.keySet().retainAll(current);
+
+      for (final String node : current) {
+        // A node we have a version but no value for, e.g. because the view was lost while the
+        // versions survived, is fetched again like a node we know nothing about.
+        final Long version = nodes.containsKey(node) ? nodeVersions.get(node) : null;
+        if (version != null) {
+          if (!verify) {
+            continue;
+          }
+          final Stat stat = curator.checkExists()
+              .usingWatcher(dataWatcher)
+              .forPath(node);
+          if (stat == null) {
+            // Removed since we listed the children, the children watcher will fire
+            nodes.remove(node);
+            nodeVersions.remove(node);
+            continue;
+          }
+          if (stat.getMzxid() == version) {
+            continue;
+          }
+        }
         try {
-          value = Json.read(bytes, valueType);
-        } catch (IOException e) {
-          log.warn("failed to parse node: {}: {}", node, json, e);
-          // Treat parse failure as absence
-          continue;
+          fetch(node, nodes, nodeVersions);
+          fetched++;
+        } catch (KeeperException.NoNodeException e) {
+          nodes.remove(node);
+          nodeVersions.remove(node);
         }
-        newSnapshot.put(node, value);
       }
+      log.debug("synced {}: {} nodes, {} fetched", path, current.size(), fetched);
     } catch (KeeperException e) {
       throw e;
     } catch (Exception e) {
@@ -262,7 +317,48 @@ public class PersistentPathChildrenCache<T> extends AbstractIdleService {
       throw new RuntimeException(e);
     }
 
-    return newSnapshot;
+    if (verify) {
+      syncedSessionId = sessionId;
+    }
+  }
+
+  /**
+   * Reads a node and registers a data watcher on it. A node that cannot be parsed is treated as
+   * absent, and read again the next time the children are synced.
+   */
+  private void fetch(final String node, final Map<String, T> nodes,
+                     final Map<String, Long> nodeVersions) throws KeeperException {
+    final Stat stat = new Stat();
+    final byte[] bytes;
+    try {
+      bytes = curator.getData()
+          .storingStatIn(stat)
+          .usingWatcher(dataWatcher)
+          .forPath(node);
+    } catch (KeeperException e) {
+      throw e;
+    } catch (Exception e) {
+      Throwables.throwIfUnchecked(e);
+      throw new RuntimeException(e);
+    }
+    final String json = new String(bytes, UTF_8);
+    log.debug("child: {}={}", node, json);
+    try {
+      nodes.put(node, Json.<T>read(bytes, valueType));
+      nodeVersions.put(node, stat.getMzxid());
+    } catch (IOException e) {
+      log.warn("failed to parse node: {}: {}", node, json, e);
+      nodes.remove(node);
+      nodeVersions.remove(node);
+    }
+  }
+
+  private long sessionId() {
+    try {
+      return curator.getZookeeperClient().getZooKeeper().getSessionId();
+    } catch (Exception e) {
+      return 0;
+    }
   }
 
   private List<String> getChildren() throws Exception {
@@ -298,7 +394,7 @@ public class PersistentPathChildrenCache<T> extends AbstractIdleService {
     @Override
     public void process(final WatchedEvent event) throws Exception {
       log.debug("children event: {}", event);
-      synced = false;
+      childrenChanged = true;
       reactor.signal();
     }
   }
@@ -308,7 +404,11 @@ public class PersistentPathChildrenCache<T> extends AbstractIdleService {
     @Override
     public void process(final WatchedEvent event) throws Exception {
       log.debug("data event: {}", event);
-      if (event.getType() == NodeDataChanged) {
+      // A deleted node may have been created again before we list the children, and then looks
+      // unchanged to them, so it is fetched again like a changed one. Watches set by stat-ing a
+      // node that was gone fire when it is created.
+      if (event.getType() == NodeDataChanged || event.getType() == NodeDeleted
+          || event.getType() == NodeCreated) {
         final String child = ZKPaths.getNodeFromPath(event.getPath());
         changes.add(child);
         reactor.signal();
@@ -322,7 +422,10 @@ public class PersistentPathChildrenCache<T> extends AbstractIdleService {
     public void stateChanged(final CuratorFramework client, final ConnectionState newState) {
       log.debug("connection state change: {}", newState);
       if (newState == ConnectionState.RECONNECTED) {
-        synced = false;
+        // Watches survive a reconnect within the same session, anything else needs a sync
+        if (sessionId() != syncedSessionId) {
+          synced = false;
+        }
         reactor.signal();
       }
       fireConnectionStateChanged(newState);
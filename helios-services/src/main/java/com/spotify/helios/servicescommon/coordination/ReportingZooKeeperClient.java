@@ -25,6 +25,7 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletionStage;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.api.transaction.CuratorTransactionResult;
 import org.apache.curator.framework.listen.Listenable;
@@ -183,6 +184,21 @@ public class ReportingZooKeeperClient implements ZooKeeperClient {
     return reporter.time(tag, "exists", () -> client.exists(path));
   }
 
+  @Override
+  public CompletionStage<Node> getNodeAsync(String path) {
+    return reporter.timeAsync(tag, "getNodeAsync", () -> client.getNodeAsync(path));
+  }
+
+  @Override
+  public CompletionStage<List<String>> getChildrenAsync(String path) {
+    return reporter.timeAsync(tag, "getChildrenAsync", () -> client.getChildrenAsync(path));
+  }
+
+  @Override
+  public CompletionStage<Stat> existsAsync(String path) {
+    return reporter.timeAsync(tag, "existsAsync", () -> client.existsAsync(path));
+  }
+
   @Override
   public Listenable<ConnectionStateListener> getConnectionStateListenable() {
     return client.getConnectionStateListenable();
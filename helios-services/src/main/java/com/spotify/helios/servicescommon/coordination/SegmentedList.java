@@ -0,0 +1,227 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.servicescommon.coordination;
+
+import static com.spotify.helios.servicescommon.coordination.ZooKeeperOperations.check;
+import static com.spotify.helios.servicescommon.coordination.ZooKeeperOperations.create;
+import static com.spotify.helios.servicescommon.coordination.ZooKeeperOperations.delete;
+import static com.spotify.helios.servicescommon.coordination.ZooKeeperOperations.set;
+import static java.util.Collections.emptyList;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.spotify.helios.common.Json;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.KeeperException.BadVersionException;
+import org.apache.zookeeper.KeeperException.NoNodeException;
+import org.apache.zookeeper.data.Stat;
+
+/**
+ * A list stored in ZooKeeper as a node and a number of segment nodes below it.
+ *
+ * <p>Lists of up to {@link #SEGMENT_SIZE} elements are stored inline in the node as a JSON array,
+ * which is also how lists were stored before they could be segmented. Longer lists are split into
+ * segments of at most {@link #SEGMENT_SIZE} elements that are stored in the children 0, 1, 2, ...
+ * of the node, and the node itself holds an empty array. The value of the list is the inline
+ * elements followed by the elements of each segment in order.
+ *
+ * <p>Lists are only split into segments when the writer asks for it, since readers that predate
+ * segments see a segmented list as empty. They can always be read back either way.
+ *
+ * <p>Every change sets the node itself, even when only a segment is rewritten, so that the version
+ * of the node can be used to detect concurrent changes to any part of the list.
+ */
+public class SegmentedList<T> {
+
+  public static final int SEGMENT_SIZE = 100;
+
+  private static final int READ_ATTEMPTS = 3;
+
+  private final String path;
+  private final int version;
+  private final List<T> inline;
+  private final List<List<T>> segments;
+
+  private SegmentedList(final String path, final int version, final List<T> inline,
+                        final List<List<T>> segments) {
+    this.path = path;
+    this.version = version;
+    this.inline = inline;
+    this.segments = segments;
+  }
+
+  /**
+   * Reads the list stored at {@code path}. The node is read again after the segments and the read
+   * is retried if it was changed in between.
+   *
+   * @throws NoNodeException If the node does not exist.
+   * @throws BadVersionException If the list kept changing while it was being read.
+   */
+  public static <T> SegmentedList<T> read(final ZooKeeperClient client, final String path,
+                                          final TypeReference<List<T>> type)
+      throws KeeperException, IOException {
+    for (int attempt = 0; attempt < READ_ATTEMPTS; attempt++) {
+      final Node node = client.getNode(path);
+      final List<List<T>> segments = new ArrayList<>();
+      try {
+        for (int i = 0; i < node.getStat().getNumChildren(); i++) {
+          segments.add(parse(client.getData(segmentPath(path, i)), type));
+        }
+      } catch (NoNodeException e) {
+        continue;
+      }
+      final Stat stat = client.stat(path);
+      if (stat != null && stat.getVersion() == node.getStat().getVersion()) {
+        return new SegmentedList<>(path, stat.getVersion(), parse(node.getBytes(), type),
+            segments);
+      }
+    }
+    throw new BadVersionException(path);
+  }
+
+  public String path() {
+    return path;
+  }
+
+  public int version() {
+    return version;
+  }
+
+  public int segmentCount() {
+    return segments.size();
+  }
+
+  public List<T> values() {
+    final List<T> values = new ArrayList<>(inline);
+    for (final List<T> segment : segments) {
+      values.addAll(segment);
+    }
+    return values;
+  }
+
+  /**
+   * Returns the operations that replace the list with {@code values}, failing if the list was
+   * changed since it was read. Segments whose contents stay the same are not rewritten.
+   *
+   * @param segment Whether a list longer than {@link #SEGMENT_SIZE} is split into segments. If
+   *                not, the list is stored inline, which readers that predate segments can read,
+   *                and any existing segments are deleted.
+   */
+  public List<ZooKeeperOperation> replace(final List<T> values, final boolean segment) {
+    final List<ZooKeeperOperation> ops = Lists.newArrayList();
+    ops.add(check(path, version));
+    if (!segment || values.size() <= SEGMENT_SIZE) {
+      ops.add(set(path, Json.asBytesUnchecked(values)));
+      ops.addAll(deleteSegments(path, segments.size()));
+      return ops;
+    }
+
+    final List<List<T>> replacement = Lists.partition(values, SEGMENT_SIZE);
+    ops.add(set(path, Json.asBytesUnchecked(emptyList())));
+    for (int i = 0; i < replacement.size(); i++) {
+      final byte[] bytes = Json.asBytesUnchecked(replacement.get(i));
+      if (i >= segments.size()) {
+        ops.add(create(segmentPath(path, i), bytes));
+      } else if (!replacement.get(i).equals(segments.get(i))) {
+        ops.add(set(segmentPath(path, i), bytes));
+      }
+    }
+    for (int i = segments.size() - 1; i >= replacement.size(); i--) {
+      ops.add(delete(segmentPath(path, i)));
+    }
+    return ops;
+  }
+
+  /**
+   * Returns the operations that remove {@code value} from the list, failing if the list was
+   * changed since it was read. Only the node and the segment holding the value are rewritten.
+   * Returns an empty list if the value is not in the list.
+   */
+  public List<ZooKeeperOperation> remove(final T value) {
+    if (inline.contains(value)) {
+      final List<T> remaining = new ArrayList<>(inline);
+      remaining.remove(value);
+      return ImmutableList.of(check(path, version), set(path, Json.asBytesUnchecked(remaining)));
+    }
+    for (int i = 0; i < segments.size(); i++) {
+      if (segments.get(i).contains(value)) {
+        final List<T> remaining = new ArrayList<>(segments.get(i));
+        remaining.remove(value);
+        return ImmutableList.of(
+            check(path, version),
+            set(path, Json.asBytesUnchecked(inline)),
+            set(segmentPath(path, i), Json.asBytesUnchecked(remaining)));
+      }
+    }
+    return ImmutableList.of();
+  }
+
+  public static String segmentPath(final String path, final int index) {
+    return path + "/" + index;
+  }
+
+  /**
+   * Returns the number of segments needed to hold {@code size} elements in segments of
+   * {@code segmentSize} elements, or 0 if the elements are not segmented.
+   */
+  public static int segmentCount(final int size, final int segmentSize) {
+    return segmentSize == 0 ? 0 : (size + segmentSize - 1) / segmentSize;
+  }
+
+  /**
+   * Returns the operations that write {@code segments} below {@code path}, reusing the
+   * {@code existing} segment nodes and deleting the ones that are no longer needed.
+   */
+  public static List<ZooKeeperOperation> writeSegments(final String path, final int existing,
+                                                       final List<? extends List<?>> segments) {
+    final List<ZooKeeperOperation> ops = Lists.newArrayList();
+    for (int i = 0; i < segments.size(); i++) {
+      final byte[] bytes = Json.asBytesUnchecked(segments.get(i));
+      ops.add(i < existing ? set(segmentPath(path, i), bytes)
+                           : create(segmentPath(path, i), bytes));
+    }
+    for (int i = existing - 1; i >= segments.size(); i--) {
+      ops.add(delete(segmentPath(path, i)));
+    }
+    return ops;
+  }
+
+  /**
+   * Returns the operations that delete the {@code existing} segment nodes below {@code path}.
+   * They have to be applied before the node itself can be deleted.
+   */
+  public static List<ZooKeeperOperation> deleteSegments(final String path, final int existing) {
+    return writeSegments(path, existing, ImmutableList.<List<?>>of());
+  }
+
+  private static <T> List<T> parse(final byte[] bytes, final TypeReference<List<T>> type)
+      throws IOException {
+    // ensurePath() creates nodes without data
+    if (bytes == null || bytes.length == 0) {
+      return new ArrayList<>();
+    }
+    return Json.read(bytes, type);
+  }
+}
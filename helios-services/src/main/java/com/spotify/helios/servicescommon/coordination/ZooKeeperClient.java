@@ -25,6 +25,7 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletionStage;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.api.transaction.CuratorTransactionResult;
 import org.apache.curator.framework.listen.Listenable;
@@ -91,6 +92,25 @@ public interface ZooKeeperClient {
 
   Stat exists(String path) throws KeeperException;
 
+  /**
+   * Reads a node in the background. The returned stage completes exceptionally with a
+   * {@link KeeperException} if the read fails, e.g. with a
+   * {@link KeeperException.NoNodeException} if the node does not exist.
+   */
+  CompletionStage<Node> getNodeAsync(String path);
+
+  /**
+   * Lists the children of a node in the background. The returned stage completes exceptionally
+   * with a {@link KeeperException} if the listing fails.
+   */
+  CompletionStage<List<String>> getChildrenAsync(String path);
+
+  /**
+   * Stats a node in the background. The returned stage completes with null if the node does not
+   * exist.
+   */
+  CompletionStage<Stat> existsAsync(String path);
+
   Listenable<ConnectionStateListener> getConnectionStateListenable();
 
   ZooKeeper.States getState() throws KeeperException;
@@ -29,7 +29,9 @@ import com.google.common.collect.Lists;
 import com.spotify.helios.servicescommon.statistics.NoopZooKeeperMetrics;
 import com.spotify.helios.servicescommon.statistics.ZooKeeperMetrics;
 import java.util.List;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import org.apache.curator.framework.state.ConnectionState;
 import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.KeeperException.ConnectionLossException;
@@ -84,6 +86,17 @@ public class ZooKeeperModelReporter {
     }
   }
 
+  public <T> CompletionStage<T> timeAsync(final String tag, final String name,
+                                          final Supplier<CompletionStage<T>> supplier) {
+    final long startTime = clock.getTick();
+    return supplier.get().whenComplete((result, error) -> {
+      if (error instanceof Exception) {
+        checkException((Exception) error, tag, name);
+      }
+      metrics.updateTimer(name, clock.getTick() - startTime, TimeUnit.NANOSECONDS);
+    });
+  }
+
   public void connectionStateChanged(final ConnectionState newState) {
     metrics.connectionStateChanged(newState);
   }
@@ -28,6 +28,11 @@ public interface MasterMetrics {
 
   void badRequest(String name);
 
+  /**
+   * Records the number of bytes allocated on the heap while handling a request.
+   */
+  void allocation(String name, long bytes);
+
   void clientVersion(String version);
 
   void jobsInJobList(int count);
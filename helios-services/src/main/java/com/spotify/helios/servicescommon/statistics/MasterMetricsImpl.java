@@ -62,6 +62,11 @@ public class MasterMetricsImpl implements MasterMetrics {
     request(name).userError();
   }
 
+  @Override
+  public void allocation(final String name, final long bytes) {
+    request(name).allocated(bytes);
+  }
+
   private MasterRequestMetrics request(final String name) {
     MasterRequestMetrics metrics = requestMetrics.get(name);
     if (metrics == null) {
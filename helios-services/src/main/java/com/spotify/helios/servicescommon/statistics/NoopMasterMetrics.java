@@ -31,6 +31,9 @@ public class NoopMasterMetrics implements MasterMetrics {
   @Override
   public void badRequest(final String name) {}
 
+  @Override
+  public void allocation(final String name, final long bytes) {}
+
   @Override
   public void clientVersion(final String version) {}
 
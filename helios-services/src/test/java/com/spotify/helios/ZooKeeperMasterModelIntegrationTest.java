@@ -24,6 +24,7 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -39,16 +40,20 @@ import static org.mockito.Mockito.verifyNoMoreInteractions;
 
 import com.google.common.collect.ImmutableList;
 import com.spotify.helios.common.HeliosException;
+import com.spotify.helios.common.HeliosRuntimeException;
 import com.spotify.helios.common.descriptors.Deployment;
 import com.spotify.helios.common.descriptors.DeploymentGroup;
 import com.spotify.helios.common.descriptors.Goal;
 import com.spotify.helios.common.descriptors.HostSelector;
+import com.spotify.helios.common.descriptors.HostStatus;
 import com.spotify.helios.common.descriptors.Job;
 import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.JobStatus;
 import com.spotify.helios.common.descriptors.RolloutOptions;
 import com.spotify.helios.master.DeploymentGroupDoesNotExistException;
 import com.spotify.helios.master.DeploymentGroupExistsException;
 import com.spotify.helios.master.HostNotFoundException;
+import com.spotify.helios.master.InvalidRolloutOptionsException;
 import com.spotify.helios.master.JobDoesNotExistException;
 import com.spotify.helios.master.JobNotDeployedException;
 import com.spotify.helios.master.JobStillDeployedException;
@@ -61,6 +66,7 @@ import com.spotify.helios.servicescommon.coordination.ZooKeeperClientProvider;
 import com.spotify.helios.servicescommon.coordination.ZooKeeperModelReporter;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import org.apache.curator.RetryPolicy;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.CuratorFrameworkFactory;
@@ -92,6 +98,7 @@ public class ZooKeeperMasterModelIntegrationTest {
       .build();
 
   private ZooKeeperMasterModel model;
+  private ZooKeeperClient client;
 
   private final EventSender eventSender = mock(EventSender.class);
   private final String deploymentGroupEventTopic = "deploymentGroupEventTopic";
@@ -107,7 +114,7 @@ public class ZooKeeperMasterModelIntegrationTest {
     final CuratorFramework curator = CuratorFrameworkFactory.newClient(zk.connectString(),
         retryPolicy);
     curator.start();
-    final ZooKeeperClient client = new DefaultZooKeeperClient(curator);
+    client = new DefaultZooKeeperClient(curator);
 
     // TODO (dano): this bootstrapping is essentially duplicated from MasterService,
     // should be moved into ZooKeeperMasterModel?
@@ -352,4 +359,58 @@ public class ZooKeeperMasterModelIntegrationTest {
     verify(eventSender, times(2)).send(eq(deploymentGroupEventTopic), any(byte[].class));
     verifyNoMoreInteractions(eventSender);
   }
+
+  @Test(expected = InvalidRolloutOptionsException.class)
+  public void testRollingUpdateRejectsMaxParallelismBelowParallelism() throws Exception {
+    model.addDeploymentGroup(DEPLOYMENT_GROUP);
+    model.addJob(JOB);
+    model.rollingUpdate(DEPLOYMENT_GROUP, JOB_ID, RolloutOptions.newBuilder()
+        .setParallelism(4)
+        .setMaxParallelism(2)
+        .build());
+  }
+
+  @Test
+  public void testGetJobStatusAsync() throws Exception {
+    model.addJob(JOB);
+    model.registerHost(HOST, "foo");
+    model.deployJob(HOST,
+        Deployment.newBuilder().setGoal(Goal.START).setJobId(JOB_ID).build());
+
+    final JobStatus status = model.getJobStatusAsync(JOB_ID).toCompletableFuture().get();
+    assertEquals(model.getJobStatus(JOB_ID), status);
+    assertThat(status.getDeployments().keySet(), contains(HOST));
+  }
+
+  @Test
+  public void testGetJobStatusAsyncNoJob() throws Exception {
+    assertNull(model.getJobStatusAsync(JOB_ID).toCompletableFuture().get());
+  }
+
+  @Test
+  public void testGetHostStatusAsync() throws Exception {
+    model.registerHost(HOST, "foo");
+
+    final HostStatus status = model.getHostStatusAsync(HOST).toCompletableFuture().get();
+    assertEquals(model.getHostStatus(HOST), status);
+    assertEquals(HostStatus.Status.DOWN, status.getStatus());
+  }
+
+  @Test
+  public void testGetHostStatusAsyncNoHost() throws Exception {
+    assertNull(model.getHostStatusAsync(HOST).toCompletableFuture().get());
+  }
+
+  @Test
+  public void testGetHostStatusAsyncFailsOnUnreadableData() throws Exception {
+    model.registerHost(HOST, "foo");
+    client.createAndSetData(Paths.statusHostInfo(HOST), "{".getBytes());
+
+    try {
+      model.getHostStatusAsync(HOST).toCompletableFuture().get();
+      fail("should have thrown an exception");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause(), instanceOf(HeliosRuntimeException.class));
+    }
+  }
 }
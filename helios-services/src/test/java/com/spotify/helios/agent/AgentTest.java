@@ -37,11 +37,14 @@ import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -85,6 +88,7 @@ public class AgentTest {
   @Mock private Reactor reactor;
   @Mock private PortAllocator portAllocator;
   @Mock private Reaper reaper;
+  @Mock private Agent.Listener agentListener;
 
   @Captor private ArgumentCaptor<Reactor.Callback> callbackCaptor;
   @Captor private ArgumentCaptor<AgentModel.Listener> listenerCaptor;
@@ -361,6 +365,62 @@ public class AgentTest {
     verify(fooSupervisor, atLeast(2)).setGoal(START);
   }
 
+  @Test
+  public void verifyOnlyDirtyJobsAreUpdated() throws Exception {
+    startAgent();
+
+    start(FOO_JOB);
+    start(BAR_JOB);
+    reset(fooSupervisor, barSupervisor, portAllocator);
+
+    configure(BAR_JOB, STOP);
+    callback.run(false);
+
+    verify(barSupervisor).setGoal(STOP);
+    verify(fooSupervisor, never()).setGoal(any(Goal.class));
+    verify(portAllocator, never()).allocate(anyMap(), anySet());
+
+    // Nothing changed, nothing to do
+    reset(barSupervisor);
+    callback.run(false);
+    verify(barSupervisor, never()).setGoal(any(Goal.class));
+
+    // Unless the supervisor says something changed
+    final ArgumentCaptor<Supervisor.Listener> supervisorListener =
+        ArgumentCaptor.forClass(Supervisor.Listener.class);
+    verify(supervisorFactory).create(eq(BAR_JOB), anyString(),
+        anyMapOf(String.class, Integer.class), supervisorListener.capture());
+    supervisorListener.getValue().stateChanged(barSupervisor);
+    callback.run(false);
+    verify(barSupervisor).setGoal(STOP);
+    verify(fooSupervisor, never()).setGoal(any(Goal.class));
+  }
+
+  @Test
+  public void verifyTimeoutUpdatesAllJobs() throws Exception {
+    startAgent();
+
+    start(FOO_JOB);
+    start(BAR_JOB);
+    reset(fooSupervisor, barSupervisor);
+
+    callback.run(true);
+
+    verify(fooSupervisor).setGoal(START);
+    verify(barSupervisor).setGoal(START);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void verifyReaperRunsOutsideOfUpdates() throws Exception {
+    startAgent();
+    verify(reaper, timeout(30000)).reap(any(Supplier.class));
+
+    reset(reaper);
+    start(FOO_JOB);
+    verify(reaper, never()).reap(any(Supplier.class));
+  }
+
   @Test
   public void verifyCloseDoesNotStopJobs() throws Exception {
     startAgent();
@@ -371,4 +431,13 @@ public class AgentTest {
     verify(fooSupervisor).join();
     verify(fooSupervisor, never()).setGoal(STOP);
   }
+
+  @Test
+  public void verifyListenersSeeNewExecutions() throws Exception {
+    sut.addListener(agentListener);
+    startAgent();
+
+    start(FOO_JOB);
+    verify(agentListener, atLeastOnce()).executionsChanged(executions.get());
+  }
 }
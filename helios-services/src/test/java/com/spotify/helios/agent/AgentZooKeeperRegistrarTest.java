@@ -42,6 +42,7 @@ import org.joda.time.Instant;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
 
 public class AgentZooKeeperRegistrarTest {
 
@@ -86,8 +87,24 @@ public class AgentZooKeeperRegistrarTest {
     final boolean success = registrar.tryToRegister(client);
     assertTrue(success);
 
-    // verify the id was claimed in zookeeper
-    verify(client).createAndSetData(idPath, hostId.getBytes());
+    // verify the id was claimed in zookeeper, unless the host is being deregistered
+    final String fencePath = Paths.configHostDeregistering(agentName);
+    verify(client).transaction(ZooKeeperOperations.create(fencePath),
+        ZooKeeperOperations.delete(fencePath),
+        ZooKeeperOperations.create(idPath, hostId.getBytes()));
+  }
+
+  @Test
+  public void newRegistration_HostBeingDeregistered() throws Exception {
+    when(client.exists(idPath)).thenReturn(null);
+    when(client.exists(Paths.configHostDeregistering(agentName))).thenReturn(new Stat());
+
+    // wait for the deregistration to complete rather than register a host that is being deleted
+    final boolean success = registrar.tryToRegister(client);
+    assertFalse(success);
+
+    verify(client, never()).transaction(Matchers.<ZooKeeperOperation>anyVararg());
+    verify(client, never()).createAndSetData(idPath, hostId.getBytes());
   }
 
   @Test
@@ -0,0 +1,100 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.agent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.spotify.docker.client.DockerClient;
+import com.spotify.docker.client.DockerClient.ListContainersParam;
+import com.spotify.docker.client.exceptions.DockerException;
+import com.spotify.docker.client.messages.Container;
+import com.spotify.helios.common.descriptors.Job;
+import com.spotify.helios.common.descriptors.JobId;
+import java.util.Arrays;
+import java.util.Map;
+import org.junit.Test;
+import org.mockito.Matchers;
+
+public class ContainerAdopterTest {
+
+  private static final String NAMESPACE = "helios-test";
+
+  private static final Job FOO = Job.newBuilder().setName("foo").setVersion("1").build();
+  private static final Job BAR = Job.newBuilder().setName("bar").setVersion("1").build();
+  private static final Job BAZ = Job.newBuilder().setName("baz").setVersion("1").build();
+
+  private final DockerClient docker = mock(DockerClient.class);
+  private final ContainerAdopter adopter = new ContainerAdopter(docker, NAMESPACE);
+
+  @Test
+  public void testAdoptsContainersByIdAndName() throws Exception {
+    when(docker.listContainers(Matchers.<ListContainersParam>anyVararg())).thenReturn(
+        Arrays.asList(
+            container("foo-1", FOO, "exited", 1),
+            container("bar-1", BAR, "running", 1),
+            container("bar-2", BAR, "running", 2)));
+
+    final Map<JobId, ContainerAdopter.Adopted> adopted = adopter.adopt(
+        ImmutableSet.of(FOO.getId(), BAR.getId(), BAZ.getId()),
+        ImmutableMap.of(FOO.getId(), "foo-1", BAZ.getId(), "baz-gone"));
+
+    // The container of the last task status, even if it has exited
+    assertEquals("foo-1", adopted.get(FOO.getId()).getContainerId());
+    assertFalse(adopted.get(FOO.getId()).isRunning());
+
+    // The newest running container with the name of the job
+    assertEquals("bar-2", adopted.get(BAR.getId()).getContainerId());
+    assertTrue(adopted.get(BAR.getId()).isRunning());
+
+    // Gone, so a new container is needed
+    assertEquals("baz-gone", adopted.get(BAZ.getId()).getContainerId());
+    assertFalse(adopted.get(BAZ.getId()).isRunning());
+  }
+
+  @Test
+  public void testAdoptsNothingIfListingFails() throws Exception {
+    when(docker.listContainers(Matchers.<ListContainersParam>anyVararg()))
+        .thenThrow(new DockerException("nope"));
+
+    final Map<JobId, ContainerAdopter.Adopted> adopted = adopter.adopt(
+        ImmutableSet.of(FOO.getId()), ImmutableMap.of(FOO.getId(), "foo-1"));
+
+    assertTrue(adopted.isEmpty());
+  }
+
+  private static Container container(final String id, final Job job, final String state,
+                                     final long created) {
+    final String name = "/" + TaskConfig.containerNamePrefix(NAMESPACE, job.getId()) + "_" + id;
+    final Container container = mock(Container.class);
+    when(container.id()).thenReturn(id);
+    when(container.names()).thenReturn(ImmutableList.of(name));
+    when(container.state()).thenReturn(state);
+    when(container.created()).thenReturn(created);
+    return container;
+  }
+}
@@ -0,0 +1,196 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.agent;
+
+import static com.spotify.docker.client.DockerClient.ListContainersParam.allContainers;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.codahale.metrics.Gauge;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.spotify.docker.client.DockerClient;
+import com.spotify.docker.client.messages.Container;
+import com.spotify.docker.client.messages.Image;
+import com.spotify.helios.common.descriptors.Job;
+import com.spotify.helios.common.descriptors.JobId;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import org.joda.time.Instant;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DockerGarbageCollectorTest {
+
+  private static final String NAMESPACE = "helios-test";
+
+  private static final Job DEPLOYED = Job.newBuilder()
+      .setName("deployed")
+      .setVersion("1")
+      .setImage("registry/deployed:1")
+      .build();
+
+  private static final Job UNDEPLOYED = Job.newBuilder()
+      .setName("undeployed")
+      .setVersion("1")
+      .setImage("registry/undeployed")
+      .build();
+
+  private final DockerClient docker = mock(DockerClient.class);
+
+  private Map<JobId, Execution> executions;
+  private Set<String> active;
+
+  @Before
+  public void setUp() throws Exception {
+    executions = ImmutableMap.of(DEPLOYED.getId(), Execution.of(DEPLOYED));
+    active = Collections.emptySet();
+    when(docker.listImages()).thenReturn(Collections.<Image>emptyList());
+  }
+
+  @Test
+  public void testRemovesExitedContainersBeyondRetention() throws Exception {
+    when(docker.listContainers(allContainers())).thenReturn(asList(
+        container("d1", DEPLOYED, "exited", 1),
+        container("d2", DEPLOYED, "exited", 2),
+        container("d3", DEPLOYED, "exited", 3),
+        container("d4", DEPLOYED, "running", 4),
+        container("u1", UNDEPLOYED, "exited", 1),
+        foreign("f1", "exited")));
+
+    gc(1, 0).runOneIteration();
+
+    verify(docker).removeContainer("d1");
+    verify(docker).removeContainer("d2");
+    verify(docker, never()).removeContainer("d3");
+    verify(docker, never()).removeContainer("d4");
+    verify(docker).removeContainer("u1");
+    verify(docker, never()).removeContainer("f1");
+  }
+
+  @Test
+  public void testKeepsContainersOfTaskStatuses() throws Exception {
+    active = ImmutableSet.of("u1");
+    when(docker.listContainers(allContainers())).thenReturn(asList(
+        container("u1", UNDEPLOYED, "exited", 1),
+        container("u2", UNDEPLOYED, "exited", 2)));
+
+    gc(0, 0).runOneIteration();
+
+    verify(docker, never()).removeContainer("u1");
+    verify(docker).removeContainer("u2");
+  }
+
+  @Test
+  public void testPrunesLeastRecentlyUsedImagesOverBudget() throws Exception {
+    when(docker.listImages()).thenReturn(asList(
+        image("deployed", 50, 1, "registry/deployed:1"),
+        image("container", 50, 1, "registry/other:1"),
+        image("oldest", 50, 2, "registry/undeployed:latest"),
+        image("older", 50, 3, "registry/undeployed:1"),
+        image("newer", 50, 4, "registry/undeployed:2")));
+    when(docker.listContainers(allContainers())).thenReturn(singletonList(
+        container("d1", DEPLOYED, "running", "container", 100)));
+
+    // 250 bytes against a budget of 200, pruned to 160
+    final DockerGarbageCollector gc = gc(1, 200);
+    gc.runOneIteration();
+
+    verify(docker).removeImage("oldest", true, false);
+    verify(docker).removeImage("older", true, false);
+    verify(docker, never()).removeImage("newer", true, false);
+    verify(docker, never()).removeImage("deployed", true, false);
+    verify(docker, never()).removeImage("container", true, false);
+    final Gauge<?> reclaimed =
+        (Gauge<?>) gc.getMetrics().get("helios.agent_docker_gc.reclaimed_bytes");
+    assertEquals(100L, reclaimed.getValue());
+  }
+
+  @Test
+  public void testKeepsImagesUnderBudget() throws Exception {
+    when(docker.listContainers(allContainers())).thenReturn(Collections.<Container>emptyList());
+    when(docker.listImages()).thenReturn(asList(
+        image("a", 50, 1, "registry/a:1"),
+        image("b", 50, 2, "registry/b:1")));
+
+    gc(1, 100).runOneIteration();
+
+    verify(docker, never()).removeImage(anyString(), anyBoolean(), anyBoolean());
+  }
+
+  private DockerGarbageCollector gc(final int retained, final long imageBudget) {
+    return DockerGarbageCollector.newBuilder()
+        .setDockerClient(docker)
+        .setNamespace(NAMESPACE)
+        .setExecutions(Suppliers.ofInstance(executions))
+        .setActiveContainers(Suppliers.ofInstance(active))
+        .setRetainedContainers(retained)
+        .setImageBudget(imageBudget)
+        .setRemovalsPerSecond(1000)
+        .setClock(() -> new Instant(10000))
+        .build();
+  }
+
+  private static Container container(final String id, final Job job, final String state,
+                                     final long created) {
+    return container(id, job, state, "image-" + id, created);
+  }
+
+  private static Container container(final String id, final Job job, final String state,
+                                     final String imageId, final long created) {
+    final String name = "/" + TaskConfig.containerNamePrefix(NAMESPACE, job.getId()) + "_" + id;
+    final Container container = mock(Container.class);
+    when(container.id()).thenReturn(id);
+    when(container.names()).thenReturn(ImmutableList.of(name));
+    when(container.state()).thenReturn(state);
+    when(container.imageId()).thenReturn(imageId);
+    when(container.created()).thenReturn(created);
+    return container;
+  }
+
+  private static Container foreign(final String id, final String state) {
+    final Container container = mock(Container.class);
+    when(container.id()).thenReturn(id);
+    when(container.names()).thenReturn(ImmutableList.of("/something-else_" + id));
+    when(container.state()).thenReturn(state);
+    return container;
+  }
+
+  private static Image image(final String id, final long size, final long created,
+                             final String tag) {
+    final Image image = mock(Image.class);
+    when(image.id()).thenReturn(id);
+    when(image.size()).thenReturn(size);
+    when(image.created()).thenReturn(String.valueOf(created));
+    when(image.repoTags()).thenReturn(ImmutableList.of(tag));
+    return image;
+  }
+}
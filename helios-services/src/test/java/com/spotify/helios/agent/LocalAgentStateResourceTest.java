@@ -0,0 +1,159 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.agent;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableMap;
+import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.TaskStatus;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import org.junit.After;
+import org.junit.Test;
+
+public class LocalAgentStateResourceTest {
+
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  private final LocalAgentState state = new LocalAgentState(
+      "agent", ImmutableMap.<JobId, TaskStatus>of(), ImmutableMap.<JobId, Execution>of());
+
+  private final LocalAgentStateResource resource = new LocalAgentStateResource(state, 1);
+
+  private final Request request = mock(Request.class);
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testStateTaggedWithVersion() throws Exception {
+    final long version = state.snapshot().getVersion();
+
+    final Response response = resource.getState(null, 0, request);
+
+    assertThat(response.getStatus(), is(200));
+    assertThat(response.getMetadata().getFirst("ETag"),
+        is((Object) new EntityTag(Long.toString(version))));
+  }
+
+  @Test
+  public void testNotModifiedForCurrentTag() throws Exception {
+    final EntityTag tag = new EntityTag(Long.toString(state.snapshot().getVersion()));
+    when(request.evaluatePreconditions(tag)).thenReturn(Response.notModified(tag));
+
+    assertThat(resource.getState(null, 0, request).getStatus(), is(304));
+
+    // Once the state changes the tag no longer matches
+    changeState();
+    assertThat(resource.getState(null, 0, request).getStatus(), is(200));
+  }
+
+  @Test
+  public void testWaitsForChangeSinceVersion() throws Exception {
+    final long version = state.snapshot().getVersion();
+
+    final Future<Response> response = executor.submit(() ->
+        resource.getState(version, LocalAgentStateResource.MAX_WAIT_MILLIS, request));
+    awaitWaiting();
+    changeState();
+
+    assertThat(version(response.get(10, TimeUnit.SECONDS)), greaterThan(version));
+  }
+
+  @Test
+  public void testReturnsUnchangedStateAfterWait() throws Exception {
+    final long version = state.snapshot().getVersion();
+
+    assertThat(version(resource.getState(version, 10, request)), is(version));
+  }
+
+  @Test
+  public void testDoesNotWaitForOlderVersion() throws Exception {
+    final long version = state.snapshot().getVersion();
+    changeState();
+
+    final long start = System.nanoTime();
+    assertThat(version(resource.getState(version, LocalAgentStateResource.MAX_WAIT_MILLIS,
+        request)), greaterThan(version));
+    assertThat(System.nanoTime() - start, lessThan(TimeUnit.SECONDS.toNanos(5)));
+  }
+
+  @Test
+  public void testRequestsBeyondWaitingCapDoNotWait() throws Exception {
+    final long version = state.snapshot().getVersion();
+
+    final Future<Response> waiting = executor.submit(() ->
+        resource.getState(version, LocalAgentStateResource.MAX_WAIT_MILLIS, request));
+    awaitWaiting();
+
+    // The only waiting slot is taken, so this gets the current state right away
+    final long start = System.nanoTime();
+    assertThat(version(resource.getState(version, LocalAgentStateResource.MAX_WAIT_MILLIS,
+        request)), is(version));
+    assertThat(System.nanoTime() - start, lessThan(TimeUnit.SECONDS.toNanos(5)));
+
+    changeState();
+    assertThat(version(waiting.get(10, TimeUnit.SECONDS)), greaterThan(version));
+    assertThat(resource.availableWaits(), is(1));
+  }
+
+  @Test
+  public void testHistoryRejectsMalformedJob() throws Exception {
+    try {
+      resource.getHistory("foo:1:deadbeef:extra", 0);
+      fail("expected a bad request");
+    } catch (WebApplicationException e) {
+      assertThat(e.getResponse().getStatus(), is(400));
+    }
+  }
+
+  private void changeState() {
+    state.executionsChanged(ImmutableMap.<JobId, Execution>of());
+  }
+
+  private void awaitWaiting() throws InterruptedException {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (resource.availableWaits() > 0) {
+      assertThat("timed out waiting for the request to wait", deadline - System.nanoTime(),
+          greaterThan(0L));
+      Thread.sleep(10);
+    }
+  }
+
+  private static long version(final Response response) {
+    return Long.parseLong(((EntityTag) response.getMetadata().getFirst("ETag")).getValue());
+  }
+}
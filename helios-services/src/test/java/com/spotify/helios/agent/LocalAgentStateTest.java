@@ -0,0 +1,185 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.agent;
+
+import static com.spotify.helios.common.descriptors.Goal.START;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.spotify.helios.common.descriptors.Job;
+import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.TaskStatus;
+import com.spotify.helios.common.descriptors.TaskStatus.State;
+import com.spotify.helios.common.descriptors.TaskStatusEvent;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+public class LocalAgentStateTest {
+
+  private static final Job FOO_1 = job("foo", "1");
+  private static final Job FOO_2 = job("foo", "2");
+  private static final Job BAR_1 = job("bar", "1");
+
+  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+  private final LocalAgentState state = new LocalAgentState(
+      "agent", ImmutableMap.<JobId, TaskStatus>of(), ImmutableMap.<JobId, Execution>of(), 3);
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  private static Job job(final String name, final String version) {
+    return Job.newBuilder()
+        .setCommand(ImmutableList.<String>of())
+        .setImage("image")
+        .setName(name)
+        .setVersion(version)
+        .build();
+  }
+
+  private static TaskStatus status(final Job job, final State state) {
+    return TaskStatus.newBuilder()
+        .setState(state)
+        .setJob(job)
+        .setGoal(START)
+        .setContainerId("containerId")
+        .build();
+  }
+
+  private List<State> states(final JobId jobId, final long after) {
+    final ImmutableList.Builder<State> states = ImmutableList.builder();
+    for (final TaskStatusEvent event : state.history(jobId, after)) {
+      states.add(event.getStatus().getState());
+    }
+    return states.build();
+  }
+
+  @Test
+  public void testSnapshotIsMadeOncePerVersion() {
+    final LocalAgentState.Snapshot first = state.snapshot();
+    assertThat(state.snapshot(), is(sameInstance(first)));
+    assertThat(first.toJsonBytes(), is(sameInstance(first.toJsonBytes())));
+
+    state.taskStatusChanged(FOO_1.getId(), status(FOO_1, State.RUNNING));
+    final LocalAgentState.Snapshot second = state.snapshot();
+    assertThat(second, is(not(sameInstance(first))));
+    assertThat(second.getVersion(), is(first.getVersion() + 1));
+    assertThat(first.getTaskStatuses().isEmpty(), is(true));
+    assertThat(second.getTaskStatuses().get(FOO_1.getId()).getState(), is(State.RUNNING));
+  }
+
+  @Test
+  public void testPortsFollowExecutions() {
+    state.executionsChanged(ImmutableMap.of(
+        FOO_1.getId(), Execution.of(FOO_1).withPorts(ImmutableMap.of("http", 30000)),
+        BAR_1.getId(), Execution.of(BAR_1)));
+
+    final LocalAgentState.Snapshot snapshot = state.snapshot();
+    assertThat(snapshot.getExecutions().size(), is(2));
+    assertThat(snapshot.getPorts(), is((Object) ImmutableMap.of(
+        FOO_1.getId(), ImmutableMap.of("http", 30000))));
+  }
+
+  @Test
+  public void testRemovedStatusKeepsHistory() {
+    state.taskStatusChanged(FOO_1.getId(), status(FOO_1, State.RUNNING));
+    state.taskStatusChanged(FOO_1.getId(), null);
+
+    assertThat(state.snapshot().getTaskStatuses().isEmpty(), is(true));
+    assertThat(states(FOO_1.getId(), 0), contains(State.RUNNING));
+  }
+
+  @Test
+  public void testHistoryIsBounded() {
+    state.taskStatusChanged(FOO_1.getId(), status(FOO_1, State.PULLING_IMAGE));
+    state.taskStatusChanged(FOO_1.getId(), status(FOO_1, State.CREATING));
+    state.taskStatusChanged(FOO_1.getId(), status(FOO_1, State.STARTING));
+    state.taskStatusChanged(FOO_1.getId(), status(FOO_1, State.RUNNING));
+
+    assertThat(states(null, 0), contains(State.CREATING, State.STARTING, State.RUNNING));
+  }
+
+  @Test
+  public void testHistoryMatchesAbbreviatedJobIds() {
+    state.taskStatusChanged(FOO_1.getId(), status(FOO_1, State.RUNNING));
+    state.taskStatusChanged(FOO_2.getId(), status(FOO_2, State.CREATING));
+    state.taskStatusChanged(BAR_1.getId(), status(BAR_1, State.EXITED));
+
+    assertThat(states(JobId.fromString("foo"), 0), contains(State.RUNNING, State.CREATING));
+    assertThat(states(JobId.fromString("foo:2"), 0), contains(State.CREATING));
+    assertThat(states(FOO_1.getId(), 0), contains(State.RUNNING));
+    assertThat(states(JobId.fromString("baz"), 0), is(empty()));
+  }
+
+  @Test
+  public void testHistoryAfter() {
+    state.taskStatusChanged(FOO_1.getId(), status(FOO_1, State.RUNNING));
+    final long timestamp = state.history(null, 0).get(0).getTimestamp();
+
+    assertThat(state.history(null, timestamp - 1).size(), is(1));
+    assertThat(state.history(null, timestamp), is(empty()));
+  }
+
+  @Test
+  public void testAwaitChangeReturnsOnChange() throws Exception {
+    final long version = state.snapshot().getVersion();
+    executor.schedule(new Runnable() {
+      @Override
+      public void run() {
+        state.taskStatusChanged(FOO_1.getId(), status(FOO_1, State.RUNNING));
+      }
+    }, 100, TimeUnit.MILLISECONDS);
+
+    final LocalAgentState.Snapshot snapshot = state.awaitChange(version, 30_000);
+    assertThat(snapshot.getVersion(), is(version + 1));
+  }
+
+  @Test
+  public void testAwaitChangeTimesOut() throws Exception {
+    final long version = state.snapshot().getVersion();
+
+    final long start = System.nanoTime();
+    final LocalAgentState.Snapshot snapshot = state.awaitChange(version, 100);
+    assertThat(snapshot.getVersion(), is(version));
+    assertThat(System.nanoTime() - start, is(greaterThanOrEqualTo(
+        TimeUnit.MILLISECONDS.toNanos(100))));
+  }
+
+  @Test
+  public void testAwaitChangeReturnsAtOnceForOtherVersions() throws Exception {
+    final long version = state.snapshot().getVersion();
+
+    assertThat(state.awaitChange(version - 1, 30_000).getVersion(), is(version));
+  }
+}
@@ -0,0 +1,243 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.agent;
+
+import static com.spotify.helios.common.descriptors.Goal.START;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.spotify.helios.agent.TaskHistoryBuffer.GlobalEviction;
+import com.spotify.helios.agent.TaskHistoryBuffer.JobEviction;
+import com.spotify.helios.common.descriptors.Job;
+import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.TaskStatus;
+import com.spotify.helios.common.descriptors.TaskStatus.State;
+import com.spotify.helios.common.descriptors.TaskStatusEvent;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+public class TaskHistoryBufferTest {
+
+  private static final TaskStatus FOO = status("foo");
+  private static final TaskStatus BAR = status("bar");
+
+  @Test
+  public void testPollsEldestAcrossJobs() {
+    final TaskHistoryBuffer buffer = new TaskHistoryBuffer();
+    buffer.add(event(FOO, 3));
+    buffer.add(event(BAR, 1));
+    buffer.add(event(FOO, 4));
+    buffer.add(event(BAR, 2));
+
+    assertEquals(1, buffer.poll().getTimestamp());
+    assertEquals(2, buffer.poll().getTimestamp());
+    assertEquals(3, buffer.poll().getTimestamp());
+    assertEquals(4, buffer.poll().getTimestamp());
+    assertNull(buffer.poll());
+    assertTrue(buffer.isEmpty());
+    assertTrue(buffer.snapshot().isEmpty());
+  }
+
+  @Test
+  public void testJobCapDropsOldest() {
+    final TaskHistoryBuffer buffer =
+        new TaskHistoryBuffer(2, 10, JobEviction.DROP_OLDEST, GlobalEviction.ELDEST);
+    buffer.add(event(FOO, 1));
+    buffer.add(event(FOO, 2));
+    buffer.add(event(FOO, 3));
+
+    assertEquals(ImmutableList.of(2L, 3L), timestamps(buffer.snapshot().get(FOO.getJob().getId())));
+    assertEquals(1, buffer.droppedCount());
+  }
+
+  @Test
+  public void testJobCapDropsNewest() {
+    final TaskHistoryBuffer buffer =
+        new TaskHistoryBuffer(2, 10, JobEviction.DROP_NEWEST, GlobalEviction.ELDEST);
+    buffer.add(event(FOO, 1));
+    buffer.add(event(FOO, 2));
+    buffer.add(event(FOO, 3));
+
+    assertEquals(ImmutableList.of(1L, 2L), timestamps(buffer.snapshot().get(FOO.getJob().getId())));
+    assertEquals(1, buffer.droppedCount());
+  }
+
+  @Test
+  public void testGlobalCapDropsEldest() {
+    final TaskHistoryBuffer buffer =
+        new TaskHistoryBuffer(10, 3, JobEviction.DROP_OLDEST, GlobalEviction.ELDEST);
+    buffer.add(event(BAR, 1));
+    buffer.add(event(FOO, 2));
+    buffer.add(event(FOO, 3));
+    buffer.add(event(FOO, 4));
+
+    assertEquals(3, buffer.size());
+    assertEquals(2, buffer.poll().getTimestamp());
+  }
+
+  @Test
+  public void testGlobalCapDropsFromLargestJob() {
+    final TaskHistoryBuffer buffer =
+        new TaskHistoryBuffer(10, 3, JobEviction.DROP_OLDEST, GlobalEviction.LARGEST_JOB);
+    buffer.add(event(BAR, 1));
+    buffer.add(event(FOO, 2));
+    buffer.add(event(FOO, 3));
+    buffer.add(event(FOO, 4));
+
+    assertEquals(3, buffer.size());
+    assertEquals(1, buffer.poll().getTimestamp());
+    assertEquals(3, buffer.poll().getTimestamp());
+  }
+
+  @Test
+  public void testPutBackGoesFirst() {
+    final TaskHistoryBuffer buffer = new TaskHistoryBuffer();
+    buffer.add(event(FOO, 1));
+    buffer.add(event(FOO, 2));
+
+    final TaskStatusEvent taken = buffer.poll();
+    buffer.putBack(taken);
+
+    assertEquals(ImmutableList.of(1L, 2L), timestamps(buffer.snapshot().get(FOO.getJob().getId())));
+    assertEquals(1, buffer.poll().getTimestamp());
+  }
+
+  @Test
+  public void testPutBackIntoFullJobIsDropped() {
+    final TaskHistoryBuffer buffer =
+        new TaskHistoryBuffer(1, 10, JobEviction.DROP_OLDEST, GlobalEviction.ELDEST);
+    buffer.add(event(FOO, 1));
+    final TaskStatusEvent taken = buffer.poll();
+    buffer.add(event(FOO, 2));
+    buffer.putBack(taken);
+
+    assertEquals(1, buffer.size());
+    assertEquals(2, buffer.poll().getTimestamp());
+    assertEquals(1, buffer.droppedCount());
+  }
+
+  /**
+   * Hammers the buffer from several producers while a single consumer drains it, and checks that
+   * every event is accounted for exactly once and that the caps hold once things settle.
+   */
+  @Test
+  public void testConcurrentAddAndPoll() throws Exception {
+    final int producers = 8;
+    final int eventsPerProducer = 20000;
+    final int maxPerJob = 30;
+    final int maxTotal = 600;
+    final List<TaskStatus> statuses = Lists.newArrayList();
+    for (int i = 0; i < 50; i++) {
+      statuses.add(status("job" + i));
+    }
+
+    final TaskHistoryBuffer buffer = new TaskHistoryBuffer(
+        maxPerJob, maxTotal, JobEviction.DROP_OLDEST, GlobalEviction.ELDEST);
+    final ExecutorService executor = Executors.newFixedThreadPool(producers + 1);
+    final CountDownLatch start = new CountDownLatch(1);
+    final AtomicBoolean producing = new AtomicBoolean(true);
+    try {
+      final List<Future<?>> futures = Lists.newArrayList();
+      for (int p = 0; p < producers; p++) {
+        final int producer = p;
+        futures.add(executor.submit(() -> {
+          start.await();
+          for (int i = 0; i < eventsPerProducer; i++) {
+            final long timestamp = (long) i * producers + producer;
+            buffer.add(event(statuses.get(i % statuses.size()), timestamp));
+          }
+          return null;
+        }));
+      }
+      final Future<Set<Long>> consumer = executor.submit(() -> {
+        final Set<Long> taken = Sets.newHashSet();
+        start.await();
+        while (producing.get() || !buffer.isEmpty()) {
+          final TaskStatusEvent event = buffer.poll();
+          if (event != null) {
+            assertTrue("taken twice: " + event, taken.add(event.getTimestamp()));
+          }
+        }
+        return taken;
+      });
+
+      start.countDown();
+      for (final Future<?> future : futures) {
+        future.get(1, TimeUnit.MINUTES);
+      }
+
+      final Map<JobId, Deque<TaskStatusEvent>> remaining = buffer.snapshot();
+      assertThat(buffer.size(), lessThanOrEqualTo(maxTotal));
+      for (final Deque<TaskStatusEvent> events : remaining.values()) {
+        assertThat(events.size(), lessThanOrEqualTo(maxPerJob));
+      }
+
+      producing.set(false);
+      final Set<Long> taken = consumer.get(1, TimeUnit.MINUTES);
+      assertEquals(producers * eventsPerProducer, taken.size() + buffer.droppedCount());
+      assertTrue(buffer.snapshot().isEmpty());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static List<Long> timestamps(final Deque<TaskStatusEvent> events) {
+    final List<Long> timestamps = Lists.newArrayList();
+    for (final TaskStatusEvent event : events) {
+      timestamps.add(event.getTimestamp());
+    }
+    return timestamps;
+  }
+
+  private static TaskStatusEvent event(final TaskStatus status, final long timestamp) {
+    return new TaskStatusEvent(status, timestamp, "host");
+  }
+
+  private static TaskStatus status(final String name) {
+    final Job job = Job.newBuilder()
+        .setCommand(ImmutableList.<String>of())
+        .setImage("image")
+        .setName(name)
+        .setVersion("version")
+        .build();
+    return TaskStatus.newBuilder()
+        .setState(State.RUNNING)
+        .setJob(job)
+        .setGoal(START)
+        .setContainerId("containerId")
+        .build();
+  }
+}
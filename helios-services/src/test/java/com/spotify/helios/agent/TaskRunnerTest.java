@@ -31,6 +31,7 @@ import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -42,6 +43,7 @@ import com.spotify.docker.client.exceptions.ImageNotFoundException;
 import com.spotify.docker.client.exceptions.ImagePullFailedException;
 import com.spotify.docker.client.messages.ContainerConfig;
 import com.spotify.docker.client.messages.ContainerCreation;
+import com.spotify.docker.client.messages.ContainerExit;
 import com.spotify.docker.client.messages.ContainerInfo;
 import com.spotify.docker.client.messages.ContainerState;
 import com.spotify.docker.client.messages.ImageInfo;
@@ -262,4 +264,29 @@ public class TaskRunnerTest {
       verify(mockListener).failed(t.getCause(), "container is a potato");
     }
   }
+
+  @Test
+  public void testAdoptedRunningContainerIsNotInspected() throws Throwable {
+    when(mockDocker.waitContainer("adopted")).thenReturn(ContainerExit.create(0));
+
+    final TaskRunner tr = TaskRunner.builder()
+        .delayMillis(0)
+        .config(TaskConfig.builder()
+            .namespace("test")
+            .host(HOST)
+            .job(JOB)
+            .containerDecorators(ImmutableList.of(containerDecorator))
+            .build())
+        .docker(mockDocker)
+        .existingContainerId("adopted")
+        .existingContainerRunning(true)
+        .listener(new TaskRunner.NopListener())
+        .build();
+
+    tr.run();
+
+    assertEquals(0, (int) tr.resultFuture().get());
+    verify(mockDocker, never()).inspectContainer(anyString());
+    verify(mockDocker, never()).createContainer(any(ContainerConfig.class), anyString());
+  }
 }
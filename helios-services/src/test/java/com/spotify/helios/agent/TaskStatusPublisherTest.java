@@ -0,0 +1,128 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.agent;
+
+import static com.spotify.helios.common.descriptors.Goal.START;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+import com.google.common.collect.ImmutableList;
+import com.spotify.helios.common.descriptors.Job;
+import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.TaskStatus;
+import com.spotify.helios.common.descriptors.TaskStatus.State;
+import com.spotify.helios.servicescommon.coordination.ZooKeeperUpdatingPersistentDirectory;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+public class TaskStatusPublisherTest {
+
+  private static final Job JOB = Job.newBuilder()
+      .setCommand(ImmutableList.<String>of())
+      .setImage("image")
+      .setName("foo")
+      .setVersion("version")
+      .build();
+  private static final JobId JOB_ID = JOB.getId();
+
+  private final ZooKeeperUpdatingPersistentDirectory directory =
+      mock(ZooKeeperUpdatingPersistentDirectory.class);
+
+  private TaskStatusPublisher publisher;
+
+  @After
+  public void tearDown() throws Exception {
+    publisher.close();
+  }
+
+  @Test
+  public void testCoalescesUpdatesWithinWindow() throws Exception {
+    publisher = new TaskStatusPublisher(directory, TimeUnit.HOURS.toMillis(1));
+
+    final State[] states = {State.PULLING_IMAGE, State.CREATING, State.STARTING, State.RUNNING};
+    for (final State state : states) {
+      publisher.publish(JOB_ID, status(state));
+    }
+
+    assertEquals(status(State.RUNNING), publisher.get(JOB_ID));
+    verify(directory, never()).put(anyString(), any(byte[].class));
+
+    publisher.flush();
+
+    verify(directory).put(JOB_ID.toString(), status(State.RUNNING).toJsonBytes());
+    verifyNoMoreInteractions(directory);
+    assertNull(publisher.get(JOB_ID));
+    assertEquals(4, publisher.updateCount());
+    assertEquals(1, publisher.writeCount());
+  }
+
+  @Test
+  public void testFlushesWhenWindowCloses() throws Exception {
+    publisher = new TaskStatusPublisher(directory, 10);
+
+    publisher.publish(JOB_ID, status(State.CREATING));
+    publisher.publish(JOB_ID, status(State.RUNNING));
+
+    verify(directory, timeout(10000)).put(JOB_ID.toString(), status(State.RUNNING).toJsonBytes());
+  }
+
+  @Test
+  public void testRemoveDropsPendingStatus() throws Exception {
+    publisher = new TaskStatusPublisher(directory, TimeUnit.HOURS.toMillis(1));
+
+    publisher.publish(JOB_ID, status(State.RUNNING));
+    publisher.remove(JOB_ID);
+    publisher.flush();
+
+    verify(directory).remove(JOB_ID.toString());
+    verify(directory, never()).put(anyString(), any(byte[].class));
+    assertNull(publisher.get(JOB_ID));
+  }
+
+  @Test
+  public void testZeroWindowWritesEveryUpdate() throws Exception {
+    publisher = new TaskStatusPublisher(directory, 0);
+
+    publisher.publish(JOB_ID, status(State.CREATING));
+    publisher.publish(JOB_ID, status(State.RUNNING));
+
+    verify(directory).put(JOB_ID.toString(), status(State.CREATING).toJsonBytes());
+    verify(directory).put(JOB_ID.toString(), status(State.RUNNING).toJsonBytes());
+    assertEquals(2, publisher.writeCount());
+  }
+
+  private static TaskStatus status(final State state) {
+    return TaskStatus.newBuilder()
+        .setState(state)
+        .setJob(JOB)
+        .setGoal(START)
+        .setContainerId("containerId")
+        .build();
+  }
+}
@@ -0,0 +1,106 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.master;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.spotify.helios.common.descriptors.Deployment;
+import com.spotify.helios.common.descriptors.Goal;
+import com.spotify.helios.common.descriptors.HostInfo;
+import com.spotify.helios.common.descriptors.HostStatus;
+import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.TaskStatus;
+import org.junit.Test;
+
+public class HostCapacityIndexTest {
+
+  private static final long GB = 1024 * 1024 * 1024;
+
+  private final MasterModel model = mock(MasterModel.class);
+  private final HostCapacityIndex index = new HostCapacityIndex(model, 60_000);
+
+  @Test
+  public void testRanksByFreeCapacity() {
+    host("busy", HostStatus.Status.UP, 4, 3.5, 1 * GB, 0);
+    host("idle", HostStatus.Status.UP, 4, 0.5, 6 * GB, 0);
+    host("medium", HostStatus.Status.UP, 4, 2.0, 4 * GB, 0);
+    host("down", HostStatus.Status.DOWN, 4, 0.0, 8 * GB, 0);
+
+    assertEquals(ImmutableList.of("idle", "medium", "busy"),
+        index.rank(ImmutableList.of("busy", "idle", "medium", "down"), null));
+  }
+
+  @Test
+  public void testLeavesOutHostsWithoutEnoughMemory() {
+    host("small", HostStatus.Status.UP, 4, 0.0, 1 * GB, 0);
+    host("large", HostStatus.Status.UP, 4, 3.0, 4 * GB, 0);
+
+    assertEquals(ImmutableList.of("large"),
+        index.rank(ImmutableList.of("small", "large"), 2 * GB));
+  }
+
+  @Test
+  public void testPrefersHostsWithFewerJobs() {
+    host("crowded", HostStatus.Status.UP, 4, 1.0, 4 * GB, 3);
+    host("empty", HostStatus.Status.UP, 4, 1.0, 4 * GB, 0);
+
+    assertEquals(ImmutableList.of("empty", "crowded"),
+        index.rank(ImmutableList.of("crowded", "empty"), null));
+  }
+
+  @Test
+  public void testCachesCapacity() {
+    host("host", HostStatus.Status.UP, 4, 1.0, 4 * GB, 0);
+
+    index.rank(ImmutableList.of("host"), null);
+    index.rank(ImmutableList.of("host"), null);
+
+    verify(model, times(1)).getHostStatusAsync("host");
+  }
+
+  private void host(final String host, final HostStatus.Status status, final int cpus,
+                    final double load, final long freeMemory, final int jobs) {
+    final ImmutableMap.Builder<JobId, Deployment> deployments = ImmutableMap.builder();
+    for (int i = 0; i < jobs; i++) {
+      final JobId id = JobId.fromString("job" + i + ":1");
+      deployments.put(id, Deployment.of(id, Goal.START));
+    }
+    final HostStatus hostStatus = HostStatus.newBuilder()
+        .setStatus(status)
+        .setJobs(deployments.build())
+        .setStatuses(ImmutableMap.<JobId, TaskStatus>of())
+        .setHostInfo(HostInfo.newBuilder()
+            .setCpus(cpus)
+            .setLoadAvg(load)
+            .setMemoryTotalBytes(8 * GB)
+            .setMemoryFreeBytes(freeMemory)
+            .build())
+        .build();
+    when(model.getHostStatusAsync(host)).thenReturn(completedFuture(hostStatus));
+  }
+}
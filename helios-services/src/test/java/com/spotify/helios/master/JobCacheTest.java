@@ -0,0 +1,143 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.master;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableList;
+import com.spotify.helios.common.descriptors.Job;
+import com.spotify.helios.servicescommon.coordination.DefaultZooKeeperClient;
+import com.spotify.helios.servicescommon.coordination.Paths;
+import com.spotify.helios.servicescommon.coordination.ZooKeeperClient;
+import com.spotify.helios.servicescommon.coordination.ZooKeeperClientProvider;
+import com.spotify.helios.servicescommon.coordination.ZooKeeperModelReporter;
+import java.util.Collections;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.test.TestingServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JobCacheTest {
+
+  private static final Job JOB = Job.newBuilder()
+      .setName("foo")
+      .setVersion("1")
+      .setImage("busybox")
+      .setCommand(ImmutableList.of("true"))
+      .setCreated(1L)
+      .build();
+
+  private TestingServer zkServer;
+  private ZooKeeperClient client;
+
+  private final JobCache cache = new JobCache();
+  private ZooKeeperMasterModel cachingMaster;
+  private ZooKeeperMasterModel otherMaster;
+
+  @Before
+  public void setUp() throws Exception {
+    zkServer = new TestingServer(true);
+
+    final CuratorFramework curatorFramework = CuratorFrameworkFactory.builder()
+        .connectString(zkServer.getConnectString())
+        .retryPolicy(new ExponentialBackoffRetry(100, 3))
+        .build();
+    client = new DefaultZooKeeperClient(curatorFramework);
+    client.start();
+    client.ensurePath(Paths.configJobs());
+    client.ensurePath(Paths.configJobRefs());
+    client.ensurePath(Paths.historyJobs());
+
+    final ZooKeeperClientProvider provider =
+        new ZooKeeperClientProvider(client, ZooKeeperModelReporter.noop());
+    cachingMaster = new ZooKeeperMasterModel(
+        provider, "master1", Collections.emptyList(), "", cache);
+    otherMaster = new ZooKeeperMasterModel(
+        provider, "master2", Collections.emptyList(), "", new JobCache());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    client.close();
+    zkServer.close();
+  }
+
+  @Test
+  public void testHit() throws Exception {
+    cachingMaster.addJob(JOB);
+
+    assertEquals(JOB, cachingMaster.getJob(JOB.getId()));
+    assertEquals(JOB, cachingMaster.getJob(JOB.getId()));
+    assertEquals(1, cache.missCount());
+    assertEquals(1, cache.hitCount());
+  }
+
+  @Test
+  public void testGetJobsUsesCachedJobs() throws Exception {
+    cachingMaster.addJob(JOB);
+    cachingMaster.getJob(JOB.getId());
+
+    assertEquals(JOB, cachingMaster.getJobs().get(JOB.getId()));
+    assertEquals(1, cache.missCount());
+    assertEquals(1, cache.hitCount());
+  }
+
+  @Test
+  public void testNegativeEntryDroppedWhenJobIsAddedElsewhere() throws Exception {
+    assertNull(cachingMaster.getJob(JOB.getId()));
+    assertNull(cachingMaster.getJob(JOB.getId()));
+    assertEquals(1, cache.negativeHitCount());
+
+    otherMaster.addJob(JOB);
+
+    assertEquals(JOB, cachingMaster.getJob(JOB.getId()));
+  }
+
+  @Test
+  public void testEntryDroppedWhenJobIsRemovedElsewhere() throws Exception {
+    cachingMaster.addJob(JOB);
+    assertEquals(JOB, cachingMaster.getJob(JOB.getId()));
+
+    otherMaster.removeJob(JOB.getId());
+
+    assertNull(cachingMaster.getJob(JOB.getId()));
+    assertTrue(cachingMaster.getJobs().isEmpty());
+  }
+
+  @Test
+  public void testEntryDroppedWhenJobIsReAddedElsewhere() throws Exception {
+    cachingMaster.addJob(JOB);
+    assertEquals(JOB, cachingMaster.getJob(JOB.getId()));
+
+    // Same id, but different meta parameters which are not part of the hash
+    final Job readded = JOB.toBuilder().setCreated(2L).build();
+    assertEquals(JOB.getId(), readded.getId());
+    otherMaster.removeJob(JOB.getId());
+    otherMaster.addJob(readded);
+
+    assertEquals((Long) 2L, cachingMaster.getJob(JOB.getId()).getCreated());
+  }
+}
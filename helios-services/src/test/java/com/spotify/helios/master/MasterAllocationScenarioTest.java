@@ -0,0 +1,221 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.master;
+
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Mockito.mock;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
+import com.spotify.helios.ZooKeeperTestManager;
+import com.spotify.helios.ZooKeeperTestingServerManager;
+import com.spotify.helios.common.descriptors.Deployment;
+import com.spotify.helios.common.descriptors.Goal;
+import com.spotify.helios.common.descriptors.Job;
+import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.master.metrics.ThreadAllocation;
+import com.spotify.helios.master.resources.HostsResource;
+import com.spotify.helios.master.resources.JobsResource;
+import com.spotify.helios.servicescommon.EventSender;
+import com.spotify.helios.servicescommon.coordination.DefaultZooKeeperClient;
+import com.spotify.helios.servicescommon.coordination.Paths;
+import com.spotify.helios.servicescommon.coordination.ZooKeeperClient;
+import com.spotify.helios.servicescommon.coordination.ZooKeeperClientProvider;
+import com.spotify.helios.servicescommon.coordination.ZooKeeperModelReporter;
+import com.spotify.helios.servicescommon.statistics.NoopMasterMetrics;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A load scenario that records how much the master allocates and how long it spends in GC for
+ * each of its large listings, against an in-process ZooKeeper filled with generated hosts and
+ * jobs. It is skipped unless enabled, run it with
+ *
+ * <pre>
+ * mvn -pl helios-services test -Dtest=MasterAllocationScenarioTest -Dhelios.allocation.scenario
+ * </pre>
+ *
+ * <p>The size of the cluster can be set with {@code -Dhelios.allocation.hosts},
+ * {@code -Dhelios.allocation.jobs}, {@code -Dhelios.allocation.jobsPerHost} and
+ * {@code -Dhelios.allocation.iterations}. Endpoints are named like the request metrics of the
+ * master, whose {@code _allocated_bytes} histograms show the same numbers in production.
+ * Allocations are counted for all threads, since status reads complete on ZooKeeper threads.
+ */
+public class MasterAllocationScenarioTest {
+
+  private static final Logger log = LoggerFactory.getLogger(MasterAllocationScenarioTest.class);
+
+  private static final String PREFIX = "helios.allocation.";
+
+  private final int hosts = Integer.getInteger(PREFIX + "hosts", 200);
+  private final int jobs = Integer.getInteger(PREFIX + "jobs", 100);
+  private final int jobsPerHost = Integer.getInteger(PREFIX + "jobsPerHost", 10);
+  private final int iterations = Integer.getInteger(PREFIX + "iterations", 20);
+
+  private ZooKeeperTestManager zk;
+  private CuratorFramework curator;
+  private ZooKeeperMasterModel model;
+
+  @Before
+  public void setUp() throws Exception {
+    assumeTrue(System.getProperty(PREFIX + "scenario") != null);
+    assumeTrue(ThreadAllocation.isSupported());
+
+    zk = new ZooKeeperTestingServerManager();
+    curator = CuratorFrameworkFactory.newClient(
+        zk.connectString(), new ExponentialBackoffRetry(1000, 3));
+    curator.start();
+    final ZooKeeperClient client = new DefaultZooKeeperClient(curator);
+
+    client.ensurePath(Paths.configHosts());
+    client.ensurePath(Paths.configJobs());
+    client.ensurePath(Paths.configJobRefs());
+    client.ensurePath(Paths.statusHosts());
+    client.ensurePath(Paths.statusMasters());
+    client.ensurePath(Paths.historyJobs());
+
+    model = new ZooKeeperMasterModel(
+        new ZooKeeperClientProvider(client, ZooKeeperModelReporter.noop()),
+        getClass().getName(), ImmutableList.of(mock(EventSender.class)), "events");
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (curator != null) {
+      curator.close();
+    }
+    if (zk != null) {
+      zk.close();
+    }
+  }
+
+  @Test
+  public void recordAllocationByEndpoint() throws Exception {
+    final List<JobId> jobIds = populate();
+    final List<String> hostNames = model.listHosts();
+    final Set<JobId> allJobs = ImmutableSet.copyOf(jobIds);
+
+    final JobsResource jobsResource =
+        new JobsResource(model, new NoopMasterMetrics(), ImmutableSet.<String>of());
+    final HostsResource hostsResource = new HostsResource(model);
+    final Request request = mock(Request.class);
+
+    final Map<String, Callable<Response>> endpoints = new LinkedHashMap<>();
+    endpoints.put("JobsResource#list", () -> jobsResource.list("", "", request));
+    endpoints.put("JobsResource#list?hostPattern",
+        () -> jobsResource.list("", "host", request));
+    endpoints.put("JobsResource#jobStatuses", () -> jobsResource.jobStatuses(allJobs));
+    endpoints.put("HostsResource#hostStatuses",
+        () -> hostsResource.hostStatuses(hostNames, ""));
+
+    log.info("{} hosts, {} jobs, {} jobs per host, {} iterations",
+        hosts, jobs, jobsPerHost, iterations);
+    for (final Map.Entry<String, Callable<Response>> endpoint : endpoints.entrySet()) {
+      // Warm up so that class loading and compilation are not counted
+      run(endpoint.getValue(), iterations);
+
+      final long gcCountBefore = gcCount();
+      final long gcMillisBefore = gcMillis();
+      final long allocatedBefore = ThreadAllocation.liveThreadsAllocatedBytes();
+      final long startNanos = System.nanoTime();
+
+      run(endpoint.getValue(), iterations);
+
+      final double seconds = (System.nanoTime() - startNanos) / 1e9;
+      final long allocated = ThreadAllocation.liveThreadsAllocatedBytes() - allocatedBefore;
+      log.info("{}: {} KB/request, {} MB/s allocated, {} GCs, {} ms in GC, {} ms/request",
+          endpoint.getKey(),
+          allocated / iterations / 1024,
+          String.format("%.1f", allocated / seconds / (1024 * 1024)),
+          gcCount() - gcCountBefore,
+          gcMillis() - gcMillisBefore,
+          String.format("%.1f", seconds * 1000 / iterations));
+    }
+  }
+
+  private List<JobId> populate() throws Exception {
+    final ImmutableList.Builder<JobId> jobIds = ImmutableList.builder();
+    for (int i = 0; i < jobs; i++) {
+      final Job job = Job.newBuilder()
+          .setName("job" + i)
+          .setVersion("1")
+          .setImage("busybox:latest")
+          .setCommand(ImmutableList.of("sleep", "infinity"))
+          .build();
+      model.addJob(job);
+      jobIds.add(job.getId());
+    }
+    final List<JobId> ids = jobIds.build();
+
+    for (int i = 0; i < hosts; i++) {
+      final String host = "host" + i;
+      model.registerHost(host, "id" + i);
+      for (int j = 0; j < Math.min(jobsPerHost, jobs); j++) {
+        final JobId id = ids.get((i + j) % jobs);
+        model.deployJob(host, Deployment.newBuilder().setGoal(Goal.START).setJobId(id).build());
+      }
+    }
+    return ids;
+  }
+
+  private static void run(final Callable<Response> endpoint, final int times) throws Exception {
+    for (int i = 0; i < times; i++) {
+      final Object entity = endpoint.call().getEntity();
+      // Write streamed bodies as Jersey would, the serialization is part of the cost
+      if (entity instanceof StreamingOutput) {
+        ((StreamingOutput) entity).write(ByteStreams.nullOutputStream());
+      }
+    }
+  }
+
+  private static long gcCount() {
+    long count = 0;
+    for (final GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      count += Math.max(0, gc.getCollectionCount());
+    }
+    return count;
+  }
+
+  private static long gcMillis() {
+    long millis = 0;
+    for (final GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      millis += Math.max(0, gc.getCollectionTime());
+    }
+    return millis;
+  }
+}
@@ -0,0 +1,102 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.master;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import java.util.List;
+import org.junit.Test;
+
+public class RendezvousWorkPartitionTest {
+
+  private static final List<String> MASTERS = ImmutableList.of("master1", "master2", "master3");
+
+  private List<String> members = MASTERS;
+
+  @Test
+  public void testEachKeyHasExactlyOneOwner() {
+    final List<WorkPartition> partitions = partitions(MASTERS);
+    final int[] owned = new int[MASTERS.size()];
+
+    for (int i = 0; i < 3000; i++) {
+      final String key = "group-" + i;
+      int owners = 0;
+      for (int m = 0; m < partitions.size(); m++) {
+        if (partitions.get(m).owns(key)) {
+          owners++;
+          owned[m]++;
+        }
+      }
+      assertEquals(key, 1, owners);
+    }
+
+    // The work is spread over all masters
+    for (final int count : owned) {
+      assertTrue(count > 500);
+    }
+  }
+
+  @Test
+  public void testOnlyKeysOfLeavingMasterMove() {
+    final WorkPartition master1 = new RendezvousWorkPartition("master1", () -> members);
+    final List<String> ownedBefore = Lists.newArrayList();
+    for (int i = 0; i < 1000; i++) {
+      if (master1.owns("group-" + i)) {
+        ownedBefore.add("group-" + i);
+      }
+    }
+
+    members = ImmutableList.of("master1", "master2");
+
+    for (final String key : ownedBefore) {
+      assertTrue(key, master1.owns(key));
+    }
+  }
+
+  @Test
+  public void testOwnsEverythingWhenNotRegistered() {
+    final WorkPartition partition = new RendezvousWorkPartition("master4", () -> members);
+    for (int i = 0; i < 100; i++) {
+      assertTrue(partition.owns("group-" + i));
+    }
+  }
+
+  @Test
+  public void testOwnsEverythingWhenMembershipIsUnavailable() {
+    final WorkPartition partition = new RendezvousWorkPartition("master1", () -> {
+      throw new IllegalStateException("zookeeper is down");
+    });
+    for (int i = 0; i < 100; i++) {
+      assertTrue(partition.owns("group-" + i));
+    }
+  }
+
+  private List<WorkPartition> partitions(final List<String> names) {
+    final List<WorkPartition> partitions = Lists.newArrayList();
+    for (final String name : names) {
+      partitions.add(new RendezvousWorkPartition(name, () -> members));
+    }
+    return partitions;
+  }
+}
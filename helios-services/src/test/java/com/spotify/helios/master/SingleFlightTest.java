@@ -0,0 +1,134 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.master;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.spotify.helios.common.Clock;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.joda.time.Instant;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SingleFlightTest {
+
+  private static final long TTL = 1000;
+
+  private final Clock clock = mock(Clock.class);
+  private final AtomicInteger loads = new AtomicInteger();
+  private final SingleFlight<String, String> singleFlight =
+      new SingleFlight<>("test", TTL, clock);
+
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() {
+    executor = Executors.newCachedThreadPool();
+    when(clock.now()).thenReturn(new Instant(0));
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testConcurrentCallsShareOneExecution() throws Exception {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+
+    final Future<String> first = executor.submit(() -> singleFlight.get("key", () -> {
+      started.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+      return "value-" + loads.incrementAndGet();
+    }));
+    started.await();
+
+    final Future<String> second = executor.submit(() -> singleFlight.get("key", this::load));
+    while (singleFlight.coalescedCount() == 0) {
+      Thread.sleep(10);
+    }
+    release.countDown();
+
+    assertEquals("value-1", first.get());
+    assertEquals("value-1", second.get());
+    assertEquals(1, loads.get());
+    assertEquals(2, singleFlight.callCount());
+    assertEquals(1, singleFlight.executionCount());
+  }
+
+  @Test
+  public void testResultKeptForTtl() {
+    assertEquals("value-1", singleFlight.get("key", this::load));
+
+    when(clock.now()).thenReturn(new Instant(TTL - 1));
+    assertEquals("value-1", singleFlight.get("key", this::load));
+    assertEquals(1, singleFlight.coalescedCount());
+
+    when(clock.now()).thenReturn(new Instant(TTL));
+    assertEquals("value-2", singleFlight.get("key", this::load));
+    assertEquals(2, singleFlight.executionCount());
+  }
+
+  @Test
+  public void testKeysAreIndependent() {
+    assertEquals("value-1", singleFlight.get("foo", this::load));
+    assertEquals("value-2", singleFlight.get("bar", this::load));
+    assertEquals("value-1", singleFlight.get("foo", this::load));
+  }
+
+  @Test
+  public void testFailureNotKept() {
+    try {
+      singleFlight.get("key", () -> {
+        throw new IllegalStateException("boom");
+      });
+      fail("expected exception");
+    } catch (IllegalStateException e) {
+      assertEquals("boom", e.getMessage());
+    }
+    assertEquals("value-1", singleFlight.get("key", this::load));
+  }
+
+  @Test
+  public void testNullNotKept() {
+    assertNull(singleFlight.get("key", () -> null));
+    assertEquals("value-1", singleFlight.get("key", this::load));
+    assertEquals(0, singleFlight.coalescedCount());
+  }
+
+  private String load() {
+    return "value-" + loads.incrementAndGet();
+  }
+}
@@ -0,0 +1,141 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.master.metrics;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.longThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.io.ByteStreams;
+import com.spotify.helios.servicescommon.statistics.MasterMetrics;
+import com.sun.jersey.api.core.ExtendedUriInfo;
+import com.sun.jersey.api.core.HttpContext;
+import com.sun.jersey.api.core.HttpResponseContext;
+import com.sun.jersey.api.model.AbstractResourceMethod;
+import com.sun.jersey.spi.dispatch.RequestDispatcher;
+import java.io.IOException;
+import java.io.OutputStream;
+import javax.ws.rs.core.StreamingOutput;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class ReportingResourceMethodDispatcherTest {
+
+  private static final String KEY = "Object#toString";
+  private static final int ALLOCATION = 1 << 20;
+
+  private final RequestDispatcher delegate = mock(RequestDispatcher.class);
+  private final MasterMetrics metrics = mock(MasterMetrics.class);
+  private final HttpContext context = mock(HttpContext.class);
+  private final HttpResponseContext response = mock(HttpResponseContext.class);
+  private final Object resource = new Object();
+
+  private final ReportingResourceMethodDispatcher dispatcher =
+      new ReportingResourceMethodDispatcher(delegate, metrics);
+
+  // Keeps allocations reachable so that they are not optimized away
+  private volatile Object sink;
+
+  @Before
+  public void setUp() throws Exception {
+    assumeTrue(ThreadAllocation.isSupported());
+
+    final AbstractResourceMethod method = mock(AbstractResourceMethod.class);
+    when(method.getMethod()).thenReturn(Object.class.getMethod("toString"));
+    final ExtendedUriInfo uriInfo = mock(ExtendedUriInfo.class);
+    when(uriInfo.getMatchedMethod()).thenReturn(method);
+    when(context.getUriInfo()).thenReturn(uriInfo);
+    when(context.getResponse()).thenReturn(response);
+  }
+
+  @Test
+  public void testAllocationIsRecorded() throws Exception {
+    doAnswer(allocating(null)).when(delegate).dispatch(resource, context);
+
+    dispatcher.dispatch(resource, context);
+
+    verify(metrics).success(KEY);
+    verify(metrics).allocation(eq(KEY), longThat(greaterThanOrEqualTo((long) ALLOCATION)));
+  }
+
+  @Test
+  public void testAllocationOfStreamedBodyIsRecordedWhenWritten() throws Exception {
+    final StreamingOutput body = new StreamingOutput() {
+      @Override
+      public void write(final OutputStream output) throws IOException {
+        sink = new byte[ALLOCATION];
+      }
+    };
+    when(response.getEntity()).thenReturn(body);
+
+    dispatcher.dispatch(resource, context);
+
+    verify(metrics).success(KEY);
+    verify(metrics, never()).allocation(eq(KEY), anyLong());
+
+    final ArgumentCaptor<Object> entity = ArgumentCaptor.forClass(Object.class);
+    verify(response).setEntity(entity.capture());
+    assertThat(entity.getValue(), instanceOf(StreamingOutput.class));
+
+    ((StreamingOutput) entity.getValue()).write(ByteStreams.nullOutputStream());
+
+    verify(metrics).allocation(eq(KEY), longThat(greaterThanOrEqualTo((long) ALLOCATION)));
+  }
+
+  @Test
+  public void testAllocationOfFailedRequestIsRecorded() throws Exception {
+    doAnswer(allocating(new IllegalStateException())).when(delegate).dispatch(resource, context);
+
+    try {
+      dispatcher.dispatch(resource, context);
+    } catch (IllegalStateException expected) {
+      // expected
+    }
+
+    verify(metrics).failure(KEY);
+    verify(metrics).allocation(eq(KEY), longThat(greaterThanOrEqualTo((long) ALLOCATION)));
+  }
+
+  private Answer<Void> allocating(final RuntimeException failure) {
+    return new Answer<Void>() {
+      @Override
+      public Void answer(final InvocationOnMock invocation) {
+        sink = new byte[ALLOCATION];
+        if (failure != null) {
+          throw failure;
+        }
+        return null;
+      }
+    };
+  }
+}
@@ -27,11 +27,13 @@ import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.spotify.helios.common.Clock;
 import com.spotify.helios.common.descriptors.AgentInfo;
 import com.spotify.helios.common.descriptors.HostStatus;
 import com.spotify.helios.master.MasterModel;
+import com.spotify.helios.master.WorkPartition;
 import java.util.List;
 import java.util.stream.Collectors;
 import org.joda.time.Instant;
@@ -100,4 +102,31 @@ public class DeadAgentReaperTest {
       }
     }
   }
+
+  @Test
+  public void testDeadAgentReaperOnlyReapsOwnedHosts() throws Exception {
+    final MasterModel masterModel = mock(MasterModel.class);
+    final Clock clock = mock(Clock.class);
+    when(clock.now()).thenReturn(new Instant(HOURS.toMillis(2000)));
+
+    final List<String> hosts = ImmutableList.of("host1", "host2");
+    when(masterModel.listHosts()).thenReturn(hosts);
+    for (final String host : hosts) {
+      when(masterModel.isHostUp(host)).thenReturn(false);
+      when(masterModel.getAgentInfo(host)).thenReturn(AgentInfo.newBuilder()
+          .setStartTime(0)
+          .setUptime(0)
+          .build());
+    }
+
+    // Both hosts are dead, but this master only owns host1
+    final WorkPartition partition = "host1"::equals;
+    final DeadAgentReaper reaper =
+        new DeadAgentReaper(masterModel, TIMEOUT_HOURS, clock, 100, 0, partition);
+    reaper.runOneIteration();
+
+    verify(masterModel).deregisterHost("host1");
+    verify(masterModel, never()).getAgentInfo("host2");
+    verify(masterModel, never()).deregisterHost("host2");
+  }
 }
@@ -24,6 +24,7 @@ import static java.util.Arrays.asList;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.ignoreStubs;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -125,4 +126,34 @@ public class ExpiredJobReaperTest {
 
     verifyNoMoreInteractions(ignoreStubs(masterModel));
   }
+
+  @Test
+  public void testExpiredJobReaperOnlyReapsOwnedJobs() throws Exception {
+    final JobId otherExpiringJobId = JobId.fromString("other_expiring");
+    final Map<JobId, Job> jobs = ImmutableMap.of(
+        EXPIRING_JOB_ID, EXPIRING_JOB,
+        otherExpiringJobId, EXPIRING_JOB
+    );
+
+    when(mockClock.now()).thenReturn(new Instant(CURRENT_TS));
+    when(masterModel.getJobs()).thenReturn(jobs);
+    when(masterModel.getJobStatus(EXPIRING_JOB_ID)).thenReturn(JobStatus.newBuilder()
+        .setJob(EXPIRING_JOB)
+        .setDeployments(ImmutableMap.of("hostA", Deployment.of(EXPIRING_JOB_ID, Goal.START)))
+        .build());
+
+    // Both jobs have expired, but this master only owns one of them
+    ExpiredJobReaper.newBuilder()
+        .setClock(mockClock)
+        .setMasterModel(masterModel)
+        .setWorkPartition(key -> key.equals(EXPIRING_JOB_ID.toString()))
+        .build()
+        .runOneIteration();
+
+    verify(masterModel).undeployJob(eq("hostA"), eq(EXPIRING_JOB_ID), eq(""));
+    verify(masterModel).removeJob(eq(EXPIRING_JOB_ID), eq(""));
+    verify(masterModel, never()).getJobStatus(otherExpiringJobId);
+
+    verifyNoMoreInteractions(ignoreStubs(masterModel));
+  }
 }
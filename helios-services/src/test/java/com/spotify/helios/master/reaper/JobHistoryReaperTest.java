@@ -32,6 +32,7 @@ import com.google.common.collect.Lists;
 import com.spotify.helios.common.descriptors.Job;
 import com.spotify.helios.common.descriptors.JobId;
 import com.spotify.helios.master.MasterModel;
+import com.spotify.helios.master.WorkPartition;
 import com.spotify.helios.servicescommon.coordination.Paths;
 import com.spotify.helios.servicescommon.coordination.ZooKeeperClient;
 import java.util.List;
@@ -98,6 +99,22 @@ public class JobHistoryReaperTest {
     }
   }
 
+  @Test
+  public void testJobHistoryReaperOnlyReapsOwnedJobs() throws Exception {
+    final MasterModel masterModel = mock(MasterModel.class);
+    final ZooKeeperClient client = mock(ZooKeeperClient.class);
+    // Neither job exists anymore, but this master only owns the history of job1
+    when(client.getChildren(Paths.historyJobs())).thenReturn(ImmutableList.of("job1", "job2"));
+
+    final WorkPartition partition = "job1"::equals;
+    final JobHistoryReaper reaper = new JobHistoryReaper(masterModel, client, 100, 0, partition);
+    reaper.runOneIteration();
+
+    verify(client).deleteRecursive(Paths.historyJob(JobId.fromString("job1")));
+    verify(client, never()).deleteRecursive(Paths.historyJob(JobId.fromString("job2")));
+    verify(masterModel, never()).getJob(argThat(matchesName("job2")));
+  }
+
   private CustomTypeSafeMatcher<JobId> matchesName(final String name) {
     return new CustomTypeSafeMatcher<JobId>("A JobId with name " + name) {
       @Override
@@ -42,6 +42,7 @@ import com.spotify.helios.common.descriptors.TaskStatus;
 import com.spotify.helios.common.descriptors.TaskStatus.State;
 import com.spotify.helios.common.descriptors.TaskStatusEvent;
 import com.spotify.helios.master.MasterModel;
+import com.spotify.helios.master.WorkPartition;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -177,4 +178,40 @@ public class OldJobReaperTest {
       }
     }
   }
+
+  @Test
+  public void testOldJobReaperOnlyReapsOwnedJobs() throws Exception {
+    final MasterModel masterModel = mock(MasterModel.class);
+    final Clock clock = mock(Clock.class);
+    when(clock.now()).thenReturn(new Instant(HOURS.toMillis(48)));
+
+    // Both jobs are unused and old enough to reap, but this master only owns job1
+    final List<Datapoint> datapoints = Lists.newArrayList(
+        new Datapoint("job1", emptyMap(), emptyList(), true),
+        new Datapoint("job2", emptyMap(), emptyList(), false)
+    );
+
+    when(masterModel.getJobs()).thenReturn(
+        datapoints.stream().collect(Collectors.toMap(Datapoint::getJobId, Datapoint::getJob)));
+
+    for (final Datapoint datapoint : datapoints) {
+      when(masterModel.getJobHistory(datapoint.getJobId())).thenReturn(datapoint.getHistory());
+      when(masterModel.getJobStatus(datapoint.getJobId())).thenReturn(datapoint.getJobStatus());
+    }
+
+    final JobId owned = datapoints.get(0).getJobId();
+    final WorkPartition partition = key -> key.equals(owned.toString());
+    final OldJobReaper reaper =
+        new OldJobReaper(masterModel, RETENTION_DAYS, clock, 100, 0, partition);
+    reaper.runOneIteration();
+
+    for (final Datapoint datapoint : datapoints) {
+      if (datapoint.expectReap) {
+        verify(masterModel).removeJob(datapoint.getJobId(), Job.EMPTY_TOKEN);
+      } else {
+        verify(masterModel, never()).getJobStatus(datapoint.getJobId());
+        verify(masterModel, never()).removeJob(datapoint.getJobId(), Job.EMPTY_TOKEN);
+      }
+    }
+  }
 }
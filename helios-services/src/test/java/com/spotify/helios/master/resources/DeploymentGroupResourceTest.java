@@ -39,8 +39,11 @@ import com.spotify.helios.common.protocol.RollingUpdateRequest;
 import com.spotify.helios.common.protocol.RollingUpdateResponse;
 import com.spotify.helios.master.DeploymentGroupDoesNotExistException;
 import com.spotify.helios.master.DeploymentGroupExistsException;
+import com.spotify.helios.master.InvalidRolloutOptionsException;
 import com.spotify.helios.master.JobDoesNotExistException;
 import com.spotify.helios.master.MasterModel;
+import com.spotify.helios.rollingupdate.RolloutSimulator;
+import com.spotify.helios.rollingupdate.StartLatencyModel;
 import javax.ws.rs.core.Response;
 import org.junit.Before;
 import org.junit.Test;
@@ -180,4 +183,50 @@ public class DeploymentGroupResourceTest {
     assertEquals(new RollingUpdateResponse(RollingUpdateResponse.Status.JOB_NOT_FOUND),
         response.getEntity());
   }
+
+  @Test
+  public void testRollingUpdateInvalidRolloutOptions() throws Exception {
+    doThrow(new InvalidRolloutOptionsException("")).when(model).rollingUpdate(
+        any(DeploymentGroup.class), any(JobId.class), any(RolloutOptions.class));
+
+    final Response response = resource.rollingUpdate(
+        "foo", new RollingUpdateRequest(new JobId("foo", "0.3", "1234"),
+            RolloutOptions.newBuilder().setParallelism(4).setMaxParallelism(2).build()));
+
+    assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+    assertEquals(new RollingUpdateResponse(RollingUpdateResponse.Status.INVALID_ROLLOUT_OPTIONS),
+        response.getEntity());
+  }
+
+  @Test
+  public void testSimulateRollingUpdate() throws Exception {
+    final DeploymentGroup group = DeploymentGroup.newBuilder().setName("foo").build();
+    final JobId jobId = new JobId("foo", "0.3", "1234");
+    final RolloutSimulator.Result result = RolloutSimulator.newBuilder()
+        .setLatencies(StartLatencyModel.fixed(1000, 1000))
+        .build()
+        .simulate(group, ImmutableList.of("host1"));
+    when(model.getDeploymentGroup("foo")).thenReturn(group);
+    when(model.simulateRollingUpdate(group, jobId, RolloutOptions.getDefault()))
+        .thenReturn(result);
+
+    final Response response = resource.simulateRollingUpdate(
+        "foo", new RollingUpdateRequest(jobId, RolloutOptions.getDefault()));
+
+    assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+    assertEquals(result, response.getEntity());
+  }
+
+  @Test
+  public void testSimulateRollingUpdateInvalidRolloutOptions() throws Exception {
+    when(model.simulateRollingUpdate(
+        any(DeploymentGroup.class), any(JobId.class), any(RolloutOptions.class)))
+        .thenThrow(new InvalidRolloutOptionsException(""));
+
+    final Response response = resource.simulateRollingUpdate(
+        "foo", new RollingUpdateRequest(new JobId("foo", "0.3", "1234"),
+            RolloutOptions.newBuilder().setParallelism(4).setMaxParallelism(2).build()));
+
+    assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), response.getStatus());
+  }
 }
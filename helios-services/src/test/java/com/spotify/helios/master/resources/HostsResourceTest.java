@@ -28,14 +28,26 @@ import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.spotify.helios.common.Json;
+import com.spotify.helios.common.descriptors.Deployment;
+import com.spotify.helios.common.descriptors.HostStatus;
+import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.TaskStatus;
+import com.spotify.helios.master.HostCapacityIndex;
 import com.spotify.helios.master.MasterModel;
+import com.spotify.helios.master.SingleFlight;
+import java.io.ByteArrayOutputStream;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import org.hamcrest.CustomTypeSafeMatcher;
 import org.hamcrest.Matcher;
 import org.junit.Before;
@@ -105,6 +117,20 @@ public class HostsResourceTest {
         contains("host1.foo.example.com", "host2.foo.example.com"));
   }
 
+  @Test
+  public void placementRanksMatchingHosts() {
+    final HostCapacityIndex capacityIndex = mock(HostCapacityIndex.class);
+    final HostsResource placing = new HostsResource(
+        model, new SingleFlight<>("host_status", 0), capacityIndex);
+    final ImmutableList<String> matching = ImmutableList.of(
+        "host1.foo.example.com", "host2.foo.example.com");
+    when(capacityIndex.rank(matching, 1024L)).thenReturn(matching.reverse());
+
+    // Only the hosts matching the selectors are ranked
+    assertThat(placing.placement(null, ImmutableList.of("index in (1,2)"), 1024L),
+        contains("host2.foo.example.com", "host1.foo.example.com"));
+  }
+
   @Test
   public void listHostsSelectorFilterMissingStatus() {
     when(model.getHostLabels(hosts.get(0))).thenReturn(emptyMap());
@@ -152,4 +178,34 @@ public class HostsResourceTest {
       }
     };
   }
+
+  @Test
+  public void testHostStatusesAreStreamedAndFiltered() throws Exception {
+    final HostStatus up = HostStatus.newBuilder()
+        .setJobs(Collections.<JobId, Deployment>emptyMap())
+        .setStatuses(Collections.<JobId, TaskStatus>emptyMap())
+        .setStatus(HostStatus.Status.UP)
+        .build();
+    final HostStatus down = HostStatus.newBuilder()
+        .setJobs(Collections.<JobId, Deployment>emptyMap())
+        .setStatuses(Collections.<JobId, TaskStatus>emptyMap())
+        .setStatus(HostStatus.Status.DOWN)
+        .build();
+    when(model.getHostStatusAsync("host1.foo.example.com"))
+        .thenReturn(CompletableFuture.completedFuture(up));
+    when(model.getHostStatusAsync("host2.foo.example.com"))
+        .thenReturn(CompletableFuture.completedFuture(down));
+    when(model.getHostStatusAsync("host3.foo.example.com"))
+        .thenReturn(CompletableFuture.<HostStatus>completedFuture(null));
+
+    final Response response = resource.hostStatuses(hosts.subList(0, 3), "UP");
+
+    assertThat(response.getStatus(), equalTo(200));
+    final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    ((StreamingOutput) response.getEntity()).write(body);
+    final Map<String, HostStatus> statuses = Json.read(
+        body.toByteArray(), new TypeReference<Map<String, HostStatus>>() {});
+    assertThat(statuses, equalTo((Map<String, HostStatus>) ImmutableMap.of(
+        "host1.foo.example.com", up)));
+  }
 }
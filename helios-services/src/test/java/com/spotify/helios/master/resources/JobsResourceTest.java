@@ -22,25 +22,39 @@ package com.spotify.helios.master.resources;
 
 import static com.spotify.helios.common.protocol.CreateJobResponse.Status.OK;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.spotify.helios.common.Clock;
+import com.spotify.helios.common.Json;
 import com.spotify.helios.common.descriptors.Deployment;
 import com.spotify.helios.common.descriptors.Goal;
 import com.spotify.helios.common.descriptors.HostStatus;
 import com.spotify.helios.common.descriptors.Job;
 import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.JobStatus;
+import com.spotify.helios.common.descriptors.JobStatusSummary;
 import com.spotify.helios.common.descriptors.RolloutOptions;
+import com.spotify.helios.common.descriptors.TaskStatus;
 import com.spotify.helios.common.protocol.CreateJobResponse;
 import com.spotify.helios.master.MasterModel;
 import com.spotify.helios.servicescommon.statistics.NoopMasterMetrics;
+import java.io.ByteArrayOutputStream;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import org.hamcrest.CustomTypeSafeMatcher;
 import org.joda.time.Instant;
 import org.junit.Before;
@@ -73,6 +87,60 @@ public class JobsResourceTest {
     assertThat(resource.list("", ""), is(jobs));
   }
 
+  @Test
+  public void testListJobsTaggedWithJobsVersion() throws Exception {
+    final ImmutableMap<JobId, Job> jobs = ImmutableMap.of(
+        JobId.parse("foobar:1"), Job.newBuilder().build());
+    final Request request = mock(Request.class);
+
+    when(model.getJobs()).thenReturn(jobs);
+    when(model.getJobsVersion()).thenReturn(42L);
+
+    final Response response = resource.list("", "", request);
+
+    assertThat(response.getStatus(), is(200));
+    assertThat(response.getMetadata().getFirst("ETag"), is((Object) new EntityTag("jobs-2a")));
+    assertThat((byte[]) response.getEntity(), is(Json.asBytesUnchecked(jobs)));
+  }
+
+  @Test
+  public void testListJobsNotModified() throws Exception {
+    final Request request = mock(Request.class);
+
+    when(model.getJobsVersion()).thenReturn(42L);
+    when(request.evaluatePreconditions(new EntityTag("jobs-2a")))
+        .thenReturn(Response.notModified());
+
+    final Response response = resource.list("", "", request);
+
+    assertThat(response.getStatus(), is(304));
+    verify(model, never()).getJobs();
+  }
+
+  @Test
+  public void testGetJobTaggedWithItsJson() throws Exception {
+    final Job job = Job.newBuilder().setName("foo").setVersion("1").setImage("busybox").build();
+    final Job recreated = job.toBuilder().setCreatingUser("bar").build();
+    final Request request = mock(Request.class);
+
+    when(model.getJob(job.getId())).thenReturn(job);
+    final Response response = resource.get(job.getId(), request);
+
+    assertThat(response.getStatus(), is(200));
+    assertThat(response.getMetadata().getFirst("ETag"),
+        is((Object) ConditionalResponses.tag(Json.asBytesUnchecked(job))));
+
+    // The creating user is not part of the job id, but a change to it must change the tag
+    assertThat(recreated.getId(), is(job.getId()));
+    when(model.getJob(job.getId())).thenReturn(recreated);
+    final Response changed = resource.get(job.getId(), request);
+
+    assertThat(changed.getMetadata().getFirst("ETag"),
+        is((Object) ConditionalResponses.tag(Json.asBytesUnchecked(recreated))));
+    assertThat(changed.getMetadata().getFirst("ETag"),
+        is(not(response.getMetadata().getFirst("ETag"))));
+  }
+
   @Test
   public void testListJobsWithJobNameFilter() throws Exception {
     final JobId jobId1 = JobId.parse("foobar:1");
@@ -224,4 +292,79 @@ public class JobsResourceTest {
     when(hostStatus.getJobs()).thenReturn(jobs);
     return hostStatus;
   }
+
+  @Test
+  public void testJobStatusSummaries() throws Exception {
+    final Job job = Job.newBuilder().setName("foo").setVersion("1").setImage("busybox").build();
+    final JobId missing = JobId.parse("bar:1:deadbeef");
+    final JobStatus status = JobStatus.newBuilder()
+        .setJob(job)
+        .setDeployments(ImmutableMap.of("host1", Deployment.of(job.getId(), Goal.START)))
+        .setTaskStatuses(ImmutableMap.<String, TaskStatus>of())
+        .build();
+
+    when(model.getJobStatusAsync(job.getId()))
+        .thenReturn(CompletableFuture.completedFuture(status));
+    when(model.getJobStatusAsync(missing))
+        .thenReturn(CompletableFuture.<JobStatus>completedFuture(null));
+
+    final Map<JobId, JobStatusSummary> expected =
+        ImmutableMap.of(job.getId(), JobStatusSummary.of(status));
+    assertThat(resource.jobStatusSummaries(ImmutableSet.of(job.getId(), missing)), is(expected));
+
+    // The summary is reused while it is fresh
+    assertThat(resource.jobStatusSummaries(ImmutableSet.of(job.getId())), is(expected));
+    verify(model, times(1)).getJobStatusAsync(job.getId());
+  }
+
+  @Test
+  public void testJobStatusesAreStreamed() throws Exception {
+    final Job job = Job.newBuilder().setName("foo").setVersion("1").setImage("busybox").build();
+    final JobId missing = JobId.parse("bar:1:deadbeef");
+    final JobStatus status = JobStatus.newBuilder()
+        .setJob(job)
+        .setDeployments(ImmutableMap.of("host1", Deployment.of(job.getId(), Goal.START)))
+        .setTaskStatuses(ImmutableMap.<String, TaskStatus>of())
+        .build();
+
+    when(model.getJobStatusAsync(job.getId()))
+        .thenReturn(CompletableFuture.completedFuture(status));
+    when(model.getJobStatusAsync(missing))
+        .thenReturn(CompletableFuture.<JobStatus>completedFuture(null));
+
+    final Response response = resource.jobStatuses(ImmutableSet.of(job.getId(), missing));
+
+    assertThat(response.getStatus(), is(200));
+    final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    ((StreamingOutput) response.getEntity()).write(body);
+    final Map<JobId, JobStatus> statuses = Json.read(
+        body.toByteArray(), new TypeReference<Map<JobId, JobStatus>>() {});
+    assertThat(statuses, is((Map<JobId, JobStatus>) ImmutableMap.of(job.getId(), status)));
+  }
+
+  @Test
+  public void testListJobsWithHostNameFilterIsStreamed() throws Exception {
+    final String namePattern = "foo";
+    when(model.listHosts(namePattern)).thenReturn(ImmutableList.of("foobar.example.net"));
+
+    final Job job1 = Job.newBuilder().setName("foobar").setVersion("1").setImage("a").build();
+    final Job job2 = Job.newBuilder().setName("foobat").setVersion("2").setImage("b").build();
+
+    final HostStatus hostStatus = mockHostStatus(ImmutableMap.of(
+        job1.getId(), Deployment.of(job1.getId(), Goal.START),
+        job2.getId(), Deployment.of(job2.getId(), Goal.START)
+    ));
+    when(model.getHostStatus("foobar.example.net")).thenReturn(hostStatus);
+    when(model.getJob(job1.getId())).thenReturn(job1);
+    when(model.getJob(job2.getId())).thenReturn(job2);
+
+    final Response response = resource.list("foobat", namePattern, mock(Request.class));
+
+    final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    ((StreamingOutput) response.getEntity()).write(body);
+    final Map<JobId, Job> jobs = Json.read(
+        body.toByteArray(), new TypeReference<Map<JobId, Job>>() {});
+    assertThat(jobs, is((Map<JobId, Job>) ImmutableMap.of(job2.getId(), job2)));
+    verify(model, never()).getJob(job1.getId());
+  }
 }
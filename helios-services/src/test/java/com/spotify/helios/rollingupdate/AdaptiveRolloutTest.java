@@ -0,0 +1,228 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.rollingupdate;
+
+import static com.spotify.helios.common.descriptors.RolloutTask.Action.AWAIT_RUNNING;
+import static com.spotify.helios.common.descriptors.RolloutTask.Action.AWAIT_UNDEPLOYED;
+import static com.spotify.helios.common.descriptors.RolloutTask.Action.DEPLOY_NEW_JOB;
+import static com.spotify.helios.common.descriptors.RolloutTask.Action.FORCE_UNDEPLOY_JOBS;
+import static com.spotify.helios.common.descriptors.RolloutTask.Action.MARK_UNDEPLOYED;
+import static com.spotify.helios.common.descriptors.RolloutTask.Action.UNDEPLOY_OLD_JOBS;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableList;
+import com.spotify.helios.common.descriptors.DeploymentGroup;
+import com.spotify.helios.common.descriptors.DeploymentGroupTasks;
+import com.spotify.helios.common.descriptors.RolloutOptions;
+import com.spotify.helios.common.descriptors.RolloutTask;
+import com.spotify.helios.common.descriptors.RolloutWave;
+import com.spotify.helios.common.descriptors.RolloutWave.Adjustment;
+import java.util.List;
+import org.junit.Test;
+
+public class AdaptiveRolloutTest {
+
+  private static final DeploymentGroup GROUP = group(RolloutOptions.newBuilder()
+      .setParallelism(2)
+      .setMaxParallelism(6)
+      .setLatencyBudget(10L)
+      .build());
+
+  private final AdaptiveRollout rollout = AdaptiveRollout.of(GROUP);
+
+  private static DeploymentGroup group(final RolloutOptions options) {
+    return DeploymentGroup.newBuilder().setName("my_group").setRolloutOptions(options).build();
+  }
+
+  private static DeploymentGroupTasks.Builder tasks() {
+    return DeploymentGroupTasks.newBuilder().setDeploymentGroup(GROUP);
+  }
+
+  private static RolloutWave wave(final int wave) {
+    return RolloutWave.newBuilder().setWave(wave).setAdjustment(Adjustment.START).build();
+  }
+
+  @Test
+  public void testIsAdaptive() {
+    assertFalse(AdaptiveRollout.isAdaptive(group(null)));
+    assertFalse(AdaptiveRollout.isAdaptive(group(RolloutOptions.getDefault())));
+    assertFalse(AdaptiveRollout.isAdaptive(group(RolloutOptions.newBuilder()
+        .setParallelism(4)
+        .setMaxParallelism(4)
+        .build())));
+    assertTrue(AdaptiveRollout.isAdaptive(group(RolloutOptions.newBuilder()
+        .setMaxParallelism(2)
+        .build())));
+    assertTrue(AdaptiveRollout.isAdaptive(GROUP));
+  }
+
+  @Test
+  public void testFirstWaveHasParallelismHosts() {
+    final DeploymentGroupTasks tasks = tasks().build();
+
+    assertEquals(Adjustment.START, rollout.adjustment(tasks, 1000));
+    assertEquals(2, rollout.waveSize(tasks, Adjustment.START));
+  }
+
+  @Test
+  public void testWaveWithinBudgetGrowsUpToMaxParallelism() {
+    final DeploymentGroupTasks tasks = tasks().setWaveSize(4).setWaveStartedAt(1000).build();
+
+    assertEquals(Adjustment.GROW, rollout.adjustment(tasks, 11_000));
+    assertEquals(6, rollout.waveSize(tasks, Adjustment.GROW));
+  }
+
+  @Test
+  public void testSlowWaveHolds() {
+    final DeploymentGroupTasks tasks = tasks().setWaveSize(4).setWaveStartedAt(1000).build();
+
+    assertEquals(Adjustment.HOLD, rollout.adjustment(tasks, 11_001));
+    assertEquals(4, rollout.waveSize(tasks, Adjustment.HOLD));
+  }
+
+  @Test
+  public void testWaveWithFailuresShrinksDownToParallelism() {
+    final DeploymentGroupTasks tasks = tasks()
+        .setWaveSize(6)
+        .setWaveStartedAt(1000)
+        .setWaveFailures(1)
+        .build();
+
+    assertEquals(Adjustment.SHRINK, rollout.adjustment(tasks, 2000));
+    assertEquals(3, rollout.waveSize(tasks, Adjustment.SHRINK));
+    assertEquals(2, rollout.waveSize(tasks.toBuilder().setWaveSize(3).build(),
+        Adjustment.SHRINK));
+  }
+
+  @Test
+  public void testStartWavePlansHostsOfTheWaveTogether() {
+    final List<RolloutTask> plan = RollingUpdatePlanner.of(AdaptiveRollout.hostByHost(GROUP))
+        .plan(ImmutableList.of("host1", "host2", "host3"));
+    final DeploymentGroupTasks tasks = tasks()
+        .setRolloutTasks(plan)
+        .setTaskIndex(3)
+        .setWaveStart(0)
+        .setWaveEnd(3)
+        .setWaveSize(2)
+        .setWaves(ImmutableList.of(wave(1)))
+        .build();
+    assertTrue(AdaptiveRollout.needsWave(tasks));
+
+    final AdaptiveRollout.Wave wave = rollout.startWave(tasks, plan.subList(3, 9), 5000);
+
+    assertEquals(ImmutableList.of(
+        RolloutTask.of(UNDEPLOY_OLD_JOBS, "host2"),
+        RolloutTask.of(DEPLOY_NEW_JOB, "host2"),
+        RolloutTask.of(UNDEPLOY_OLD_JOBS, "host3"),
+        RolloutTask.of(DEPLOY_NEW_JOB, "host3"),
+        RolloutTask.of(AWAIT_RUNNING, "host2"),
+        RolloutTask.of(AWAIT_RUNNING, "host3")),
+        wave.getWaveTasks());
+    final DeploymentGroupTasks next = wave.getTasks();
+    assertEquals(plan, next.getRolloutTasks());
+    assertEquals(3, next.getWaveStart());
+    assertEquals(9, next.getWaveEnd());
+    assertEquals(4, next.getWaveSize());
+    assertEquals(5000, next.getWaveStartedAt());
+    assertEquals(0, next.getWaveFailures());
+    assertEquals(2, next.getWaves().size());
+    assertEquals(wave.getRecord(), next.getWaves().get(1));
+    assertEquals(2, wave.getRecord().getWave());
+    assertEquals(3, wave.getRecord().getTaskIndex());
+    assertEquals(4, wave.getRecord().getSize());
+    assertEquals(Adjustment.GROW, wave.getRecord().getAdjustment());
+    assertThat(wave.getRecord().getReason(), containsString("took 5000ms"));
+    assertFalse(AdaptiveRollout.needsWave(next));
+    assertTrue(AdaptiveRollout.needsWave(next.toBuilder().setTaskIndex(9).build()));
+  }
+
+  @Test
+  public void testWaveDoesNotMixUndeployedAndUpdatedHosts() {
+    final DeploymentGroup hostByHost = AdaptiveRollout.hostByHost(GROUP);
+    final List<RolloutTask> plan = ImmutableList.<RolloutTask>builder()
+        .addAll(RollingUndeployPlanner.of(hostByHost).plan(ImmutableList.of("removed")))
+        .addAll(RollingUpdatePlanner.of(hostByHost).plan(ImmutableList.of("host1", "host2")))
+        .build();
+
+    final AdaptiveRollout.Wave wave = rollout.startWave(tasks().setRolloutTasks(plan).build(),
+        plan, 0);
+
+    assertEquals(ImmutableList.of(
+        RolloutTask.of(FORCE_UNDEPLOY_JOBS, "removed"),
+        RolloutTask.of(AWAIT_UNDEPLOYED, "removed"),
+        RolloutTask.of(MARK_UNDEPLOYED, "removed")),
+        wave.getWaveTasks());
+    assertEquals(2, wave.getTasks().getWaveSize());
+    assertEquals(3, wave.getTasks().getWaveEnd());
+    assertEquals(1, wave.getRecord().getWave());
+    assertEquals(Adjustment.START, wave.getRecord().getAdjustment());
+  }
+
+  @Test
+  public void testWaveThatWasNotRecordedIsFinishedInPlanOrder() {
+    // A wave of host1 and host2 was written over the plan, then the wave state was lost while
+    // host1 was being updated, e.g. by a master that does not know about waves.
+    final List<RolloutTask> plan = ImmutableList.<RolloutTask>builder()
+        .addAll(RollingUpdatePlanner.of(GROUP).plan(ImmutableList.of("host1", "host2")))
+        .addAll(RollingUpdatePlanner.of(AdaptiveRollout.hostByHost(GROUP))
+            .plan(ImmutableList.of("host3")))
+        .build();
+    final DeploymentGroupTasks tasks = tasks().setRolloutTasks(plan).setTaskIndex(2).build();
+    assertTrue(AdaptiveRollout.needsWave(tasks));
+
+    final AdaptiveRollout.Wave wave = rollout.startWave(tasks, plan.subList(2, 9), 0);
+
+    assertEquals(plan.subList(2, 6), wave.getWaveTasks());
+    assertEquals(6, wave.getTasks().getWaveEnd());
+    assertEquals(2, wave.getTasks().getWaveSize());
+    assertEquals(Adjustment.RESUME, wave.getRecord().getAdjustment());
+  }
+
+  @Test
+  public void testOnlyRecentWavesAreKept() {
+    final ImmutableList.Builder<RolloutWave> waves = ImmutableList.builder();
+    for (int i = 1; i <= AdaptiveRollout.MAX_WAVES; i++) {
+      waves.add(wave(i));
+    }
+    final List<RolloutTask> plan = RollingUpdatePlanner.of(AdaptiveRollout.hostByHost(GROUP))
+        .plan(ImmutableList.of("host1"));
+
+    final AdaptiveRollout.Wave wave = rollout.startWave(
+        tasks().setRolloutTasks(plan).setWaveSize(2).setWaves(waves.build()).build(), plan, 0);
+
+    final List<RolloutWave> next = wave.getTasks().getWaves();
+    assertEquals(AdaptiveRollout.MAX_WAVES, next.size());
+    assertEquals(2, next.get(0).getWave());
+    assertEquals(AdaptiveRollout.MAX_WAVES + 1, wave.getRecord().getWave());
+  }
+
+  @Test
+  public void testRolloutThatIsNotAdaptiveNeedsNoWaves() {
+    assertFalse(AdaptiveRollout.needsWave(DeploymentGroupTasks.newBuilder()
+        .setDeploymentGroup(group(RolloutOptions.getDefault()))
+        .setRolloutTasks(ImmutableList.of(RolloutTask.of(AWAIT_RUNNING, "host1")))
+        .build()));
+  }
+}
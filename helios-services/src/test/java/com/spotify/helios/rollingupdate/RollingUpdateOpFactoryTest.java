@@ -36,18 +36,22 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.spotify.helios.common.Json;
 import com.spotify.helios.common.descriptors.DeploymentGroup;
 import com.spotify.helios.common.descriptors.DeploymentGroupStatus;
 import com.spotify.helios.common.descriptors.DeploymentGroupTasks;
 import com.spotify.helios.common.descriptors.RolloutOptions;
 import com.spotify.helios.common.descriptors.RolloutTask;
+import com.spotify.helios.common.descriptors.RolloutWave;
 import com.spotify.helios.servicescommon.coordination.CreateEmpty;
 import com.spotify.helios.servicescommon.coordination.Delete;
+import com.spotify.helios.servicescommon.coordination.SegmentedList;
 import com.spotify.helios.servicescommon.coordination.SetData;
 import com.spotify.helios.servicescommon.coordination.ZooKeeperClient;
 import com.spotify.helios.servicescommon.coordination.ZooKeeperOperation;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import org.apache.zookeeper.data.Stat;
 import org.junit.Test;
@@ -79,7 +83,7 @@ public class RollingUpdateOpFactoryTest {
         deploymentGroupTasks, eventFactory);
     final ZooKeeperClient client = mock(ZooKeeperClient.class);
     when(client.exists(anyString())).thenReturn(null);
-    final RollingUpdateOp op = opFactory.start(MANUAL_DEPLOYMENT_GROUP, client);
+    final RollingUpdateOp op = opFactory.start(MANUAL_DEPLOYMENT_GROUP, client, false);
 
     // Three ZK operations should return:
     // * create tasks node
@@ -113,7 +117,7 @@ public class RollingUpdateOpFactoryTest {
         deploymentGroupTasks, eventFactory);
     final ZooKeeperClient client = mock(ZooKeeperClient.class);
     when(client.exists(anyString())).thenReturn(mock(Stat.class));
-    final RollingUpdateOp op = opFactory.start(MANUAL_DEPLOYMENT_GROUP, client);
+    final RollingUpdateOp op = opFactory.start(MANUAL_DEPLOYMENT_GROUP, client, false);
 
     // Two ZK operations should return:
     // * delete the tasks
@@ -152,7 +156,7 @@ public class RollingUpdateOpFactoryTest {
         deploymentGroupTasks, eventFactory);
     final ZooKeeperClient client = mock(ZooKeeperClient.class);
     when(client.exists(anyString())).thenReturn(null);
-    final RollingUpdateOp op = opFactory.start(MANUAL_DEPLOYMENT_GROUP, client);
+    final RollingUpdateOp op = opFactory.start(MANUAL_DEPLOYMENT_GROUP, client, false);
 
     // Three ZK operations should return:
     // * create tasks node
@@ -196,7 +200,7 @@ public class RollingUpdateOpFactoryTest {
         deploymentGroupTasks, eventFactory);
     final ZooKeeperClient client = mock(ZooKeeperClient.class);
     when(client.exists(anyString())).thenReturn(null);
-    final RollingUpdateOp op = opFactory.start(HOSTS_CHANGED_DEPLOYMENT_GROUP, client);
+    final RollingUpdateOp op = opFactory.start(HOSTS_CHANGED_DEPLOYMENT_GROUP, client, false);
 
     // Three ZK operations should return:
     // * create tasks node
@@ -222,6 +226,115 @@ public class RollingUpdateOpFactoryTest {
     verify(eventFactory).rollingUpdateStarted(HOSTS_CHANGED_DEPLOYMENT_GROUP);
   }
 
+  @Test
+  public void testStartSegmentsLargePlan() throws Exception {
+    final List<RolloutTask> rolloutTasks = Lists.newArrayList();
+    for (int i = 0; i < SegmentedList.SEGMENT_SIZE * 2; i++) {
+      rolloutTasks.add(RolloutTask.of(RolloutTask.Action.DEPLOY_NEW_JOB, "host" + i));
+    }
+    final DeploymentGroupTasks deploymentGroupTasks = DeploymentGroupTasks.newBuilder()
+        .setRolloutTasks(rolloutTasks)
+        .setDeploymentGroup(MANUAL_DEPLOYMENT_GROUP)
+        .build();
+
+    final RollingUpdateOpFactory opFactory = new RollingUpdateOpFactory(
+        deploymentGroupTasks, eventFactory);
+    final ZooKeeperClient client = mock(ZooKeeperClient.class);
+    final Stat stat = mock(Stat.class);
+    when(stat.getNumChildren()).thenReturn(3);
+    when(client.exists(anyString())).thenReturn(stat);
+    final RollingUpdateOp op = opFactory.start(MANUAL_DEPLOYMENT_GROUP, client, true);
+
+    // The existing segments are reused, the leftover one is deleted and the tasks node only
+    // holds the cursor
+    assertEquals(
+        ImmutableSet.of(
+            new SetData("/status/deployment-group-tasks/my_group/0",
+                Json.asBytes(rolloutTasks.subList(0, SegmentedList.SEGMENT_SIZE))),
+            new SetData("/status/deployment-group-tasks/my_group/1",
+                Json.asBytes(rolloutTasks.subList(SegmentedList.SEGMENT_SIZE,
+                    rolloutTasks.size()))),
+            new Delete("/status/deployment-group-tasks/my_group/2"),
+            new SetData("/status/deployment-group-tasks/my_group", DeploymentGroupTasks.newBuilder()
+                .setTaskIndex(0)
+                .setTaskCount(rolloutTasks.size())
+                .setSegmentSize(SegmentedList.SEGMENT_SIZE)
+                .setDeploymentGroup(MANUAL_DEPLOYMENT_GROUP)
+                .build()
+                .toJsonBytes()),
+            new SetData("/status/deployment-groups/my_group", DeploymentGroupStatus.newBuilder()
+                .setState(DeploymentGroupStatus.State.ROLLING_OUT)
+                .build()
+                .toJsonBytes())),
+        ImmutableSet.copyOf(op.operations()));
+  }
+
+  @Test
+  public void testStartWritesLargePlanInlineUnlessSegmenting() throws Exception {
+    final List<RolloutTask> rolloutTasks = Lists.newArrayList();
+    for (int i = 0; i < SegmentedList.SEGMENT_SIZE * 2; i++) {
+      rolloutTasks.add(RolloutTask.of(RolloutTask.Action.DEPLOY_NEW_JOB, "host" + i));
+    }
+    final DeploymentGroupTasks deploymentGroupTasks = DeploymentGroupTasks.newBuilder()
+        .setRolloutTasks(rolloutTasks)
+        .setDeploymentGroup(MANUAL_DEPLOYMENT_GROUP)
+        .build();
+
+    final RollingUpdateOpFactory opFactory = new RollingUpdateOpFactory(
+        deploymentGroupTasks, eventFactory);
+    final ZooKeeperClient client = mock(ZooKeeperClient.class);
+    final Stat stat = mock(Stat.class);
+    when(stat.getNumChildren()).thenReturn(2);
+    when(client.exists(anyString())).thenReturn(stat);
+    final RollingUpdateOp op = opFactory.start(MANUAL_DEPLOYMENT_GROUP, client, false);
+
+    // The whole plan is written inline, as masters that predate segments expect, and the segments
+    // of a previous rollout are deleted
+    assertEquals(
+        ImmutableSet.of(
+            new Delete("/status/deployment-group-tasks/my_group/1"),
+            new Delete("/status/deployment-group-tasks/my_group/0"),
+            new SetData("/status/deployment-group-tasks/my_group", DeploymentGroupTasks.newBuilder()
+                .setRolloutTasks(rolloutTasks)
+                .setTaskIndex(0)
+                .setDeploymentGroup(MANUAL_DEPLOYMENT_GROUP)
+                .build()
+                .toJsonBytes()),
+            new SetData("/status/deployment-groups/my_group", DeploymentGroupStatus.newBuilder()
+                .setState(DeploymentGroupStatus.State.ROLLING_OUT)
+                .build()
+                .toJsonBytes())),
+        ImmutableSet.copyOf(op.operations()));
+  }
+
+  @Test
+  public void testSegmentedTransitionToDone() {
+    final DeploymentGroupTasks deploymentGroupTasks = DeploymentGroupTasks.newBuilder()
+        .setTaskIndex(SegmentedList.SEGMENT_SIZE + 1)
+        .setTaskCount(SegmentedList.SEGMENT_SIZE + 2)
+        .setSegmentSize(SegmentedList.SEGMENT_SIZE)
+        .setDeploymentGroup(MANUAL_DEPLOYMENT_GROUP)
+        .build();
+    final RolloutTask task = RolloutTask.of(RolloutTask.Action.AWAIT_RUNNING, "host1");
+
+    final RollingUpdateOpFactory opFactory = new RollingUpdateOpFactory(
+        deploymentGroupTasks, task, eventFactory);
+    final RollingUpdateOp op = opFactory.nextTask();
+
+    // Both segments are deleted along with the tasks node
+    assertEquals(
+        ImmutableList.of(
+            new Delete("/status/deployment-group-tasks/my_group/1"),
+            new Delete("/status/deployment-group-tasks/my_group/0"),
+            new Delete("/status/deployment-group-tasks/my_group"),
+            new SetData("/status/deployment-groups/my_group", DeploymentGroupStatus.newBuilder()
+                .setState(DeploymentGroupStatus.State.DONE)
+                .build()
+                .toJsonBytes())),
+        op.operations());
+    verify(eventFactory).rollingUpdateDone(MANUAL_DEPLOYMENT_GROUP);
+  }
+
   @Test
   public void testNextTaskNoOps() {
     final DeploymentGroupTasks deploymentGroupTasks = DeploymentGroupTasks.newBuilder()
@@ -422,4 +535,191 @@ public class RollingUpdateOpFactoryTest {
         new Delete("/status/deployment-group-tasks/ignore_failure_group")
     ));
   }
+
+  @Test
+  public void testStartWave() {
+    final DeploymentGroup deploymentGroup = MANUAL_DEPLOYMENT_GROUP.toBuilder()
+        .setRolloutOptions(RolloutOptions.getDefault().toBuilder()
+            .setMaxParallelism(4)
+            .build())
+        .build();
+    final List<RolloutTask> plan = RollingUpdatePlanner.of(deploymentGroup)
+        .plan(ImmutableList.of("host1", "host2"));
+    final DeploymentGroupTasks tasks = DeploymentGroupTasks.newBuilder()
+        .setRolloutTasks(plan)
+        .setDeploymentGroup(deploymentGroup)
+        .build();
+
+    final RollingUpdateOpFactory opFactory = new RollingUpdateOpFactory(tasks, eventFactory);
+    final RollingUpdateOp op = opFactory.startWave(0, plan, 1000);
+
+    // The first wave has as many hosts as the parallelism of the group, and keeps the plan as is
+    final DeploymentGroupTasks wave = tasks.toBuilder()
+        .setWaveEnd(3)
+        .setWaveSize(1)
+        .setWaveStartedAt(1000)
+        .setWaves(ImmutableList.of(RolloutWave.newBuilder()
+            .setWave(1)
+            .setSize(1)
+            .setAdjustment(RolloutWave.Adjustment.START)
+            .setReason("first wave")
+            .setStartedAt(1000)
+            .build()))
+        .build();
+    assertEquals(ImmutableList.of(
+        new SetData("/status/deployment-group-tasks/my_group", wave.toJsonBytes())),
+        op.operations());
+
+    assertEquals(1, op.events().size());
+    verify(eventFactory).rollingUpdateWaveStarted(deploymentGroup, tasks, wave, 1000);
+  }
+
+  @Test
+  public void testStartWaveRewritesPlan() {
+    final DeploymentGroup deploymentGroup = MANUAL_DEPLOYMENT_GROUP.toBuilder()
+        .setRolloutOptions(RolloutOptions.getDefault().toBuilder()
+            .setMaxParallelism(4)
+            .build())
+        .build();
+    final List<RolloutTask> plan = RollingUpdatePlanner.of(deploymentGroup)
+        .plan(ImmutableList.of("host1", "host2", "host3"));
+    // The first wave took a second, the next one has two hosts
+    final DeploymentGroupTasks tasks = DeploymentGroupTasks.newBuilder()
+        .setRolloutTasks(plan)
+        .setTaskIndex(3)
+        .setDeploymentGroup(deploymentGroup)
+        .setWaveEnd(3)
+        .setWaveSize(1)
+        .setWaveStartedAt(1000)
+        .build();
+
+    final RollingUpdateOp op = new RollingUpdateOpFactory(tasks, eventFactory)
+        .startWave(0, plan, 2000);
+
+    final List<RolloutTask> replanned = ImmutableList.<RolloutTask>builder()
+        .addAll(plan.subList(0, 3))
+        .add(RolloutTask.of(RolloutTask.Action.UNDEPLOY_OLD_JOBS, "host2"))
+        .add(RolloutTask.of(RolloutTask.Action.DEPLOY_NEW_JOB, "host2"))
+        .add(RolloutTask.of(RolloutTask.Action.UNDEPLOY_OLD_JOBS, "host3"))
+        .add(RolloutTask.of(RolloutTask.Action.DEPLOY_NEW_JOB, "host3"))
+        .add(RolloutTask.of(RolloutTask.Action.AWAIT_RUNNING, "host2"))
+        .add(RolloutTask.of(RolloutTask.Action.AWAIT_RUNNING, "host3"))
+        .build();
+    assertEquals(ImmutableList.of(
+        new SetData("/status/deployment-group-tasks/my_group", tasks.toBuilder()
+            .setRolloutTasks(replanned)
+            .setWaveStart(3)
+            .setWaveEnd(9)
+            .setWaveSize(2)
+            .setWaveStartedAt(2000)
+            .setWaves(ImmutableList.of(grow(3, 2000)))
+            .build()
+            .toJsonBytes())),
+        op.operations());
+  }
+
+  private static RolloutWave grow(final int taskIndex, final long now) {
+    return RolloutWave.newBuilder()
+        .setWave(1)
+        .setTaskIndex(taskIndex)
+        .setSize(2)
+        .setAdjustment(RolloutWave.Adjustment.GROW)
+        .setReason("previous wave took 1000ms without failures, within the latency budget of "
+                   + "60000ms")
+        .setStartedAt(now)
+        .build();
+  }
+
+  @Test
+  public void testStartWaveRewritesSegmentsOfTheWave() throws Exception {
+    final DeploymentGroup deploymentGroup = MANUAL_DEPLOYMENT_GROUP.toBuilder()
+        .setRolloutOptions(RolloutOptions.getDefault().toBuilder()
+            .setMaxParallelism(4)
+            .build())
+        .build();
+    final List<RolloutTask> plan = RollingUpdatePlanner.of(deploymentGroup)
+        .plan(ImmutableList.of("host1", "host2", "host3"));
+    final DeploymentGroupTasks tasks = DeploymentGroupTasks.newBuilder()
+        .setTaskIndex(3)
+        .setTaskCount(plan.size())
+        .setSegmentSize(2)
+        .setDeploymentGroup(deploymentGroup)
+        .setWaveEnd(3)
+        .setWaveSize(1)
+        .setWaveStartedAt(1000)
+        .build();
+
+    // The segments from the one holding the task index on
+    final RollingUpdateOp op = new RollingUpdateOpFactory(tasks, eventFactory)
+        .startWave(2, plan.subList(2, plan.size()), 2000);
+
+    final List<RolloutTask> replanned = ImmutableList.<RolloutTask>builder()
+        .addAll(plan.subList(0, 3))
+        .add(RolloutTask.of(RolloutTask.Action.UNDEPLOY_OLD_JOBS, "host2"))
+        .add(RolloutTask.of(RolloutTask.Action.DEPLOY_NEW_JOB, "host2"))
+        .add(RolloutTask.of(RolloutTask.Action.UNDEPLOY_OLD_JOBS, "host3"))
+        .add(RolloutTask.of(RolloutTask.Action.DEPLOY_NEW_JOB, "host3"))
+        .add(RolloutTask.of(RolloutTask.Action.AWAIT_RUNNING, "host2"))
+        .add(RolloutTask.of(RolloutTask.Action.AWAIT_RUNNING, "host3"))
+        .build();
+    final List<ZooKeeperOperation> expected = Lists.newArrayList();
+    for (int segment = 1; segment < 5; segment++) {
+      expected.add(new SetData("/status/deployment-group-tasks/my_group/" + segment,
+          Json.asBytes(replanned.subList(segment * 2, Math.min(replanned.size(),
+              segment * 2 + 2)))));
+    }
+    // The tasks node keeps only the cursor
+    expected.add(new SetData("/status/deployment-group-tasks/my_group", tasks.toBuilder()
+        .setWaveStart(3)
+        .setWaveEnd(9)
+        .setWaveSize(2)
+        .setWaveStartedAt(2000)
+        .setWaves(ImmutableList.of(grow(3, 2000)))
+        .build()
+        .toJsonBytes()));
+    assertEquals(expected, op.operations());
+  }
+
+  @Test
+  public void testIgnoredErrorCountsAgainstWave() {
+    final DeploymentGroup deploymentGroup = DeploymentGroup.newBuilder()
+        .setName("ignore_failure_group")
+        .setRolloutOptions(RolloutOptions.newBuilder()
+            .setIgnoreFailures(true)
+            .setMaxParallelism(4)
+            .build())
+        .setRollingUpdateReason(MANUAL)
+        .build();
+    final List<RolloutTask> waveTasks = ImmutableList.of(
+        RolloutTask.of(RolloutTask.Action.UNDEPLOY_OLD_JOBS, "host1"),
+        RolloutTask.of(RolloutTask.Action.DEPLOY_NEW_JOB, "host1"),
+        RolloutTask.of(RolloutTask.Action.UNDEPLOY_OLD_JOBS, "host2"),
+        RolloutTask.of(RolloutTask.Action.DEPLOY_NEW_JOB, "host2"),
+        RolloutTask.of(RolloutTask.Action.AWAIT_RUNNING, "host1"),
+        RolloutTask.of(RolloutTask.Action.AWAIT_RUNNING, "host2"));
+
+    // the current task is the AWAIT_RUNNING of host1, the plan is stored in segments
+    final DeploymentGroupTasks tasks = DeploymentGroupTasks.newBuilder()
+        .setTaskIndex(7)
+        .setTaskCount(12)
+        .setSegmentSize(6)
+        .setDeploymentGroup(deploymentGroup)
+        .setWaveStart(3)
+        .setWaveEnd(9)
+        .setWaveSize(2)
+        .build();
+
+    final RollingUpdateOpFactory opFactory = new RollingUpdateOpFactory(
+        tasks, waveTasks.get(4), eventFactory);
+    final RollingUpdateOp op = opFactory.error("something went wrong", "host1",
+        RollingUpdateError.TIMED_OUT_WAITING_FOR_JOB_TO_REACH_RUNNING);
+
+    assertEquals(ImmutableList.of(
+        new SetData("/status/deployment-group-tasks/ignore_failure_group", tasks.toBuilder()
+            .setTaskIndex(8)
+            .setWaveFailures(1)
+            .build()
+            .toJsonBytes())),
+        op.operations());
+  }
 }
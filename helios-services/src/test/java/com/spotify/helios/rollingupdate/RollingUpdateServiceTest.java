@@ -0,0 +1,116 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.rollingupdate;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.spotify.helios.common.descriptors.DeploymentGroup;
+import com.spotify.helios.common.descriptors.HostSelector;
+import com.spotify.helios.master.MasterModel;
+import com.spotify.helios.master.WorkPartition;
+import com.spotify.helios.servicescommon.Reactor;
+import com.spotify.helios.servicescommon.ReactorFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class RollingUpdateServiceTest {
+
+  private static final DeploymentGroup OWNED_GROUP = DeploymentGroup.newBuilder()
+      .setName("owned-group")
+      .setHostSelectors(ImmutableList.of(HostSelector.parse("role=foo")))
+      .build();
+  private static final DeploymentGroup OTHER_GROUP = DeploymentGroup.newBuilder()
+      .setName("other-group")
+      .setHostSelectors(ImmutableList.of(HostSelector.parse("role=foo")))
+      .build();
+
+  // This master only owns one of the two deployment groups
+  private static final WorkPartition PARTITION = OWNED_GROUP.getName()::equals;
+
+  private final MasterModel masterModel = mock(MasterModel.class);
+  private final ReactorFactory reactorFactory = mock(ReactorFactory.class);
+
+  private Reactor.Callback hostUpdate;
+  private Reactor.Callback rollingUpdate;
+
+  @Before
+  public void setUp() throws Exception {
+    when(reactorFactory.create(any(String.class), any(Reactor.Callback.class), anyLong()))
+        .thenReturn(mock(Reactor.class));
+
+    new RollingUpdateService(masterModel, reactorFactory, PARTITION);
+
+    final ArgumentCaptor<Reactor.Callback> hostUpdateCaptor =
+        ArgumentCaptor.forClass(Reactor.Callback.class);
+    verify(reactorFactory).create(eq("hostUpdate"), hostUpdateCaptor.capture(), anyLong());
+    hostUpdate = hostUpdateCaptor.getValue();
+
+    final ArgumentCaptor<Reactor.Callback> rollingUpdateCaptor =
+        ArgumentCaptor.forClass(Reactor.Callback.class);
+    verify(reactorFactory).create(eq("rollingUpdate"), rollingUpdateCaptor.capture(), anyLong());
+    rollingUpdate = rollingUpdateCaptor.getValue();
+  }
+
+  @Test
+  public void testOnlyUpdatesHostsOfOwnedGroups() throws Exception {
+    when(masterModel.getDeploymentGroups()).thenReturn(ImmutableMap.of(
+        OWNED_GROUP.getName(), OWNED_GROUP,
+        OTHER_GROUP.getName(), OTHER_GROUP));
+    when(masterModel.listHosts()).thenReturn(ImmutableList.of("host1"));
+    when(masterModel.getHostLabels("host1")).thenReturn(ImmutableMap.of("role", "foo"));
+
+    hostUpdate.run(false);
+
+    verify(masterModel).updateDeploymentGroupHosts(OWNED_GROUP.getName(),
+        ImmutableList.of("host1"));
+    verify(masterModel, never()).updateDeploymentGroupHosts(eq(OTHER_GROUP.getName()),
+        anyListOf(String.class));
+  }
+
+  @Test
+  public void testSkipsHostsWithoutOwnedGroups() throws Exception {
+    when(masterModel.getDeploymentGroups()).thenReturn(ImmutableMap.of(
+        OTHER_GROUP.getName(), OTHER_GROUP));
+
+    hostUpdate.run(false);
+
+    verify(masterModel, never()).listHosts();
+    verify(masterModel, never()).updateDeploymentGroupHosts(any(String.class),
+        anyListOf(String.class));
+  }
+
+  @Test
+  public void testRollingUpdateStepUsesPartition() throws Exception {
+    rollingUpdate.run(false);
+
+    verify(masterModel).rollingUpdateStep(PARTITION);
+  }
+}
@@ -0,0 +1,176 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.rollingupdate;
+
+import static com.spotify.helios.common.descriptors.RolloutTask.Action.AWAIT_RUNNING;
+import static com.spotify.helios.common.descriptors.RolloutTask.Action.AWAIT_UNDEPLOYED;
+import static com.spotify.helios.common.descriptors.RolloutTask.Action.FORCE_UNDEPLOY_JOBS;
+import static com.spotify.helios.common.descriptors.RolloutTask.Action.UNDEPLOY_OLD_JOBS;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableMap;
+import com.spotify.helios.common.descriptors.Deployment;
+import com.spotify.helios.common.descriptors.DeploymentGroup;
+import com.spotify.helios.common.descriptors.Goal;
+import com.spotify.helios.common.descriptors.Job;
+import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.RolloutOptions;
+import com.spotify.helios.common.descriptors.RolloutTask;
+import com.spotify.helios.common.descriptors.TaskStatus;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RolloutDeciderTest {
+
+  private static final JobId JOB_ID = new JobId("foo", "2", "1234");
+  private static final JobId OLD_JOB_ID = new JobId("foo", "1", "5678");
+  private static final JobId OTHER_JOB_ID = new JobId("bar", "1", "9012");
+  private static final DeploymentGroup GROUP = DeploymentGroup.newBuilder()
+      .setName("group")
+      .setJobId(JOB_ID)
+      .setRolloutOptions(RolloutOptions.newBuilder().setTimeout(10L).build())
+      .build();
+  private static final Job JOB = Job.newBuilder()
+      .setName(JOB_ID.getName())
+      .setVersion(JOB_ID.getVersion())
+      .buildWithoutHash();
+
+  private final RolloutState state = mock(RolloutState.class);
+
+  @Before
+  public void setUp() {
+    when(state.getTasksModifiedMillis("group")).thenReturn(0L);
+  }
+
+  private static TaskStatus status(final TaskStatus.State state) {
+    return TaskStatus.newBuilder().setJob(JOB).setGoal(Goal.START).setState(state).build();
+  }
+
+  private static Deployment deployment(final JobId jobId, final String groupName) {
+    return Deployment.of(jobId, Goal.START, Deployment.EMTPY_DEPLOYER_USER,
+        Deployment.EMPTY_DEPLOYER_MASTER, groupName);
+  }
+
+  @Test
+  public void testUndeploySkipsRedundantAndForeignDeployments() {
+    when(state.getDeployments("agent1")).thenReturn(ImmutableMap.of(
+        JOB_ID, deployment(JOB_ID, "group"),
+        OLD_JOB_ID, deployment(OLD_JOB_ID, "group"),
+        OTHER_JOB_ID, deployment(OTHER_JOB_ID, "other")));
+
+    final RolloutDecision decision = RolloutDecider.decide(
+        state, RolloutTask.of(UNDEPLOY_OLD_JOBS, "agent1"), GROUP, 0);
+
+    assertThat(decision.getKind(), is(RolloutDecision.Kind.UNDEPLOY));
+    assertThat(decision.getUndeployJobIds(), contains(OLD_JOB_ID));
+  }
+
+  @Test
+  public void testForceUndeployIncludesTheJobOfTheGroup() {
+    when(state.getDeployments("agent1")).thenReturn(ImmutableMap.of(
+        JOB_ID, deployment(JOB_ID, "group"),
+        OLD_JOB_ID, deployment(OLD_JOB_ID, "group")));
+
+    final RolloutDecision decision = RolloutDecider.decide(
+        state, RolloutTask.of(FORCE_UNDEPLOY_JOBS, "agent1"), GROUP, 0);
+
+    assertThat(decision.getUndeployJobIds(), containsInAnyOrder(JOB_ID, OLD_JOB_ID));
+  }
+
+  @Test
+  public void testAwaitRunningYieldsUntilTimeout() {
+    final TaskStatus creating = status(TaskStatus.State.CREATING);
+    when(state.getTaskStatus("agent1", JOB_ID)).thenReturn(creating);
+    final RolloutTask task = RolloutTask.of(AWAIT_RUNNING, "agent1");
+
+    assertThat(RolloutDecider.decide(state, task, GROUP, 10_999).getKind(),
+        is(RolloutDecision.Kind.YIELD));
+
+    // more than 10 whole seconds since the tasks were written
+    final RolloutDecision timedOut = RolloutDecider.decide(state, task, GROUP, 11_000);
+    assertThat(timedOut.getKind(), is(RolloutDecision.Kind.ERROR));
+    assertThat(timedOut.getError(),
+        is(RollingUpdateError.TIMED_OUT_WAITING_FOR_JOB_TO_REACH_RUNNING));
+    assertThat(timedOut.getTaskStatus(), is(creating));
+  }
+
+  @Test
+  public void testAwaitRunningNeverTimesOutWithoutTasks() {
+    when(state.getTasksModifiedMillis("group")).thenReturn(null);
+    when(state.getTaskStatus("agent1", JOB_ID)).thenReturn(status(TaskStatus.State.CREATING));
+
+    final RolloutDecision decision = RolloutDecider.decide(
+        state, RolloutTask.of(AWAIT_RUNNING, "agent1"), GROUP, Long.MAX_VALUE);
+
+    assertThat(decision.getKind(), is(RolloutDecision.Kind.YIELD));
+  }
+
+  @Test
+  public void testAwaitRunningWithoutDeploymentFails() {
+    final RolloutDecision decision = RolloutDecider.decide(
+        state, RolloutTask.of(AWAIT_RUNNING, "agent1"), GROUP, 0);
+
+    assertThat(decision.getKind(), is(RolloutDecision.Kind.ERROR));
+    assertThat(decision.getError(), is(RollingUpdateError.JOB_UNEXPECTEDLY_UNDEPLOYED));
+  }
+
+  @Test
+  public void testAwaitRunningOfJobDeployedByAnotherGroupFails() {
+    when(state.getTaskStatus("agent1", JOB_ID)).thenReturn(status(TaskStatus.State.RUNNING));
+    when(state.getDeployment("agent1", JOB_ID)).thenReturn(deployment(JOB_ID, "other"));
+
+    final RolloutDecision decision = RolloutDecider.decide(
+        state, RolloutTask.of(AWAIT_RUNNING, "agent1"), GROUP, 0);
+
+    assertThat(decision.getError(), is(RollingUpdateError.JOB_ALREADY_DEPLOYED));
+  }
+
+  @Test
+  public void testAwaitRunning() {
+    when(state.getTaskStatus("agent1", JOB_ID)).thenReturn(status(TaskStatus.State.RUNNING));
+    when(state.getDeployment("agent1", JOB_ID)).thenReturn(deployment(JOB_ID, "group"));
+
+    final RolloutDecision decision = RolloutDecider.decide(
+        state, RolloutTask.of(AWAIT_RUNNING, "agent1"), GROUP, 0);
+
+    assertThat(decision.getKind(), is(RolloutDecision.Kind.NEXT_TASK));
+  }
+
+  @Test
+  public void testAwaitUndeployed() {
+    final RolloutTask task = RolloutTask.of(AWAIT_UNDEPLOYED, "agent1");
+    when(state.getTaskStatus("agent1", JOB_ID)).thenReturn(status(TaskStatus.State.STOPPING));
+
+    assertThat(RolloutDecider.decide(state, task, GROUP, 0).getKind(),
+        is(RolloutDecision.Kind.YIELD));
+    assertThat(RolloutDecider.decide(state, task, GROUP, 11_000).getError(),
+        is(RollingUpdateError.TIMED_OUT_WAITING_FOR_JOB_TO_UNDEPLOY));
+
+    when(state.getTaskStatus("agent1", JOB_ID)).thenReturn(null);
+    assertThat(RolloutDecider.decide(state, task, GROUP, 11_000).getKind(),
+        is(RolloutDecision.Kind.NEXT_TASK));
+  }
+}
@@ -0,0 +1,282 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.rollingupdate;
+
+import static com.spotify.helios.common.descriptors.RolloutTask.Action.AWAIT_UNDEPLOYED;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.spotify.helios.common.descriptors.DeploymentGroup;
+import com.spotify.helios.common.descriptors.DeploymentGroupStatus;
+import com.spotify.helios.common.descriptors.Goal;
+import com.spotify.helios.common.descriptors.Job;
+import com.spotify.helios.common.descriptors.RolloutOptions;
+import com.spotify.helios.common.descriptors.RolloutTask;
+import com.spotify.helios.common.descriptors.TaskStatus;
+import com.spotify.helios.common.descriptors.TaskStatusEvent;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+public class RolloutSimulatorTest {
+
+  private static final List<String> HOSTS = ImmutableList.of("agent1", "agent2");
+
+  private final RolloutSimulator simulator = RolloutSimulator.newBuilder()
+      .setLatencies(StartLatencyModel.fixed(10_000, 3_000))
+      .setTickMillis(1000)
+      .build();
+
+  private static DeploymentGroup group(final RolloutOptions options) {
+    return DeploymentGroup.newBuilder().setName("group").setRolloutOptions(options).build();
+  }
+
+  private static List<String> path(final RolloutSimulator.Result result) {
+    return result.getCriticalPath().stream()
+        .map(step -> step.getTask().getAction() + " " + step.getTask().getTarget() + " "
+                     + step.getStartMillis() + "-" + step.getEndMillis())
+        .collect(Collectors.toList());
+  }
+
+  @Test
+  public void testSerialRollout() {
+    final RolloutSimulator.Result result = simulator.simulate(
+        group(RolloutOptions.newBuilder().setParallelism(1).build()), HOSTS);
+
+    // undeploy, deploy and 10 seconds of waiting for each host, one step per second
+    assertThat(result.getState(), is(DeploymentGroupStatus.State.DONE));
+    assertThat(result.getDurationMillis(), is(24_000L));
+    assertThat(result.getTicks(), is(24L));
+    assertThat(result.getSteps().size(), is(6));
+    assertThat(path(result), contains(
+        "AWAIT_RUNNING agent1 2000-12000",
+        "AWAIT_RUNNING agent2 14000-24000"));
+  }
+
+  @Test
+  public void testParallelRollout() {
+    final RolloutSimulator.Result result = simulator.simulate(
+        group(RolloutOptions.newBuilder().setParallelism(2).build()), HOSTS);
+
+    // agent2 starts while the master waits for agent1
+    assertThat(result.getState(), is(DeploymentGroupStatus.State.DONE));
+    assertThat(result.getDurationMillis(), is(14_000L));
+    assertThat(path(result), contains(
+        "AWAIT_RUNNING agent1 4000-12000",
+        "AWAIT_RUNNING agent2 12000-14000"));
+  }
+
+  @Test
+  public void testOverlappingRolloutWaitsForNothingToUndeploy() {
+    final RolloutSimulator.Result result = simulator.simulate(
+        group(RolloutOptions.newBuilder().setParallelism(2).setOverlap(true).build()), HOSTS);
+
+    assertThat(result.getState(), is(DeploymentGroupStatus.State.DONE));
+    assertThat(result.getDurationMillis(), is(14_000L));
+  }
+
+  @Test
+  public void testTimeout() {
+    final RolloutSimulator failing = RolloutSimulator.newBuilder()
+        .setLatencies(StartLatencyModel.fixed(10_000, 3_000).withFailingHost("agent2"))
+        .setTickMillis(1000)
+        .build();
+
+    final RolloutSimulator.Result result = failing.simulate(
+        group(RolloutOptions.newBuilder().setParallelism(1).setTimeout(5L).build()), HOSTS);
+
+    // agent1 already takes longer than the timeout: more than 5 whole seconds after the deploy
+    assertThat(result.getState(), is(DeploymentGroupStatus.State.FAILED));
+    assertThat(result.getDurationMillis(), is(8_000L));
+    assertThat(result.getSteps().get(2).isFailed(), is(true));
+  }
+
+  @Test
+  public void testIgnoredFailuresContinue() {
+    final RolloutSimulator failing = RolloutSimulator.newBuilder()
+        .setLatencies(StartLatencyModel.fixed(2_000, 3_000).withFailingHost("agent1"))
+        .setTickMillis(1000)
+        .build();
+
+    final RolloutSimulator.Result result = failing.simulate(group(RolloutOptions.newBuilder()
+        .setParallelism(1).setTimeout(5L).setIgnoreFailures(true).build()), HOSTS);
+
+    assertThat(result.getState(), is(DeploymentGroupStatus.State.DONE));
+    assertThat(path(result), contains(
+        "AWAIT_RUNNING agent1 2000-8000",
+        "AWAIT_RUNNING agent2 10000-12000"));
+    assertThat(result.getCriticalPath().get(0).isFailed(), is(true));
+  }
+
+  @Test
+  public void testNeverFinishes() {
+    final RolloutSimulator failing = RolloutSimulator.newBuilder()
+        .setLatencies(StartLatencyModel.fixed(2_000, 3_000).withFailingHost("agent1"))
+        .build();
+
+    final RolloutSimulator.Result result = failing.simulate(group(RolloutOptions.newBuilder()
+        .setTimeout(Long.MAX_VALUE).build()), HOSTS);
+
+    assertThat(result.getState(), is(DeploymentGroupStatus.State.ROLLING_OUT));
+  }
+
+  @Test
+  public void testRollingUndeploy() {
+    final DeploymentGroup group = group(RolloutOptions.newBuilder().setParallelism(2).build());
+
+    final RolloutSimulator.Result result =
+        simulator.simulate(RollingUndeployPlanner.of(group), group, HOSTS);
+
+    // agent2 has stopped by the time agent1 is marked undeployed
+    assertThat(result.getState(), is(DeploymentGroupStatus.State.DONE));
+    assertThat(result.getDurationMillis(), is(7_000L));
+    assertThat(result.getCriticalPath().get(0).getTask(),
+        is(RolloutTask.of(AWAIT_UNDEPLOYED, "agent1")));
+  }
+
+  @Test
+  public void testLargeRolloutIsFast() {
+    final List<String> hosts = Lists.newArrayList();
+    for (int i = 0; i < 10_000; i++) {
+      hosts.add("agent" + i);
+    }
+
+    final long start = System.nanoTime();
+    final RolloutSimulator.Result result = simulator.simulate(
+        group(RolloutOptions.newBuilder().setParallelism(10).build()), hosts);
+    final long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+    // 1000 waves of 30 one-second steps, every host of a wave has started by the time the master
+    // gets to wait for it
+    assertThat(result.getState(), is(DeploymentGroupStatus.State.DONE));
+    assertThat(result.getDurationMillis(), is(1000 * 30_000L));
+    assertThat(result.getCriticalPath().isEmpty(), is(true));
+    assertThat(elapsedMillis, lessThan(10_000L));
+  }
+
+  private static List<String> hosts(final int count) {
+    final List<String> hosts = Lists.newArrayList();
+    for (int i = 1; i <= count; i++) {
+      hosts.add("agent" + i);
+    }
+    return hosts;
+  }
+
+  @Test
+  public void testAdaptiveRolloutGrowsWaves() {
+    final RolloutOptions serial = RolloutOptions.newBuilder().setParallelism(1).build();
+
+    final RolloutSimulator.Result result = simulator.simulate(
+        group(serial.toBuilder().setMaxParallelism(4).build()), hosts(8));
+
+    // every wave is well within the default latency budget, the last one has a single host left
+    assertThat(result.getState(), is(DeploymentGroupStatus.State.DONE));
+    assertThat(result.getWaveSizes(), contains(1, 2, 4, 4));
+    assertThat(result.getSteps().size(), is(24));
+    assertThat(result.getDurationMillis(),
+        lessThan(simulator.simulate(group(serial), hosts(8)).getDurationMillis()));
+  }
+
+  @Test
+  public void testAdaptiveRolloutShrinksWavesAfterFailures() {
+    final RolloutSimulator failing = RolloutSimulator.newBuilder()
+        .setLatencies(StartLatencyModel.fixed(2_000, 3_000).withFailingHost("agent2"))
+        .setTickMillis(1000)
+        .build();
+
+    final RolloutSimulator.Result result = failing.simulate(group(RolloutOptions.newBuilder()
+        .setParallelism(1)
+        .setMaxParallelism(4)
+        .setTimeout(5L)
+        .setIgnoreFailures(true)
+        .build()), hosts(6));
+
+    assertThat(result.getState(), is(DeploymentGroupStatus.State.DONE));
+    assertThat(result.getWaveSizes(), contains(1, 2, 1, 2));
+  }
+
+  @Test
+  public void testFitToHistory() {
+    final Job job = Job.newBuilder().setName("foo").setVersion("1").setImage("busybox").build();
+    final List<TaskStatusEvent> history = ImmutableList.of(
+        event(job, "agent1", TaskStatus.State.PULLING_IMAGE, 1_000),
+        event(job, "agent1", TaskStatus.State.CREATING, 3_000),
+        event(job, "agent1", TaskStatus.State.RUNNING, 21_000),
+        event(job, "agent1", TaskStatus.State.STOPPING, 50_000),
+        event(job, "agent1", TaskStatus.State.STOPPED, 52_000),
+        event(job, "agent2", TaskStatus.State.CREATING, 2_000),
+        event(job, "agent2", TaskStatus.State.RUNNING, 6_000));
+
+    final StartLatencyModel model = StartLatencyModel.fromHistory(
+        history, 0.5, StartLatencyModel.fixed(60_000, 10_000));
+
+    assertThat(model.startMillis("agent1"), is(20_000L));
+    assertThat(model.startMillis("agent2"), is(4_000L));
+    // Hosts without history get the median of all starts
+    assertThat(model.startMillis("agent3"), is(4_000L));
+    assertThat(model.stopMillis("agent1"), is(2_000L));
+    assertThat(model.stopMillis("agent2"), is(2_000L));
+  }
+
+  @Test
+  public void testFitToHistoryKeepsHostsOfFallback() {
+    final Job job = Job.newBuilder().setName("foo").setVersion("1").setImage("busybox").build();
+    final List<TaskStatusEvent> history = ImmutableList.of(
+        event(job, "agent1", TaskStatus.State.CREATING, 2_000),
+        event(job, "agent1", TaskStatus.State.RUNNING, 6_000));
+
+    final StartLatencyModel model = StartLatencyModel.fromHistory(history, 0.5,
+        StartLatencyModel.fixed(60_000, 10_000).withFailingHost("agent1")
+            .withFailingHost("agent2"));
+
+    // agent1 has started before, agent2 has not and still fails
+    assertThat(model.startMillis("agent1"), is(4_000L));
+    assertThat(model.startMillis("agent2"), is(Long.MAX_VALUE));
+    assertThat(model.startMillis("agent3"), is(4_000L));
+  }
+
+  @Test
+  public void testManuallyUndeployedJobFails() {
+    final DeploymentGroup group = group(RolloutOptions.newBuilder().setParallelism(1).build());
+    // a plan that waits for a job which is never deployed
+    final RolloutPlanner planner = hosts -> ImmutableList.of(
+        RolloutTask.of(RolloutTask.Action.AWAIT_RUNNING, hosts.get(0)));
+
+    final RolloutSimulator.Result result = simulator.simulate(planner, group, HOSTS);
+
+    assertThat(result.getState(), is(DeploymentGroupStatus.State.FAILED));
+    assertThat(result.getDurationMillis(), is(1_000L));
+  }
+
+  private static TaskStatusEvent event(final Job job, final String host,
+                                       final TaskStatus.State state, final long timestamp) {
+    final TaskStatus status = TaskStatus.newBuilder()
+        .setJob(job)
+        .setGoal(Goal.START)
+        .setState(state)
+        .build();
+    return new TaskStatusEvent(status, timestamp, host);
+  }
+}
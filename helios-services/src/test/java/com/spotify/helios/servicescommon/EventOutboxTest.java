@@ -0,0 +1,193 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.servicescommon;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.spotify.helios.agent.BoundedRandomExponentialBackoff;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class EventOutboxTest {
+
+  private static final String TOPIC = "topic";
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final FakeSender sender = new FakeSender();
+
+  @Test
+  public void testDeliversInBatches() throws Exception {
+    final EventOutbox outbox = outbox(null, 1000);
+    outbox.start();
+    final List<String> expected = send(outbox, 0, 250);
+
+    awaitDelivered(expected.size());
+    outbox.stop();
+
+    assertThat(sender.messages, containsInAnyOrder(expected.toArray()));
+    assertTrue("expected fewer requests than events", sender.batches.get() < expected.size());
+  }
+
+  @Test
+  public void testRetriesFailedBatch() throws Exception {
+    sender.failures.set(2);
+    final EventOutbox outbox = outbox(null, 1000);
+    outbox.start();
+    final List<String> expected = send(outbox, 0, 10);
+
+    awaitDelivered(expected.size());
+    outbox.stop();
+
+    assertThat(sender.messages, containsInAnyOrder(expected.toArray()));
+    assertThat(outbox.getMetrics().keySet(), hasSize(6));
+  }
+
+  @Test
+  public void testSpillsOverflowAcrossRestarts() throws Exception {
+    final Path directory = temporaryFolder.newFolder().toPath();
+
+    // Never started, so nothing leaves the queue and everything past its capacity is spilled
+    final EventOutbox first = outbox(directory, 10);
+    final List<String> expected = send(first, 0, 50);
+    assertEquals(40, first.spilledCount());
+    first.stop();
+    assertThat(sender.messages, hasSize(0));
+
+    final EventOutbox second = outbox(directory, 10);
+    second.start();
+    awaitDelivered(expected.size());
+    second.stop();
+
+    assertThat(sender.messages, containsInAnyOrder(expected.toArray()));
+    assertEquals(0, second.droppedCount());
+  }
+
+  @Test
+  public void testSpillsBatchInFlightOnStop() throws Exception {
+    final Path directory = temporaryFolder.newFolder().toPath();
+
+    // The first outbox keeps retrying the batch it took until it is stopped
+    sender.failures.set(Integer.MAX_VALUE);
+    final EventOutbox first = outbox(directory, 10);
+    first.start();
+    final List<String> expected = send(first, 0, 5);
+    final long deadline = System.nanoTime() + SECONDS.toNanos(30);
+    while (sender.failures.get() == Integer.MAX_VALUE) {
+      assertThat("timed out waiting for a send", deadline - System.nanoTime(), greaterThan(0L));
+      Thread.sleep(10);
+    }
+    first.stop();
+    assertEquals(expected.size(), first.spilledCount());
+
+    sender.failures.set(0);
+    final EventOutbox second = outbox(directory, 10);
+    second.start();
+    awaitDelivered(expected.size());
+    second.stop();
+
+    assertThat(sender.messages, containsInAnyOrder(expected.toArray()));
+  }
+
+  @Test
+  public void testDropsOverflowWithoutDirectory() throws Exception {
+    final EventOutbox outbox = outbox(null, 10);
+    send(outbox, 0, 15);
+
+    assertEquals(5, outbox.droppedCount());
+    assertEquals(0, outbox.spilledCount());
+  }
+
+  private EventOutbox outbox(final Path directory, final int capacity) throws Exception {
+    return new EventOutbox(sender, "test", directory, capacity, 20, 10,
+        EventOutbox.DEFAULT_MAX_SPILL_BYTES,
+        BoundedRandomExponentialBackoff.newBuilder()
+            .setMinInterval(10, MILLISECONDS)
+            .setMaxInterval(10, MILLISECONDS)
+            .build());
+  }
+
+  private static List<String> send(final EventSender sender, final int from, final int to) {
+    final List<String> sent = Lists.newArrayList();
+    for (int i = from; i < to; i++) {
+      final String message = "event-" + i;
+      sender.send(TOPIC, message.getBytes(Charsets.UTF_8));
+      sent.add(message);
+    }
+    return sent;
+  }
+
+  private void awaitDelivered(final int count) throws Exception {
+    final long deadline = System.nanoTime() + SECONDS.toNanos(30);
+    while (sender.messages.size() < count) {
+      assertThat("timed out waiting for delivery", deadline - System.nanoTime(), greaterThan(0L));
+      Thread.sleep(10);
+    }
+  }
+
+  private static class FakeSender implements EventSender {
+
+    private final List<String> messages = Collections.synchronizedList(Lists.newArrayList());
+    private final AtomicInteger batches = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+
+    @Override
+    public void send(final String topic, final byte[] message) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ListenableFuture<Void> sendBatch(final String topic, final List<byte[]> batch) {
+      if (failures.getAndDecrement() > 0) {
+        return Futures.immediateFailedFuture(new RuntimeException("unavailable"));
+      }
+      batches.incrementAndGet();
+      for (final byte[] message : batch) {
+        messages.add(new String(message, Charsets.UTF_8));
+      }
+      return Futures.immediateFuture(null);
+    }
+
+    @Override
+    public void start() throws Exception {
+    }
+
+    @Override
+    public void stop() throws Exception {
+    }
+  }
+}
@@ -20,19 +20,31 @@
 
 package com.spotify.helios.servicescommon;
 
+import static com.spotify.helios.servicescommon.coordination.ZooKeeperOperations.delete;
 import static org.hamcrest.Matchers.contains;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
 
 import com.spotify.helios.ZooKeeperTestingServerManager;
+import com.spotify.helios.common.HeliosRuntimeException;
 import com.spotify.helios.common.descriptors.JobId;
 import com.spotify.helios.servicescommon.coordination.DefaultZooKeeperClient;
 import com.spotify.helios.servicescommon.coordination.Paths;
 import com.spotify.helios.servicescommon.coordination.ZooKeeperClient;
+import com.spotify.helios.servicescommon.coordination.ZooKeeperOperation;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.zookeeper.KeeperException.NodeExistsException;
 import org.apache.zookeeper.data.Stat;
 import org.junit.After;
 import org.junit.Before;
@@ -87,6 +99,156 @@ public class ZooKeeperRegistrarServiceUtilTest {
     assertNull(zkClient.exists(Paths.statusHost(HOSTNAME)));
   }
 
+  @Test
+  public void testDeregisterHostWithLargeHistory() throws Exception {
+    final String idPath = Paths.configHostId(HOSTNAME);
+    ZooKeeperRegistrarUtil.registerHost(zkClient, idPath, HOSTNAME, ID);
+    zkClient.ensurePath(Paths.configHostJob(HOSTNAME, JOB_ID1));
+    zkClient.ensurePath(Paths.configJobHost(JOB_ID1, HOSTNAME));
+    // More history events than fit in a single delete batch
+    for (int i = 0; i < 1200; i++) {
+      zkClient.ensurePath(Paths.historyJobHostEventsTimestamp(JOB_ID1, HOSTNAME, i));
+    }
+
+    ZooKeeperRegistrarUtil.deregisterHost(zkClient, HOSTNAME);
+
+    assertNull(zkClient.exists(Paths.configHost(HOSTNAME)));
+    assertNull(zkClient.exists(Paths.statusHost(HOSTNAME)));
+    assertNull(zkClient.exists(Paths.configJobHost(JOB_ID1, HOSTNAME)));
+    assertNull(zkClient.exists(Paths.historyJobHost(JOB_ID1, HOSTNAME)));
+  }
+
+  @Test
+  public void testResumeInterruptedDeregistration() throws Exception {
+    final String idPath = Paths.configHostId(HOSTNAME);
+    ZooKeeperRegistrarUtil.registerHost(zkClient, idPath, HOSTNAME, ID);
+    zkClient.ensurePath(Paths.configHostJob(HOSTNAME, JOB_ID1));
+
+    // A deregistration that was interrupted after fencing the host
+    zkClient.ensurePath(Paths.configHostDeregistering(HOSTNAME));
+    zkClient.delete(idPath);
+    assertTrue(ZooKeeperRegistrarUtil.isHostDeregistering(zkClient, HOSTNAME));
+    assertFalse(ZooKeeperRegistrarUtil.isHostRegistered(zkClient, HOSTNAME));
+
+    ZooKeeperRegistrarUtil.deregisterHost(zkClient, HOSTNAME);
+
+    assertFalse(ZooKeeperRegistrarUtil.isHostDeregistering(zkClient, HOSTNAME));
+    assertNull(zkClient.exists(Paths.configHost(HOSTNAME)));
+    assertNull(zkClient.exists(Paths.statusHost(HOSTNAME)));
+  }
+
+  @Test
+  public void testRegisterHostWhileDeregistering() throws Exception {
+    final String idPath = Paths.configHostId(HOSTNAME);
+    ZooKeeperRegistrarUtil.registerHost(zkClient, idPath, HOSTNAME, ID);
+
+    // A deregistration that was interrupted after fencing the host
+    zkClient.ensurePath(Paths.configHostDeregistering(HOSTNAME));
+    zkClient.delete(idPath);
+
+    try {
+      ZooKeeperRegistrarUtil.registerHost(zkClient, idPath, HOSTNAME, ID);
+      fail("registered a host that is being deregistered");
+    } catch (NodeExistsException expected) {
+      // ok
+    }
+    assertFalse(ZooKeeperRegistrarUtil.isHostRegistered(zkClient, HOSTNAME));
+
+    // Once the deregistration completes, the host can register again
+    ZooKeeperRegistrarUtil.deregisterHost(zkClient, HOSTNAME);
+    ZooKeeperRegistrarUtil.registerHost(zkClient, idPath, HOSTNAME, ID);
+    assertTrue(ZooKeeperRegistrarUtil.isHostRegistered(zkClient, HOSTNAME));
+  }
+
+  @Test
+  public void testRegisterHostBetweenDeregistrationPhases() throws Exception {
+    final String idPath = Paths.configHostId(HOSTNAME);
+    ZooKeeperRegistrarUtil.registerHost(zkClient, idPath, HOSTNAME, ID);
+    zkClient.ensurePath(Paths.configHostJob(HOSTNAME, JOB_ID1));
+    zkClient.ensurePath(Paths.historyJobHostEventsTimestamp(JOB_ID1, HOSTNAME, 0));
+
+    // The agent tries to register again after its history was deleted, but is refused
+    final AtomicBoolean refused = new AtomicBoolean();
+    final ZooKeeperClient client = beforeRemovingHost(() -> {
+      try {
+        ZooKeeperRegistrarUtil.registerHost(zkClient, idPath, HOSTNAME, ID);
+      } catch (NodeExistsException e) {
+        refused.set(true);
+      }
+    });
+
+    ZooKeeperRegistrarUtil.deregisterHost(client, HOSTNAME);
+
+    assertTrue(refused.get());
+    assertNull(zkClient.exists(Paths.configHost(HOSTNAME)));
+    assertNull(zkClient.exists(Paths.statusHost(HOSTNAME)));
+    assertNull(zkClient.exists(Paths.historyJobHost(JOB_ID1, HOSTNAME)));
+  }
+
+  @Test
+  public void testDeregistrationAbortedIfHostRegisteredBetweenPhases() throws Exception {
+    final String idPath = Paths.configHostId(HOSTNAME);
+    ZooKeeperRegistrarUtil.registerHost(zkClient, idPath, HOSTNAME, ID);
+    zkClient.ensurePath(Paths.configHostJob(HOSTNAME, JOB_ID1));
+
+    // An agent that does not respect the fence registers again after the history was deleted
+    final ZooKeeperClient client =
+        beforeRemovingHost(() -> zkClient.createAndSetData(idPath, ID.getBytes()));
+
+    try {
+      ZooKeeperRegistrarUtil.deregisterHost(client, HOSTNAME);
+      fail("deregistered a host that registered again");
+    } catch (HeliosRuntimeException expected) {
+      // ok
+    }
+
+    // The live agent is left alone
+    assertTrue(ZooKeeperRegistrarUtil.isHostRegistered(zkClient, HOSTNAME));
+    assertFalse(ZooKeeperRegistrarUtil.isHostDeregistering(zkClient, HOSTNAME));
+    assertNotNull(zkClient.exists(Paths.configHostJob(HOSTNAME, JOB_ID1)));
+    assertNotNull(zkClient.exists(Paths.statusHostJobs(HOSTNAME)));
+  }
+
+  @Test
+  public void testResumedDeregistrationAbortedIfHostRegistered() throws Exception {
+    final String idPath = Paths.configHostId(HOSTNAME);
+    ZooKeeperRegistrarUtil.registerHost(zkClient, idPath, HOSTNAME, ID);
+
+    // An interrupted deregistration, after which the host was registered again anyway
+    zkClient.ensurePath(Paths.configHostDeregistering(HOSTNAME));
+
+    try {
+      ZooKeeperRegistrarUtil.deregisterHost(zkClient, HOSTNAME);
+      fail("deregistered a host that registered again");
+    } catch (HeliosRuntimeException expected) {
+      // ok
+    }
+
+    assertTrue(ZooKeeperRegistrarUtil.isHostRegistered(zkClient, HOSTNAME));
+    assertFalse(ZooKeeperRegistrarUtil.isHostDeregistering(zkClient, HOSTNAME));
+  }
+
+  /**
+   * Returns a client that runs the action just before the transaction that removes the host,
+   * that is after the host was fenced and its history deleted.
+   */
+  private ZooKeeperClient beforeRemovingHost(final Action action) throws Exception {
+    final ZooKeeperClient client = spy(zkClient);
+    final ZooKeeperOperation removeFence = delete(Paths.configHostDeregistering(HOSTNAME));
+    doAnswer(invocation -> {
+      final List<?> operations = (List<?>) invocation.getArguments()[0];
+      if (operations.contains(removeFence)) {
+        action.run();
+      }
+      return invocation.callRealMethod();
+    }).when(client).transaction(anyListOf(ZooKeeperOperation.class));
+    return client;
+  }
+
+  private interface Action {
+    void run() throws Exception;
+  }
+
   // Verify that the re-registering:
   // * does not change the /config/hosts/<host> subtree, except the host-id.
   // * deletes everything under /status/hosts/<host> subtree.
@@ -0,0 +1,164 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.servicescommon.coordination;
+
+import static com.spotify.helios.servicescommon.ZooKeeperAclProviders.digest;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.common.collect.ImmutableList;
+import com.spotify.helios.ZooKeeperTestManager;
+import com.spotify.helios.ZooKeeperTestingServerManager;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.ZooDefs.Perms;
+import org.apache.zookeeper.data.ACL;
+import org.apache.zookeeper.data.Id;
+import org.apache.zookeeper.data.Stat;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DefaultZooKeeperClientTest {
+
+  private ZooKeeperTestManager zk;
+  private CuratorFramework curator;
+  private DefaultZooKeeperClient client;
+
+  @Before
+  public void setUp() throws Exception {
+    zk = new ZooKeeperTestingServerManager();
+    curator = CuratorFrameworkFactory.newClient(zk.connectString(),
+        new ExponentialBackoffRetry(1000, 3));
+    curator.start();
+    client = new DefaultZooKeeperClient(curator);
+
+    final ZooKeeperClient superClient = new DefaultZooKeeperClient(zk.curatorWithSuperAuth());
+    superClient.createAndSetData("/foo", "bar".getBytes());
+    superClient.ensurePath("/foo/child1");
+    superClient.ensurePath("/foo/child2");
+
+    // A node nobody but its owner may read, to make the server fail requests
+    superClient.createAndSetData("/locked", "secret".getBytes());
+    superClient.ensurePath("/locked/child");
+    superClient.setAcl("/locked", ImmutableList.of(
+        new ACL(Perms.ALL, new Id("digest", "owner:" + digest("owner", "password")))));
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (curator != null) {
+      curator.close();
+    }
+    if (zk != null) {
+      zk.stop();
+    }
+  }
+
+  private static <T> T get(final CompletionStage<T> stage) throws Exception {
+    return stage.toCompletableFuture().get(30, SECONDS);
+  }
+
+  private static Throwable failure(final CompletionStage<?> stage) throws Exception {
+    try {
+      get(stage);
+    } catch (ExecutionException e) {
+      return e.getCause();
+    }
+    fail("expected the stage to complete exceptionally");
+    return null;
+  }
+
+  @Test
+  public void testGetNodeAsync() throws Exception {
+    final Node node = get(client.getNodeAsync("/foo"));
+
+    assertThat(node.getPath(), is("/foo"));
+    assertThat(new String(node.getBytes()), is("bar"));
+    assertThat(node.getStat().getNumChildren(), is(2));
+  }
+
+  @Test
+  public void testGetNodeAsyncNoNode() throws Exception {
+    assertThat(failure(client.getNodeAsync("/missing")),
+        is(instanceOf(KeeperException.NoNodeException.class)));
+  }
+
+  @Test
+  public void testGetNodeAsyncError() throws Exception {
+    assertThat(failure(client.getNodeAsync("/locked")),
+        is(instanceOf(KeeperException.NoAuthException.class)));
+  }
+
+  @Test
+  public void testGetChildrenAsync() throws Exception {
+    assertThat(get(client.getChildrenAsync("/foo")), containsInAnyOrder("child1", "child2"));
+    assertThat(get(client.getChildrenAsync("/foo/child1")), is(ImmutableList.<String>of()));
+  }
+
+  @Test
+  public void testGetChildrenAsyncNoNode() throws Exception {
+    assertThat(failure(client.getChildrenAsync("/missing")),
+        is(instanceOf(KeeperException.NoNodeException.class)));
+  }
+
+  @Test
+  public void testGetChildrenAsyncError() throws Exception {
+    assertThat(failure(client.getChildrenAsync("/locked")),
+        is(instanceOf(KeeperException.NoAuthException.class)));
+  }
+
+  @Test
+  public void testExistsAsync() throws Exception {
+    final Stat stat = get(client.existsAsync("/foo"));
+
+    assertThat(stat, is(notNullValue()));
+    assertThat(stat.getNumChildren(), is(2));
+    // Exists does not need read permission
+    assertThat(get(client.existsAsync("/locked")), is(notNullValue()));
+  }
+
+  @Test
+  public void testExistsAsyncNoNode() throws Exception {
+    assertThat(get(client.existsAsync("/missing")), is(nullValue()));
+  }
+
+  @Test
+  public void testInvalidPathFailsStage() throws Exception {
+    // Errors raised before the request is sent fail the stage instead of being thrown
+    assertThat(failure(client.getNodeAsync("relative")),
+        is(instanceOf(IllegalArgumentException.class)));
+    assertThat(failure(client.getChildrenAsync("relative")),
+        is(instanceOf(IllegalArgumentException.class)));
+    assertThat(failure(client.existsAsync("relative")),
+        is(instanceOf(IllegalArgumentException.class)));
+  }
+}
@@ -257,6 +257,111 @@ public class PersistentPathChildrenCacheTest {
     verify(listener, atLeastOnce()).nodesChanged(cache);
   }
 
+  @Test
+  public void verifyOnlyChangedNodesAreFetchedOnRestart() throws Exception {
+    final String foo1 = "/foos/foo1";
+    final String foo2 = "/foos/foo2";
+    ensure(foo1, new DataPojo("foo1"));
+    ensure(foo2, new DataPojo("foo2"));
+
+    Polling.await(5, MINUTES, new Callable<Object>() {
+      @Override
+      public Object call() throws Exception {
+        return cache.getNodes().size() == 2 ? true : null;
+      }
+    });
+
+    stopCache();
+
+    // Tamper with the persisted value of foo1 without touching its version. It should survive
+    // the restart, showing that the unchanged node was not read again.
+    final DataPojo tampered = new DataPojo("tampered");
+    Files.write(stateFile, Json.asBytes(ImmutableMap.of(
+        foo1, tampered,
+        foo2, new DataPojo("foo2"))));
+
+    final DataPojo changed = new DataPojo("foo2-changed");
+    zk.curatorWithSuperAuth().setData().forPath(foo2, Json.asBytesUnchecked(changed));
+
+    startCache();
+
+    Polling.await(5, MINUTES, new Callable<Object>() {
+      @Override
+      public Object call() throws Exception {
+        return changed.equals(cache.getNodes().get(foo2)) ? true : null;
+      }
+    });
+    assertEquals(tampered, cache.getNodes().get(foo1));
+  }
+
+  @Test
+  public void verifyNodeRecreatedWithSameChildrenIsFetchedAgain() throws Exception {
+    final String foo = "/foos/foo";
+    ensure(foo, new DataPojo("foo"));
+
+    Polling.await(5, MINUTES, new Callable<Object>() {
+      @Override
+      public Object call() throws Exception {
+        return cache.getNodes().size() == 1 ? true : null;
+      }
+    });
+
+    // Delete and create the node in one go, so that listing the children never shows it missing
+    final DataPojo recreated = new DataPojo("foo-recreated");
+    zk.curatorWithSuperAuth().inTransaction()
+        .delete().forPath(foo).and()
+        .create().forPath(foo, Json.asBytesUnchecked(recreated)).and()
+        .commit();
+
+    Polling.await(5, MINUTES, new Callable<Object>() {
+      @Override
+      public Object call() throws Exception {
+        return recreated.equals(cache.getNodes().get(foo)) ? true : null;
+      }
+    });
+
+    // The data watcher is registered on the new node
+    final DataPojo changed = new DataPojo("foo-changed");
+    zk.curatorWithSuperAuth().setData().forPath(foo, Json.asBytesUnchecked(changed));
+    Polling.await(5, MINUTES, new Callable<Object>() {
+      @Override
+      public Object call() throws Exception {
+        return changed.equals(cache.getNodes().get(foo)) ? true : null;
+      }
+    });
+  }
+
+  @Test
+  public void verifyNodesAreFetchedIfOnlyVersionsSurviveRestart() throws Exception {
+    final String foo1 = "/foos/foo1";
+    final String foo2 = "/foos/foo2";
+    ensure(foo1, new DataPojo("foo1"));
+    ensure(foo2, new DataPojo("foo2"));
+
+    Polling.await(5, MINUTES, new Callable<Object>() {
+      @Override
+      public Object call() throws Exception {
+        return cache.getNodes().size() == 2 ? true : null;
+      }
+    });
+
+    stopCache();
+
+    // Lose the view but keep the versions
+    Files.delete(stateFile);
+
+    startCache();
+
+    Polling.await(5, MINUTES, new Callable<Object>() {
+      @Override
+      public Object call() throws Exception {
+        return cache.getNodes().equals(ImmutableMap.of(
+            foo1, new DataPojo("foo1"),
+            foo2, new DataPojo("foo2"))) ? true : null;
+      }
+    });
+  }
+
   private void startCache() throws IOException, InterruptedException {
     reset(listener);
     cache = new PersistentPathChildrenCache<>(
@@ -0,0 +1,148 @@
+/*-
+ * -\-\-
+ * Helios Services
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.servicescommon.coordination;
+
+import static com.spotify.helios.servicescommon.coordination.SegmentedList.SEGMENT_SIZE;
+import static com.spotify.helios.servicescommon.coordination.SegmentedList.segmentPath;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.google.common.collect.ImmutableList;
+import com.spotify.helios.ZooKeeperTestingServerManager;
+import com.spotify.helios.common.Json;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.zookeeper.KeeperException.BadVersionException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SegmentedListTest {
+
+  private static final String PATH = "/list";
+  private static final TypeReference<List<String>> TYPE = new TypeReference<List<String>>() {};
+
+  private final ZooKeeperTestingServerManager zk = new ZooKeeperTestingServerManager();
+
+  private DefaultZooKeeperClient client;
+
+  @Before
+  public void setUp() throws Exception {
+    client = new DefaultZooKeeperClient(zk.curatorWithSuperAuth());
+    client.createAndSetData(PATH, Json.asBytes(ImmutableList.of()));
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    zk.close();
+  }
+
+  @Test
+  public void testSmallListIsStoredInline() throws Exception {
+    final List<String> values = values(0, 3);
+    client.transaction(SegmentedList.read(client, PATH, TYPE).replace(values, true));
+
+    assertEquals(values, Json.read(client.getData(PATH), TYPE));
+    assertEquals(0, client.stat(PATH).getNumChildren());
+    assertEquals(values, SegmentedList.read(client, PATH, TYPE).values());
+  }
+
+  @Test
+  public void testLargeListIsSegmented() throws Exception {
+    final List<String> values = values(0, SEGMENT_SIZE * 2 + 1);
+    client.transaction(SegmentedList.read(client, PATH, TYPE).replace(values, true));
+
+    final SegmentedList<String> list = SegmentedList.read(client, PATH, TYPE);
+    assertEquals(3, list.segmentCount());
+    assertEquals(values, list.values());
+    assertEquals(ImmutableList.of(), Json.read(client.getData(PATH), TYPE));
+  }
+
+  @Test
+  public void testLargeListIsStoredInlineUnlessSegmenting() throws Exception {
+    client.transaction(SegmentedList.read(client, PATH, TYPE).replace(
+        values(0, SEGMENT_SIZE * 2), true));
+
+    // Rewriting without segments deletes the existing ones, so that readers that predate
+    // segments see the whole list
+    final List<String> values = values(0, SEGMENT_SIZE * 2 + 1);
+    client.transaction(SegmentedList.read(client, PATH, TYPE).replace(values, false));
+
+    assertEquals(values, Json.read(client.getData(PATH), TYPE));
+    assertEquals(0, client.stat(PATH).getNumChildren());
+    assertEquals(values, SegmentedList.read(client, PATH, TYPE).values());
+  }
+
+  @Test
+  public void testReplaceOnlyRewritesChangedSegments() throws Exception {
+    client.transaction(SegmentedList.read(client, PATH, TYPE).replace(
+        values(0, SEGMENT_SIZE * 3), true));
+    final int firstVersion = client.stat(segmentPath(PATH, 0)).getVersion();
+
+    final List<String> values = values(0, SEGMENT_SIZE * 2);
+    values.set(SEGMENT_SIZE, "changed");
+    client.transaction(SegmentedList.read(client, PATH, TYPE).replace(values, true));
+
+    assertEquals(firstVersion, client.stat(segmentPath(PATH, 0)).getVersion());
+    assertNull(client.stat(segmentPath(PATH, 2)));
+    assertEquals(values, SegmentedList.read(client, PATH, TYPE).values());
+
+    // Shrinking back to an inline list removes all segments
+    client.transaction(SegmentedList.read(client, PATH, TYPE).replace(values(0, 1), true));
+    assertEquals(0, client.stat(PATH).getNumChildren());
+    assertEquals(values(0, 1), SegmentedList.read(client, PATH, TYPE).values());
+  }
+
+  @Test
+  public void testRemoveOnlyRewritesSegmentHoldingValue() throws Exception {
+    final List<String> values = values(0, SEGMENT_SIZE * 2);
+    client.transaction(SegmentedList.read(client, PATH, TYPE).replace(values, true));
+    final int firstVersion = client.stat(segmentPath(PATH, 0)).getVersion();
+
+    final SegmentedList<String> list = SegmentedList.read(client, PATH, TYPE);
+    assertTrue(list.remove("absent").isEmpty());
+    client.transaction(list.remove("value" + (SEGMENT_SIZE + 1)));
+
+    values.remove("value" + (SEGMENT_SIZE + 1));
+    assertEquals(values, SegmentedList.read(client, PATH, TYPE).values());
+    assertEquals(firstVersion, client.stat(segmentPath(PATH, 0)).getVersion());
+  }
+
+  @Test(expected = BadVersionException.class)
+  public void testConcurrentChangeFails() throws Exception {
+    final SegmentedList<String> first = SegmentedList.read(client, PATH, TYPE);
+    final SegmentedList<String> second = SegmentedList.read(client, PATH, TYPE);
+    client.transaction(first.replace(values(0, SEGMENT_SIZE + 1), true));
+    assertNotNull(client.stat(segmentPath(PATH, 1)));
+    client.transaction(second.replace(values(0, 1), true));
+  }
+
+  private static List<String> values(final int from, final int to) {
+    final List<String> values = new ArrayList<>();
+    for (int i = from; i < to; i++) {
+      values.add("value" + i);
+    }
+    return values;
+  }
+}
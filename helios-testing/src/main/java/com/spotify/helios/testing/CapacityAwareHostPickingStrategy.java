@@ -0,0 +1,28 @@
+/*-
+ * -\-\-
+ * Helios Testing Library
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.testing;
+
+/**
+ * A {@link HostPickingStrategy} that is given the candidate hosts ordered by free capacity, most
+ * first, as ranked by the master. Other strategies are given the candidate hosts ordered by name.
+ */
+public interface CapacityAwareHostPickingStrategy extends HostPickingStrategy {
+}
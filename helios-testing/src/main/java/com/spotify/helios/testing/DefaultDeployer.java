@@ -29,6 +29,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
 import com.spotify.helios.client.HeliosClient;
 import com.spotify.helios.common.descriptors.HostStatus;
 import com.spotify.helios.common.descriptors.HostStatus.Status;
@@ -45,6 +46,7 @@ public class DefaultDeployer implements Deployer {
   private static final Logger log = LoggerFactory.getLogger(DefaultDeployer.class);
 
   private final HeliosClient client;
+  private final JobStatusBatcher jobStatuses;
   private final List<TemporaryJob> jobs;
   private final HostPickingStrategy hostPicker;
   private final String jobDeployedMessageFormat;
@@ -56,6 +58,7 @@ public class DefaultDeployer implements Deployer {
                          final HostPickingStrategy hostPicker,
                          final String jobDeployedMessageFormat, final long deployTimeoutMillis) {
     this.client = client;
+    this.jobStatuses = new JobStatusBatcher(client);
     this.jobs = jobs;
     this.hostPicker = hostPicker;
     this.jobDeployedMessageFormat = jobDeployedMessageFormat;
@@ -71,6 +74,34 @@ public class DefaultDeployer implements Deployer {
            + "or one must be specified in HELIOS_HOST_FILTER");
     }
 
+    final List<String> placement;
+    final TemporaryJobReports.Step placeJob = reportWriter.step("place job")
+        .tag("hostFilter", hostFilter);
+    try {
+      log.info("Getting hosts ranked by free capacity");
+
+      placement = client.hostPlacement(hostFilter, Collections.<String>emptySet(),
+          job.getResources()).get();
+      placeJob.markSuccess();
+    } catch (InterruptedException | ExecutionException e) {
+      throw new AssertionError("Failed to get placement of Helios hosts", e);
+    } finally {
+      placeJob.finish();
+    }
+
+    // Fall back to probing the hosts one at a time if the master does not support placement or
+    // none of the hosts are UP with enough free capacity, so that the failure is reported the
+    // same way as before.
+    if (placement != null && !placement.isEmpty()) {
+      log.info("Got this ranked list of UP hosts with host filter '{}': {}",
+          hostFilter, placement);
+      final List<String> candidates = hostPicker instanceof CapacityAwareHostPickingStrategy
+                                      ? placement
+                                      : Ordering.<String>natural().sortedCopy(placement);
+      final String chosenHost = hostPicker.pickHost(candidates);
+      return deploy(job, Collections.singletonList(chosenHost), waitPorts, prober, reportWriter);
+    }
+
     final List<String> hosts;
     final TemporaryJobReports.Step determineHosts = reportWriter.step("get hosts")
         .tag("hostFilter", hostFilter);
@@ -115,9 +146,8 @@ public class DefaultDeployer implements Deployer {
     }
 
     log.info("Deploying {} to {}", job.getImage(), Joiner.on(", ").skipNulls().join(hosts));
-    final TemporaryJob temporaryJob = new TemporaryJob(client, prober, reportWriter, job, hosts,
-        waitPorts, jobDeployedMessageFormat,
-        deployTimeoutMillis);
+    final TemporaryJob temporaryJob = new TemporaryJob(client, jobStatuses, prober, reportWriter,
+        job, hosts, waitPorts, jobDeployedMessageFormat, deployTimeoutMillis);
     jobs.add(temporaryJob);
     temporaryJob.deploy();
     return temporaryJob;
@@ -21,6 +21,7 @@
 package com.spotify.helios.testing;
 
 import static java.lang.Math.floor;
+import static java.lang.Math.min;
 
 import java.util.List;
 import java.util.Random;
@@ -53,6 +54,22 @@ public class HostPickingStrategies {
     }
   }
 
+  private static class LeastLoadedHostPickingStrategy
+      implements CapacityAwareHostPickingStrategy {
+    private final Random random;
+    private final int candidates;
+
+    LeastLoadedHostPickingStrategy(final Random random, final int candidates) {
+      this.random = random;
+      this.candidates = candidates;
+    }
+
+    @Override
+    public String pickHost(final List<String> hosts) {
+      return hosts.get(random.nextInt(min(candidates, hosts.size())));
+    }
+  }
+
   private static Random getSeededRandom(final String key) {
     final Random randomGenerator = new Random();
     randomGenerator.setSeed(key.hashCode());
@@ -68,6 +85,18 @@ public class HostPickingStrategies {
     return new RandomHostPickingStrategy(new Random());
   }
 
+  /**
+   * For any given invocation returns one of the three hosts with the most free capacity, as ranked
+   * by the master from the load, free memory and number of jobs of each host. Hosts without
+   * enough free memory for the job are not considered. Picking among the top few rather than
+   * always the top one keeps jobs deployed at the same time from piling onto the same host.
+   *
+   * @return The strategy object
+   */
+  public static HostPickingStrategy leastLoaded() {
+    return new LeastLoadedHostPickingStrategy(new Random(), 3);
+  }
+
   /**
    * Pick a single host and use that for all jobs to be deployed in the tests used by this
    * strategy.  If you want multiple test classes to use the same host, share the strategy
@@ -0,0 +1,111 @@
+/*-
+ * -\-\-
+ * Helios Testing Library
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.testing;
+
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.spotify.helios.client.HeliosClient;
+import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.JobStatus;
+import java.util.Map;
+
+/**
+ * Looks up the statuses of jobs for many concurrent callers with as few requests as possible.
+ * Lookups that arrive while a request is in flight are collected and sent together in a single
+ * {@link HeliosClient#jobStatuses(java.util.Set)} request once it completes, so that any number
+ * of temporary jobs waiting to come up share one poll.
+ */
+class JobStatusBatcher {
+
+  private final HeliosClient client;
+
+  // Guarded by this
+  private Map<JobId, SettableFuture<JobStatus>> pending = Maps.newHashMap();
+  private boolean inFlight;
+
+  JobStatusBatcher(final HeliosClient client) {
+    this.client = client;
+  }
+
+  /**
+   * Returns the status of the job. The future completes with null if the job does not exist.
+   */
+  ListenableFuture<JobStatus> jobStatus(final JobId id) {
+    final SettableFuture<JobStatus> future;
+    final boolean send;
+    synchronized (this) {
+      SettableFuture<JobStatus> existing = pending.get(id);
+      if (existing == null) {
+        existing = SettableFuture.create();
+        pending.put(id, existing);
+      }
+      future = existing;
+      send = !inFlight;
+      inFlight = true;
+    }
+    if (send) {
+      send();
+    }
+    return future;
+  }
+
+  private void send() {
+    final Map<JobId, SettableFuture<JobStatus>> batch;
+    synchronized (this) {
+      if (pending.isEmpty()) {
+        inFlight = false;
+        return;
+      }
+      batch = pending;
+      pending = Maps.newHashMap();
+    }
+
+    ListenableFuture<Map<JobId, JobStatus>> request;
+    try {
+      request = client.jobStatuses(batch.keySet());
+    } catch (RuntimeException e) {
+      request = Futures.immediateFailedFuture(e);
+    }
+
+    Futures.addCallback(request, new FutureCallback<Map<JobId, JobStatus>>() {
+      @Override
+      public void onSuccess(final Map<JobId, JobStatus> result) {
+        for (final Map.Entry<JobId, SettableFuture<JobStatus>> entry : batch.entrySet()) {
+          entry.getValue().set(result == null ? null : result.get(entry.getKey()));
+        }
+        send();
+      }
+
+      @Override
+      public void onFailure(final Throwable throwable) {
+        for (final SettableFuture<JobStatus> future : batch.values()) {
+          future.setException(throwable);
+        }
+        send();
+      }
+    }, directExecutor());
+  }
+}
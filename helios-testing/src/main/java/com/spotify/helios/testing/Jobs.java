@@ -23,6 +23,7 @@ package com.spotify.helios.testing;
 import static java.lang.String.format;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
+import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.spotify.helios.client.HeliosClient;
 import com.spotify.helios.common.descriptors.Job;
@@ -58,9 +59,9 @@ class Jobs {
   }
 
   /**
-   * Undeploy the job from all specified hosts, and delete the job. Any failures will be ignored,
-   * and we will keep trying each host. A list of errors encountered along the way will be returned
-   * to the caller.
+   * Undeploy the job from all specified hosts at once, and delete the job. Any failures will be
+   * ignored, and we will keep trying each host. A list of errors encountered along the way will
+   * be returned to the caller.
    *
    * @param client the HeliosClient to use
    * @param job    the job to undeploy and delete
@@ -73,11 +74,16 @@ class Jobs {
                                        final List<String> hosts,
                                        final List<AssertionError> errors) {
     final JobId id = job.getId();
+    final List<ListenableFuture<JobUndeployResponse>> undeploys = Lists.newArrayList();
     for (final String host : hosts) {
       log.info("Undeploying {} from {}", getJobDescription(job), host);
+      undeploys.add(client.undeploy(id, host));
+    }
+
+    for (final ListenableFuture<JobUndeployResponse> undeploy : undeploys) {
       final JobUndeployResponse response;
       try {
-        response = get(client.undeploy(id, host));
+        response = get(undeploy);
         if (response.getStatus() != JobUndeployResponse.Status.OK
             && response.getStatus() != JobUndeployResponse.Status.JOB_NOT_FOUND) {
           errors.add(new AssertionError(format("Failed to undeploy job %s - %s",
@@ -24,6 +24,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Strings.isNullOrEmpty;
 import static com.google.common.collect.Maps.newHashMap;
+import static com.google.common.collect.Maps.newLinkedHashMap;
 import static com.spotify.helios.testing.Jobs.TIMEOUT_MILLIS;
 import static com.spotify.helios.testing.Jobs.get;
 import static com.spotify.helios.testing.Jobs.getJobDescription;
@@ -38,6 +39,7 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.net.HostAndPort;
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.spotify.helios.client.HeliosClient;
 import com.spotify.helios.common.descriptors.Deployment;
 import com.spotify.helios.common.descriptors.Goal;
@@ -66,6 +68,7 @@ public class TemporaryJob {
 
   private final Map<String, TaskStatus> statuses = newHashMap();
   private final HeliosClient client;
+  private final JobStatusBatcher jobStatuses;
   private final Prober prober;
   private final TemporaryJobReports.ReportWriter reportWriter;
   private final Job job;
@@ -75,11 +78,12 @@ public class TemporaryJob {
   private final String jobDeployedMessageFormat;
   private final long deployTimeoutMillis;
 
-  TemporaryJob(final HeliosClient client, final Prober prober,
-               final TemporaryJobReports.ReportWriter reportWriter, final Job job,
-               final List<String> hosts, final Set<String> waitPorts,
+  TemporaryJob(final HeliosClient client, final JobStatusBatcher jobStatuses,
+               final Prober prober, final TemporaryJobReports.ReportWriter reportWriter,
+               final Job job, final List<String> hosts, final Set<String> waitPorts,
                final String jobDeployedMessageFormat, final long deployTimeoutMillis) {
     this.client = checkNotNull(client, "client");
+    this.jobStatuses = checkNotNull(jobStatuses, "jobStatuses");
     this.prober = checkNotNull(prober, "prober");
     this.reportWriter = checkNotNull(reportWriter, "reportWriter");
     this.job = checkNotNull(job, "job");
@@ -193,21 +197,31 @@ public class TemporaryJob {
     final TemporaryJobReports.Step deployJob = reportWriter.step("deploy job")
         .tag("jobId", job.getId());
     try {
-      // Deploy job
-      final Deployment deployment = Deployment.of(job.getId(), Goal.START);
+      // Deploy job to all hosts at once
+      final Map<String, ListenableFuture<HostStatus>> hostStatuses = newLinkedHashMap();
       for (final String host : hosts) {
+        hostStatuses.put(host, client.hostStatus(host));
+      }
+      for (final Map.Entry<String, ListenableFuture<HostStatus>> entry : hostStatuses.entrySet()) {
         // HELIOS_HOST_ADDRESS is the IP address we should use to reach the host, instead of
         // the hostname. This is used when running a helios cluster inside a VM, and the containers
         // can be reached by IP address only, since DNS won't be able to resolve the host name of
         // the helios agent running in the VM.
-        final HostStatus hostStatus = client.hostStatus(host).get();
+        final HostStatus hostStatus = entry.getValue().get();
         final String hostAddress = hostStatus.getEnvironment().get("HELIOS_HOST_ADDRESS");
         if (hostAddress != null) {
-          hostToIp.put(host, hostAddress);
+          hostToIp.put(entry.getKey(), hostAddress);
         }
+      }
 
+      final Deployment deployment = Deployment.of(job.getId(), Goal.START);
+      final List<ListenableFuture<JobDeployResponse>> deploys = Lists.newArrayList();
+      for (final String host : hosts) {
         log.info("Deploying {} to {}", getJobDescription(job), host);
-        final JobDeployResponse deployResponse = get(client.deploy(deployment, host));
+        deploys.add(client.deploy(deployment, host));
+      }
+      for (final ListenableFuture<JobDeployResponse> deploy : deploys) {
+        final JobDeployResponse deployResponse = get(deploy);
         if (deployResponse.getStatus() != JobDeployResponse.Status.OK) {
           fail(format("Failed to deploy job %s %s - %s",
               job.getId(), job.toString(), deployResponse));
@@ -232,7 +246,18 @@ public class TemporaryJob {
   }
 
   void undeploy(final List<AssertionError> errors) {
-    Jobs.undeploy(client, job, hosts, errors);
+    final TemporaryJobReports.Step undeployJob = reportWriter.step("undeploy job")
+        .tag("jobId", job.getId());
+    try {
+      final List<AssertionError> failures =
+          Jobs.undeploy(client, job, hosts, Lists.<AssertionError>newArrayList());
+      errors.addAll(failures);
+      if (failures.isEmpty()) {
+        undeployJob.markSuccess();
+      }
+    } finally {
+      undeployJob.finish();
+    }
   }
 
   /**
@@ -262,7 +287,7 @@ public class TemporaryJob {
           new Callable<TaskStatus>() {
             @Override
             public TaskStatus call() throws Exception {
-              final JobStatus status = Futures.getUnchecked(client.jobStatus(job.getId()));
+              final JobStatus status = Futures.getUnchecked(jobStatuses.jobStatus(job.getId()));
               if (status == null) {
                 log.debug("Job status not available");
                 return null;
@@ -317,7 +342,7 @@ public class TemporaryJob {
 
   void verifyHealthy() throws AssertionError {
     log.debug("Checking health of {}", job.getImage());
-    final JobStatus status = Futures.getUnchecked(client.jobStatus(job.getId()));
+    final JobStatus status = Futures.getUnchecked(jobStatuses.jobStatus(job.getId()));
     if (status == null) {
       return;
     }
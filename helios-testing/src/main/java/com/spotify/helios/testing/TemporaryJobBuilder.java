@@ -68,10 +68,12 @@ public class TemporaryJobBuilder {
   private final String jobNamePrefix;
   private final Map<String, String> env;
   private final TemporaryJobReports.ReportWriter reportWriter;
+  private final List<TemporaryJobBuilder> dependencies = Lists.newArrayList();
 
   private String hostFilter;
   private Prober prober;
   private TemporaryJob job;
+  private boolean deploying;
 
   public TemporaryJobBuilder(final Deployer deployer, final String jobNamePrefix,
                              final Prober defaultProber, final Map<String, String> env,
@@ -254,6 +256,27 @@ public class TemporaryJobBuilder {
     return this;
   }
 
+  /**
+   * Declares that this job needs the specified jobs to be up before it is deployed. Dependencies
+   * that have not been deployed yet are deployed first when this job is deployed. When jobs are
+   * deployed together with {@link TemporaryJobs#deploy(TemporaryJobBuilder...)}, jobs that do not
+   * depend on each other are deployed concurrently.
+   *
+   * @param dependencies the jobs that must be up before this one is deployed
+   *
+   * @return the TemporaryJobBuilder
+   */
+  public TemporaryJobBuilder dependsOn(final TemporaryJobBuilder... dependencies) {
+    for (final TemporaryJobBuilder dependency : dependencies) {
+      this.dependencies.add(checkNotNull(dependency, "dependency"));
+    }
+    return this;
+  }
+
+  List<TemporaryJobBuilder> dependencies() {
+    return dependencies;
+  }
+
   /**
    * Deploys the job to the specified hosts. If no hosts are specified, a host will be chosen at
    * random from the current Helios cluster. If the HELIOS_HOST_FILTER environment variable is set,
@@ -284,6 +307,18 @@ public class TemporaryJobBuilder {
     // check that the job has not already been deployed (this allows multiple calls to deploy()
     // to be no-ops once deployed)
     if (job == null) {
+      if (deploying) {
+        throw new IllegalStateException("cyclic dependency between temporary jobs");
+      }
+      deploying = true;
+      try {
+        for (final TemporaryJobBuilder dependency : dependencies) {
+          dependency.deploy();
+        }
+      } finally {
+        deploying = false;
+      }
+
       if (builder.getName() == null && builder.getVersion() == null) {
         // Both name and version are unset, use image name as job name and generate random version
         builder.setName(jobName(builder.getImage(), jobNamePrefix));
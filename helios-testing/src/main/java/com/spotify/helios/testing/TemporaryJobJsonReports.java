@@ -119,7 +119,8 @@ public class TemporaryJobJsonReports extends TemporaryJobReports {
       writeEvent(event);
     }
 
-    private void writeEvent(final TemporaryJobEvent event) {
+    // Steps of jobs that are deployed or undeployed concurrently finish on several threads
+    private synchronized void writeEvent(final TemporaryJobEvent event) {
       if (jg == null) {
         return;
       }
@@ -132,7 +133,7 @@ public class TemporaryJobJsonReports extends TemporaryJobReports {
     }
 
     @Override
-    public void close() throws IOException {
+    public synchronized void close() throws IOException {
       if (jg != null) {
         jg.close();
       }
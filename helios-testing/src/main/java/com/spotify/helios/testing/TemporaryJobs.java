@@ -25,7 +25,6 @@ import static com.google.common.base.Optional.fromNullable;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Strings.isNullOrEmpty;
-import static com.google.common.collect.Lists.newArrayList;
 import static com.spotify.helios.testing.Jobs.undeploy;
 import static java.lang.String.format;
 import static java.lang.System.getProperty;
@@ -39,6 +38,11 @@ import com.google.common.base.Splitter;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.spotify.helios.client.HeliosClient;
@@ -61,9 +65,11 @@ import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -89,6 +95,7 @@ public class TemporaryJobs implements TestRule {
   private static final String DEFAULT_TEST_REPORT_DIRECTORY = "target/helios-reports/test";
   private static final long JOB_HEALTH_CHECK_INTERVAL_MILLIS = SECONDS.toMillis(5);
   private static final long DEFAULT_DEPLOY_TIMEOUT_MILLIS = MINUTES.toMillis(10);
+  private static final int MAX_PARALLEL_DEPLOYS = 16;
 
   private final HeliosClient client;
   private final Prober prober;
@@ -198,11 +205,31 @@ public class TemporaryJobs implements TestRule {
       // ignored
     }
 
-    final List<AssertionError> errors = newArrayList();
-
+    // Undeploy all jobs at once, each job records its own step
+    final List<AssertionError> errors =
+        Collections.synchronizedList(new ArrayList<AssertionError>());
+    final ExecutorService undeployer = parallelExecutor("helios-test-undeployer-%d", jobs.size());
+    final List<Future<?>> undeploys = Lists.newArrayList();
     for (final TemporaryJob job : jobs) {
       jobIds.add(job.job().getId());
-      job.undeploy(errors);
+      undeploys.add(undeployer.submit(new Runnable() {
+        @Override
+        public void run() {
+          job.undeploy(errors);
+        }
+      }));
+    }
+    undeployer.shutdown();
+    for (final Future<?> pending : undeploys) {
+      try {
+        pending.get();
+      } catch (ExecutionException e) {
+        errors.add(new AssertionError(e.getCause()));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        errors.add(new AssertionError(e));
+        break;
+      }
     }
 
     for (final TemporaryJobReports.Step step : undeploy.asSet()) {
@@ -231,6 +258,109 @@ public class TemporaryJobs implements TestRule {
     return this.job(Job.newBuilder());
   }
 
+  /**
+   * Deploys the jobs concurrently and waits for all of them to come up. A job is deployed as soon
+   * as the jobs it {@link TemporaryJobBuilder#dependsOn(TemporaryJobBuilder...) depends on} are
+   * up, so jobs that do not depend on each other are created, deployed and probed at the same
+   * time. The jobs are deployed to hosts chosen the same way as {@link TemporaryJobBuilder#deploy(
+   * String...)} without any hosts does, unless hosts have been set on the builders.
+   *
+   * @param builders the jobs to deploy
+   *
+   * @return the deployed jobs, in the same order as the builders
+   */
+  public List<TemporaryJob> deploy(final TemporaryJobBuilder... builders) {
+    return deploy(asList(builders));
+  }
+
+  /**
+   * Deploys the jobs concurrently and waits for all of them to come up.
+   *
+   * @param builders the jobs to deploy
+   *
+   * @return the deployed jobs, in the same order as the builders
+   *
+   * @see #deploy(TemporaryJobBuilder...)
+   */
+  public List<TemporaryJob> deploy(final List<TemporaryJobBuilder> builders) {
+    final TemporaryJobReports.Step deployJobs = reportWriter.get().step("deploy jobs")
+        .tag("jobs", builders.size());
+    final ListeningExecutorService deployer = MoreExecutors.listeningDecorator(
+        parallelExecutor("helios-test-deployer-%d", builders.size()));
+    try {
+      final Map<TemporaryJobBuilder, ListenableFuture<TemporaryJob>> deployments =
+          Maps.newIdentityHashMap();
+      for (final TemporaryJobBuilder builder : builders) {
+        schedule(builder, deployments, Sets.<TemporaryJobBuilder>newIdentityHashSet(), deployer);
+      }
+
+      final List<TemporaryJob> deployed = Lists.newArrayListWithCapacity(builders.size());
+      for (final TemporaryJobBuilder builder : builders) {
+        deployed.add(getDeployed(deployments.get(builder)));
+      }
+
+      deployJobs.markSuccess();
+      return deployed;
+    } finally {
+      deployer.shutdownNow();
+      deployJobs.finish();
+    }
+  }
+
+  /**
+   * Schedules the deployment of a job, and the deployments of the jobs it depends on, returning a
+   * future that completes once the job is up.
+   */
+  private static ListenableFuture<TemporaryJob> schedule(
+      final TemporaryJobBuilder builder,
+      final Map<TemporaryJobBuilder, ListenableFuture<TemporaryJob>> deployments,
+      final Set<TemporaryJobBuilder> visiting, final ListeningExecutorService deployer) {
+    final ListenableFuture<TemporaryJob> scheduled = deployments.get(builder);
+    if (scheduled != null) {
+      return scheduled;
+    }
+    if (!visiting.add(builder)) {
+      throw new IllegalArgumentException("cyclic dependency between temporary jobs");
+    }
+
+    final List<ListenableFuture<TemporaryJob>> dependencies = Lists.newArrayList();
+    for (final TemporaryJobBuilder dependency : builder.dependencies()) {
+      dependencies.add(schedule(dependency, deployments, visiting, deployer));
+    }
+    final ListenableFuture<TemporaryJob> deployment = Futures.transform(
+        Futures.allAsList(dependencies), new Function<List<TemporaryJob>, TemporaryJob>() {
+          @Override
+          public TemporaryJob apply(final List<TemporaryJob> ignored) {
+            return builder.deploy();
+          }
+        }, deployer);
+
+    visiting.remove(builder);
+    deployments.put(builder, deployment);
+    return deployment;
+  }
+
+  private static TemporaryJob getDeployed(final ListenableFuture<TemporaryJob> deployment) {
+    try {
+      return deployment.get();
+    } catch (ExecutionException e) {
+      // Rethrow the AssertionError of a failed deployment as is, so that it fails the test
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new RuntimeException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static ExecutorService parallelExecutor(final String nameFormat, final int jobs) {
+    return Executors.newFixedThreadPool(
+        Math.max(1, Math.min(jobs, MAX_PARALLEL_DEPLOYS)), new ThreadFactoryBuilder()
+            .setNameFormat(nameFormat)
+            .setDaemon(true)
+            .build());
+  }
+
   private TemporaryJobBuilder job(final Job.Builder jobBuilder) {
     final TemporaryJobBuilder builder = new TemporaryJobBuilder(
         deployer, jobPrefixFile.prefix(), prober, env, reportWriter.get(), jobBuilder);
@@ -25,7 +25,15 @@ import static com.spotify.helios.common.descriptors.HostStatus.Status.UP;
 import static java.util.Collections.emptyMap;
 import static java.util.concurrent.TimeUnit.MINUTES;
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anySetOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.common.collect.ImmutableList;
@@ -36,10 +44,13 @@ import com.spotify.helios.client.HeliosClient;
 import com.spotify.helios.common.descriptors.Deployment;
 import com.spotify.helios.common.descriptors.HostStatus;
 import com.spotify.helios.common.descriptors.HostStatus.Builder;
+import com.spotify.helios.common.descriptors.Job;
 import com.spotify.helios.common.descriptors.JobId;
 import com.spotify.helios.common.descriptors.TaskStatus;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -55,6 +66,20 @@ public class DefaultDeployerTest {
       makeDummyStatusBuilder().setStatus(UP).build());
   private static final List<String> HOSTS = ImmutableList.of(HOSTA, HOSTB);
   private static final long TIMEOUT = MINUTES.toMillis(5);
+  private static final Job JOB = Job.newBuilder()
+      .setName("foo")
+      .setVersion("1")
+      .setImage("busybox")
+      .build();
+  private static final Set<String> WAIT_PORTS = Collections.emptySet();
+  private static final TemporaryJobReports.ReportWriter REPORT_WRITER =
+      new TemporaryJobReports.ReportWriter() {
+        @Override
+        protected void writeEvent(final String step, final double timestamp,
+                                  final double duration, final Boolean success,
+                                  final Map<String, Object> tags) {
+        }
+      };
 
   // Pick the first host in the list
   private static final HostPickingStrategy PICK_FIRST = new HostPickingStrategy() {
@@ -110,4 +135,43 @@ public class DefaultDeployerTest {
 
     assertEquals(HOSTB, deployer.pickHost(HOSTS));
   }
+
+  @Test
+  public void testDeployToHostFromPlacement() throws Exception {
+    final DefaultDeployer sut = spyDeployer();
+    when(client.hostPlacement("host", Collections.<String>emptySet(), null))
+        .thenReturn(Futures.<List<String>>immediateFuture(ImmutableList.of(HOSTB, HOSTA)));
+
+    sut.deploy(JOB, "host", WAIT_PORTS, null, REPORT_WRITER);
+
+    // The placement is sorted for strategies that are not capacity aware
+    verifyDeployedTo(sut, HOSTA);
+    verify(client, never()).listHosts();
+  }
+
+  @Test
+  public void testDeployFallsBackToListingHostsWithoutPlacement() throws Exception {
+    final DefaultDeployer sut = spyDeployer();
+    when(client.hostPlacement("host", Collections.<String>emptySet(), null))
+        .thenReturn(Futures.<List<String>>immediateFuture(null));
+    when(client.listHosts()).thenReturn(Futures.immediateFuture(HOSTS));
+    when(client.hostStatus(HOSTA)).thenReturn(DOWN_STATUS);
+    when(client.hostStatus(HOSTB)).thenReturn(UP_STATUS);
+
+    sut.deploy(JOB, "host", WAIT_PORTS, null, REPORT_WRITER);
+
+    verifyDeployedTo(sut, HOSTB);
+  }
+
+  private DefaultDeployer spyDeployer() {
+    final DefaultDeployer sut = spy(deployer);
+    doReturn(mock(TemporaryJob.class)).when(sut).deploy(eq(JOB), anyListOf(String.class),
+        anySetOf(String.class), any(Prober.class), any(TemporaryJobReports.ReportWriter.class));
+    return sut;
+  }
+
+  private static void verifyDeployedTo(final DefaultDeployer sut, final String host) {
+    verify(sut).deploy(eq(JOB), eq(Collections.singletonList(host)), eq(WAIT_PORTS),
+        any(Prober.class), any(TemporaryJobReports.ReportWriter.class));
+  }
 }
@@ -24,6 +24,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import java.util.List;
@@ -69,6 +70,18 @@ public class HostPickingStrategiesTest {
     }
   }
 
+  @Test
+  public void testLeastLoaded() {
+    final Set<String> chosenHosts = Sets.newHashSet();
+    final HostPickingStrategy strategy = HostPickingStrategies.leastLoaded();
+    assertTrue(strategy instanceof CapacityAwareHostPickingStrategy);
+    for (int i = 0; i < NUM_ITERATIONS; i++) {
+      chosenHosts.add(strategy.pickHost(HOSTS));
+    }
+    // only the three hosts ranked first are picked
+    assertEquals(ImmutableSet.copyOf(HOSTS.subList(0, 3)), chosenHosts);
+  }
+
   @Test
   public void testRandomOneHost() {
     final Set<String> chosenHosts = Sets.newHashSet();
@@ -0,0 +1,110 @@
+/*-
+ * -\-\-
+ * Helios Testing Library
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.testing;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anySetOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.spotify.helios.client.HeliosClient;
+import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.JobStatus;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class JobStatusBatcherTest {
+
+  private static final JobId FOO = JobId.fromString("foo:1");
+  private static final JobId BAR = JobId.fromString("bar:1");
+  private static final JobId BAZ = JobId.fromString("baz:1");
+
+  private final HeliosClient client = mock(HeliosClient.class);
+  private final JobStatusBatcher batcher = new JobStatusBatcher(client);
+
+  @Test
+  public void testBatchesLookupsWhileInFlight() throws Exception {
+    final SettableFuture<Map<JobId, JobStatus>> first = SettableFuture.create();
+    final SettableFuture<Map<JobId, JobStatus>> second = SettableFuture.create();
+    when(client.jobStatuses(anySetOf(JobId.class))).thenReturn(first, second);
+
+    final JobStatus fooStatus = JobStatus.newBuilder().build();
+    final JobStatus barStatus = JobStatus.newBuilder().build();
+
+    final ListenableFuture<JobStatus> foo = batcher.jobStatus(FOO);
+    final ListenableFuture<JobStatus> bar = batcher.jobStatus(BAR);
+    final ListenableFuture<JobStatus> baz = batcher.jobStatus(BAZ);
+    final ListenableFuture<JobStatus> bar2 = batcher.jobStatus(BAR);
+
+    first.set(ImmutableMap.of(FOO, fooStatus));
+    assertThat(foo.get(), is(fooStatus));
+    assertFalse(bar.isDone());
+
+    second.set(ImmutableMap.of(BAR, barStatus));
+    assertThat(bar.get(), is(barStatus));
+    assertThat(bar2.get(), is(barStatus));
+    assertThat(baz.get(), is(nullValue()));
+
+    @SuppressWarnings("unchecked")
+    final ArgumentCaptor<Set<JobId>> ids = ArgumentCaptor.forClass((Class) Set.class);
+    verify(client, times(2)).jobStatuses(ids.capture());
+    assertEquals(ImmutableSet.of(FOO), ids.getAllValues().get(0));
+    assertEquals(ImmutableSet.of(BAR, BAZ), ids.getAllValues().get(1));
+  }
+
+  @Test
+  public void testFailureFailsBatch() throws Exception {
+    final SettableFuture<Map<JobId, JobStatus>> failed = SettableFuture.create();
+    final SettableFuture<Map<JobId, JobStatus>> succeeded = SettableFuture.create();
+    when(client.jobStatuses(anySetOf(JobId.class))).thenReturn(failed, succeeded);
+
+    final ListenableFuture<JobStatus> foo = batcher.jobStatus(FOO);
+    failed.setException(new IllegalStateException());
+
+    try {
+      foo.get();
+      fail();
+    } catch (ExecutionException e) {
+      assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+    }
+
+    // The next lookup is sent in a new request
+    final ListenableFuture<JobStatus> again = batcher.jobStatus(FOO);
+    final JobStatus status = JobStatus.newBuilder().build();
+    succeeded.set(ImmutableMap.of(FOO, status));
+    assertThat(again.get(), is(status));
+  }
+}
@@ -23,9 +23,12 @@ package com.spotify.helios.testing;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anySetOf;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableList;
@@ -47,6 +50,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.mockito.ArgumentCaptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -123,6 +127,35 @@ public class TemporaryJobBuilderTest {
         eq(prober), eq(reportWriter));
   }
 
+  @Test
+  public void testDeployDependenciesFirst() {
+    final ImmutableList<String> hosts = ImmutableList.of("host1");
+    final TemporaryJobBuilder dependency = new TemporaryJobBuilder(
+        deployer, "prefix-", prober, env, reportWriter, Job.newBuilder().setName("bar"));
+    when(deployer.deploy(any(Job.class), eq(hosts), anySetOf(String.class), eq(prober),
+        eq(reportWriter))).thenReturn(mock(TemporaryJob.class));
+
+    builder.dependsOn(dependency.host("host1")).deploy(hosts);
+    builder.deploy(hosts);
+
+    final ArgumentCaptor<Job> jobs = ArgumentCaptor.forClass(Job.class);
+    verify(deployer, times(2)).deploy(jobs.capture(), eq(hosts), anySetOf(String.class),
+        eq(prober), eq(reportWriter));
+    assertThat(jobs.getAllValues().get(0).getId().getName(), is("bar"));
+    assertThat(jobs.getAllValues().get(1).getId().getName(), is("foo"));
+  }
+
+  @Test
+  public void testDeployCyclicDependencies() {
+    final TemporaryJobBuilder dependency = new TemporaryJobBuilder(
+        deployer, "prefix-", prober, env, reportWriter, Job.newBuilder().setName("bar"));
+    builder.dependsOn(dependency);
+    dependency.dependsOn(builder);
+
+    exception.expect(IllegalStateException.class);
+    builder.deploy("host1");
+  }
+
   @Test
   public void testImageFromBuild_NoImageFiles() {
     exception.expect(IllegalArgumentException.class);
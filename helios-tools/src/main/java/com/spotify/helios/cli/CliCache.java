@@ -0,0 +1,199 @@
+/*-
+ * -\-\-
+ * Helios Tools
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.cli;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
+import com.spotify.helios.client.HeliosClient;
+import com.spotify.helios.common.Json;
+import com.spotify.helios.common.descriptors.JobId;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import net.sourceforge.argparse4j.inf.Namespace;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A short-lived cache of master endpoints and job lists for a target cluster, shared by
+ * successive CLI invocations through files under &lt;user.home&gt;/.helios/cache.
+ *
+ * <p>Scripts that run helios in a loop otherwise resolve the SRV records of the cluster and list
+ * all jobs on every invocation. The cache is disabled unless a TTL is set with --cache-ttl or the
+ * {@value #CACHE_TTL_ENV_VAR} environment variable. Entries are only used for the given number of
+ * seconds, so anything created or removed in the meantime might not be seen until they expire.
+ * Host names are always resolved against the current host list, since commands that deploy,
+ * undeploy or deregister must not act on a host that has since been renamed or removed.
+ */
+public class CliCache {
+
+  private static final Logger log = LoggerFactory.getLogger(CliCache.class);
+
+  static final String CACHE_TTL_ENV_VAR = "HELIOS_CLI_CACHE_TTL";
+  static final int DEFAULT_CACHE_TTL_SECS = 0;
+
+  private static final String CACHE_DIR = "cache";
+
+  private static final TypeReference<List<URI>> URI_LIST_TYPE =
+      new TypeReference<List<URI>>() {};
+  private static final TypeReference<Set<JobId>> JOB_ID_SET_TYPE =
+      new TypeReference<Set<JobId>>() {};
+
+  private final Path directory;
+  private final String target;
+  private final long ttlMillis;
+
+  CliCache(final Path directory, final String target, final long ttlMillis) {
+    this.directory = directory;
+    this.target = target;
+    this.ttlMillis = ttlMillis;
+  }
+
+  /**
+   * Returns the cache of the target, with the TTL taken from the --cache-ttl option or the
+   * {@value #CACHE_TTL_ENV_VAR} environment variable.
+   */
+  public static CliCache forTarget(final Target target, final Namespace options) {
+    //argparse4j converts names like "--cache-ttl" to dests of "cache_ttl"
+    final int ttl = Utils.parseTimeout(options, "cache_ttl", CACHE_TTL_ENV_VAR,
+        DEFAULT_CACHE_TTL_SECS);
+    final Path directory = Paths.get(System.getProperty("user.home"),
+        CliConfig.getConfigDirName(), CACHE_DIR);
+    return new CliCache(directory, target.toString(), TimeUnit.SECONDS.toMillis(ttl));
+  }
+
+  /**
+   * Returns a cache that never holds anything.
+   */
+  public static CliCache disabled() {
+    return new CliCache(null, "", 0);
+  }
+
+  public boolean isEnabled() {
+    return ttlMillis > 0;
+  }
+
+  /**
+   * Returns a supplier of the master endpoints that resolves them at most once per TTL.
+   */
+  public Supplier<List<URI>> endpoints(final Supplier<List<URI>> resolver) {
+    return new Supplier<List<URI>>() {
+      @Override
+      public List<URI> get() {
+        final List<URI> cached = read("endpoints", URI_LIST_TYPE);
+        if (cached != null) {
+          return cached;
+        }
+        final List<URI> endpoints = ImmutableList.copyOf(resolver.get());
+        // Don't remember failed resolutions
+        if (!endpoints.isEmpty()) {
+          write("endpoints", endpoints);
+        }
+        return endpoints;
+      }
+    };
+  }
+
+  /**
+   * Returns the ids of the jobs matching the query that are deployed to hosts matching the
+   * pattern, as returned by {@link HeliosClient#jobs(String, String)}.
+   */
+  public Set<JobId> jobIds(final HeliosClient client, final String jobQuery,
+                           final String hostPattern)
+      throws ExecutionException, InterruptedException {
+    final String key = "jobs " + jobQuery + " " + hostPattern;
+    final Set<JobId> cached = read(key, JOB_ID_SET_TYPE);
+    if (cached != null) {
+      return cached;
+    }
+    final Set<JobId> jobIds = client.jobs(jobQuery, hostPattern).get().keySet();
+    write(key, jobIds);
+    return jobIds;
+  }
+
+  private <T> T read(final String key, final TypeReference<T> type) {
+    if (!isEnabled()) {
+      return null;
+    }
+    final Path file = file(key);
+    try {
+      if (System.currentTimeMillis() - Files.getLastModifiedTime(file).toMillis() > ttlMillis) {
+        return null;
+      }
+      final JsonNode entry = Json.readTree(Files.readAllBytes(file));
+      // Guard against files written for another target or key
+      if (!entry.path("key").asText().equals(target + " " + key)) {
+        return null;
+      }
+      return Json.read(entry.path("value").toString(), type);
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException | RuntimeException e) {
+      log.debug("failed to read cache entry {}", file, e);
+      return null;
+    }
+  }
+
+  private void write(final String key, final Object value) {
+    if (!isEnabled()) {
+      return;
+    }
+    final Path file = file(key);
+    try {
+      Files.createDirectories(directory);
+      // Write to a temporary file first so that concurrent invocations never see partial entries
+      final Path tmp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+      try {
+        Files.write(tmp, Json.asBytes(ImmutableMap.of("key", target + " " + key, "value", value)));
+        Files.move(tmp, file, ATOMIC_MOVE, REPLACE_EXISTING);
+      } finally {
+        Files.deleteIfExists(tmp);
+      }
+    } catch (IOException e) {
+      log.debug("failed to write cache entry {}", file, e);
+    }
+  }
+
+  private Path file(final String key) {
+    final String name = Hashing.sha256().hashString(target + " " + key, UTF_8).toString();
+    return directory.resolve(name + ".json");
+  }
+
+  @Override
+  public String toString() {
+    return "CliCache{target=" + target + ", ttlMillis=" + ttlMillis + "}";
+  }
+}
@@ -346,6 +346,17 @@ public class CliParser {
                 + Utils.TOTAL_TIMEOUT_ENV_VAR + " will be used. "
                 + "If this environment variable is not set, then the default is "
                 + Utils.DEFAULT_TOTAL_TIMEOUT_SECS + " seconds.");
+
+      addArgument("--cache-ttl")
+          .type(Integer.class)
+          .help("Time (in seconds) to reuse resolved master endpoints and job lists from "
+                + "earlier invocations for. Useful for scripts that run helios many times in a "
+                + "row. Commands that change hosts or deployments always read the current host "
+                + "list. "
+                + "If this flag is not set, the value in the environment variable "
+                + CliCache.CACHE_TTL_ENV_VAR + " will be used. "
+                + "If this environment variable is not set, then the default is "
+                + CliCache.DEFAULT_CACHE_TTL_SECS + " seconds, which disables the cache.");
     }
 
     private Argument addArgument(final String... nameOrFlags) {
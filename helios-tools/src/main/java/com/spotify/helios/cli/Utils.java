@@ -24,6 +24,7 @@ import static java.lang.String.format;
 
 import com.google.common.base.Function;
 import com.google.common.base.Strings;
+import com.google.common.base.Supplier;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Ordering;
@@ -61,10 +62,17 @@ public final class Utils {
 
   public static HeliosClient getClient(final Target target, final PrintStream err,
                                        final String username, final Namespace options) {
+    return getClient(target, err, username, options, CliCache.forTarget(target, options));
+  }
+
+  public static HeliosClient getClient(final Target target, final PrintStream err,
+                                       final String username, final Namespace options,
+                                       final CliCache cache) {
+    final Supplier<List<URI>> endpointSupplier = cache.endpoints(target.getEndpointSupplier());
 
     List<URI> endpoints = Collections.emptyList();
     try {
-      endpoints = target.getEndpointSupplier().get();
+      endpoints = endpointSupplier.get();
     } catch (Exception ignore) {
       // TODO (dano): Nasty. Refactor target to propagate resolution failure in a checked manner.
     }
@@ -83,7 +91,7 @@ public final class Utils {
     log.debug("using HeliosClient httpTimeout={}, retryTimeout={}", httpTimeout, retryTimeout);
 
     return HeliosClient.newBuilder()
-        .setEndpointSupplier(Endpoints.of(target.getEndpointSupplier()))
+        .setEndpointSupplier(Endpoints.of(endpointSupplier))
         .setHttpTimeout(httpTimeout, TimeUnit.SECONDS)
         .setRetryTimeout(retryTimeout, TimeUnit.SECONDS)
         .setSslHostnameVerification(!options.getBoolean("insecure"))
@@ -96,7 +104,7 @@ public final class Utils {
    * Return the timeout value to use, first checking the argument provided to the CLI invocation,
    * then an environment variable, then the default value.
    */
-  private static int parseTimeout(
+  static int parseTimeout(
       final Namespace options, final String dest,
       final String envVarName, final int defaultValue) {
 
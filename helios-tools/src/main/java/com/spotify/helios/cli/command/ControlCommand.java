@@ -20,29 +20,54 @@
 
 package com.spotify.helios.cli.command;
 
+import static com.google.common.base.Charsets.UTF_8;
 import static com.google.common.base.Strings.repeat;
 import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
+import com.google.common.base.Stopwatch;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.spotify.helios.cli.CliCache;
 import com.spotify.helios.cli.Target;
 import com.spotify.helios.cli.Utils;
 import com.spotify.helios.client.HeliosClient;
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.net.URI;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeoutException;
 import net.sourceforge.argparse4j.inf.Namespace;
 import net.sourceforge.argparse4j.inf.Subparser;
 
 public abstract class ControlCommand implements CliCommand {
 
+  // The number of targets that commands which support it are run against at once
+  private static final int MAX_PARALLEL_TARGETS = 8;
+
   // If true and multiple domains are passed in, will abort the command on the first non-zero
   // exit code returned for a domain. If false, the command will keep running.
   private final boolean shortCircuit;
 
+  // The cache of the target being run on the current thread
+  private final ThreadLocal<CliCache> cache = new ThreadLocal<CliCache>() {
+    @Override
+    protected CliCache initialValue() {
+      return CliCache.disabled();
+    }
+  };
+
   ControlCommand(final Subparser parser) {
     this(parser, false);
   }
@@ -57,6 +82,12 @@ public abstract class ControlCommand implements CliCommand {
                  final PrintStream err, final String username, final boolean json,
                  final BufferedReader stdin)
       throws Exception {
+    if (targets.size() > 1 && !shortCircuit && readOnly()) {
+      return json
+             ? runConcurrentlyJson(options, targets, out, err, username, stdin)
+             : runConcurrently(options, targets, out, err, username, stdin);
+    }
+
     boolean allSuccessful = true;
 
     boolean isFirst = true;
@@ -108,6 +139,123 @@ public abstract class ControlCommand implements CliCommand {
     return allSuccessful ? 0 : 1;
   }
 
+  /**
+   * Returns true if the command only reads from the cluster and never prompts, in which case it
+   * is run against all targets at once and the output of each target is printed as soon as it is
+   * complete.
+   */
+  boolean readOnly() {
+    return false;
+  }
+
+  /**
+   * Runs against all targets at once, printing the output of each target with the time it took
+   * as soon as it completes.
+   */
+  private int runConcurrently(final Namespace options, final List<Target> targets,
+                              final PrintStream out, final PrintStream err,
+                              final String username, final BufferedReader stdin)
+      throws Exception {
+    final ExecutorService executor = executor(targets.size());
+    try {
+      final CompletionService<TargetOutput> completion =
+          new ExecutorCompletionService<>(executor);
+      for (final Target target : targets) {
+        completion.submit(runner(options, target, username, false, stdin, true));
+      }
+
+      boolean allSuccessful = true;
+      for (int i = 0; i < targets.size(); i++) {
+        final TargetOutput output = get(completion.take());
+        output.print(out, err);
+        out.println();
+        out.flush();
+        allSuccessful &= output.successful;
+      }
+      return allSuccessful ? 0 : 1;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Runs against all targets at once, printing the output of each target in order as soon as it
+   * and the ones before it are complete, so that together they form a single JSON object.
+   */
+  private int runConcurrentlyJson(final Namespace options, final List<Target> targets,
+                                  final PrintStream out, final PrintStream err,
+                                  final String username, final BufferedReader stdin)
+      throws Exception {
+    final ExecutorService executor = executor(targets.size());
+    try {
+      final List<Future<TargetOutput>> outputs = Lists.newArrayList();
+      for (final Target target : targets) {
+        outputs.add(executor.submit(runner(options, target, username, true, stdin, false)));
+      }
+
+      boolean allSuccessful = true;
+      out.println("{");
+      final Iterator<Future<TargetOutput>> iterator = outputs.iterator();
+      while (iterator.hasNext()) {
+        final TargetOutput output = get(iterator.next());
+        out.println("\"" + output.target.getName() + "\": ");
+        output.print(out, err);
+        out.println(iterator.hasNext() ? ",\n" : "}");
+        out.flush();
+        allSuccessful &= output.successful;
+      }
+      return allSuccessful ? 0 : 1;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private Callable<TargetOutput> runner(final Namespace options, final Target target,
+                                        final String username, final boolean json,
+                                        final BufferedReader stdin, final boolean header) {
+    return new Callable<TargetOutput>() {
+      @Override
+      public TargetOutput call() throws Exception {
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        final ByteArrayOutputStream outBuffer = new ByteArrayOutputStream();
+        final ByteArrayOutputStream errBuffer = new ByteArrayOutputStream();
+        final PrintStream out = new PrintStream(outBuffer, true, UTF_8.name());
+        final PrintStream err = new PrintStream(errBuffer, true, UTF_8.name());
+
+        final boolean successful = run(options, target, out, err, username, json, stdin);
+
+        final StringBuilder output = new StringBuilder();
+        if (header) {
+          final List<URI> endpoints = CliCache.forTarget(target, options)
+              .endpoints(target.getEndpointSupplier()).get();
+          final String title = format("%s (%s) in %d ms", target.getName(), endpoints,
+              stopwatch.elapsed(MILLISECONDS));
+          output.append(title).append('\n').append(repeat("-", title.length())).append('\n');
+        }
+        output.append(outBuffer.toString(UTF_8.name()));
+        return new TargetOutput(target, successful, output.toString(),
+            errBuffer.toString(UTF_8.name()));
+      }
+    };
+  }
+
+  private static ExecutorService executor(final int targets) {
+    return Executors.newFixedThreadPool(Math.min(targets, MAX_PARALLEL_TARGETS),
+        new ThreadFactoryBuilder()
+            .setNameFormat("helios-cli-target-%d")
+            .setDaemon(true)
+            .build());
+  }
+
+  private static TargetOutput get(final Future<TargetOutput> future) throws Exception {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause(), Exception.class);
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
   /**
    * Execute against a cluster at a specific endpoint.
    */
@@ -116,11 +264,13 @@ public abstract class ControlCommand implements CliCommand {
                       final BufferedReader stdin)
       throws Exception {
 
-    final HeliosClient client = Utils.getClient(target, err, username, options);
+    cache.set(CliCache.forTarget(target, options));
+    final HeliosClient client = Utils.getClient(target, err, username, options, cache.get());
     if (client == null) {
       return false;
     }
 
+    final Stopwatch stopwatch = Stopwatch.createStarted();
     try {
       final int result = run(options, client, out, json, stdin);
       return result == 0;
@@ -130,17 +280,48 @@ public abstract class ControlCommand implements CliCommand {
       // "Request timed out to master in ash.spotify.net (http://ash2-helios-a4.ash2.spotify.net)",
       // otherwise "Request timed out to master http://ash2-helios-a4.ash2.spotify.net:5800"
       if (cause instanceof TimeoutException) {
-        err.println("Request timed out to master in " + target);
+        err.println("Request timed out to master in " + target + " after "
+                    + stopwatch.elapsed(MILLISECONDS) + " ms");
       } else {
         throw new RuntimeException(cause);
       }
       return false;
     } finally {
       client.close();
+      cache.remove();
     }
   }
 
+  /**
+   * Returns the cache of the target that the command is currently being run against.
+   */
+  CliCache cache() {
+    return cache.get();
+  }
+
   abstract int run(final Namespace options, final HeliosClient client, PrintStream out,
                    final boolean json, BufferedReader stdin)
       throws ExecutionException, InterruptedException, IOException;
+
+  private static class TargetOutput {
+
+    private final Target target;
+    private final boolean successful;
+    private final String out;
+    private final String err;
+
+    private TargetOutput(final Target target, final boolean successful, final String out,
+                         final String err) {
+      this.target = target;
+      this.successful = successful;
+      this.out = out;
+      this.err = err;
+    }
+
+    private void print(final PrintStream out, final PrintStream err) {
+      out.print(this.out);
+      err.print(this.err);
+      err.flush();
+    }
+  }
 }
@@ -51,6 +51,11 @@ public class DeploymentGroupInspectCommand extends ControlCommand {
         .help("Deployment group name");
   }
 
+  @Override
+  boolean readOnly() {
+    return true;
+  }
+
   @Override
   int run(final Namespace options, final HeliosClient client, final PrintStream out,
           final boolean json, final BufferedReader stdin)
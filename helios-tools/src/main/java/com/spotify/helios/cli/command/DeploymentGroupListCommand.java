@@ -38,6 +38,11 @@ public class DeploymentGroupListCommand extends ControlCommand {
     parser.help("list deployment groups");
   }
 
+  @Override
+  boolean readOnly() {
+    return true;
+  }
+
   @Override
   int run(final Namespace options, final HeliosClient client, final PrintStream out,
           final boolean json, final BufferedReader stdin)
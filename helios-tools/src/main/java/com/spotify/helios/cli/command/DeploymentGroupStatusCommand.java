@@ -60,6 +60,11 @@ public class DeploymentGroupStatusCommand extends ControlCommand {
         .help("Print full hostnames and job ids.");
   }
 
+  @Override
+  boolean readOnly() {
+    return true;
+  }
+
   @Override
   int run(final Namespace options, final HeliosClient client, final PrintStream out,
           final boolean json, final BufferedReader stdin)
@@ -113,6 +113,11 @@ public class HostListCommand extends ControlCommand {
               + "Supported operators are '=', '!=', 'in' and 'notin'.");
   }
 
+  @Override
+  boolean readOnly() {
+    return true;
+  }
+
   @Override
   int run(final Namespace options, final HeliosClient client, final PrintStream out,
           final boolean json, final BufferedReader stdin)
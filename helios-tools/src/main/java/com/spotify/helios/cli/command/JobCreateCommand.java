@@ -284,7 +284,8 @@ public class JobCreateCommand extends ControlCommand {
         .setDefault(new ArrayList<String>())
         .help("Rollout options to use during a rolling-update. Use this switch more than once to "
               + "specify multiple options. Args should be of the form key=val. Valid keys are "
-              + "migrate, parallelism, timeout, overlap, token, and ignoreFailures.");
+              + "migrate, parallelism, timeout, overlap, token, ignoreFailures, maxParallelism "
+              + "and latencyBudget.");
 
     this.envVarSupplier = envVarSupplier;
   }
@@ -57,6 +57,11 @@ public class JobHistoryCommand extends ControlCommand {
         .help("Job id");
   }
 
+  @Override
+  boolean readOnly() {
+    return true;
+  }
+
   @Override
   int run(final Namespace options, final HeliosClient client, final PrintStream out,
           final boolean json, final BufferedReader stdin)
@@ -55,8 +55,7 @@ import net.sourceforge.argparse4j.inf.Subparser;
 
 public class JobInspectCommand extends WildcardJobCommand {
 
-  private static final DateFormat DATE_FORMATTER =
-      new SimpleDateFormat("EEE, d MMM yyyy HH:mm:ss Z");
+  private static final String DATE_FORMAT = "EEE, d MMM yyyy HH:mm:ss Z";
 
   private static final Function<String, String> QUOTE = new Function<String, String>() {
     @Override
@@ -123,20 +122,32 @@ public class JobInspectCommand extends WildcardJobCommand {
     output.add(String.format("overlap: %s", options.getOverlap()));
     output.add(String.format("token: %s", options.getToken()));
     output.add(String.format("ignoreFailures: %s", options.getIgnoreFailures()));
+    if (options.getMaxParallelism() != null) {
+      output.add(String.format("maxParallelism: %d", options.getMaxParallelism()));
+    }
+    if (options.getLatencyBudget() != null) {
+      output.add(String.format("latencyBudget: %d", options.getLatencyBudget()));
+    }
     return Joiner.on(", ").join(output);
   }
 
+  private final TimeZone timeZone;
+
   public JobInspectCommand(final Subparser parser) {
-    super(parser);
-    parser.help("print the configuration of a job");
+    this(parser, TimeZone.getDefault());
   }
 
   public JobInspectCommand(final Subparser parser, final TimeZone timeZone) {
     super(parser);
-    DATE_FORMATTER.setTimeZone(timeZone);
+    this.timeZone = timeZone;
     parser.help("print the configuration of a job");
   }
 
+  @Override
+  boolean readOnly() {
+    return true;
+  }
+
   @Override
   protected int runWithJob(final Namespace options, final HeliosClient client,
                            final PrintStream out, final boolean json, final Job job,
@@ -146,12 +157,16 @@ public class JobInspectCommand extends WildcardJobCommand {
     if (json) {
       out.println(Json.asPrettyStringUnchecked(job));
     } else {
+      // SimpleDateFormat is not thread-safe, and read-only commands run against several targets
+      // at once
+      final DateFormat dateFormatter = new SimpleDateFormat(DATE_FORMAT);
+      dateFormatter.setTimeZone(timeZone);
       out.printf("Id: %s%n", job.getId());
       out.printf("Image: %s%n", job.getImage());
       out.printf("Created: %s%n",
-          job.getCreated() == null ? "" : DATE_FORMATTER.format(new Date(job.getCreated())));
+          job.getCreated() == null ? "" : dateFormatter.format(new Date(job.getCreated())));
       out.printf("Expires: %s%n",
-          job.getExpires() == null ? "never" : DATE_FORMATTER.format(job.getExpires()));
+          job.getExpires() == null ? "never" : dateFormatter.format(job.getExpires()));
       out.printf("Hostname: %s%n", job.getHostname());
       out.printf("Command: %s%n", quote(job.getCommand()));
       printMap(out, "Env:   ", QUOTE, job.getEnv());
@@ -36,6 +36,7 @@ import com.spotify.helios.common.Json;
 import com.spotify.helios.common.descriptors.Job;
 import com.spotify.helios.common.descriptors.JobId;
 import com.spotify.helios.common.descriptors.JobStatus;
+import com.spotify.helios.common.descriptors.JobStatusSummary;
 import java.io.BufferedReader;
 import java.io.PrintStream;
 import java.util.List;
@@ -76,6 +77,11 @@ public class JobListCommand extends ControlCommand {
         .help("only show deployed jobs");
   }
 
+  @Override
+  boolean readOnly() {
+    return true;
+  }
+
   @Override
   int run(final Namespace options, final HeliosClient client, final PrintStream out,
           final boolean json, final BufferedReader stdin)
@@ -101,7 +107,7 @@ public class JobListCommand extends ControlCommand {
       return 1;
     }
 
-    final Map<JobId, JobStatus> jobStatuses = getJobStatuses(client, jobs, deployed);
+    final Map<JobId, JobStatusSummary> jobStatuses = getJobStatuses(client, jobs, deployed);
 
     final Set<JobId> sortedJobIds = Sets.newTreeSet(jobStatuses.keySet());
 
@@ -130,9 +136,9 @@ public class JobListCommand extends ControlCommand {
           final Job job = jobs.get(jobId);
           final String command = on(' ').join(escape(job.getCommand()));
           final String env = Joiner.on(" ").withKeyValueSeparator("=").join(job.getEnv());
-          final JobStatus status = jobStatuses.get(jobId);
+          final JobStatusSummary status = jobStatuses.get(jobId);
           table.row(full ? jobId : jobId.toShortString(), jobId.getName(), jobId.getVersion(),
-              status != null ? status.getDeployments().keySet().size() : 0,
+              status != null ? status.getHosts() : 0,
               command, env);
         }
         table.print();
@@ -142,21 +148,29 @@ public class JobListCommand extends ControlCommand {
     return 0;
   }
 
-  private Map<JobId, JobStatus> getJobStatuses(
+  private Map<JobId, JobStatusSummary> getJobStatuses(
       final HeliosClient client,
       final Map<JobId, Job> jobs,
       final boolean deployed)
       throws InterruptedException, ExecutionException {
 
-    final Map<JobId, JobStatus> jobStatuses = client.jobStatuses(jobs.keySet()).get();
+    // Only the number of hosts of each job is shown, so ask for summaries rather than the full
+    // statuses, unless the master does not support them
+    Map<JobId, JobStatusSummary> jobStatuses = client.jobStatusSummaries(jobs.keySet()).get();
+    if (jobStatuses == null) {
+      jobStatuses = Maps.newHashMap();
+      for (final JobStatus status : client.jobStatuses(jobs.keySet()).get().values()) {
+        jobStatuses.put(status.getJob().getId(), JobStatusSummary.of(status));
+      }
+    }
 
     // maybe filter on deployed jobs
-    final Map<JobId, JobStatus> filteredJobStatuses = Maps.newHashMap();
+    final Map<JobId, JobStatusSummary> filteredJobStatuses = Maps.newHashMap();
     if (!deployed) {
       filteredJobStatuses.putAll(jobStatuses);
     } else {
-      for (final Entry<JobId, JobStatus> e : jobStatuses.entrySet()) {
-        if (!e.getValue().getDeployments().isEmpty()) {
+      for (final Entry<JobId, JobStatusSummary> e : jobStatuses.entrySet()) {
+        if (e.getValue().getHosts() > 0) {
           filteredJobStatuses.put(e.getKey(), e.getValue());
         }
       }
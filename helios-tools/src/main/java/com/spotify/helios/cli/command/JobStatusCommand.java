@@ -77,6 +77,11 @@ public class JobStatusCommand extends ControlCommand {
                        final Map<String, TaskStatus> taskStatuses);
   }
 
+  @Override
+  boolean readOnly() {
+    return true;
+  }
+
   @Override
   int run(final Namespace options, final HeliosClient client, final PrintStream out,
           final boolean json, final BufferedReader stdin)
@@ -92,7 +97,7 @@ public class JobStatusCommand extends ControlCommand {
       }
     }
 
-    final Set<JobId> jobIds = client.jobs(jobIdString, hostPattern).get().keySet();
+    final Set<JobId> jobIds = cache().jobIds(client, jobIdString, hostPattern);
 
     if (!Strings.isNullOrEmpty(jobIdString) && jobIds.isEmpty()) {
       if (json) {
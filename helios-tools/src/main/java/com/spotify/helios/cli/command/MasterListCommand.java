@@ -48,6 +48,11 @@ public class MasterListCommand extends ControlCommand {
         .help("Print full hostnames");
   }
 
+  @Override
+  boolean readOnly() {
+    return true;
+  }
+
   @Override
   int run(final Namespace options, final HeliosClient client, final PrintStream out,
           final boolean json, final BufferedReader stdin)
@@ -22,6 +22,8 @@ package com.spotify.helios.cli.command;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.spotify.helios.cli.Target;
 import com.spotify.helios.cli.Utils;
 import com.spotify.helios.client.HeliosClient;
@@ -29,7 +31,11 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeoutException;
 import net.sourceforge.argparse4j.inf.Namespace;
 import net.sourceforge.argparse4j.inf.Subparser;
@@ -37,9 +43,12 @@ import net.sourceforge.argparse4j.inf.Subparser;
 /**
  * Abstract class for commands that need to operate on multiple domains in parallel.
  * This is in contrast to a normal {@link ControlCommand}, which can operate on multiple
- * domains but does so sequentially.
+ * domains but runs the command separately against each of them.
  */
 public abstract class MultiTargetControlCommand implements CliCommand {
+
+  private static final int MAX_PARALLEL_TARGETS = 8;
+
   MultiTargetControlCommand(final Subparser parser) {
     parser.setDefault("command", this).defaultHelp(true);
   }
@@ -50,16 +59,44 @@ public abstract class MultiTargetControlCommand implements CliCommand {
                  final BufferedReader stdin)
       throws Exception {
 
+    // Resolve the masters of all targets at once
+    final ExecutorService executor = Executors.newFixedThreadPool(
+        Math.max(1, Math.min(targets.size(), MAX_PARALLEL_TARGETS)), new ThreadFactoryBuilder()
+            .setNameFormat("helios-cli-target-%d")
+            .setDaemon(true)
+            .build());
+    final List<Future<HeliosClient>> futures = Lists.newArrayList();
+    try {
+      for (final Target target : targets) {
+        futures.add(executor.submit(new Callable<HeliosClient>() {
+          @Override
+          public HeliosClient call() {
+            return Utils.getClient(target, err, username, options);
+          }
+        }));
+      }
+    } finally {
+      executor.shutdown();
+    }
+
     final Builder<TargetAndClient> clientBuilder = ImmutableList.<TargetAndClient>builder();
-    for (final Target target : targets) {
-      final HeliosClient client = Utils.getClient(target, err, username, options);
+    boolean resolved = true;
+    for (int i = 0; i < targets.size(); i++) {
+      final HeliosClient client = futures.get(i).get();
       if (client == null) {
-        return 1;
+        resolved = false;
+      } else {
+        clientBuilder.add(new TargetAndClient(targets.get(i), client));
       }
-      clientBuilder.add(new TargetAndClient(target, client));
     }
 
     final List<TargetAndClient> clients = clientBuilder.build();
+    if (!resolved) {
+      for (final TargetAndClient cc : clients) {
+        cc.getClient().close();
+      }
+      return 1;
+    }
 
     final int result;
     try {
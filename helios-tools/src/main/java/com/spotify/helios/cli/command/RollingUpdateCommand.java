@@ -64,6 +64,8 @@ public class RollingUpdateCommand extends WildcardJobCommand {
   private final Argument overlapArg;
   private final Argument tokenArg;
   private final Argument ignoreFailuresArg;
+  private final Argument maxParallelismArg;
+  private final Argument latencyBudgetArg;
 
   public RollingUpdateCommand(final Subparser parser) {
     this(parser, new SleepFunction() {
@@ -142,6 +144,19 @@ public class RollingUpdateCommand extends WildcardJobCommand {
               + "set the deployment group's status to FAILED is *ignored*. Be *VERY* careful "
               + "about using this option, as it has the potential to completely take down your "
               + "service by rolling out a broken job to all of the hosts in your group.");
+
+    maxParallelismArg = parser.addArgument("--max-par")
+        .dest("maxParallelism")
+        .type(Integer.class)
+        .help("When greater than --par, the rolling-update is adaptive: it deploys to --par hosts "
+              + "concurrently at first, doubles the number of hosts after every wave of hosts "
+              + "that reached RUNNING within the latency budget, up to this number, and halves "
+              + "it after a wave with (ignored) failures. It must not be less than --par.");
+
+    latencyBudgetArg = parser.addArgument("--latency-budget")
+        .type(Long.class)
+        .help("How long an adaptive rolling-update may take to deploy to a wave of hosts and "
+              + "still grow the next wave (seconds)");
   }
 
   @Override
@@ -160,10 +175,26 @@ public class RollingUpdateCommand extends WildcardJobCommand {
     final Boolean overlap = options.getBoolean(overlapArg.getDest());
     final String token = options.getString(tokenArg.getDest());
     final Boolean ignoreFailures = options.getBoolean(ignoreFailuresArg.getDest());
+    final Integer maxParallelism = options.getInt(maxParallelismArg.getDest());
+    final Long latencyBudget = options.getLong(latencyBudgetArg.getDest());
 
     checkArgument(timeout == null || timeout > 0, "Timeout must be greater than 0");
     checkArgument(parallelism == null || parallelism > 0, "Parallelism must be greater than 0");
     checkArgument(rolloutTimeout > 0, "Rollout timeout must be greater than 0");
+    checkArgument(maxParallelism == null || maxParallelism > 0,
+        "Max parallelism must be greater than 0");
+    checkArgument(latencyBudget == null || latencyBudget > 0,
+        "Latency budget must be greater than 0");
+
+    final RolloutOptions optionsFromJob =
+        MoreObjects.firstNonNull(job.getRolloutOptions(), RolloutOptions.getDefault());
+    final Integer actualParallelism =
+        nullableWithFallback(parallelism, optionsFromJob.getParallelism());
+    final Integer actualMaxParallelism =
+        nullableWithFallback(maxParallelism, optionsFromJob.getMaxParallelism());
+    checkArgument(actualMaxParallelism == null || actualParallelism == null
+                  || actualMaxParallelism >= actualParallelism,
+        "Max parallelism must not be less than parallelism");
 
     final long startTime = timeSupplier.get();
 
@@ -174,6 +205,8 @@ public class RollingUpdateCommand extends WildcardJobCommand {
         .setOverlap(overlap)
         .setToken(token)
         .setIgnoreFailures(ignoreFailures)
+        .setMaxParallelism(maxParallelism)
+        .setLatencyBudget(latencyBudget)
         .build();
 
     final RollingUpdateResponse response = client.rollingUpdate(name, jobId, rolloutOptions).get();
@@ -187,15 +220,13 @@ public class RollingUpdateCommand extends WildcardJobCommand {
       return 1;
     }
 
-    final RolloutOptions optionsFromJob =
-        MoreObjects.firstNonNull(job.getRolloutOptions(), RolloutOptions.getDefault());
-    final Integer actualParallelism =
-        nullableWithFallback(parallelism, optionsFromJob.getParallelism());
     final Long actualTimeout = nullableWithFallback(timeout, optionsFromJob.getTimeout());
     final Boolean actualOverlap = nullableWithFallback(overlap, optionsFromJob.getOverlap());
     final String actualToken = nullableWithFallback(token, optionsFromJob.getToken());
     final Boolean actualIgnoreFailures =
         nullableWithFallback(ignoreFailures, optionsFromJob.getIgnoreFailures());
+    final Long actualLatencyBudget =
+        nullableWithFallback(latencyBudget, optionsFromJob.getLatencyBudget());
 
     if (!json) {
       out.println(format("Rolling update%s started: %s -> %s "
@@ -218,6 +249,12 @@ public class RollingUpdateCommand extends WildcardJobCommand {
     jsonOutput.put("overlap", actualOverlap);
     jsonOutput.put("token", actualToken);
     jsonOutput.put("ignoreFailures", actualIgnoreFailures);
+    if (actualMaxParallelism != null) {
+      jsonOutput.put("maxParallelism", actualMaxParallelism);
+    }
+    if (actualLatencyBudget != null) {
+      jsonOutput.put("latencyBudget", actualLatencyBudget);
+    }
 
     if (async) {
       if (json) {
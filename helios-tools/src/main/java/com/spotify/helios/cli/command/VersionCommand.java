@@ -35,6 +35,11 @@ public class VersionCommand extends ControlCommand {
     super(parser);
   }
 
+  @Override
+  boolean readOnly() {
+    return true;
+  }
+
   @Override
   int run(final Namespace options, final HeliosClient client, final PrintStream out,
           final boolean json, final BufferedReader stdin)
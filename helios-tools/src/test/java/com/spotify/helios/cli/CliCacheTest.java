@@ -0,0 +1,118 @@
+/*-
+ * -\-\-
+ * Helios Tools
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.Futures;
+import com.spotify.helios.client.HeliosClient;
+import com.spotify.helios.common.descriptors.Job;
+import com.spotify.helios.common.descriptors.JobId;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CliCacheTest {
+
+  private static final List<URI> ENDPOINTS = ImmutableList.of(URI.create("http://master:5801"));
+  private static final JobId JOB_ID = JobId.fromString("foo:1:deadbeef");
+  private static final Map<JobId, Job> JOBS = ImmutableMap.of(JOB_ID, Job.newBuilder().build());
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final HeliosClient client = mock(HeliosClient.class);
+
+  @SuppressWarnings("unchecked")
+  private final Supplier<List<URI>> resolver = mock(Supplier.class);
+
+  private Path directory;
+
+  @Before
+  public void setUp() throws Exception {
+    directory = temporaryFolder.getRoot().toPath();
+    when(resolver.get()).thenReturn(ENDPOINTS);
+    when(client.jobs("foo", "host")).thenReturn(Futures.immediateFuture(JOBS));
+  }
+
+  @Test
+  public void testSharedBetweenInstances() throws Exception {
+    assertEquals(ENDPOINTS, new CliCache(directory, "foo", 60000).endpoints(resolver).get());
+    assertEquals(ImmutableSet.of(JOB_ID),
+        new CliCache(directory, "foo", 60000).jobIds(client, "foo", "host"));
+
+    assertEquals(ENDPOINTS, new CliCache(directory, "foo", 60000).endpoints(resolver).get());
+    assertEquals(ImmutableSet.of(JOB_ID),
+        new CliCache(directory, "foo", 60000).jobIds(client, "foo", "host"));
+
+    verify(resolver, times(1)).get();
+    verify(client, times(1)).jobs("foo", "host");
+  }
+
+  @Test
+  public void testTargetsAreSeparate() throws Exception {
+    new CliCache(directory, "foo", 60000).endpoints(resolver).get();
+    new CliCache(directory, "bar", 60000).endpoints(resolver).get();
+
+    verify(resolver, times(2)).get();
+  }
+
+  @Test
+  public void testJobQueriesAreSeparate() throws Exception {
+    when(client.jobs("bar", "host")).thenReturn(Futures.immediateFuture(JOBS));
+
+    new CliCache(directory, "foo", 60000).jobIds(client, "foo", "host");
+    new CliCache(directory, "foo", 60000).jobIds(client, "bar", "host");
+
+    verify(client, times(1)).jobs("foo", "host");
+    verify(client, times(1)).jobs("bar", "host");
+  }
+
+  @Test
+  public void testExpired() throws Exception {
+    new CliCache(directory, "foo", 60000).jobIds(client, "foo", "host");
+    new CliCache(directory, "foo", 0).jobIds(client, "foo", "host");
+    Thread.sleep(10);
+    new CliCache(directory, "foo", 1).jobIds(client, "foo", "host");
+
+    verify(client, times(3)).jobs("foo", "host");
+  }
+
+  @Test
+  public void testDisabled() throws Exception {
+    CliCache.disabled().endpoints(resolver).get();
+    CliCache.disabled().endpoints(resolver).get();
+
+    verify(resolver, times(2)).get();
+  }
+}
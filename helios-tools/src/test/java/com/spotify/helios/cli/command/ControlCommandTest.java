@@ -0,0 +1,108 @@
+/*-
+ * -\-\-
+ * Helios Tools
+ * --
+ * Copyright (C) 2016 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.helios.cli.command;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.spotify.helios.cli.Target;
+import com.spotify.helios.client.HeliosClient;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.inf.Subparser;
+import org.junit.Test;
+
+public class ControlCommandTest {
+
+  private static final List<Target> TARGETS = ImmutableList.of(
+      Target.from(URI.create("http://a:5801")), Target.from(URI.create("http://b:5801")));
+
+  private final Namespace options = new Namespace(ImmutableMap.<String, Object>of(
+      "insecure", false, "google_credentials", false));
+  private final Subparser subparser =
+      ArgumentParsers.newArgumentParser("test").addSubparsers().addParser("test");
+  private final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+  private final PrintStream out = new PrintStream(baos);
+
+  // Only completes if the command is running against both targets at once
+  private final CountDownLatch running = new CountDownLatch(TARGETS.size());
+
+  @Test
+  public void testReadOnlyRunsTargetsConcurrently() throws Exception {
+    final ControlCommand command = new ControlCommand(subparser) {
+      @Override
+      boolean readOnly() {
+        return true;
+      }
+
+      @Override
+      int run(final Namespace options, final HeliosClient client, final PrintStream out,
+              final boolean json, final BufferedReader stdin) throws InterruptedException {
+        running.countDown();
+        if (!running.await(30, TimeUnit.SECONDS)) {
+          return 1;
+        }
+        out.println("ok");
+        return 0;
+      }
+    };
+
+    assertEquals(0, command.run(options, TARGETS, out, out, "user", false, null));
+    final String output = baos.toString();
+    assertThat(output, containsString("http://a:5801 ([http://a:5801]) in "));
+    assertThat(output, containsString("http://b:5801 ([http://b:5801]) in "));
+  }
+
+  @Test
+  public void testReadOnlyJsonKeepsTargetOrder() throws Exception {
+    final ControlCommand command = new ControlCommand(subparser) {
+      @Override
+      boolean readOnly() {
+        return true;
+      }
+
+      @Override
+      int run(final Namespace options, final HeliosClient client, final PrintStream out,
+              final boolean json, final BufferedReader stdin) throws InterruptedException {
+        running.countDown();
+        if (!running.await(30, TimeUnit.SECONDS)) {
+          return 1;
+        }
+        out.println("\"ok\"");
+        return 0;
+      }
+    };
+
+    assertEquals(0, command.run(options, TARGETS, out, out, "user", true, null));
+    assertEquals("{\n\"http://a:5801\": \n\"ok\"\n,\n\n\"http://b:5801\": \n\"ok\"\n}\n",
+        baos.toString());
+  }
+}
@@ -34,6 +34,7 @@ import com.spotify.helios.common.descriptors.Goal;
 import com.spotify.helios.common.descriptors.Job;
 import com.spotify.helios.common.descriptors.JobId;
 import com.spotify.helios.common.descriptors.JobStatus;
+import com.spotify.helios.common.descriptors.JobStatusSummary;
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 import java.util.HashMap;
@@ -82,6 +83,14 @@ public class JobListCommandTest {
     }
 
     when(client.jobStatuses(jobs.keySet())).thenReturn(Futures.immediateFuture(statuses));
+
+    final Map<JobId, JobStatusSummary> summaries = new HashMap<>();
+    for (final JobId jobId : jobs.keySet()) {
+      summaries.put(jobId, new JobStatusSummary(jobId, 1, null,
+          ImmutableMap.of(Goal.START, 1), null));
+    }
+    when(client.jobStatusSummaries(jobs.keySet()))
+        .thenReturn(Futures.immediateFuture(summaries));
   }
 
   @Test
@@ -26,9 +26,11 @@ import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -510,6 +512,21 @@ public class RollingUpdateCommandTest {
     assertThat(baos.toString(), containsString(optionString));
   }
 
+  @Test
+  public void testMaxParallelismBelowParallelismOfJobIsRejected() throws Exception {
+    when(options.getInt("parallelism")).thenReturn(null);
+    when(options.getInt("maxParallelism")).thenReturn(4);
+
+    try {
+      command.runWithJob(options, client, out, false, JOB, null);
+      fail("expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Max parallelism must not be less than parallelism", e.getMessage());
+    }
+    verify(client, never()).rollingUpdate(anyString(), any(JobId.class),
+        any(RolloutOptions.class));
+  }
+
   @Test
   public void testFallbackToJobOptions() throws Exception {
     final Namespace cmdlineOptions = mock(Namespace.class);